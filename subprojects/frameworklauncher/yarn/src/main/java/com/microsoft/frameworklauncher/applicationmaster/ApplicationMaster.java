@@ -35,12 +35,14 @@
 import com.microsoft.frameworklauncher.common.service.StopStatus;
 import com.microsoft.frameworklauncher.common.service.SystemTaskQueue;
 import com.microsoft.frameworklauncher.common.utils.CommonUtils;
+import com.microsoft.frameworklauncher.common.utils.CompressionOptions;
 import com.microsoft.frameworklauncher.common.utils.HadoopUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import com.microsoft.frameworklauncher.common.utils.ValueRangeUtils;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
 import com.microsoft.frameworklauncher.common.web.WebCommon;
 import com.microsoft.frameworklauncher.hdfsstore.HdfsStore;
 import com.microsoft.frameworklauncher.hdfsstore.HdfsStoreStructure;
+import com.microsoft.frameworklauncher.zookeeperstore.SerializationCodecs;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 import org.apache.hadoop.yarn.api.ApplicationConstants;
 import org.apache.hadoop.yarn.api.protocolrecords.RegisterApplicationMasterResponse;
@@ -154,6 +156,11 @@ protected void initialize() throws Exception {
     // Initialize Launcher Store
     zkStore = new ZookeeperStore(conf.getZkConnectString(), conf.getZkRootDir());
     conf.initializeDependOnZKStoreConfig(zkStore);
+    zkStore.setSerializationCodec(SerializationCodecs.getCodec(conf.getLauncherConfig().getZkSerializationCodec()));
+    zkStore.setCompressionOptions(new CompressionOptions(
+        conf.getLauncherConfig().getZkCompressionLevel(),
+        CompressionOptions.parseStrategy(conf.getLauncherConfig().getZkCompressionStrategy()),
+        conf.getLauncherConfig().getZkCompressionDictionaryEnabled()));
     FrameworkExitSpec.initialize(conf.getUserContainerExitSpec());
     AMDiagnostics.limitSerializationMaxBytes(conf.getLauncherConfig().getAmDiagnosticsMaxBytes());
     hdfsStore = new HdfsStore(conf.getLauncherConfig().getHdfsRootDir());
@@ -662,7 +669,7 @@ private void addContainerRequest(TaskStatus taskStatus) throws Exception {
               "Will retry after %ss.",
           setupContainerRequestRetryIntervalSec);
 
-      TaskStatus taskStatusSnapshot = YamlUtils.deepCopy(taskStatus, TaskStatus.class);
+      TaskStatus taskStatusSnapshot = ModelUtils.deepCopy(taskStatus, TaskStatus.class);
       transitionTaskStateQueue.queueSystemTaskDelayed(() -> {
         if (statusManager.containsTask(taskStatusSnapshot)) {
           addContainerRequest(taskStatusSnapshot);
@@ -744,7 +751,7 @@ private void attemptToRetry(TaskStatus taskStatus) throws Exception {
     Integer exitCode = taskStatus.getContainerExitCode();
     ExitType exitType = taskStatus.getContainerExitType();
     Integer retriedCount = taskStatus.getTaskRetryPolicyState().getRetriedCount();
-    RetryPolicyState newRetryPolicyState = YamlUtils.deepCopy(taskStatus.getTaskRetryPolicyState(), RetryPolicyState.class);
+    RetryPolicyState newRetryPolicyState = ModelUtils.deepCopy(taskStatus.getTaskRetryPolicyState(), RetryPolicyState.class);
 
     RetryPolicyDescriptor retryPolicy = requestManager.getTaskRetryPolicy(taskRoleName);
     Boolean fancyRetryPolicy = retryPolicy.getFancyRetryPolicy();
@@ -20,8 +20,9 @@
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 import com.microsoft.frameworklauncher.common.model.*;
 import com.microsoft.frameworklauncher.common.service.AbstractService;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import com.microsoft.frameworklauncher.hdfsstore.HdfsStore;
+import com.microsoft.frameworklauncher.zookeeperstore.ZooKeeperClient.VersionedObject;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 
 import java.util.Map;
@@ -42,6 +43,9 @@ public class FrameworkInfoPublisher extends AbstractService {  // THREAD SAFE
 
   // Latest Published FrameworkInfo
   private FrameworkInfo publishedFrameworkInfo;
+  // Latest Get FrameworkStatus and its version on ZK, so that it is only Get again if it is changed
+  private FrameworkStatus frameworkStatus;
+  private Long frameworkStatusVersion;
 
   /**
    * REGION AbstractService
@@ -100,7 +104,7 @@ protected void run() throws Exception {
    */
   private void publishFrameworkInfo() throws Exception {
     FrameworkInfo newFrameworkInfo = getFrameworkInfo();
-    if (YamlUtils.deepEquals(publishedFrameworkInfo, newFrameworkInfo)) {
+    if (ModelUtils.deepEquals(publishedFrameworkInfo, newFrameworkInfo)) {
       return;
     }
 
@@ -117,7 +121,12 @@ private FrameworkInfo getFrameworkInfo() throws Exception {
     FrameworkRequest frameworkRequest = aggFrameworkRequest.getFrameworkRequest();
 
     AggregatedFrameworkStatus aggFrameworkStatus = new AggregatedFrameworkStatus();
-    FrameworkStatus frameworkStatus = zkStore.getFrameworkStatus(conf.getFrameworkName());
+    VersionedObject<FrameworkStatus> versionedFrameworkStatus =
+        zkStore.getFrameworkStatusIfChanged(conf.getFrameworkName(), frameworkStatusVersion);
+    if (versionedFrameworkStatus != null) {
+      frameworkStatus = versionedFrameworkStatus.getObject();
+      frameworkStatusVersion = versionedFrameworkStatus.getVersion();
+    }
     Map<String, AggregatedTaskRoleStatus> aggTaskRoleStatuses = statusManager.getPersistedAggTaskRoleStatuses();
     aggFrameworkStatus.setFrameworkStatus(frameworkStatus);
     aggFrameworkStatus.setAggregatedTaskRoleStatuses(aggTaskRoleStatuses);
@@ -27,17 +27,24 @@
 public class Node implements Comparable<Node> {
   private final String host;
   private Set<String> labels;
-  private ResourceDescriptor totalResource;
-  private ResourceDescriptor usedResource;
-  private ResourceDescriptor requestedResource;
+  // Resources are kept as ResourceVector, so that the scheduling hot path does not allocate.
+  // They are converted to ResourceDescriptor only when exposed by the ResourceDescriptor getters.
+  private final ResourceVector totalResource;
+  private final ResourceVector usedResource;
+  private final ResourceVector requestedResource;
+  // AvailableResource = TotalResource - UsedResource - RequestedResource.
+  // It is updated once any of the above is changed.
+  private final ResourceVector availableResource;
 
   @VisibleForTesting
   public Node(String host, Set<String> labels, ResourceDescriptor totalResource, ResourceDescriptor usedResource) {
     this.host = host;
     this.labels = labels;
-    this.totalResource = totalResource;
-    this.usedResource = usedResource;
-    this.requestedResource = ResourceDescriptor.newInstance(0, 0);
+    this.totalResource = ResourceVector.fromResourceDescriptor(totalResource);
+    this.usedResource = ResourceVector.fromResourceDescriptor(usedResource);
+    this.requestedResource = ResourceVector.fromResourceDescriptor(ResourceDescriptor.newInstance(0, 0));
+    this.availableResource = new ResourceVector();
+    updateAvailableResource();
   }
 
   public static Node fromNodeReport(NodeReport nodeReport) throws Exception {
@@ -58,11 +65,11 @@ public int compareTo(Node other) {
       return -1;
     }
 
-    ResourceDescriptor thisAvailableResource = this.getAvailableResource();
-    ResourceDescriptor otherAvailableResource = other.getAvailableResource();
+    ResourceVector thisAvailableResource = this.availableResource;
+    ResourceVector otherAvailableResource = other.availableResource;
 
-    ResourceDescriptor thisTotalResource = this.getTotalResource();
-    ResourceDescriptor otherTotalResource = other.getTotalResource();
+    ResourceVector thisTotalResource = this.totalResource;
+    ResourceVector otherTotalResource = other.totalResource;
 
     // Packing first, the available Gpu first.
     if (thisAvailableResource.getGpuNumber() > otherAvailableResource.getGpuNumber()) {
@@ -100,8 +107,13 @@ public int compareTo(Node other) {
   public void updateFromReportedNode(Node reportedNode) {
     assert (host.equals(reportedNode.getHost()));
     labels = reportedNode.getLabels();
-    totalResource = reportedNode.getTotalResource();
-    usedResource = reportedNode.getUsedResource();
+    totalResource.set(reportedNode.totalResource);
+    usedResource.set(reportedNode.usedResource);
+    updateAvailableResource();
+  }
+
+  private void updateAvailableResource() {
+    availableResource.set(totalResource).subtract(usedResource).subtract(requestedResource);
   }
 
   public String getHost() {
@@ -114,36 +126,47 @@ public Set<String> getLabels() {
 
   // Guarantees getGpuNumber() == bitCount(getGpuAttribute()), since it is from RM NodeReport.
   public ResourceDescriptor getTotalResource() {
-    return totalResource;
+    return totalResource.toResourceDescriptor();
   }
 
   // Guarantees getGpuNumber() == bitCount(getGpuAttribute()), since it is from RM NodeReport.
   public ResourceDescriptor getUsedResource() {
-    return usedResource;
+    return usedResource.toResourceDescriptor();
   }
 
   // It is the outstanding Requested Resource, i.e. it does not include the satisfied or canceled request.
   // It does not include the Requested Resource for ANY node, i.e. without a node specified.
   // Guarantees getGpuNumber() == bitCount(getGpuAttribute()), since we do not add a node request without GpuAttribute.
   public ResourceDescriptor getRequestedResource() {
-    return requestedResource;
+    return requestedResource.toResourceDescriptor();
   }
 
   // AvailableResource = TotalResource - UsedResource - RequestedResource.
   // Guarantees getGpuNumber() == bitCount(getGpuAttribute()), since it comes from sources with the same characteristic.
   public ResourceDescriptor getAvailableResource() {
-    return ResourceDescriptor.subtract(
-        ResourceDescriptor.subtract(totalResource, usedResource), requestedResource);
+    return availableResource.toResourceDescriptor();
+  }
+
+  // The ResourceVector getters are for the scheduling hot path, and the returned
+  // ResourceVector must not be changed by the caller.
+  public ResourceVector getTotalResourceVector() {
+    return totalResource;
+  }
+
+  public ResourceVector getAvailableResourceVector() {
+    return availableResource;
   }
 
   // Add outstanding requested container request.
   public void addContainerRequest(ResourceDescriptor resource) {
-    requestedResource = ResourceDescriptor.add(requestedResource, resource);
+    requestedResource.add(ResourceVector.fromResourceDescriptor(resource));
+    updateAvailableResource();
   }
 
   // Remove outstanding requested container request.
   public void removeContainerRequest(ResourceDescriptor resource) {
-    requestedResource = ResourceDescriptor.subtract(requestedResource, resource);
+    requestedResource.subtract(ResourceVector.fromResourceDescriptor(resource));
+    updateAvailableResource();
   }
 
   @Override
@@ -0,0 +1,300 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.applicationmaster;
+
+import com.microsoft.frameworklauncher.common.model.NodeConfiguration;
+import com.microsoft.frameworklauncher.common.utils.HadoopUtils;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Incrementally maintained index of all nodes for {@link SelectionManager}.
+ * Nodes are bucketed by their partition, i.e. the YARN node label, and their
+ * configured GpuType, and each bucket is ordered the same way as {@link Node#compareTo}.
+ * So the packing candidates can be found by a range scan from the requested Gpu number,
+ * instead of filtering and sorting all nodes for each request.
+ *
+ * An indexed node must be re-indexed by {@link #update} once its resource is changed.
+ */
+public class NodeIndex { // NOT THREAD SAFE
+  private static final String UNKNOWN_GPU_TYPE = "";
+
+  private final Random random = new Random();
+
+  // Partition -> GpuType -> Ordered Entries
+  private final Map<String, Map<String, TreeSet<Entry>>> buckets = new HashMap<>();
+  // Host -> Current Entry
+  private final Map<String, Entry> entries = new HashMap<>();
+  // The ClusterConfiguration Nodes which current GpuType buckets are built from
+  private Map<String, NodeConfiguration> configuredNodes = null;
+
+  private static class Entry {
+    private final Node node;
+    private final String partition;
+    private final String gpuType;
+    private final int availableGpuNumber;
+    private final int totalGpuNumber;
+    private final int availableCpuNumber;
+    private final int availableMemoryMB;
+    // The random position of the node among the tied nodes, i.e. the nodes with the same
+    // resource, from which each selection starts at a random offset, see selectNodes.
+    // It is within [0, Integer.MAX_VALUE), so that the tie bounds are out of its range.
+    private final int tieBreaker;
+
+    private Entry(Node node, String partition, String gpuType, int tieBreaker) {
+      ResourceVector availableResource = node.getAvailableResourceVector();
+      this.node = node;
+      this.partition = partition;
+      this.gpuType = gpuType;
+      this.availableGpuNumber = availableResource.getGpuNumber();
+      this.totalGpuNumber = node.getTotalResourceVector().getGpuNumber();
+      this.availableCpuNumber = availableResource.getCpuNumber();
+      this.availableMemoryMB = availableResource.getMemoryMB();
+      this.tieBreaker = tieBreaker;
+    }
+
+    // The smallest Entry which has at least the given available Gpu number
+    private Entry(int availableGpuNumber) {
+      this.node = null;
+      this.partition = null;
+      this.gpuType = null;
+      this.availableGpuNumber = availableGpuNumber;
+      this.totalGpuNumber = Integer.MIN_VALUE;
+      this.availableCpuNumber = Integer.MIN_VALUE;
+      this.availableMemoryMB = Integer.MIN_VALUE;
+      this.tieBreaker = Integer.MIN_VALUE;
+    }
+
+    // The bound of the tied Entries of the given Entry, at the given tieBreaker
+    private Entry(Entry tiedEntry, int tieBreaker) {
+      this.node = null;
+      this.partition = null;
+      this.gpuType = null;
+      this.availableGpuNumber = tiedEntry.availableGpuNumber;
+      this.totalGpuNumber = tiedEntry.totalGpuNumber;
+      this.availableCpuNumber = tiedEntry.availableCpuNumber;
+      this.availableMemoryMB = tiedEntry.availableMemoryMB;
+      this.tieBreaker = tieBreaker;
+    }
+
+    private String getHost() {
+      return (node == null ? "" : node.getHost());
+    }
+  }
+
+  // Aligned with Node.compareTo
+  private static int compareResource(Entry e1, Entry e2) {
+    int ret = Integer.compare(e1.availableGpuNumber, e2.availableGpuNumber);
+    if (ret != 0) {
+      return ret;
+    }
+    ret = Integer.compare(e1.totalGpuNumber, e2.totalGpuNumber);
+    if (ret != 0) {
+      return ret;
+    }
+    ret = Integer.compare(e1.availableCpuNumber, e2.availableCpuNumber);
+    if (ret != 0) {
+      return ret;
+    }
+    return Integer.compare(e1.availableMemoryMB, e2.availableMemoryMB);
+  }
+
+  private static final Comparator<Entry> ENTRY_COMPARATOR = (e1, e2) -> {
+    int ret = compareResource(e1, e2);
+    if (ret != 0) {
+      return ret;
+    }
+    ret = Integer.compare(e1.tieBreaker, e2.tieBreaker);
+    if (ret != 0) {
+      return ret;
+    }
+    return e1.getHost().compareTo(e2.getHost());
+  };
+
+  // The order of a selection, i.e. the ENTRY_COMPARATOR order, but the tied Entries are
+  // rotated to start from the given tieBreakerOffset.
+  private static Comparator<Entry> getSelectionComparator(int tieBreakerOffset) {
+    return (e1, e2) -> {
+      int ret = compareResource(e1, e2);
+      if (ret != 0) {
+        return ret;
+      }
+      ret = Integer.compareUnsigned(e1.tieBreaker - tieBreakerOffset, e2.tieBreaker - tieBreakerOffset);
+      if (ret != 0) {
+        return ret;
+      }
+      return e1.getHost().compareTo(e2.getHost());
+    };
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public boolean containsNode(String host) {
+    return entries.containsKey(host);
+  }
+
+  // Index a new node or re-index an existing node
+  public void update(Node node) {
+    Entry oldEntry = removeEntry(node.getHost());
+    int tieBreaker = (oldEntry == null ? random.nextInt(Integer.MAX_VALUE) : oldEntry.tieBreaker);
+    addEntry(new Entry(node, HadoopUtils.getPartition(node.getLabels()), getGpuType(node.getHost()), tieBreaker));
+  }
+
+  public void remove(String host) {
+    removeEntry(host);
+  }
+
+  // Rebucket all nodes by GpuType if the ClusterConfiguration Nodes is changed
+  public void updateConfiguredNodes(Map<String, NodeConfiguration> configuredNodes) {
+    if (this.configuredNodes == configuredNodes) {
+      return;
+    }
+
+    this.configuredNodes = configuredNodes;
+    List<Entry> oldEntries = new ArrayList<>(entries.values());
+    buckets.clear();
+    entries.clear();
+    for (Entry oldEntry : oldEntries) {
+      addEntry(new Entry(oldEntry.node, oldEntry.partition, getGpuType(oldEntry.node.getHost()), oldEntry.tieBreaker));
+    }
+  }
+
+  // Get all nodes in the partition with one of the GpuTypes.
+  // Null partition means any partition, i.e. the nodes are not filtered by NodeLabel.
+  // Null requestGpuTypes means any GpuType, including the nodes not configured.
+  public List<Node> getNodes(String partition, List<String> requestGpuTypes) {
+    List<Node> nodes = new ArrayList<>();
+    for (TreeSet<Entry> bucket : getBuckets(partition, requestGpuTypes)) {
+      for (Entry entry : bucket) {
+        nodes.add(entry.node);
+      }
+    }
+    return nodes;
+  }
+
+  // Get the first maxNodeCount nodes in packing order, which are in the partition with
+  // one of the GpuTypes, have at least minGpuNumber available Gpus and are accepted by nodeFilter.
+  // The tied nodes are returned in a different order for each selection, so that the requests
+  // are spread among them, instead of always packed to the same one.
+  public List<Node> selectNodes(
+      String partition, List<String> requestGpuTypes, int minGpuNumber,
+      Predicate<Node> nodeFilter, int maxNodeCount) {
+    if (maxNodeCount <= 0) {
+      return new ArrayList<>();
+    }
+
+    int tieBreakerOffset = random.nextInt(Integer.MAX_VALUE);
+    List<Entry> candidates = new ArrayList<>();
+    for (TreeSet<Entry> bucket : getBuckets(partition, requestGpuTypes)) {
+      // Top maxNodeCount of each bucket is enough to merge the top maxNodeCount of all buckets
+      List<Entry> bucketCandidates = new ArrayList<>();
+      Entry entry = bucket.ceiling(new Entry(minGpuNumber));
+      while (entry != null && bucketCandidates.size() < maxNodeCount) {
+        // Scan the tied Entries from the tieBreakerOffset, and then wrap around to the first one
+        Entry tieStart = new Entry(entry, Integer.MIN_VALUE);
+        Entry tieOffset = new Entry(entry, tieBreakerOffset);
+        Entry tieEnd = new Entry(entry, Integer.MAX_VALUE);
+        addCandidates(bucketCandidates, bucket.subSet(tieOffset, true, tieEnd, false), nodeFilter, maxNodeCount);
+        addCandidates(bucketCandidates, bucket.subSet(tieStart, true, tieOffset, false), nodeFilter, maxNodeCount);
+        entry = bucket.higher(tieEnd);
+      }
+      candidates.addAll(bucketCandidates);
+    }
+    candidates.sort(getSelectionComparator(tieBreakerOffset));
+
+    List<Node> nodes = new ArrayList<>();
+    for (int i = 0; i < maxNodeCount && i < candidates.size(); i++) {
+      nodes.add(candidates.get(i).node);
+    }
+    return nodes;
+  }
+
+  private static void addCandidates(
+      List<Entry> candidates, Set<Entry> entries, Predicate<Node> nodeFilter, int maxNodeCount) {
+    for (Entry entry : entries) {
+      if (candidates.size() >= maxNodeCount) {
+        return;
+      }
+      if (nodeFilter.test(entry.node)) {
+        candidates.add(entry);
+      }
+    }
+  }
+
+  // Null partition means any partition
+  private List<TreeSet<Entry>> getBuckets(String partition, List<String> requestGpuTypes) {
+    List<TreeSet<Entry>> ret = new ArrayList<>();
+    if (partition == null) {
+      for (Map<String, TreeSet<Entry>> partitionBuckets : buckets.values()) {
+        addBuckets(ret, partitionBuckets, requestGpuTypes);
+      }
+    } else if (buckets.containsKey(partition)) {
+      addBuckets(ret, buckets.get(partition), requestGpuTypes);
+    }
+    return ret;
+  }
+
+  private static void addBuckets(
+      List<TreeSet<Entry>> ret, Map<String, TreeSet<Entry>> partitionBuckets, List<String> requestGpuTypes) {
+    if (requestGpuTypes == null) {
+      ret.addAll(partitionBuckets.values());
+    } else {
+      for (String requestGpuType : new HashSet<>(requestGpuTypes)) {
+        if (!requestGpuType.equals(UNKNOWN_GPU_TYPE) && partitionBuckets.containsKey(requestGpuType)) {
+          ret.add(partitionBuckets.get(requestGpuType));
+        }
+      }
+    }
+  }
+
+  private String getGpuType(String host) {
+    if (configuredNodes == null || !configuredNodes.containsKey(host)) {
+      return UNKNOWN_GPU_TYPE;
+    }
+    String gpuType = configuredNodes.get(host).getGpuType();
+    return (gpuType == null ? UNKNOWN_GPU_TYPE : gpuType);
+  }
+
+  private void addEntry(Entry entry) {
+    entries.put(entry.getHost(), entry);
+    buckets.computeIfAbsent(entry.partition, k -> new HashMap<>())
+        .computeIfAbsent(entry.gpuType, k -> new TreeSet<>(ENTRY_COMPARATOR))
+        .add(entry);
+  }
+
+  private Entry removeEntry(String host) {
+    Entry entry = entries.remove(host);
+    if (entry == null) {
+      return null;
+    }
+
+    Map<String, TreeSet<Entry>> partitionBuckets = buckets.get(entry.partition);
+    TreeSet<Entry> bucket = partitionBuckets.get(entry.gpuType);
+    bucket.remove(entry);
+    if (bucket.isEmpty()) {
+      partitionBuckets.remove(entry.gpuType);
+      if (partitionBuckets.isEmpty()) {
+        buckets.remove(entry.partition);
+      }
+    }
+    return entry;
+  }
+}
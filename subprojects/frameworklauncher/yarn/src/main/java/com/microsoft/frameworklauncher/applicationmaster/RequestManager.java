@@ -24,8 +24,10 @@
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 import com.microsoft.frameworklauncher.common.model.*;
 import com.microsoft.frameworklauncher.common.service.AbstractService;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import com.microsoft.frameworklauncher.common.web.WebCommon;
+import com.microsoft.frameworklauncher.zookeeperstore.ZooKeeperClient.VersionedObject;
+import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperFrameworkRequestWatcher;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 import org.apache.log4j.Level;
 import org.apache.zookeeper.KeeperException.NoNodeException;
@@ -62,6 +64,22 @@ public class RequestManager extends AbstractService {  // THREAD SAFE
    * REGION StateVariable
    */
   private volatile Boolean existsLocalVersionFrameworkRequest;
+  // The versions of the last pulled LauncherStatus and LauncherRequest on ZK, so that they
+  // are only pulled again if they are changed.
+  private Long launcherStatusVersion = null;
+  private Long launcherRequestVersion = null;
+  // Only used if amRequestWatchEnable
+  private ZookeeperFrameworkRequestWatcher requestWatcher;
+
+
+  /**
+   * REGION Counters
+   */
+  // Only updated in the RequestManager Thread
+  private volatile long requestWatchEventCount = 0;
+  // The latency from a Request change is detected to it is applied to AM
+  private volatile long lastRequestAppliedLatencyMs = 0;
+  private volatile long maxRequestAppliedLatencyMs = 0;
 
 
   /**
@@ -93,6 +111,14 @@ protected Boolean handleException(Exception e) {
   protected void recover() throws Exception {
     super.recover();
 
+    if (conf.getLauncherConfig().getAmRequestWatchEnable()) {
+      // The initial changes always require resync, i.e. all watches are set before pullRequest,
+      // so that no change will be missed after pullRequest.
+      requestWatcher = zkStore.newFrameworkRequestWatcher(conf.getFrameworkName());
+      requestWatcher.start();
+      requestWatcher.takeChanges(0);
+    }
+
     checkAmVersion();
     pullRequest();
 
@@ -107,10 +133,14 @@ protected void run() throws Exception {
     new Thread(() -> {
       while (true) {
         try {
-          Thread.sleep(conf.getLauncherConfig().getAmRequestPullIntervalSec() * 1000);
-
-          checkAmVersion();
-          pullRequest();
+          if (requestWatcher == null) {
+            Thread.sleep(conf.getLauncherConfig().getAmRequestPullIntervalSec() * 1000);
+
+            checkAmVersion();
+            pullRequest();
+          } else {
+            watchRequest(conf.getLauncherConfig().getAmRequestPullIntervalSec() * 1000);
+          }
         } catch (Exception e) {
           // Directly throw TransientException to AM to actively migrate to another node
           handleException(e);
@@ -127,30 +157,41 @@ protected void run() throws Exception {
   // which may lead AM process cannot be killed in time.
   private void checkAmVersion() throws Exception {
     // LauncherStatus should always exist.
-    LauncherStatus launcherStatus;
+    VersionedObject<LauncherStatus> versionedLauncherStatus;
     try {
-      launcherStatus = zkStore.getLauncherStatus();
+      versionedLauncherStatus = zkStore.getLauncherStatusIfChanged(launcherStatusVersion);
     } catch (NoNodeException e) {
       throw new NonTransientException(
           "Failed to getLauncherStatus to checkAmVersion, LauncherStatus is already deleted on ZK", e);
     }
 
+    // Unchanged LauncherStatus is already checked
+    if (versionedLauncherStatus == null) {
+      return;
+    }
+
+    LauncherStatus launcherStatus = versionedLauncherStatus.getObject();
     Integer newAmVersion = launcherStatus.getLauncherConfiguration().getAmVersion();
     if (!newAmVersion.equals(conf.getAmVersion())) {
       throw new NonTransientException(String.format(
           "AmVersion mismatch: Local Version %s, Latest Version %s",
           conf.getAmVersion(), newAmVersion));
     }
+    launcherStatusVersion = versionedLauncherStatus.getVersion();
   }
 
   private void pullRequest() throws Exception {
     // Pull LauncherRequest
     LOGGER.logDebug("Pulling LauncherRequest");
-    LauncherRequest newLauncherRequest = zkStore.getLauncherRequest();
+    VersionedObject<LauncherRequest> versionedLauncherRequest =
+        zkStore.getLauncherRequestIfChanged(launcherRequestVersion);
     LOGGER.logDebug("Pulled LauncherRequest");
 
-    // newLauncherRequest is always not null
-    updateLauncherRequest(newLauncherRequest);
+    // versionedLauncherRequest is null if it is unchanged, otherwise its object is always not null
+    if (versionedLauncherRequest != null) {
+      updateLauncherRequest(versionedLauncherRequest.getObject());
+      launcherRequestVersion = versionedLauncherRequest.getVersion();
+    }
 
     // Pull AggregatedFrameworkRequest
     AggregatedFrameworkRequest newAggFrameworkRequest;
@@ -172,8 +213,28 @@ private void pullRequest() throws Exception {
     aggFrameworkRequest = newAggFrameworkRequest;
   }
 
+  // Pull the Request once any change is watched, or after durationMs elapsed in case
+  // any change is missed.
+  // ONLY package-private for testing
+  void watchRequest(long durationMs) throws Exception {
+    ZookeeperFrameworkRequestWatcher.RequestChanges changes = requestWatcher.takeChanges(durationMs);
+
+    checkAmVersion();
+    pullRequest();
+
+    if (changes != null && changes.getFirstEventTimestamp() != Long.MAX_VALUE) {
+      requestWatchEventCount += changes.getEventCount();
+      lastRequestAppliedLatencyMs = System.currentTimeMillis() - changes.getFirstEventTimestamp();
+      maxRequestAppliedLatencyMs = Math.max(maxRequestAppliedLatencyMs, lastRequestAppliedLatencyMs);
+
+      LOGGER.logInfo("RequestWatchCounters: " +
+              "WatchEvents: [%s], LastAppliedLatencyMs: [%s], MaxAppliedLatencyMs: [%s]",
+          requestWatchEventCount, lastRequestAppliedLatencyMs, maxRequestAppliedLatencyMs);
+    }
+  }
+
   private void updateLauncherRequest(LauncherRequest newLauncherRequest) {
-    if (YamlUtils.deepEquals(launcherRequest, newLauncherRequest)) {
+    if (ModelUtils.deepEquals(launcherRequest, newLauncherRequest)) {
       return;
     }
 
@@ -238,7 +299,7 @@ private void checkUnsupportedOnTheFlyChanges(FrameworkDescriptor newFrameworkDes
     }
 
     Boolean detectedUnsupportedChanges = false;
-    FrameworkDescriptor clonedNewFrameworkDescriptor = YamlUtils.deepCopy(newFrameworkDescriptor, FrameworkDescriptor.class);
+    FrameworkDescriptor clonedNewFrameworkDescriptor = ModelUtils.deepCopy(newFrameworkDescriptor, FrameworkDescriptor.class);
     Map<String, TaskRoleDescriptor> clonedNewTaskRoles = clonedNewFrameworkDescriptor.getTaskRoles();
     Map<String, TaskRoleDescriptor> frameworkTaskRoles = frameworkDescriptor.getTaskRoles();
     for (Map.Entry<String, TaskRoleDescriptor> taskRole : frameworkTaskRoles.entrySet()) {
@@ -254,7 +315,7 @@ private void checkUnsupportedOnTheFlyChanges(FrameworkDescriptor newFrameworkDes
     }
 
     if (!detectedUnsupportedChanges) {
-      if (!YamlUtils.deepEquals(frameworkDescriptor, clonedNewFrameworkDescriptor)) {
+      if (!ModelUtils.deepEquals(frameworkDescriptor, clonedNewFrameworkDescriptor)) {
         detectedUnsupportedChanges = true;
       }
     }
@@ -267,7 +328,7 @@ private void checkUnsupportedOnTheFlyChanges(FrameworkDescriptor newFrameworkDes
   private void updateFrameworkDescriptor(FrameworkDescriptor newFrameworkDescriptor) throws Exception {
     flattenFrameworkDescriptor(newFrameworkDescriptor);
 
-    if (YamlUtils.deepEquals(frameworkDescriptor, newFrameworkDescriptor)) {
+    if (ModelUtils.deepEquals(frameworkDescriptor, newFrameworkDescriptor)) {
       return;
     }
 
@@ -314,7 +375,7 @@ private void updateFrameworkDescriptor(FrameworkDescriptor newFrameworkDescripto
 
   private void updateOverrideApplicationProgressRequest(
       OverrideApplicationProgressRequest newOverrideApplicationProgressRequest) {
-    if (YamlUtils.deepEquals(overrideApplicationProgressRequest, newOverrideApplicationProgressRequest)) {
+    if (ModelUtils.deepEquals(overrideApplicationProgressRequest, newOverrideApplicationProgressRequest)) {
       return;
     }
 
@@ -327,7 +388,7 @@ private void updateOverrideApplicationProgressRequest(
   }
 
   private void updateMigrateTaskRequests(Map<String, MigrateTaskRequest> newMigrateTaskRequests) {
-    if (YamlUtils.deepEquals(migrateTaskRequests, newMigrateTaskRequests)) {
+    if (ModelUtils.deepEquals(migrateTaskRequests, newMigrateTaskRequests)) {
       return;
     }
 
@@ -355,6 +416,15 @@ public AggregatedFrameworkRequest getAggregatedFrameworkRequest() {
     return aggFrameworkRequest;
   }
 
+  // Always 0 if amRequestWatchEnable is not enabled
+  public long getLastRequestAppliedLatencyMs() {
+    return lastRequestAppliedLatencyMs;
+  }
+
+  public long getMaxRequestAppliedLatencyMs() {
+    return maxRequestAppliedLatencyMs;
+  }
+
   public UserDescriptor getUser() {
     return frameworkDescriptor.getUser();
   }
@@ -0,0 +1,151 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.applicationmaster;
+
+import com.microsoft.frameworklauncher.common.model.ResourceDescriptor;
+import com.microsoft.frameworklauncher.common.utils.ValueRangeUtils;
+
+import java.util.BitSet;
+
+/**
+ * Primitive backed and mutable counterpart of {@link ResourceDescriptor} for the
+ * scheduling hot path, i.e. {@link SelectionManager} and {@link Node}.
+ * All arithmetic is done in place, so filtering nodes does not allocate.
+ * It should be converted from and to {@link ResourceDescriptor} only at API boundaries.
+ *
+ * Its arithmetic is aligned with {@link ResourceDescriptor#add}, {@link ResourceDescriptor#subtract}
+ * and {@link ResourceDescriptor#fitsIn}. Ports are kept as a set of port values, so the PortNumber
+ * is always the number of ports in the set.
+ */
+public class ResourceVector { // NOT THREAD SAFE
+  private int memoryMB = 0;
+  private int cpuNumber = 0;
+  private int gpuNumber = 0;
+  private long gpuAttribute = 0L;
+  private final BitSet ports = new BitSet();
+
+  public static ResourceVector fromResourceDescriptor(ResourceDescriptor resource) {
+    return new ResourceVector().setResourceDescriptor(resource);
+  }
+
+  public ResourceVector setResourceDescriptor(ResourceDescriptor resource) {
+    memoryMB = resource.getMemoryMB();
+    cpuNumber = resource.getCpuNumber();
+    gpuNumber = resource.getGpuNumber();
+    gpuAttribute = resource.getGpuAttribute();
+    ports.clear();
+    ports.or(ValueRangeUtils.toBitSet(resource.getPortRanges()));
+    return this;
+  }
+
+  public ResourceDescriptor toResourceDescriptor() {
+    return ResourceDescriptor.newInstance(
+        memoryMB, cpuNumber, gpuNumber, gpuAttribute, getPortNumber(), ValueRangeUtils.fromBitSet(ports));
+  }
+
+  public ResourceVector set(ResourceVector other) {
+    memoryMB = other.memoryMB;
+    cpuNumber = other.cpuNumber;
+    gpuNumber = other.gpuNumber;
+    gpuAttribute = other.gpuAttribute;
+    ports.clear();
+    ports.or(other.ports);
+    return this;
+  }
+
+  // this = this + other
+  // Maybe overestimate if any GpuAttribute == 0
+  public ResourceVector add(ResourceVector other) {
+    memoryMB += other.memoryMB;
+    cpuNumber += other.cpuNumber;
+    if (gpuAttribute != 0 && other.gpuAttribute != 0) {
+      gpuAttribute |= other.gpuAttribute;
+      gpuNumber = Long.bitCount(gpuAttribute);
+    } else {
+      gpuAttribute |= other.gpuAttribute;
+      gpuNumber += other.gpuNumber;
+    }
+    ports.or(other.ports);
+    return this;
+  }
+
+  // this = this - other
+  public ResourceVector subtract(ResourceVector other) {
+    memoryMB -= other.memoryMB;
+    cpuNumber -= other.cpuNumber;
+    if (gpuAttribute != 0 && other.gpuAttribute != 0) {
+      gpuAttribute &= ~other.gpuAttribute;
+      gpuNumber = Long.bitCount(gpuAttribute);
+    } else {
+      gpuAttribute &= ~other.gpuAttribute;
+      gpuNumber -= other.gpuNumber;
+    }
+    ports.andNot(other.ports);
+    return this;
+  }
+
+  // Whether this fits in the bigger
+  public boolean fitsIn(ResourceVector bigger) {
+    if (memoryMB > bigger.memoryMB ||
+        cpuNumber > bigger.cpuNumber ||
+        gpuNumber > bigger.gpuNumber ||
+        (gpuAttribute & ~bigger.gpuAttribute) != 0) {
+      return false;
+    }
+
+    // Check ports range by range instead of port by port
+    for (int begin = ports.nextSetBit(0); begin >= 0; ) {
+      int end = ports.nextClearBit(begin);
+      if (bigger.ports.nextClearBit(begin) < end) {
+        return false;
+      }
+      begin = ports.nextSetBit(end);
+    }
+    return true;
+  }
+
+  public int getMemoryMB() {
+    return memoryMB;
+  }
+
+  public int getCpuNumber() {
+    return cpuNumber;
+  }
+
+  public int getGpuNumber() {
+    return gpuNumber;
+  }
+
+  public long getGpuAttribute() {
+    return gpuAttribute;
+  }
+
+  public int getPortNumber() {
+    return ports.cardinality();
+  }
+
+  // The returned BitSet must not be changed by the caller.
+  public BitSet getPorts() {
+    return ports;
+  }
+
+  @Override
+  public String toString() {
+    return toResourceDescriptor().toString();
+  }
+}
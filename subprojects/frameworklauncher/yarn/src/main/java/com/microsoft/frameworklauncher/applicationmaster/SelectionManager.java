@@ -29,8 +29,8 @@
 import com.microsoft.frameworklauncher.common.model.ValueRange;
 import com.microsoft.frameworklauncher.common.utils.CommonUtils;
 import com.microsoft.frameworklauncher.common.utils.HadoopUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import com.microsoft.frameworklauncher.common.utils.ValueRangeUtils;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
 import org.apache.hadoop.yarn.api.records.NodeReport;
 import org.apache.hadoop.yarn.client.api.AMRMClient.ContainerRequest;
 
@@ -58,10 +58,15 @@ public class SelectionManager { // THREAD SAFE
    * REGION StateVariable
    */
   private final Map<String, Node> allNodes = new HashMap<>();
-  private final Map<String, ResourceDescriptor> localTriedResource = new HashMap<>();
+  private final Map<String, ResourceVector> localTriedResource = new HashMap<>();
   private final Map<String, List<ValueRange>> previousRequestedPorts = new HashMap<>();
-  private final List<String> filteredNodes = new ArrayList<>();
+  // Index of allNodes, it must be updated once any Node in allNodes is changed
+  private final NodeIndex nodeIndex = new NodeIndex();
   private int reusedPortsTimes = 0;
+  // Reused by filterNodeByResource to avoid allocation for each node
+  private final ResourceVector availableResourceBuffer = new ResourceVector();
+  // Reused by selectPortsFromFilteredNodes to avoid allocation for each selection
+  private final BitSet overlapPortsBuffer = new BitSet();
 
   public SelectionManager(
       ApplicationMaster am, Configuration conf,
@@ -76,101 +81,69 @@ public synchronized void addNode(NodeReport nodeReport) throws Exception {
     addNode(Node.fromNodeReport(nodeReport));
   }
 
-  private void initFilteredNodes() {
-    filteredNodes.clear();
-    filteredNodes.addAll(allNodes.keySet());
-    Collections.shuffle(filteredNodes);
-  }
-
-  private void filterNodesByNodeLabel(String requestNodeLabel) {
-    if (requestNodeLabel != null) {
-      for (int i = filteredNodes.size() - 1; i >= 0; i--) {
-        Set<String> availableNodeLabels = allNodes.get(filteredNodes.get(i)).getLabels();
-        if (!HadoopUtils.matchNodeLabel(requestNodeLabel, availableNodeLabels)) {
-          LOGGER.logDebug("NodeLabel does not match: Node: [%s] Request NodeLabel: [%s]",
-              filteredNodes.get(i), requestNodeLabel);
-          filteredNodes.remove(i);
-        }
-      }
-    }
-  }
-
-  private void filterNodesByGpuType(Map<String, NodeConfiguration> configuredNodes, String requestNodeGpuType) {
+  private List<String> getRequestNodeGpuTypes(Map<String, NodeConfiguration> configuredNodes, String requestNodeGpuType) {
     if (requestNodeGpuType != null) {
       if (configuredNodes != null) {
-        for (int i = filteredNodes.size() - 1; i >= 0; i--) {
-          String nodeHost = filteredNodes.get(i);
-          if (!configuredNodes.containsKey(nodeHost)) {
-            LOGGER.logDebug("Node:[%s] is not found in clusterConfiguration: Request NodeGpuType: [%s]", nodeHost, requestNodeGpuType);
-            filteredNodes.remove(i);
-            continue;
-          }
-          List<String> requestNodeGpuTypes = Arrays.asList(requestNodeGpuType.split(","));
-          String availableNodeGpuType = configuredNodes.get(nodeHost).getGpuType();
-          if (!requestNodeGpuTypes.contains(availableNodeGpuType)) {
-            LOGGER.logDebug("NodeGpuType does not match: Node: [%s] Request NodeGpuType: [%s], Available NodeGpuType: [%s]",
-                nodeHost, requestNodeGpuType, availableNodeGpuType);
-            filteredNodes.remove(i);
-            continue;
-          }
-        }
+        return Arrays.asList(requestNodeGpuType.split(","));
       } else {
         LOGGER.logWarning("Configured Nodes is not found in ClusterConfiguration: Ignore Request NodeGpuType: [%s]", requestNodeGpuType);
       }
     }
+    return null;
   }
 
-  private void filterNodesForNoneGpuJob(int jobTotalRequestGpu) {
-    if (jobTotalRequestGpu == 0) {
-      for (int i = filteredNodes.size() - 1; i >= 0; i--) {
-        Node node = allNodes.get(filteredNodes.get(i));
-        ResourceDescriptor totalResource = node.getTotalResource();
-        if (totalResource.getGpuNumber() > 0) {
-          LOGGER.logDebug("skip gpu node for none gpu job: Node [%s], Node total resource: [%s]",
-              node.getHost(), totalResource);
-          filteredNodes.remove(i);
-        }
+  private boolean filterNodeForNoneGpuJob(Node node, boolean skipGpuNode) {
+    if (skipGpuNode) {
+      ResourceVector totalResource = node.getTotalResourceVector();
+      if (totalResource.getGpuNumber() > 0) {
+        LOGGER.logDebug("skip gpu node for none gpu job: Node [%s], Node total resource: [%s]",
+            node.getHost(), totalResource);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<Node> filterNodesForNoneGpuJob(List<Node> nodes, boolean skipGpuNode) {
+    List<Node> filteredNodes = new ArrayList<>();
+    for (Node node : nodes) {
+      if (filterNodeForNoneGpuJob(node, skipGpuNode)) {
+        filteredNodes.add(node);
       }
     }
+    return filteredNodes;
   }
 
-  private void filterNodesByResource(ResourceDescriptor requestResource, Boolean skipLocalTriedResource) {
+  private boolean filterNodeByResource(Node node, ResourceVector requestResource, Boolean skipLocalTriedResource) {
     if (requestResource != null) {
-      for (int i = filteredNodes.size() - 1; i >= 0; i--) {
-        Node node = allNodes.get(filteredNodes.get(i));
-        ResourceDescriptor availableResource = YamlUtils.deepCopy(node.getAvailableResource(), ResourceDescriptor.class);
-        if (skipLocalTriedResource && localTriedResource.containsKey(node.getHost())) {
-          LOGGER.logDebug("Skip local tried resources: [%s] on Node: [%s]", localTriedResource.get(node.getHost()), node.getHost());
-          availableResource = ResourceDescriptor.subtract(availableResource, localTriedResource.get(node.getHost()));
-        }
-        if (!ResourceDescriptor.fitsIn(requestResource, availableResource)) {
-          LOGGER.logDebug("Resource does not fit in: Node: [%s] Request Resource: [%s], Available Resource: [%s]",
-              node.getHost(), requestResource, availableResource);
-          filteredNodes.remove(i);
-        }
+      ResourceVector availableResource = node.getAvailableResourceVector();
+      if (skipLocalTriedResource && localTriedResource.containsKey(node.getHost())) {
+        LOGGER.logDebug("Skip local tried resources: [%s] on Node: [%s]", localTriedResource.get(node.getHost()), node.getHost());
+        availableResource = availableResourceBuffer.set(availableResource).subtract(localTriedResource.get(node.getHost()));
+      }
+      if (!requestResource.fitsIn(availableResource)) {
+        LOGGER.logDebug("Resource does not fit in: Node: [%s] Request Resource: [%s], Available Resource: [%s]",
+            node.getHost(), requestResource, availableResource);
+        return false;
       }
     }
+    return true;
   }
 
   private void filterNodesByRackSelectionPolicy(ResourceDescriptor requestResource, int startStatesTaskCount) {
     //TODO: Node Gpu policy filter the nodes;
   }
 
-  private SelectionResult selectNodes(ResourceDescriptor requestResource, int startStatesTaskCount) {
+  private SelectionResult selectNodes(ResourceDescriptor requestResource, List<Node> candidateNodes, int requestNumber) {
     //TODO: apply other node selection policy in the future;
-    return selectNodesByJobPacking(requestResource, startStatesTaskCount);
+    return selectNodesByJobPacking(requestResource, candidateNodes, requestNumber);
   }
 
   //Default Node Selection strategy.
-  private SelectionResult selectNodesByJobPacking(ResourceDescriptor requestResource, int startStatesTaskCount) {
-    int requestNumber = startStatesTaskCount * conf.getAmCandidateNodesFactor();
-    List<Node> candidateNodes = new ArrayList<>();
+  //The candidateNodes are already in packing order, see NodeIndex.
+  private SelectionResult selectNodesByJobPacking(ResourceDescriptor requestResource, List<Node> candidateNodes, int requestNumber) {
     SelectionResult result = new SelectionResult();
 
-    for (String nodeName : filteredNodes) {
-      candidateNodes.add(allNodes.get(nodeName));
-    }
-    Collections.sort(candidateNodes);
     for (int i = 0; i < requestNumber && i < candidateNodes.size(); i++) {
       Node node = candidateNodes.get(i);
       Long gpuAttribute = requestResource.getGpuAttribute();
@@ -178,7 +151,7 @@ private SelectionResult selectNodesByJobPacking(ResourceDescriptor requestResour
         gpuAttribute = selectCandidateGpuAttribute(node, requestResource.getGpuNumber());
       }
       LOGGER.logDebug("selectNodes: Selected candidate: " + node.getHost() + " Node Available gpuAttribute:" +
-          CommonExts.toStringWithBits(node.getAvailableResource().getGpuAttribute()) + " Selected gpuAttribute:" + CommonExts.toStringWithBits(gpuAttribute));
+          CommonExts.toStringWithBits(node.getAvailableResourceVector().getGpuAttribute()) + " Selected gpuAttribute:" + CommonExts.toStringWithBits(gpuAttribute));
       result.addSelection(node.getHost(), gpuAttribute, node.getAvailableResource().getPortRanges());
     }
     return result;
@@ -211,7 +184,7 @@ public synchronized SelectionResult select(String taskRoleName)
     String requestNodeGpuType = requestManager.getTaskRolePlatParams(taskRoleName).getTaskNodeGpuType();
     Map<String, NodeConfiguration> configuredNodes = requestManager.getClusterConfiguration().getNodes();
     Boolean samePortAllocation = requestManager.getTaskRolePlatParams(taskRoleName).getSamePortAllocation();
-    int startStatesTaskCount = statusManager.getTaskStatus(TaskStateDefinition.START_STATES, taskRoleName).size();
+    int startStatesTaskCount = statusManager.getTaskCount(TaskStateDefinition.START_STATES, taskRoleName);
 
     // Prefer to use previous successfully associated ports. if no associated ports, try to reuse the "Requesting" ports.
     List<ValueRange> reusedPorts = new ArrayList<>();
@@ -250,15 +223,14 @@ public synchronized SelectionResult select(ResourceDescriptor requestResource, S
         "select: Request: Resource: [%s], NodeLabel: [%s], NodeGpuType: [%s], StartStatesTaskCount: [%d], ReusedPorts: [%s]",
         requestResource, requestNodeLabel, requestNodeGpuType, startStatesTaskCount, CommonExts.toString(reusedPorts));
 
-    initFilteredNodes();
-    filterNodesByNodeLabel(requestNodeLabel);
-    filterNodesByGpuType(configuredNodes, requestNodeGpuType);
-    if (!conf.getAmAllowNoneGpuJobOnGpuNode()) {
-      int jobTotalRequestGpu = requestManager.getTotalGpuNumber();
-      filterNodesForNoneGpuJob(jobTotalRequestGpu);
-    }
+    // The nodes are not filtered by NodeLabel if it is not requested, instead of only
+    // selecting the nodes in the NO_LABEL partition.
+    String requestPartition = (requestNodeLabel == null ? null : HadoopUtils.getPartition(requestNodeLabel));
+    nodeIndex.updateConfiguredNodes(configuredNodes);
+    List<String> requestNodeGpuTypes = getRequestNodeGpuTypes(configuredNodes, requestNodeGpuType);
+    boolean skipGpuNode = (!conf.getAmAllowNoneGpuJobOnGpuNode() && requestManager.getTotalGpuNumber() == 0);
 
-    ResourceDescriptor optimizedRequestResource = YamlUtils.deepCopy(requestResource, ResourceDescriptor.class);
+    ResourceDescriptor optimizedRequestResource = ModelUtils.deepCopy(requestResource, ResourceDescriptor.class);
     // Do a first round port allocation:
     // In this round, allocate the common ports from all candidate nodes. if successfully get the ports, and finally not get candidate nodes in
     // next steps, the request will send to RM for node relax. if not successfully get the ports, will try another time after narrow down
@@ -270,7 +242,9 @@ public synchronized SelectionResult select(ResourceDescriptor requestResource, S
         optimizedRequestResource.setPortRanges(reusedPorts);
         optimizedRequestResource.setPortNumber(0);
       } else {
-        List<ValueRange> portRanges = selectPortsFromFilteredNodes(optimizedRequestResource);
+        List<Node> filteredNodes = filterNodesForNoneGpuJob(
+            nodeIndex.getNodes(requestPartition, requestNodeGpuTypes), skipGpuNode);
+        List<ValueRange> portRanges = selectPortsFromFilteredNodes(filteredNodes, optimizedRequestResource);
         LOGGER.logInfo(
             "select: select ports from all filteredNodes: %s", CommonExts.toString(portRanges));
         if (ValueRangeUtils.getValueNumber(portRanges) == optimizedRequestResource.getPortNumber()) {
@@ -280,10 +254,20 @@ public synchronized SelectionResult select(ResourceDescriptor requestResource, S
       }
     }
 
-    filterNodesByResource(optimizedRequestResource, requestManager.getPlatParams().getSkipLocalTriedResource());
+    // Only the top candidates in packing order are needed, so scan the NodeIndex until enough nodes
+    // are selected, instead of filtering and sorting all nodes.
+    // At least one candidate is always tried to tell whether the request can be satisfied.
+    int requestNumber = startStatesTaskCount * conf.getAmCandidateNodesFactor();
+    Boolean skipLocalTriedResource = requestManager.getPlatParams().getSkipLocalTriedResource();
+    ResourceVector requestResourceVector = ResourceVector.fromResourceDescriptor(optimizedRequestResource);
+    List<Node> candidateNodes = nodeIndex.selectNodes(
+        requestPartition, requestNodeGpuTypes, requestResourceVector.getGpuNumber(),
+        node -> filterNodeForNoneGpuJob(node, skipGpuNode) &&
+            filterNodeByResource(node, requestResourceVector, skipLocalTriedResource),
+        Math.max(requestNumber, 1));
 
     filterNodesByRackSelectionPolicy(optimizedRequestResource, startStatesTaskCount);
-    if (filteredNodes.size() < 1) {
+    if (candidateNodes.size() < 1) {
       // Don't have candidate nodes for this request.
       if (requestNodeGpuType != null) {
         // GpuType relax is not supported in yarn, the gpuType is specified, abort this request and try later.
@@ -298,10 +282,11 @@ public synchronized SelectionResult select(ResourceDescriptor requestResource, S
             optimizedRequestResource, requestNodeGpuType, requestNodeLabel));
       }
     }
-    SelectionResult selectionResult = selectNodes(optimizedRequestResource, startStatesTaskCount);
+    SelectionResult selectionResult = selectNodes(optimizedRequestResource, candidateNodes, requestNumber);
     //If port is not previous selected, select ports from the selectionResult.
     if (optimizedRequestResource.getPortNumber() > 0) {
-      List<ValueRange> portRanges = selectPorts(selectionResult.getOverlapPorts(), optimizedRequestResource);
+      List<ValueRange> portRanges = selectPortsFromFilteredNodes(
+          candidateNodes.subList(0, Math.min(requestNumber, candidateNodes.size())), optimizedRequestResource);
       if (ValueRangeUtils.getValueNumber(portRanges) == optimizedRequestResource.getPortNumber()) {
         optimizedRequestResource.setPortRanges(ValueRangeUtils.addRange(portRanges, optimizedRequestResource.getPortRanges()));
         optimizedRequestResource.setPortNumber(0);
@@ -314,12 +299,13 @@ public synchronized SelectionResult select(ResourceDescriptor requestResource, S
     return selectionResult;
   }
 
-  private synchronized List<ValueRange> selectPorts(List<ValueRange> availablePorts, ResourceDescriptor optimizedRequestResource) {
+  // The availablePorts will be changed.
+  private synchronized List<ValueRange> selectPorts(BitSet availablePorts, ResourceDescriptor optimizedRequestResource) {
     // Remove the user specified static ports from availablePorts first, then do the dynamic ports random allocation.
     if (optimizedRequestResource.getPortNumber() > 0) {
-      List<ValueRange> availableOverlapPorts = ValueRangeUtils.subtractRange(availablePorts, optimizedRequestResource.getPortRanges());
+      availablePorts.andNot(ValueRangeUtils.toBitSet(optimizedRequestResource.getPortRanges()));
 
-      List<ValueRange> newCandidatePorts = ValueRangeUtils.getSubRangeRandomly(availableOverlapPorts, optimizedRequestResource.getPortNumber(),
+      List<ValueRange> newCandidatePorts = ValueRangeUtils.getSubRangeRandomly(availablePorts, optimizedRequestResource.getPortNumber(),
           conf.getAmContainerMinPort());
 
       if (ValueRangeUtils.getValueNumber(newCandidatePorts) == optimizedRequestResource.getPortNumber()) {
@@ -330,20 +316,22 @@ private synchronized List<ValueRange> selectPorts(List<ValueRange> availablePort
     return new ArrayList<>();
   }
 
-  private List<ValueRange> selectPortsFromFilteredNodes(ResourceDescriptor optimizedRequestResource) {
+  private List<ValueRange> selectPortsFromFilteredNodes(List<Node> filteredNodes, ResourceDescriptor optimizedRequestResource) {
     if (filteredNodes.size() > 0) {
-      List<ValueRange> overlapPorts = allNodes.get(filteredNodes.get(0)).getAvailableResource().getPortRanges();
-      for (int i = 1; i < filteredNodes.size(); i++) {
-        overlapPorts = ValueRangeUtils.intersectRangeList(overlapPorts, allNodes.get(filteredNodes.get(i)).getAvailableResource().getPortRanges());
+      // Intersect the port sets word by word
+      overlapPortsBuffer.clear();
+      overlapPortsBuffer.or(filteredNodes.get(0).getAvailableResourceVector().getPorts());
+      for (int i = 1; i < filteredNodes.size() && !overlapPortsBuffer.isEmpty(); i++) {
+        overlapPortsBuffer.and(filteredNodes.get(i).getAvailableResourceVector().getPorts());
       }
-      return selectPorts(overlapPorts, optimizedRequestResource);
+      return selectPorts(overlapPortsBuffer, optimizedRequestResource);
     }
     return new ArrayList<>();
   }
 
   @VisibleForTesting
   public synchronized Long selectCandidateGpuAttribute(Node node, Integer requestGpuNumber) {
-    ResourceDescriptor nodeAvailable = node.getAvailableResource();
+    ResourceVector nodeAvailable = node.getAvailableResourceVector();
     assert (requestGpuNumber <= nodeAvailable.getGpuNumber());
 
     Long selectedGpuAttribute = 0L;
@@ -364,9 +352,11 @@ public synchronized void addNode(Node reportedNode) {
     if (!allNodes.containsKey(reportedNode.getHost())) {
       LOGGER.logDebug("addNode: %s", reportedNode);
       allNodes.put(reportedNode.getHost(), reportedNode);
+      nodeIndex.update(reportedNode);
     } else {
       Node existNode = allNodes.get(reportedNode.getHost());
       existNode.updateFromReportedNode(reportedNode);
+      nodeIndex.update(existNode);
       LOGGER.logDebug("updateNode: %s ", existNode);
     }
   }
@@ -380,6 +370,7 @@ public synchronized void removeNode(Node reportedNode) {
     if (allNodes.containsKey(reportedNode.getHost())) {
       LOGGER.logDebug("removeNode: %s", reportedNode);
       allNodes.remove(reportedNode.getHost());
+      nodeIndex.remove(reportedNode.getHost());
     }
   }
 
@@ -394,7 +385,9 @@ public synchronized void addContainerRequest(ContainerRequest request) throws Ex
   public synchronized void addContainerRequest(ResourceDescriptor resource, List<String> nodeHosts) {
     for (String nodeHost : nodeHosts) {
       if (allNodes.containsKey(nodeHost)) {
-        allNodes.get(nodeHost).addContainerRequest(resource);
+        Node node = allNodes.get(nodeHost);
+        node.addContainerRequest(resource);
+        nodeIndex.update(node);
       } else {
         LOGGER.logWarning("addContainerRequest: Node is no longer a candidate: %s", nodeHost);
       }
@@ -412,13 +405,13 @@ public synchronized void removeContainerRequest(ContainerRequest request) throws
   public synchronized void removeContainerRequest(ResourceDescriptor resource, List<String> nodeHosts) {
     for (String nodeHost : nodeHosts) {
       if (allNodes.containsKey(nodeHost)) {
-        allNodes.get(nodeHost).removeContainerRequest(resource);
+        Node node = allNodes.get(nodeHost);
+        node.removeContainerRequest(resource);
+        nodeIndex.update(node);
         if (!localTriedResource.containsKey(nodeHost)) {
-          localTriedResource.put(nodeHost, YamlUtils.deepCopy(resource, ResourceDescriptor.class));
+          localTriedResource.put(nodeHost, ResourceVector.fromResourceDescriptor(resource));
         } else {
-          ResourceDescriptor triedResource = localTriedResource.get(nodeHost);
-          triedResource = ResourceDescriptor.add(triedResource, resource);
-          localTriedResource.put(nodeHost, triedResource);
+          localTriedResource.get(nodeHost).add(ResourceVector.fromResourceDescriptor(resource));
         }
       } else {
         LOGGER.logWarning("removeContainerRequest: Node is no longer a candidate: %s", nodeHost);
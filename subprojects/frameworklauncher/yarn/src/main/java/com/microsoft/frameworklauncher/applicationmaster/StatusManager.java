@@ -27,8 +27,8 @@
 import com.microsoft.frameworklauncher.common.service.StopStatus;
 import com.microsoft.frameworklauncher.common.utils.DnsUtils;
 import com.microsoft.frameworklauncher.common.utils.HadoopUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import com.microsoft.frameworklauncher.common.utils.PortUtils;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
 import com.microsoft.frameworklauncher.common.web.WebCommon;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 import org.apache.hadoop.yarn.api.records.Container;
@@ -38,6 +38,10 @@
 import org.apache.zookeeper.KeeperException;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.function.Supplier;
 
 // Manage the CURD to ZK Status
 public class StatusManager extends AbstractService {  // THREAD SAFE
@@ -47,6 +51,16 @@ public class StatusManager extends AbstractService {  // THREAD SAFE
   private final Configuration conf;
   private final ZookeeperStore zkStore;
 
+  // All Status below is protected by the readLock and writeLock, so that the readers,
+  // such as RM and NM callbacks, SelectionManager and FrameworkInfoPublisher, are not
+  // serialized behind each other.
+  // Note, the writers are already serialized by the transitionTaskStateQueue, and the
+  // transitionTaskState needs to update cross TaskRole indexes, such as the live associated
+  // Containers and the outstanding Task count, atomically, so a single writeLock is used
+  // instead of one per TaskRole.
+  private final ReadLock readLock;
+  private final WriteLock writeLock;
+
   /**
    * REGION BaseStatus
    */
@@ -63,6 +77,10 @@ public class StatusManager extends AbstractService {  // THREAD SAFE
   // Used to invert index TaskStatus by ContainerId/TaskState instead of TaskStatusLocator, i.e. TaskRoleName + TaskIndex
   // TaskState -> TaskStatusLocators
   private final Map<TaskState, Set<TaskStatusLocator>> taskStateLocators = new HashMap<>();
+  // Same as taskStateLocators, but indexed by TaskRoleName first, so that the TaskStatuses and
+  // the Task count of a TaskRole in some TaskStates can be got without scanning all TaskRoles.
+  // TaskRoleName -> TaskState -> TaskStatusLocators
+  private final Map<String, Map<TaskState, Set<TaskStatusLocator>>> taskRoleTaskStateLocators = new HashMap<>();
   // Live Associated ContainerId -> TaskStatusLocator
   private final Map<String, TaskStatusLocator> liveAssociatedContainerIdLocators = new HashMap<>();
   // Live Associated HostNames
@@ -76,10 +94,19 @@ public class StatusManager extends AbstractService {  // THREAD SAFE
   private final Map<String, Boolean> taskRoleStatusesChanged = new HashMap<>();
   // TaskRoleName -> TaskStatusesChanged
   private final Map<String, Boolean> taskStatusesesChanged = new HashMap<>();
+  // Used to push only the changed TaskStatus as TaskStatusesDelta
+  // TaskRoleName -> TaskIndexes of the changed TaskStatus
+  private final Map<String, Set<Integer>> taskStatusesesChangedTaskIndexes = new HashMap<>();
+  // The TaskStatusesDelta count pushed after the latest whole TaskStatuses pushed in current
+  // application attempt, so no need to persist.
+  // TaskRoleName -> TaskStatusesDeltaCount
+  private final Map<String, Integer> taskStatusesDeltaCounts = new HashMap<>();
 
   // Latest Persisted Status
+  // It is an immutable snapshot which is replaced as a whole after each pushStatus,
+  // so it can be read without lock.
   // TaskRoleName -> AggregatedTaskRoleStatus
-  private Map<String, AggregatedTaskRoleStatus> persistedAggTaskRoleStatuses = new HashMap<>();
+  private volatile Map<String, AggregatedTaskRoleStatus> persistedAggTaskRoleStatuses = new HashMap<>();
 
   // No need to persist ContainerRequest since it is only valid within one application attempt.
   // Used to generate an unique Priority for each ContainerRequest in current application attempt.
@@ -112,6 +139,11 @@ public StatusManager(ApplicationMaster am, Configuration conf, ZookeeperStore zk
     this.am = am;
     this.conf = conf;
     this.zkStore = zkStore;
+
+    // Using FairSync to avoid potential reader starvation for a long time.
+    ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+    this.readLock = lock.readLock();
+    this.writeLock = lock.writeLock();
   }
 
   @Override
@@ -203,8 +235,8 @@ protected void recover() throws Exception {
         }
       }
 
-      // Recover Latest Persisted Status
-      updatePersistedAggTaskRoleStatuses();
+      // Recover Latest Persisted Status, i.e. all Status is snapshotted as not persisted yet
+      updatePersistedAggTaskRoleStatuses(snapshotChangedStatus());
 
       LOGGER.logInfo("Succeeded to recover %s.", serviceName);
     }
@@ -270,6 +302,44 @@ private void assertPriority(Priority priority) {
     assert containsTask(priority);
   }
 
+  private <T> T readWithLock(Supplier<T> reader) {
+    readLock.lock();
+    try {
+      return reader.get();
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  private void writeWithLock(Runnable writer) {
+    writeLock.lock();
+    try {
+      writer.run();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  // Changed Status of a TaskRole, which is snapshotted under writeLock and then pushed without lock
+  private static class PushSnapshot {
+    private final String taskRoleName;
+    private final TaskRoleStatus taskRoleStatus;
+    // At most one of taskStatuses and taskStatusesDelta is not null,
+    // and both are null if the TaskStatuses is not changed since it was persisted.
+    private TaskStatuses taskStatuses;
+    private TaskStatusesDelta taskStatusesDelta;
+    private final Set<Integer> changedTaskIndexes;
+    private boolean taskRoleStatusChanged;
+    private boolean taskStatusesChanged;
+
+    private PushSnapshot(
+        String taskRoleName, TaskRoleStatus taskRoleStatus, Set<Integer> changedTaskIndexes) {
+      this.taskRoleName = taskRoleName;
+      this.taskRoleStatus = taskRoleStatus;
+      this.changedTaskIndexes = changedTaskIndexes;
+    }
+  }
+
   private synchronized void pushStatus() throws Exception {
     // TODO: Store AttemptId in AMStatus, and double check it before pushStatus
 
@@ -283,74 +353,211 @@ private synchronized void pushStatus() throws Exception {
       return;
     }
 
-    // Push TaskRoleStatuses
+    // Snapshot the changed Status under writeLock, then push the snapshots to ZK without lock,
+    // so that the readers and transitionTaskState are not blocked by the ZK round trips.
+    // pushStatus itself is still serialized by the object monitor.
+    List<PushSnapshot> snapshots;
+    writeLock.lock();
+    try {
+      snapshots = snapshotChangedStatus();
+    } finally {
+      writeLock.unlock();
+    }
+
+    try {
+      for (PushSnapshot snapshot : snapshots) {
+        pushSnapshot(snapshot);
+      }
+    } catch (Exception e) {
+      // Mark the not yet pushed Status as changed again, so that it can be pushed
+      // or rolled back later.
+      writeWithLock(() -> {
+        for (PushSnapshot snapshot : snapshots) {
+          remarkSnapshotChanged(snapshot);
+        }
+      });
+      throw e;
+    }
+
+    // Update Latest Persisted Status
+    updatePersistedAggTaskRoleStatuses(snapshots);
+  }
+
+  // Should be called under writeLock and the object monitor
+  // Only the changed or not yet persisted Status is copied, the others are shared with the
+  // Persisted Status, since it is never modified in place.
+  private List<PushSnapshot> snapshotChangedStatus() {
+    List<PushSnapshot> snapshots = new ArrayList<>();
     for (TaskRoleStatus taskRoleStatus : taskRoleStatuses.values()) {
       String taskRoleName = taskRoleStatus.getTaskRoleName();
-      if (taskRoleStatusesChanged.get(taskRoleName)) {
-        LOGGER.logInfo("[%s]: Pushing TaskRoleStatus", taskRoleName);
+      boolean taskRoleStatusChanged = taskRoleStatusesChanged.get(taskRoleName);
+      boolean taskStatusesChanged = taskStatusesesChanged.get(taskRoleName);
+      AggregatedTaskRoleStatus persistedAggTaskRoleStatus = persistedAggTaskRoleStatuses.get(taskRoleName);
+      boolean persisted = (persistedAggTaskRoleStatus != null);
+      if (!taskRoleStatusChanged && !taskStatusesChanged && persisted) {
+        continue;
+      }
 
-        zkStore.setTaskRoleStatus(conf.getFrameworkName(), taskRoleName, taskRoleStatus);
-        taskRoleStatusesChanged.put(taskRoleName, false);
+      TaskStatuses taskStatuses = taskStatuseses.get(taskRoleName);
+      List<TaskStatus> taskStatusArray = taskStatuses.getTaskStatusArray();
+      Set<Integer> changedTaskIndexes = taskStatusesesChangedTaskIndexes.remove(taskRoleName);
+      if (changedTaskIndexes == null) {
+        changedTaskIndexes = new HashSet<>();
+      }
 
-        LOGGER.logInfo("[%s]: Pushed TaskRoleStatus", taskRoleName);
+      PushSnapshot snapshot = new PushSnapshot(taskRoleName,
+          (taskRoleStatusChanged || !persisted) ?
+              ModelUtils.deepCopy(taskRoleStatus, TaskRoleStatus.class) :
+              persistedAggTaskRoleStatus.getTaskRoleStatus(),
+          changedTaskIndexes);
+      snapshot.taskRoleStatusChanged = taskRoleStatusChanged;
+      snapshot.taskStatusesChanged = taskStatusesChanged;
+
+      // Push TaskStatusesDelta if it is much smaller than the whole TaskStatuses.
+      // The whole TaskStatuses is always pushed first in current application attempt, since
+      // the TaskStatusesDelta count pushed by previous application attempt is unknown.
+      Integer deltaCount = taskStatusesDeltaCounts.get(taskRoleName);
+      if (taskStatusesChanged && persisted &&
+          deltaCount != null &&
+          deltaCount < conf.getLauncherConfig().getAmTaskStatusesMaxDeltaCount() &&
+          changedTaskIndexes.size() * 2 < taskStatusArray.size()) {
+        TaskStatusesDelta taskStatusesDelta = new TaskStatusesDelta();
+        taskStatusesDelta.setTaskStatusArraySize(taskStatusArray.size());
+        taskStatusesDelta.setChangedTaskStatusArray(new ArrayList<>());
+        for (Integer taskIndex : new TreeSet<>(changedTaskIndexes)) {
+          taskStatusesDelta.getChangedTaskStatusArray().add(
+              ModelUtils.deepCopy(taskStatusArray.get(taskIndex), TaskStatus.class));
+        }
+        snapshot.taskStatusesDelta = taskStatusesDelta;
+      } else if (taskStatusesChanged || !persisted) {
+        snapshot.taskStatuses = ModelUtils.deepCopy(taskStatuses, TaskStatuses.class);
       }
+
+      taskRoleStatusesChanged.put(taskRoleName, false);
+      taskStatusesesChanged.put(taskRoleName, false);
+      snapshots.add(snapshot);
     }
+    return snapshots;
+  }
 
-    // Push TaskStatuseses
-    for (TaskStatuses taskStatuses : taskStatuseses.values()) {
-      String taskRoleName = taskStatuses.getTaskRoleName();
-      if (taskStatusesesChanged.get(taskRoleName)) {
-        LOGGER.logInfo("[%s]: Pushing TaskStatuses", taskRoleName);
+  private void pushSnapshot(PushSnapshot snapshot) throws Exception {
+    String taskRoleName = snapshot.taskRoleName;
 
-        zkStore.setTaskStatuses(conf.getFrameworkName(), taskRoleName, taskStatuses);
-        taskStatusesesChanged.put(taskRoleName, false);
-        logTaskStateCounters(taskRoleName);
+    // Push TaskRoleStatus
+    if (snapshot.taskRoleStatusChanged) {
+      LOGGER.logInfo("[%s]: Pushing TaskRoleStatus", taskRoleName);
+
+      zkStore.setTaskRoleStatus(conf.getFrameworkName(), taskRoleName, snapshot.taskRoleStatus);
+      snapshot.taskRoleStatusChanged = false;
 
-        LOGGER.logInfo("[%s]: Pushed TaskStatuses", taskRoleName);
+      LOGGER.logInfo("[%s]: Pushed TaskRoleStatus", taskRoleName);
+    }
+
+    // Push TaskStatuses
+    if (snapshot.taskStatusesChanged) {
+      pushTaskStatuses(snapshot);
+      snapshot.taskStatusesChanged = false;
+      logTaskStateCounters(taskRoleName);
+    }
+  }
+
+  private void pushTaskStatuses(PushSnapshot snapshot) throws Exception {
+    String taskRoleName = snapshot.taskRoleName;
+
+    if (snapshot.taskStatusesDelta != null) {
+      LOGGER.logInfo("[%s]: Pushing TaskStatusesDelta with %s changed TaskStatus",
+          taskRoleName, snapshot.changedTaskIndexes.size());
+
+      if (zkStore.appendTaskStatusesDelta(conf.getFrameworkName(), taskRoleName, snapshot.taskStatusesDelta)) {
+        taskStatusesDeltaCounts.put(taskRoleName, taskStatusesDeltaCounts.get(taskRoleName) + 1);
+
+        LOGGER.logInfo("[%s]: Pushed TaskStatusesDelta", taskRoleName);
+        return;
       }
+
+      LOGGER.logInfo("[%s]: Failed to push TaskStatusesDelta, fallback to push TaskStatuses", taskRoleName);
+
+      // The current TaskStatuses may be newer than the snapshot, but it is still consistent,
+      // and its not yet pushed changes are also marked as changed.
+      snapshot.taskStatuses = readWithLock(() ->
+          ModelUtils.deepCopy(taskStatuseses.get(taskRoleName), TaskStatuses.class));
+      snapshot.taskStatusesDelta = null;
     }
 
-    // Update Latest Persisted Status
-    updatePersistedAggTaskRoleStatuses();
+    LOGGER.logInfo("[%s]: Pushing TaskStatuses", taskRoleName);
+
+    zkStore.setTaskStatuses(conf.getFrameworkName(), taskRoleName, snapshot.taskStatuses);
+    taskStatusesDeltaCounts.put(taskRoleName, 0);
+
+    LOGGER.logInfo("[%s]: Pushed TaskStatuses", taskRoleName);
   }
 
-  // Rollback to latest persisted status in case failed to stop gracefully
-  private synchronized void rollbackStatus() {
-    // Rollback TaskStatuseses
-    for (TaskStatuses taskStatuses : taskStatuseses.values()) {
-      String taskRoleName = taskStatuses.getTaskRoleName();
-      if (taskStatusesesChanged.get(taskRoleName)) {
-        LOGGER.logInfo("[%s]: Rolling back TaskStatuses", taskRoleName);
+  // Should be called under writeLock
+  private void remarkSnapshotChanged(PushSnapshot snapshot) {
+    String taskRoleName = snapshot.taskRoleName;
+    if (snapshot.taskRoleStatusChanged) {
+      taskRoleStatusesChanged.put(taskRoleName, true);
+    }
+    if (snapshot.taskStatusesChanged) {
+      int taskNumber = taskStatuseses.get(taskRoleName).getTaskStatusArray().size();
+      taskStatusesesChanged.put(taskRoleName, true);
+      for (Integer taskIndex : snapshot.changedTaskIndexes) {
+        // The Tasks beyond current TaskNumber are already removed
+        if (taskIndex < taskNumber) {
+          markTaskStatusChanged(new TaskStatusLocator(taskRoleName, taskIndex));
+        }
+      }
+    }
+  }
 
-        List<TaskStatus> taskStatusArray = taskStatuses.getTaskStatusArray();
-        for (TaskStatus taskStatus : taskStatusArray) {
-          Integer taskIndex = taskStatus.getTaskIndex();
-          TaskState taskState = taskStatus.getTaskState();
-
-          // Release Container for not yet persisted CONTAINER_LIVE_ASSOCIATED_STATES Task.
-          // This can help to avoid CONTAINER_RM_RESYNC_EXCEEDED.
-          if (TaskStateDefinition.CONTAINER_LIVE_ASSOCIATED_STATES.contains(taskState)) {
-            if (!persistedAggTaskRoleStatuses.containsKey(taskRoleName)) {
-              am.onTaskToReleaseContainer(taskStatus);
-            } else {
-              List<TaskStatus> persistedTaskStatusArray =
-                  persistedAggTaskRoleStatuses.get(taskRoleName).getTaskStatuses().getTaskStatusArray();
-              if (persistedTaskStatusArray.size() <= taskIndex) {
+  private void markTaskStatusChanged(TaskStatusLocator locator) {
+    String taskRoleName = locator.getTaskRoleName();
+    taskStatusesesChanged.put(taskRoleName, true);
+    if (!taskStatusesesChangedTaskIndexes.containsKey(taskRoleName)) {
+      taskStatusesesChangedTaskIndexes.put(taskRoleName, new HashSet<>());
+    }
+    taskStatusesesChangedTaskIndexes.get(taskRoleName).add(locator.getTaskIndex());
+  }
+
+  // Rollback to latest persisted status in case failed to stop gracefully
+  private void rollbackStatus() {
+    writeWithLock(() -> {
+      // Rollback TaskStatuseses
+      for (TaskStatuses taskStatuses : taskStatuseses.values()) {
+        String taskRoleName = taskStatuses.getTaskRoleName();
+        if (taskStatusesesChanged.get(taskRoleName)) {
+          LOGGER.logInfo("[%s]: Rolling back TaskStatuses", taskRoleName);
+
+          List<TaskStatus> taskStatusArray = taskStatuses.getTaskStatusArray();
+          for (TaskStatus taskStatus : taskStatusArray) {
+            Integer taskIndex = taskStatus.getTaskIndex();
+            TaskState taskState = taskStatus.getTaskState();
+
+            // Release Container for not yet persisted CONTAINER_LIVE_ASSOCIATED_STATES Task.
+            // This can help to avoid CONTAINER_RM_RESYNC_EXCEEDED.
+            if (TaskStateDefinition.CONTAINER_LIVE_ASSOCIATED_STATES.contains(taskState)) {
+              if (!persistedAggTaskRoleStatuses.containsKey(taskRoleName)) {
                 am.onTaskToReleaseContainer(taskStatus);
               } else {
-                TaskStatus persistedTaskStatus = persistedTaskStatusArray.get(taskIndex);
-                TaskState persistedTaskState = persistedTaskStatus.getTaskState();
-                if (!TaskStateDefinition.CONTAINER_LIVE_ASSOCIATED_STATES.contains(persistedTaskState)) {
+                List<TaskStatus> persistedTaskStatusArray =
+                    persistedAggTaskRoleStatuses.get(taskRoleName).getTaskStatuses().getTaskStatusArray();
+                if (persistedTaskStatusArray.size() <= taskIndex) {
                   am.onTaskToReleaseContainer(taskStatus);
+                } else {
+                  TaskStatus persistedTaskStatus = persistedTaskStatusArray.get(taskIndex);
+                  TaskState persistedTaskState = persistedTaskStatus.getTaskState();
+                  if (!TaskStateDefinition.CONTAINER_LIVE_ASSOCIATED_STATES.contains(persistedTaskState)) {
+                    am.onTaskToReleaseContainer(taskStatus);
+                  }
                 }
               }
             }
           }
-        }
 
-        LOGGER.logInfo("[%s]: Rolled back TaskStatuses", taskRoleName);
+          LOGGER.logInfo("[%s]: Rolled back TaskStatuses", taskRoleName);
+        }
       }
-    }
+    });
   }
 
   // Should call disassociateTaskWithContainer if associateTaskWithContainer failed
@@ -371,7 +578,7 @@ private void associateTaskWithContainer(
         ResourceDescriptor.fromResource(container.getResource()).getPortRanges(),
         portDefinitions));
 
-    taskStatusesesChanged.put(locator.getTaskRoleName(), true);
+    markTaskStatusChanged(locator);
   }
 
   private void disassociateTaskWithContainer(TaskStatusLocator locator) {
@@ -392,7 +599,7 @@ private void disassociateTaskWithContainer(TaskStatusLocator locator) {
     taskStatus.setContainerGpus(null);
     taskStatus.setContainerPorts(null);
 
-    taskStatusesesChanged.put(locator.getTaskRoleName(), true);
+    markTaskStatusChanged(locator);
   }
 
   private void updateExtensionTaskStatusWithContainerLiveness(TaskStatusLocator locator, Boolean isLive) {
@@ -439,6 +646,11 @@ private void decreaseTaskNumber(String taskRoleName, int newTaskNumber) {
 
       // To ensure other Task's TaskIndex unchanged, we have to remove the Task at tail
       taskStatusArray.remove(taskIndex);
+
+      // The removed Task is recorded by the TaskStatusArray size instead
+      if (taskStatusesesChangedTaskIndexes.containsKey(taskRoleName)) {
+        taskStatusesesChangedTaskIndexes.get(taskRoleName).remove(taskIndex);
+      }
     }
 
     taskStatusesesChanged.put(taskRoleName, true);
@@ -448,7 +660,7 @@ private void removeExtensionTaskStatus(TaskStatusLocator locator) {
     TaskStatus taskStatus = getTaskStatus(locator);
     TaskState taskState = taskStatus.getTaskState();
 
-    taskStateLocators.get(taskState).remove(locator);
+    removeTaskStateLocator(locator, taskState);
     if (TaskStateDefinition.CONTAINER_LIVE_ASSOCIATED_STATES.contains(taskState)) {
       updateExtensionTaskStatusWithContainerLiveness(locator, false);
     }
@@ -495,7 +707,9 @@ private void increaseTaskNumber(String taskRoleName, int newTaskNumber) {
       taskStatusArray.add(taskStatus);
 
       // Update ExtensionStatus
-      addExtensionTaskStatus(new TaskStatusLocator(taskRoleName, taskIndex));
+      TaskStatusLocator locator = new TaskStatusLocator(taskRoleName, taskIndex);
+      addExtensionTaskStatus(locator);
+      markTaskStatusChanged(locator);
     }
 
     taskStatusesesChanged.put(taskRoleName, true);
@@ -505,12 +719,40 @@ private void addExtensionTaskStatus(TaskStatusLocator locator) {
     TaskStatus taskStatus = getTaskStatus(locator);
     TaskState taskState = taskStatus.getTaskState();
 
-    taskStateLocators.get(taskState).add(locator);
+    addTaskStateLocator(locator, taskState);
     if (TaskStateDefinition.CONTAINER_LIVE_ASSOCIATED_STATES.contains(taskState)) {
       updateExtensionTaskStatusWithContainerLiveness(locator, true);
     }
   }
 
+  private void addTaskStateLocator(TaskStatusLocator locator, TaskState taskState) {
+    String taskRoleName = locator.getTaskRoleName();
+    if (!taskRoleTaskStateLocators.containsKey(taskRoleName)) {
+      Map<TaskState, Set<TaskStatusLocator>> roleTaskStateLocators = new HashMap<>();
+      for (TaskState state : TaskState.values()) {
+        roleTaskStateLocators.put(state, new HashSet<>());
+      }
+      taskRoleTaskStateLocators.put(taskRoleName, roleTaskStateLocators);
+    }
+
+    taskStateLocators.get(taskState).add(locator);
+    taskRoleTaskStateLocators.get(taskRoleName).get(taskState).add(locator);
+  }
+
+  private void removeTaskStateLocator(TaskStatusLocator locator, TaskState taskState) {
+    taskStateLocators.get(taskState).remove(locator);
+    taskRoleTaskStateLocators.get(locator.getTaskRoleName()).get(taskState).remove(locator);
+  }
+
+  // Locators of the TaskRole, or of all TaskRoles if taskRoleName is null
+  private Map<TaskState, Set<TaskStatusLocator>> getTaskStateLocators(String taskRoleName) {
+    if (taskRoleName == null) {
+      return taskStateLocators;
+    } else {
+      return taskRoleTaskStateLocators.get(taskRoleName);
+    }
+  }
+
   private void addContainerRequest(TaskStatusLocator locator, ContainerRequest request) {
     nextContainerRequestPriority = Priority.newInstance(nextContainerRequestPriority.getPriority() + 1);
     taskContainerRequests.put(locator, request);
@@ -525,7 +767,7 @@ private void setContainerConnectionLostCount(String containerId, int count) {
     TaskStatus taskStatus = getTaskStatusWithLiveAssociatedContainerId(containerId);
     if (taskStatus.getContainerConnectionLostCount() != count) {
       taskStatus.setContainerConnectionLostCount(count);
-      taskStatusesesChanged.put(taskStatus.getTaskRoleName(), true);
+      markTaskStatusChanged(new TaskStatusLocator(taskStatus.getTaskRoleName(), taskStatus.getTaskIndex()));
     }
   }
 
@@ -540,42 +782,56 @@ private void logTaskStateCounters(String taskRoleName) {
     }
   }
 
-  private synchronized Map<String, Integer> getTaskStateCounters(String taskRoleName) {
-    List<TaskStatus> taskStatusArray = taskStatuseses.get(taskRoleName).getTaskStatusArray();
-    Map<String, Integer> taskStateCounters = new HashMap<>();
-
-    for (TaskStatus taskStatus : taskStatusArray) {
-      TaskState taskState = taskStatus.getTaskState();
-      String taskStateStr = taskState.toString();
-      Integer containerExitCode = taskStatus.getContainerExitCode();
-
-      if (taskState == TaskState.TASK_COMPLETED) {
-        // Override TASK_COMPLETED to provide more detailed TaskState
-        if (containerExitCode == 0) {
-          taskStateStr = "TaskSucceeded";
-        } else {
-          taskStateStr = "TaskFailed";
+  private Map<String, Integer> getTaskStateCounters(String taskRoleName) {
+    return readWithLock(() -> {
+      List<TaskStatus> taskStatusArray = taskStatuseses.get(taskRoleName).getTaskStatusArray();
+      Map<String, Integer> taskStateCounters = new HashMap<>();
+
+      for (TaskStatus taskStatus : taskStatusArray) {
+        TaskState taskState = taskStatus.getTaskState();
+        String taskStateStr = taskState.toString();
+        Integer containerExitCode = taskStatus.getContainerExitCode();
+
+        if (taskState == TaskState.TASK_COMPLETED) {
+          // Override TASK_COMPLETED to provide more detailed TaskState
+          if (containerExitCode == 0) {
+            taskStateStr = "TaskSucceeded";
+          } else {
+            taskStateStr = "TaskFailed";
+          }
         }
-      }
 
-      if (!taskStateCounters.containsKey(taskStateStr)) {
-        taskStateCounters.put(taskStateStr, 0);
+        if (!taskStateCounters.containsKey(taskStateStr)) {
+          taskStateCounters.put(taskStateStr, 0);
+        }
+        taskStateCounters.put(taskStateStr, taskStateCounters.get(taskStateStr) + 1);
       }
-      taskStateCounters.put(taskStateStr, taskStateCounters.get(taskStateStr) + 1);
-    }
 
-    return taskStateCounters;
-  }
-
-  private void updatePersistedAggTaskRoleStatuses() {
-    Map<String, AggregatedTaskRoleStatus> aggTaskRoleStatuses = new HashMap<>();
-    for (TaskRoleStatus taskRoleStatus : taskRoleStatuses.values()) {
-      String taskRoleName = taskRoleStatus.getTaskRoleName();
-      TaskStatuses taskStatuses = taskStatuseses.get(taskRoleName);
+      return taskStateCounters;
+    });
+  }
+
+  // Persisted Status is never modified in place, so the unchanged TaskStatus can be shared
+  // between the previous and the new Persisted Status.
+  private void updatePersistedAggTaskRoleStatuses(List<PushSnapshot> snapshots) throws Exception {
+    Map<String, AggregatedTaskRoleStatus> aggTaskRoleStatuses = new HashMap<>(persistedAggTaskRoleStatuses);
+    for (PushSnapshot snapshot : snapshots) {
+      String taskRoleName = snapshot.taskRoleName;
+      TaskStatuses taskStatuses = snapshot.taskStatuses;
+      if (taskStatuses == null && snapshot.taskStatusesDelta == null) {
+        taskStatuses = aggTaskRoleStatuses.get(taskRoleName).getTaskStatuses();
+      } else if (taskStatuses == null) {
+        TaskStatuses prevTaskStatuses = aggTaskRoleStatuses.get(taskRoleName).getTaskStatuses();
+        taskStatuses = new TaskStatuses();
+        taskStatuses.setTaskRoleName(prevTaskStatuses.getTaskRoleName());
+        taskStatuses.setFrameworkVersion(prevTaskStatuses.getFrameworkVersion());
+        taskStatuses.setTaskStatusArray(new ArrayList<>(prevTaskStatuses.getTaskStatusArray()));
+        ZookeeperStore.applyTaskStatusesDelta(taskStatuses, snapshot.taskStatusesDelta);
+      }
 
       AggregatedTaskRoleStatus aggTaskRoleStatus = new AggregatedTaskRoleStatus();
-      aggTaskRoleStatus.setTaskRoleStatus(YamlUtils.deepCopy(taskRoleStatus, TaskRoleStatus.class));
-      aggTaskRoleStatus.setTaskStatuses(YamlUtils.deepCopy(taskStatuses, TaskStatuses.class));
+      aggTaskRoleStatus.setTaskRoleStatus(snapshot.taskRoleStatus);
+      aggTaskRoleStatus.setTaskStatuses(taskStatuses);
       aggTaskRoleStatuses.put(taskRoleName, aggTaskRoleStatus);
     }
 
@@ -597,203 +853,247 @@ private void onOutstandingTaskAppeared(int outstandingTaskCount) {
    * REGION ReadInterface
    */
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized TaskStatus getTaskStatus(TaskStatusLocator locator) {
-    assertTaskStatusLocator(locator);
-    return taskStatuseses.get(locator.getTaskRoleName()).getTaskStatusArray().get(locator.getTaskIndex());
+  public TaskStatus getTaskStatus(TaskStatusLocator locator) {
+    return readWithLock(() -> {
+      assertTaskStatusLocator(locator);
+      return taskStatuseses.get(locator.getTaskRoleName()).getTaskStatusArray().get(locator.getTaskIndex());
+    });
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized List<TaskStatus> getTaskStatus(Set<TaskState> taskStateSet) {
+  public List<TaskStatus> getTaskStatus(Set<TaskState> taskStateSet) {
     return getTaskStatus(taskStateSet, null);
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized List<TaskStatus> getTaskStatus(Set<TaskState> taskStateSet, String taskRoleName) {
+  public List<TaskStatus> getTaskStatus(Set<TaskState> taskStateSet, String taskRoleName) {
     return getTaskStatus(taskStateSet, taskRoleName, true);
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized List<TaskStatus> getTaskStatus(Set<TaskState> taskStateSet, String taskRoleName, Boolean contains) {
-    Set<TaskState> acceptableTaskStateSet = new HashSet<>();
-    if (contains) {
-      acceptableTaskStateSet.addAll(taskStateSet);
-    } else {
-      for (TaskState taskState : TaskState.values()) {
-        if (!taskStateSet.contains(taskState)) {
-          acceptableTaskStateSet.add(taskState);
+  public List<TaskStatus> getTaskStatus(Set<TaskState> taskStateSet, String taskRoleName, Boolean contains) {
+    return readWithLock(() -> {
+      Set<TaskState> acceptableTaskStateSet = new HashSet<>();
+      if (contains) {
+        acceptableTaskStateSet.addAll(taskStateSet);
+      } else {
+        for (TaskState taskState : TaskState.values()) {
+          if (!taskStateSet.contains(taskState)) {
+            acceptableTaskStateSet.add(taskState);
+          }
         }
       }
-    }
 
-    List<TaskStatus> taskStatuses = new ArrayList<>();
-    for (TaskState taskState : acceptableTaskStateSet) {
-      for (TaskStatusLocator locator : taskStateLocators.get(taskState)) {
-        if (taskRoleName == null || taskRoleName.equals(locator.getTaskRoleName())) {
+      List<TaskStatus> taskStatuses = new ArrayList<>();
+      Map<TaskState, Set<TaskStatusLocator>> stateLocators = getTaskStateLocators(taskRoleName);
+      if (stateLocators == null) {
+        return taskStatuses;
+      }
+      for (TaskState taskState : acceptableTaskStateSet) {
+        for (TaskStatusLocator locator : stateLocators.get(taskState)) {
           taskStatuses.add(getTaskStatus(locator));
         }
       }
-    }
-    return taskStatuses;
+      return taskStatuses;
+    });
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized List<TaskStatus> getFailedTaskStatus() {
+  public List<TaskStatus> getFailedTaskStatus() {
     return getFailedTaskStatus(null);
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized List<TaskStatus> getFailedTaskStatus(String taskRoleName) {
-    List<TaskStatus> failedTaskStatuses = new ArrayList<>();
-    for (TaskStatus taskStatus : getTaskStatus(TaskStateDefinition.FINAL_STATES, taskRoleName)) {
-      if (taskStatus.getContainerExitType() != ExitType.SUCCEEDED) {
-        failedTaskStatuses.add(taskStatus);
+  public List<TaskStatus> getFailedTaskStatus(String taskRoleName) {
+    return readWithLock(() -> {
+      List<TaskStatus> failedTaskStatuses = new ArrayList<>();
+      for (TaskStatus taskStatus : getTaskStatus(TaskStateDefinition.FINAL_STATES, taskRoleName)) {
+        if (taskStatus.getContainerExitType() != ExitType.SUCCEEDED) {
+          failedTaskStatuses.add(taskStatus);
+        }
       }
-    }
-    return failedTaskStatuses;
+      return failedTaskStatuses;
+    });
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized List<TaskStatus> getSucceededTaskStatus() {
+  public List<TaskStatus> getSucceededTaskStatus() {
     return getSucceededTaskStatus(null);
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized List<TaskStatus> getSucceededTaskStatus(String taskRoleName) {
-    List<TaskStatus> succeededTaskStatuses = new ArrayList<>();
-    for (TaskStatus taskStatus : getTaskStatus(TaskStateDefinition.FINAL_STATES, taskRoleName)) {
-      if (taskStatus.getContainerExitType() == ExitType.SUCCEEDED) {
-        succeededTaskStatuses.add(taskStatus);
+  public List<TaskStatus> getSucceededTaskStatus(String taskRoleName) {
+    return readWithLock(() -> {
+      List<TaskStatus> succeededTaskStatuses = new ArrayList<>();
+      for (TaskStatus taskStatus : getTaskStatus(TaskStateDefinition.FINAL_STATES, taskRoleName)) {
+        if (taskStatus.getContainerExitType() == ExitType.SUCCEEDED) {
+          succeededTaskStatuses.add(taskStatus);
+        }
       }
-    }
-    return succeededTaskStatuses;
+      return succeededTaskStatuses;
+    });
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized TaskStatus getTaskStatus(Priority priority) {
-    assertPriority(priority);
-    return getTaskStatus(priorityLocators.get(priority));
+  public TaskStatus getTaskStatus(Priority priority) {
+    return readWithLock(() -> {
+      assertPriority(priority);
+      return getTaskStatus(priorityLocators.get(priority));
+    });
   }
 
   // Returned TaskStatus is readonly, caller should not modify it
-  public synchronized TaskStatus getTaskStatusWithLiveAssociatedContainerId(String containerId) {
-    assertLiveAssociatedContainerId(containerId);
-    return getTaskStatus(liveAssociatedContainerIdLocators.get(containerId));
+  public TaskStatus getTaskStatusWithLiveAssociatedContainerId(String containerId) {
+    return readWithLock(() -> {
+      assertLiveAssociatedContainerId(containerId);
+      return getTaskStatus(liveAssociatedContainerIdLocators.get(containerId));
+    });
   }
 
-  public synchronized List<String> getLiveAssociatedContainerIds() {
-    return new ArrayList<>(liveAssociatedContainerIdLocators.keySet());
+  public List<String> getLiveAssociatedContainerIds() {
+    return readWithLock(() -> new ArrayList<>(liveAssociatedContainerIdLocators.keySet()));
   }
 
-  public synchronized Boolean isContainerIdLiveAssociated(String containerId) {
-    return liveAssociatedContainerIdLocators.containsKey(containerId);
+  public Boolean isContainerIdLiveAssociated(String containerId) {
+    return readWithLock(() -> liveAssociatedContainerIdLocators.containsKey(containerId));
   }
 
-  public synchronized List<String> getLiveAssociatedHostNames() {
-    return new ArrayList<>(liveAssociatedHostNames);
+  public List<String> getLiveAssociatedHostNames() {
+    return readWithLock(() -> new ArrayList<>(liveAssociatedHostNames));
   }
 
-  public synchronized Boolean isHostNameLiveAssociated(String hostName) {
-    return liveAssociatedHostNames.contains(hostName);
+  public Boolean isHostNameLiveAssociated(String hostName) {
+    return readWithLock(() -> liveAssociatedHostNames.contains(hostName));
   }
 
-  public synchronized Boolean containsTask(TaskStatusLocator locator) {
-    return (taskStatuseses.containsKey(locator.getTaskRoleName()) &&
-        taskStatuseses.get(locator.getTaskRoleName()).getTaskStatusArray().size() > locator.getTaskIndex() &&
-        locator.getTaskIndex() >= 0);
+  public Boolean containsTask(TaskStatusLocator locator) {
+    return readWithLock(() ->
+        (taskStatuseses.containsKey(locator.getTaskRoleName()) &&
+            taskStatuseses.get(locator.getTaskRoleName()).getTaskStatusArray().size() > locator.getTaskIndex() &&
+            locator.getTaskIndex() >= 0));
   }
 
-  public synchronized Boolean containsTask(Priority priority) {
-    return priorityLocators.containsKey(priority);
+  public Boolean containsTask(Priority priority) {
+    return readWithLock(() -> priorityLocators.containsKey(priority));
   }
 
-  public synchronized Boolean containsTask(TaskStatus taskStatus) {
-    String taskRoleName = taskStatus.getTaskRoleName();
-    TaskStatusLocator taskLocator = new TaskStatusLocator(taskRoleName, taskStatus.getTaskIndex());
+  public Boolean containsTask(TaskStatus taskStatus) {
+    return readWithLock(() -> {
+      String taskRoleName = taskStatus.getTaskRoleName();
+      TaskStatusLocator taskLocator = new TaskStatusLocator(taskRoleName, taskStatus.getTaskIndex());
 
-    if (!containsTask(taskLocator)) {
-      LOGGER.logDebug("TaskStatusLocator not found in Status. TaskStatusLocator: %s", taskLocator);
-      return false;
-    }
+      if (!containsTask(taskLocator)) {
+        LOGGER.logDebug("TaskStatusLocator not found in Status. TaskStatusLocator: %s", taskLocator);
+        return false;
+      }
 
-    TaskStatus thisTaskStatus = getTaskStatus(taskLocator);
-    if (!YamlUtils.deepEquals(thisTaskStatus, taskStatus)) {
-      LOGGER.logSplittedLines(Level.DEBUG,
-          "TaskStatus not found in Status. TaskStatus:\n%s\nCurrent TaskStatus in Status:\n%s",
-          WebCommon.toJson(taskStatus), WebCommon.toJson(thisTaskStatus));
-      return false;
-    }
+      TaskStatus thisTaskStatus = getTaskStatus(taskLocator);
+      if (!ModelUtils.deepEquals(thisTaskStatus, taskStatus)) {
+        LOGGER.logSplittedLines(Level.DEBUG,
+            "TaskStatus not found in Status. TaskStatus:\n%s\nCurrent TaskStatus in Status:\n%s",
+            WebCommon.toJson(taskStatus), WebCommon.toJson(thisTaskStatus));
+        return false;
+      }
 
-    return true;
+      return true;
+    });
   }
 
-  public synchronized int getTaskCount(String taskRoleName) {
-    return taskStatuseses.get(taskRoleName).getTaskStatusArray().size();
+  public int getTaskCount(String taskRoleName) {
+    return readWithLock(() -> taskStatuseses.get(taskRoleName).getTaskStatusArray().size());
   }
 
-  public synchronized int getTaskCount() {
-    int taskCount = 0;
-    for (String taskRoleName : taskStatuseses.keySet()) {
-      taskCount += getTaskCount(taskRoleName);
-    }
-    return taskCount;
+  public int getTaskCount() {
+    return readWithLock(() -> {
+      int taskCount = 0;
+      for (String taskRoleName : taskStatuseses.keySet()) {
+        taskCount += getTaskCount(taskRoleName);
+      }
+      return taskCount;
+    });
   }
 
-  public synchronized int getTaskCount(Set<TaskState> taskStateSet) {
-    return getTaskStatus(taskStateSet).size();
+  public int getTaskCount(Set<TaskState> taskStateSet) {
+    return getTaskCount(taskStateSet, null);
+  }
+
+  // Count without materializing the TaskStatuses, so it is cheap enough for the hot path,
+  // such as RM heartbeat and SelectionManager.
+  public int getTaskCount(Set<TaskState> taskStateSet, String taskRoleName) {
+    return readWithLock(() -> {
+      Map<TaskState, Set<TaskStatusLocator>> stateLocators = getTaskStateLocators(taskRoleName);
+      if (stateLocators == null) {
+        return 0;
+      }
+
+      int taskCount = 0;
+      for (TaskState taskState : taskStateSet) {
+        taskCount += stateLocators.get(taskState).size();
+      }
+      return taskCount;
+    });
   }
 
-  public synchronized int getStartStateTaskCount() {
+  public int getStartStateTaskCount() {
     return getTaskCount(TaskStateDefinition.START_STATES);
   }
 
-  public synchronized int getFinalStateTaskCount() {
+  public int getFinalStateTaskCount() {
     return getTaskCount(TaskStateDefinition.FINAL_STATES);
   }
 
-  public synchronized int getOutstandingStateTaskCount() {
+  public int getOutstandingStateTaskCount() {
     return getTaskCount(TaskStateDefinition.OUTSTANDING_STATES);
   }
 
-  public synchronized Boolean isAllTaskInFinalState() {
-    return (getFinalStateTaskCount() == getTaskCount());
+  public Boolean isAllTaskInFinalState() {
+    return readWithLock(() -> (getFinalStateTaskCount() == getTaskCount()));
   }
 
-  public synchronized Float getApplicationProgress() {
-    int totalTaskCount = getTaskCount();
-    return totalTaskCount == 0 ? null :
-        (float) getFinalStateTaskCount() / totalTaskCount;
+  public Float getApplicationProgress() {
+    return readWithLock(() -> {
+      int totalTaskCount = getTaskCount();
+      return totalTaskCount == 0 ? null :
+          (float) getFinalStateTaskCount() / totalTaskCount;
+    });
   }
 
-  public synchronized ContainerRequest getContainerRequest(TaskStatusLocator locator) {
-    assertTaskStatusLocator(locator);
-    return taskContainerRequests.get(locator);
+  public ContainerRequest getContainerRequest(TaskStatusLocator locator) {
+    return readWithLock(() -> {
+      assertTaskStatusLocator(locator);
+      return taskContainerRequests.get(locator);
+    });
   }
 
-  public synchronized Priority getNextContainerRequestPriority() {
-    return nextContainerRequestPriority;
+  public Priority getNextContainerRequestPriority() {
+    return readWithLock(() -> nextContainerRequestPriority);
   }
 
-  public synchronized Container getAllocatedContainer(TaskStatusLocator locator) {
-    assertTaskStatusLocator(locator);
-    return taskAllocatedContainers.get(locator);
+  public Container getAllocatedContainer(TaskStatusLocator locator) {
+    return readWithLock(() -> {
+      assertTaskStatusLocator(locator);
+      return taskAllocatedContainers.get(locator);
+    });
   }
 
-  public synchronized Map<String, AggregatedTaskRoleStatus> getPersistedAggTaskRoleStatuses() {
+  public Map<String, AggregatedTaskRoleStatus> getPersistedAggTaskRoleStatuses() {
     return persistedAggTaskRoleStatuses;
   }
 
-  public synchronized List<ValueRange> getAnyLiveAssociatedContainerPorts(String taskRoleName) {
-    List<TaskStatus> taskStatuses = getTaskStatus(
-        TaskStateDefinition.CONTAINER_LIVE_ASSOCIATED_STATES, taskRoleName);
-    if (taskStatuses.size() > 0) {
-      return PortUtils.toPortRanges(taskStatuses.get(0).getContainerPorts());
-    } else {
-      return new ArrayList<>();
-    }
+  public List<ValueRange> getAnyLiveAssociatedContainerPorts(String taskRoleName) {
+    return readWithLock(() -> {
+      List<TaskStatus> taskStatuses = getTaskStatus(
+          TaskStateDefinition.CONTAINER_LIVE_ASSOCIATED_STATES, taskRoleName);
+      if (taskStatuses.size() > 0) {
+        return PortUtils.toPortRanges(taskStatuses.get(0).getContainerPorts());
+      } else {
+        return new ArrayList<>();
+      }
+    });
   }
 
-  public synchronized int getOutstandingTaskAppearedRound() {
-    return outstandingTaskAppearedRound;
+  public int getOutstandingTaskAppearedRound() {
+    return readWithLock(() -> outstandingTaskAppearedRound);
   }
 
   /**
@@ -801,13 +1101,26 @@ public synchronized int getOutstandingTaskAppearedRound() {
    * Note to avoid update partially modified Status on ZK
    */
   // transitionTaskState is the only interface to modify TaskState for both internal and external
-  public synchronized void transitionTaskState(
+  public void transitionTaskState(
       TaskStatusLocator locator,
       TaskState dstState) throws Exception {
     transitionTaskState(locator, dstState, new TaskEvent());
   }
 
-  public synchronized void transitionTaskState(
+  // The whole transition is done under writeLock, so it is still atomic to all readers
+  public void transitionTaskState(
+      TaskStatusLocator locator,
+      TaskState dstState,
+      TaskEvent event) throws Exception {
+    writeLock.lock();
+    try {
+      transitionTaskStateInternal(locator, dstState, event);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void transitionTaskStateInternal(
       TaskStatusLocator locator,
       TaskState dstState,
       TaskEvent event) throws Exception {
@@ -902,12 +1215,12 @@ public synchronized void transitionTaskState(
     }
 
     // Start Transition
-    taskStateLocators.get(srcState).remove(locator);
-    taskStateLocators.get(dstState).add(locator);
+    removeTaskStateLocator(locator, srcState);
+    addTaskStateLocator(locator, dstState);
     taskStatus.setTaskState(dstState);
 
     // Mark as changed
-    taskStatusesesChanged.put(locator.getTaskRoleName(), true);
+    markTaskStatusChanged(locator);
     LOGGER.logInfo("Transitioned Task %s from [%s] to [%s]", locator, srcState, dstState);
 
     // Start Transition Callbacks
@@ -928,72 +1241,80 @@ public synchronized void transitionTaskState(
     }
   }
 
-  public synchronized void updateTaskNumbers(Map<String, Integer> newTaskNumbers) {
-    int previousOutstandingTaskCount = getOutstandingStateTaskCount();
+  public void updateTaskNumbers(Map<String, Integer> newTaskNumbers) {
+    writeWithLock(() -> {
+      int previousOutstandingTaskCount = getOutstandingStateTaskCount();
 
-    for (Map.Entry<String, Integer> newTaskNumberKV : newTaskNumbers.entrySet()) {
-      String newTaskRoleName = newTaskNumberKV.getKey();
-      int newTaskNumber = newTaskNumberKV.getValue();
+      for (Map.Entry<String, Integer> newTaskNumberKV : newTaskNumbers.entrySet()) {
+        String newTaskRoleName = newTaskNumberKV.getKey();
+        int newTaskNumber = newTaskNumberKV.getValue();
 
-      // Setup TaskRole
-      if (!taskRoleStatuses.containsKey(newTaskRoleName)) {
-        TaskRoleStatus taskRoleStatus = new TaskRoleStatus();
-        taskRoleStatus.setTaskRoleName(newTaskRoleName);
-        taskRoleStatus.setTaskRoleRolloutStatus(new TaskRoleRolloutStatus());
-        taskRoleStatus.setFrameworkVersion(conf.getFrameworkVersion());
-        taskRoleStatuses.put(newTaskRoleName, taskRoleStatus);
-        taskRoleStatusesChanged.put(newTaskRoleName, true);
-      }
+        // Setup TaskRole
+        if (!taskRoleStatuses.containsKey(newTaskRoleName)) {
+          TaskRoleStatus taskRoleStatus = new TaskRoleStatus();
+          taskRoleStatus.setTaskRoleName(newTaskRoleName);
+          taskRoleStatus.setTaskRoleRolloutStatus(new TaskRoleRolloutStatus());
+          taskRoleStatus.setFrameworkVersion(conf.getFrameworkVersion());
+          taskRoleStatuses.put(newTaskRoleName, taskRoleStatus);
+          taskRoleStatusesChanged.put(newTaskRoleName, true);
+        }
 
-      if (!taskStatuseses.containsKey(newTaskRoleName)) {
-        TaskStatuses taskStatuses = new TaskStatuses();
-        taskStatuses.setTaskRoleName(newTaskRoleName);
-        taskStatuses.setTaskStatusArray(new ArrayList<>());
-        taskStatuses.setFrameworkVersion(conf.getFrameworkVersion());
-        taskStatuseses.put(newTaskRoleName, taskStatuses);
-        taskStatusesesChanged.put(newTaskRoleName, true);
-      }
+        if (!taskStatuseses.containsKey(newTaskRoleName)) {
+          TaskStatuses taskStatuses = new TaskStatuses();
+          taskStatuses.setTaskRoleName(newTaskRoleName);
+          taskStatuses.setTaskStatusArray(new ArrayList<>());
+          taskStatuses.setFrameworkVersion(conf.getFrameworkVersion());
+          taskStatuseses.put(newTaskRoleName, taskStatuses);
+          taskStatusesesChanged.put(newTaskRoleName, true);
+        }
 
-      // Update TaskStatus
-      Integer curTaskNumber = taskStatuseses.get(newTaskRoleName).getTaskStatusArray().size();
-      if (newTaskNumber < curTaskNumber) {
-        decreaseTaskNumber(newTaskRoleName, newTaskNumber);
-      } else if (newTaskNumber > curTaskNumber) {
-        increaseTaskNumber(newTaskRoleName, newTaskNumber);
+        // Update TaskStatus
+        Integer curTaskNumber = taskStatuseses.get(newTaskRoleName).getTaskStatusArray().size();
+        if (newTaskNumber < curTaskNumber) {
+          decreaseTaskNumber(newTaskRoleName, newTaskNumber);
+        } else if (newTaskNumber > curTaskNumber) {
+          increaseTaskNumber(newTaskRoleName, newTaskNumber);
+        }
       }
-    }
 
-    // Start UpdateTaskNumbers Callbacks
-    int currentOutstandingTaskCount = getOutstandingStateTaskCount();
-    if (!outstandingTaskCallbackTriggered) {
-      // If onOutstandingTaskDisappeared or onOutstandingTaskAppeared has not been triggered yet,
-      // they should be recovered, regardless of previousOutstandingTaskCount.
-      if (currentOutstandingTaskCount == 0) {
-        onOutstandingTaskDisappeared();
-      } else if (currentOutstandingTaskCount > 0) {
-        onOutstandingTaskAppeared(currentOutstandingTaskCount);
-      }
-    } else {
-      if (previousOutstandingTaskCount > 0 && currentOutstandingTaskCount == 0) {
-        onOutstandingTaskDisappeared();
-      } else if (previousOutstandingTaskCount == 0 && currentOutstandingTaskCount > 0) {
-        onOutstandingTaskAppeared(currentOutstandingTaskCount);
+      // Start UpdateTaskNumbers Callbacks
+      int currentOutstandingTaskCount = getOutstandingStateTaskCount();
+      if (!outstandingTaskCallbackTriggered) {
+        // If onOutstandingTaskDisappeared or onOutstandingTaskAppeared has not been triggered yet,
+        // they should be recovered, regardless of previousOutstandingTaskCount.
+        if (currentOutstandingTaskCount == 0) {
+          onOutstandingTaskDisappeared();
+        } else if (currentOutstandingTaskCount > 0) {
+          onOutstandingTaskAppeared(currentOutstandingTaskCount);
+        }
+      } else {
+        if (previousOutstandingTaskCount > 0 && currentOutstandingTaskCount == 0) {
+          onOutstandingTaskDisappeared();
+        } else if (previousOutstandingTaskCount == 0 && currentOutstandingTaskCount > 0) {
+          onOutstandingTaskAppeared(currentOutstandingTaskCount);
+        }
       }
-    }
+    });
   }
 
-  public synchronized void resetContainerConnectionLostCount(String containerId) {
-    setContainerConnectionLostCount(containerId, 0);
+  public void resetContainerConnectionLostCount(String containerId) {
+    writeWithLock(() -> {
+      setContainerConnectionLostCount(containerId, 0);
+    });
   }
 
-  public synchronized void resetContainerConnectionLostCount() {
-    for (String containerId : getLiveAssociatedContainerIds()) {
-      resetContainerConnectionLostCount(containerId);
-    }
+  public void resetContainerConnectionLostCount() {
+    writeWithLock(() -> {
+      for (String containerId : getLiveAssociatedContainerIds()) {
+        resetContainerConnectionLostCount(containerId);
+      }
+    });
   }
 
-  public synchronized void increaseContainerConnectionLostCount(String containerId) {
-    TaskStatus taskStatus = getTaskStatusWithLiveAssociatedContainerId(containerId);
-    setContainerConnectionLostCount(containerId, taskStatus.getContainerConnectionLostCount() + 1);
+  public void increaseContainerConnectionLostCount(String containerId) {
+    writeWithLock(() -> {
+      TaskStatus taskStatus = getTaskStatusWithLiveAssociatedContainerId(containerId);
+      setContainerConnectionLostCount(containerId, taskStatus.getContainerConnectionLostCount() + 1);
+    });
   }
 }
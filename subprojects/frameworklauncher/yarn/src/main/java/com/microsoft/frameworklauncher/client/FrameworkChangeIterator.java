@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.client;
+
+import com.microsoft.frameworklauncher.common.model.FrameworkChanges;
+
+// Iterate the FrameworkChanges by long-polling the Watch API, so that a client can
+// replace the polls of each Framework with a single blocking call.
+// If the returned FrameworkChanges requires resync, some FrameworkChanges are missed,
+// and the client should get all the Frameworks again by LauncherClient.getFrameworks.
+public class FrameworkChangeIterator {
+  private final LauncherClient launcherClient;
+  // Null means using the max timeout of the WebServer
+  private final Integer timeoutSec;
+  private String cursor;
+
+  FrameworkChangeIterator(LauncherClient launcherClient, String cursor, Integer timeoutSec) {
+    this.launcherClient = launcherClient;
+    this.cursor = cursor;
+    this.timeoutSec = timeoutSec;
+  }
+
+  // The Cursor of the next FrameworkChanges, it can be persisted by the client
+  // to continue watching by LauncherClient.watch(cursor) later.
+  public String getCursor() {
+    return cursor;
+  }
+
+  // Block until there are FrameworkChanges after the Cursor, or the long poll
+  // times out, in which case empty FrameworkChanges are returned.
+  public FrameworkChanges next() throws Exception {
+    FrameworkChanges frameworkChanges = launcherClient.getFrameworkChanges(cursor, timeoutSec);
+    cursor = frameworkChanges.getNextCursor();
+    return frameworkChanges;
+  }
+}
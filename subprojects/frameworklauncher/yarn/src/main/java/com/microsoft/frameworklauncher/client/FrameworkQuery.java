@@ -0,0 +1,176 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.client;
+
+import com.microsoft.frameworklauncher.common.model.FrameworkState;
+import com.microsoft.frameworklauncher.common.model.LaunchClientType;
+import com.microsoft.frameworklauncher.common.validation.CommonValidation;
+import com.microsoft.frameworklauncher.common.web.WebStructure;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// The query of LauncherClient.getFrameworks, a null filter matches all.
+// With limit, the Frameworks are paged in FrameworkName order, and the
+// nextCursor of the returned page is the cursor of the next page.
+// With fields, only the specified SummarizedFrameworkInfo fields are returned,
+// and the other fields are left null.
+public class FrameworkQuery {
+  private LaunchClientType launchClientType;
+  private String userName;
+  private String queue;
+  private Set<FrameworkState> frameworkStates;
+  private Long minFirstRequestTimestamp;
+  private Long maxFirstRequestTimestamp;
+  private Integer limit;
+  private String cursor;
+  private Set<String> fields;
+
+  public LaunchClientType getLaunchClientType() {
+    return launchClientType;
+  }
+
+  public FrameworkQuery setLaunchClientType(LaunchClientType launchClientType) {
+    this.launchClientType = launchClientType;
+    return this;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public FrameworkQuery setUserName(String userName) {
+    this.userName = userName;
+    return this;
+  }
+
+  public String getQueue() {
+    return queue;
+  }
+
+  public FrameworkQuery setQueue(String queue) {
+    this.queue = queue;
+    return this;
+  }
+
+  public Set<FrameworkState> getFrameworkStates() {
+    return frameworkStates;
+  }
+
+  public FrameworkQuery setFrameworkStates(FrameworkState... frameworkStates) {
+    this.frameworkStates = new LinkedHashSet<>(Arrays.asList(frameworkStates));
+    return this;
+  }
+
+  public FrameworkQuery setFrameworkStates(Set<FrameworkState> frameworkStates) {
+    this.frameworkStates = frameworkStates;
+    return this;
+  }
+
+  public Long getMinFirstRequestTimestamp() {
+    return minFirstRequestTimestamp;
+  }
+
+  public FrameworkQuery setMinFirstRequestTimestamp(Long minFirstRequestTimestamp) {
+    this.minFirstRequestTimestamp = minFirstRequestTimestamp;
+    return this;
+  }
+
+  public Long getMaxFirstRequestTimestamp() {
+    return maxFirstRequestTimestamp;
+  }
+
+  public FrameworkQuery setMaxFirstRequestTimestamp(Long maxFirstRequestTimestamp) {
+    this.maxFirstRequestTimestamp = maxFirstRequestTimestamp;
+    return this;
+  }
+
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public FrameworkQuery setLimit(Integer limit) {
+    this.limit = limit;
+    return this;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public FrameworkQuery setCursor(String cursor) {
+    this.cursor = cursor;
+    return this;
+  }
+
+  public Set<String> getFields() {
+    return fields;
+  }
+
+  public FrameworkQuery setFields(String... fields) {
+    this.fields = new LinkedHashSet<>(Arrays.asList(fields));
+    return this;
+  }
+
+  public FrameworkQuery setFields(Set<String> fields) {
+    this.fields = fields;
+    return this;
+  }
+
+  public Map<String, String> toParameters() throws Exception {
+    Map<String, String> parameters = new HashMap<>();
+    if (launchClientType != null) {
+      parameters.put(WebStructure.REQUEST_PARAM_LAUNCH_CLIENT_TYPE, launchClientType.toString());
+    }
+    if (userName != null) {
+      CommonValidation.validate(userName);
+      parameters.put(WebStructure.REQUEST_PARAM_USER_NAME, userName);
+    }
+    if (queue != null) {
+      CommonValidation.validate(queue);
+      parameters.put(WebStructure.REQUEST_PARAM_QUEUE, queue);
+    }
+    if (frameworkStates != null) {
+      parameters.put(WebStructure.REQUEST_PARAM_FRAMEWORK_STATE, StringUtils.join(frameworkStates, ","));
+    }
+    if (minFirstRequestTimestamp != null) {
+      parameters.put(WebStructure.REQUEST_PARAM_MIN_FIRST_REQUEST_TIMESTAMP, minFirstRequestTimestamp.toString());
+    }
+    if (maxFirstRequestTimestamp != null) {
+      parameters.put(WebStructure.REQUEST_PARAM_MAX_FIRST_REQUEST_TIMESTAMP, maxFirstRequestTimestamp.toString());
+    }
+    if (limit != null) {
+      parameters.put(WebStructure.REQUEST_PARAM_LIMIT, limit.toString());
+    }
+    if (cursor != null) {
+      CommonValidation.validate(cursor);
+      parameters.put(WebStructure.REQUEST_PARAM_CURSOR, cursor);
+    }
+    if (fields != null) {
+      for (String field : fields) {
+        CommonValidation.validate(field);
+      }
+      parameters.put(WebStructure.REQUEST_PARAM_FIELDS, StringUtils.join(fields, ","));
+    }
+    return parameters;
+  }
+}
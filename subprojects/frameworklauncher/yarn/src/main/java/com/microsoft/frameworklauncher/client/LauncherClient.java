@@ -20,6 +20,7 @@
 import com.microsoft.frameworklauncher.common.GlobalConstants;
 import com.microsoft.frameworklauncher.common.exceptions.LauncherClientException;
 import com.microsoft.frameworklauncher.common.model.*;
+import com.microsoft.frameworklauncher.common.utils.RetryUtils;
 import com.microsoft.frameworklauncher.common.validation.CommonValidation;
 import com.microsoft.frameworklauncher.common.web.WebClient;
 import com.microsoft.frameworklauncher.common.web.WebClientOutput;
@@ -28,21 +29,106 @@
 import org.apache.http.HttpStatus;
 import org.apache.http.entity.ContentType;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public class LauncherClient implements Closeable { // THREAD SAFE
+  // The async concurrency of the LauncherClient which is not pooled, which is aligned with the
+  // default max connections per route of its WebClient, since more threads only wait for them.
+  private static final int NOT_POOLED_ASYNC_THREAD_COUNT = 2;
 
-public class LauncherClient {
   private final WebClient webClient;
   private final int maxRetryCount;
   private final int retryIntervalSec;
 
+  // Only for the pooled LauncherClient, see LauncherClientConfiguration
+  private final LauncherClientConfiguration clientConf;
+  // Created on the first async call if the LauncherClient is not pooled, see initAsyncExecutors
+  private volatile ExecutorService asyncExecutor;
+  private volatile ScheduledExecutorService retryScheduler;
+  private boolean closed = false;
+  // The in-flight GET for each URI, so that the identical concurrent GETs share
+  // its output instead of sending the same request again.
+  private final ConcurrentMap<String, CompletableFuture<WebClientOutput>> inFlightGets =
+      new ConcurrentHashMap<>();
+
   public LauncherClient(String launcherAddress, int maxRetryCount, int retryIntervalSec,
       LaunchClientType launchClientType, String userName) {
     this.webClient = new WebClient(launcherAddress, launchClientType, userName);
     this.maxRetryCount = maxRetryCount;
     this.retryIntervalSec = retryIntervalSec;
+    this.clientConf = null;
+  }
+
+  public LauncherClient(String launcherAddress, LaunchClientType launchClientType, String userName,
+      LauncherClientConfiguration clientConf) {
+    this.webClient = new WebClient(launcherAddress, launchClientType, userName,
+        clientConf.getMaxConnectionCount(), clientConf.getConnectTimeoutMs(),
+        clientConf.getSocketTimeoutMs(), clientConf.getConnectionKeepAliveSec());
+    this.maxRetryCount = clientConf.getMaxRetryCount();
+    this.retryIntervalSec = clientConf.getMinRetryDelaySec();
+    this.clientConf = clientConf;
+    this.retryScheduler = newRetryScheduler();
+    this.asyncExecutor = newAsyncExecutor(clientConf.getAsyncThreadCount());
+  }
+
+  private static ExecutorService newAsyncExecutor(int asyncThreadCount) {
+    return Executors.newFixedThreadPool(asyncThreadCount, runnable -> {
+      Thread thread = new Thread(runnable, LauncherClient.class.getSimpleName() + "-Async");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private static ScheduledExecutorService newRetryScheduler() {
+    return Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, LauncherClient.class.getSimpleName() + "-Retry");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // The asyncExecutor is published after the retryScheduler, so both are ready once it is not null.
+  // If the LauncherClient is already closed, they are shutdown, so the async call fails instead.
+  private void initAsyncExecutors() {
+    if (asyncExecutor != null) {
+      return;
+    }
+    synchronized (this) {
+      if (asyncExecutor == null) {
+        retryScheduler = newRetryScheduler();
+        asyncExecutor = newAsyncExecutor(NOT_POOLED_ASYNC_THREAD_COUNT);
+        if (closed) {
+          shutdownAsyncExecutors();
+        }
+      }
+    }
+  }
+
+  private void shutdownAsyncExecutors() {
+    asyncExecutor.shutdownNow();
+    retryScheduler.shutdownNow();
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      closed = true;
+      if (asyncExecutor != null) {
+        shutdownAsyncExecutors();
+      }
+    }
+    webClient.close();
+  }
+
+  public boolean isPooled() {
+    return clientConf != null;
   }
 
   public SummarizedFrameworkInfos getFrameworks() throws Exception {
@@ -67,10 +153,58 @@ public SummarizedFrameworkInfos getFrameworks(LaunchClientType launchClientType,
         CommonValidation.validate(userName);
         parameters.put(WebStructure.REQUEST_PARAM_USER_NAME, userName);
       }
-      return webClient.get(WebStructure.FRAMEWORK_ROOT_PATH, parameters);
+      return get(WebStructure.FRAMEWORK_ROOT_PATH, parameters);
     }, SummarizedFrameworkInfos.class);
   }
 
+  public SummarizedFrameworkInfos getFrameworks(FrameworkQuery frameworkQuery) throws Exception {
+    Map<String, String> parameters = frameworkQuery.toParameters();
+    return executeWithRetry(() -> get(
+        WebStructure.FRAMEWORK_ROOT_PATH, parameters), SummarizedFrameworkInfos.class);
+  }
+
+  // Watch the FrameworkChanges after the cursor, and a null cursor means from now.
+  // See FrameworkChangeIterator.
+  public FrameworkChangeIterator watch(String cursor) {
+    return watch(cursor, null);
+  }
+
+  public FrameworkChangeIterator watch(String cursor, Integer timeoutSec) {
+    return new FrameworkChangeIterator(this, cursor, timeoutSec);
+  }
+
+  // Long-poll the FrameworkChanges after the cursor once
+  public FrameworkChanges getFrameworkChanges(String cursor, Integer timeoutSec) throws Exception {
+    return executeWithRetry(() -> {
+      Map<String, String> parameters = new HashMap<>();
+      if (cursor != null) {
+        parameters.put(WebStructure.REQUEST_PARAM_CURSOR, cursor);
+      }
+      if (timeoutSec != null) {
+        parameters.put(WebStructure.REQUEST_PARAM_TIMEOUT_SEC, timeoutSec.toString());
+      }
+      return get(WebStructure.WATCH_PATH, parameters);
+    }, FrameworkChanges.class);
+  }
+
+  // Async API: The returned future is completed with the same result or exception as the
+  // corresponding sync API.
+  // It is supported by all LauncherClients, but only the pooled one has the configurable
+  // async concurrency, see LauncherClientConfiguration.
+  public CompletableFuture<SummarizedFrameworkInfos> getFrameworksAsync(FrameworkQuery frameworkQuery) {
+    initAsyncExecutors();
+    Map<String, String> parameters;
+    try {
+      parameters = frameworkQuery.toParameters();
+    } catch (Exception e) {
+      CompletableFuture<SummarizedFrameworkInfos> result = new CompletableFuture<>();
+      result.completeExceptionally(e);
+      return result;
+    }
+    return executeAsyncWithRetry(() -> getAsync(
+        WebStructure.FRAMEWORK_ROOT_PATH, parameters), SummarizedFrameworkInfos.class);
+  }
+
   public void putFramework(String frameworkName, String frameworkDescriptor) throws Exception {
     putFramework(frameworkName, WebCommon.toObject(frameworkDescriptor, FrameworkDescriptor.class));
   }
@@ -82,6 +216,16 @@ public void putFramework(String frameworkName, FrameworkDescriptor frameworkDesc
         WebCommon.toJson(frameworkDescriptor)));
   }
 
+  public FrameworkOperationResults putFrameworks(Map<String, FrameworkDescriptor> frameworkDescriptors) throws Exception {
+    PutFrameworksRequest putFrameworksRequest = new PutFrameworksRequest();
+    putFrameworksRequest.setFrameworkDescriptors(frameworkDescriptors);
+    return executeWithRetry(() -> webClient.put(
+        WebStructure.FRAMEWORK_ROOT_PATH,
+        ContentType.APPLICATION_JSON,
+        WebCommon.toJson(putFrameworksRequest)),
+        FrameworkOperationResults.class);
+  }
+
   public void putTaskNumber(String frameworkName, String taskRoleName, UpdateTaskNumberRequest updateTaskNumberRequest) throws Exception {
     executeWithRetry(() -> webClient.put(
         WebStructure.getTaskNumberPath(frameworkName, taskRoleName),
@@ -115,47 +259,92 @@ public void deleteFramework(String frameworkName) throws Exception {
         WebStructure.getFrameworkPath(frameworkName)));
   }
 
+  public FrameworkOperationResults deleteFrameworks(List<String> frameworkNames) throws Exception {
+    DeleteFrameworksRequest deleteFrameworksRequest = new DeleteFrameworksRequest();
+    deleteFrameworksRequest.setFrameworkNames(frameworkNames);
+    return executeWithRetry(() -> webClient.post(
+        WebStructure.DELETE_FRAMEWORKS_PATH,
+        ContentType.APPLICATION_JSON,
+        WebCommon.toJson(deleteFrameworksRequest)),
+        FrameworkOperationResults.class);
+  }
+
   public void deleteMigrateTask(String frameworkName, String containerId) throws Exception {
     executeWithRetry(() -> webClient.delete(
         WebStructure.getMigrateTaskPath(frameworkName, containerId)));
   }
 
   public AggregatedFrameworkStatus getAggregatedFrameworkStatus(String frameworkName) throws Exception {
-    return executeWithRetry(() -> webClient.get(
+    return executeWithRetry(() -> get(
         WebStructure.getAggregatedFrameworkStatusPath(frameworkName)),
         AggregatedFrameworkStatus.class);
   }
 
   public FrameworkStatus getFrameworkStatus(String frameworkName) throws Exception {
-    return executeWithRetry(() -> webClient.get(
+    return executeWithRetry(() -> get(
         WebStructure.getFrameworkStatusPath(frameworkName)),
         FrameworkStatus.class);
   }
 
   public AggregatedFrameworkRequest getAggregatedFrameworkRequest(String frameworkName) throws Exception {
-    return executeWithRetry(() -> webClient.get(
+    return executeWithRetry(() -> get(
         WebStructure.getAggregatedFrameworkRequestPath(frameworkName)),
         AggregatedFrameworkRequest.class);
   }
 
   public FrameworkRequest getFrameworkRequest(String frameworkName) throws Exception {
-    return executeWithRetry(() -> webClient.get(
+    return executeWithRetry(() -> get(
         WebStructure.getFrameworkRequestPath(frameworkName)),
         FrameworkRequest.class);
   }
 
+  // Async API: Same as getFrameworksAsync
+  public CompletableFuture<AggregatedFrameworkStatus> getAggregatedFrameworkStatusAsync(String frameworkName) {
+    initAsyncExecutors();
+    return executeAsyncWithRetry(() -> getAsync(
+        WebStructure.getAggregatedFrameworkStatusPath(frameworkName), null),
+        AggregatedFrameworkStatus.class);
+  }
+
+  public CompletableFuture<FrameworkStatus> getFrameworkStatusAsync(String frameworkName) {
+    initAsyncExecutors();
+    return executeAsyncWithRetry(() -> getAsync(
+        WebStructure.getFrameworkStatusPath(frameworkName), null),
+        FrameworkStatus.class);
+  }
+
+  public CompletableFuture<AggregatedFrameworkRequest> getAggregatedFrameworkRequestAsync(String frameworkName) {
+    initAsyncExecutors();
+    return executeAsyncWithRetry(() -> getAsync(
+        WebStructure.getAggregatedFrameworkRequestPath(frameworkName), null),
+        AggregatedFrameworkRequest.class);
+  }
+
+  public CompletableFuture<FrameworkRequest> getFrameworkRequestAsync(String frameworkName) {
+    initAsyncExecutors();
+    return executeAsyncWithRetry(() -> getAsync(
+        WebStructure.getFrameworkRequestPath(frameworkName), null),
+        FrameworkRequest.class);
+  }
+
   public LauncherStatus getLauncherStatus() throws Exception {
-    return executeWithRetry(() -> webClient.get(
+    return executeWithRetry(() -> get(
         WebStructure.LAUNCHER_STATUS_PATH),
         LauncherStatus.class);
   }
 
   public LauncherRequest getLauncherRequest() throws Exception {
-    return executeWithRetry(() -> webClient.get(
+    return executeWithRetry(() -> get(
         WebStructure.LAUNCHER_REQUEST_PATH),
         LauncherRequest.class);
   }
 
+  public AdmissionStatus getAdmissionStatus() throws Exception {
+    return executeWithRetry(() -> get(
+        WebStructure.ADMISSION_STATUS_PATH),
+        AdmissionStatus.class);
+  }
+
   public void putDataDeploymentVersion(UpdateDataDeploymentVersionRequest updateDataDeploymentVersionRequest) throws Exception {
     executeWithRetry(() -> webClient.put(
         WebStructure.DATA_DEPLOYMENT_VERSION_PATH,
@@ -205,10 +394,6 @@ private <T> T executeWithRetry(Callable<WebClientOutput> action, Class<T> classR
     int retriedCount = 0;
 
     while (true) {
-      String msg = String.format(
-          "Retry [%s / %s -> %ss]: Failed Finally, check LauncherClientException for more details.",
-          retriedCount, maxRetryCount, retryIntervalSec);
-
       WebClientOutput output;
       try {
         output = action.call();
@@ -217,40 +402,185 @@ private <T> T executeWithRetry(Callable<WebClientOutput> action, Class<T> classR
       }
 
       if (output.isSuccessStatusCode()) {
-        if (classRef == null) {
-          return null;
-        }
         try {
-          return WebCommon.toObject(output.getContent(), classRef);
+          return toResult(output, classRef);
         } catch (Exception e) {
           // This can only happen when Client use an incompatible model with Server
           output = new WebClientOutput(HttpStatus.SC_BAD_REQUEST, output.getContent(), false, e);
         }
       }
 
-      Boolean shouldRetryCommonResult = shouldRetryCommon(output);
-      Boolean shouldRetryFinalResult;
-      if (shouldRetryCommonResult != null) {
-        shouldRetryFinalResult = shouldRetryCommonResult;
-      } else {
-        if (shouldRetrySupplement != null && shouldRetrySupplement.test(output)) {
-          shouldRetryFinalResult = true;
-        } else {
-          // At last, consider all UNKNOWN Failure as NON_TRANSIENT
-          shouldRetryFinalResult = false;
+      long retryDelaySec = getRetryDelaySec(output, shouldRetrySupplement, retriedCount);
+      if (retryDelaySec > 0) {
+        Thread.sleep(retryDelaySec * 1000);
+      }
+      retriedCount++;
+    }
+  }
+
+  private <T> CompletableFuture<T> executeAsyncWithRetry(
+      Supplier<CompletableFuture<WebClientOutput>> action, Class<T> classRef) {
+    return executeAsyncWithRetry(action, classRef, null);
+  }
+
+  // Same as executeWithRetry, but the retry is scheduled instead of sleeping in the
+  // calling thread, and the failure completes the returned future exceptionally.
+  private <T> CompletableFuture<T> executeAsyncWithRetry(
+      Supplier<CompletableFuture<WebClientOutput>> action, Class<T> classRef,
+      Predicate<WebClientOutput> shouldRetrySupplement) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    executeAsyncWithRetry(action, classRef, shouldRetrySupplement, 0, result);
+    return result;
+  }
+
+  private <T> void executeAsyncWithRetry(
+      Supplier<CompletableFuture<WebClientOutput>> action, Class<T> classRef,
+      Predicate<WebClientOutput> shouldRetrySupplement, int retriedCount, CompletableFuture<T> result) {
+    CompletableFuture<WebClientOutput> outputFuture;
+    try {
+      outputFuture = action.get();
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+      return;
+    }
+
+    outputFuture.whenComplete((actionOutput, actionException) -> {
+      WebClientOutput output = actionOutput;
+      if (actionException != null) {
+        Throwable cause = (actionException instanceof CompletionException && actionException.getCause() != null ?
+            actionException.getCause() : actionException);
+        Exception e = (cause instanceof Exception ? (Exception) cause : new Exception(cause));
+        output = new WebClientOutput(HttpStatus.SC_BAD_REQUEST, e.toString(), false, e);
+      }
+
+      try {
+        if (output.isSuccessStatusCode()) {
+          try {
+            result.complete(toResult(output, classRef));
+            return;
+          } catch (Exception e) {
+            // This can only happen when Client use an incompatible model with Server
+            output = new WebClientOutput(HttpStatus.SC_BAD_REQUEST, output.getContent(), false, e);
+          }
         }
+
+        long retryDelaySec = getRetryDelaySec(output, shouldRetrySupplement, retriedCount);
+        retryScheduler.schedule(
+            () -> executeAsyncWithRetry(action, classRef, shouldRetrySupplement, retriedCount + 1, result),
+            retryDelaySec, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        result.completeExceptionally(e);
       }
+    });
+  }
+
+  private static <T> T toResult(WebClientOutput output, Class<T> classRef) throws Exception {
+    if (classRef == null) {
+      return null;
+    }
+    return WebCommon.toObject(output.getContent(), classRef);
+  }
 
-      if (!shouldRetryFinalResult) {
-        throw new LauncherClientException(msg, output, false);
-      } else if (maxRetryCount != GlobalConstants.USING_UNLIMITED_VALUE && retriedCount >= maxRetryCount) {
-        throw new LauncherClientException(msg, output, true);
+  // Get the delay before the next retry of the failed output, or throw the
+  // LauncherClientException if it should not be retried.
+  private long getRetryDelaySec(WebClientOutput output, Predicate<WebClientOutput> shouldRetrySupplement, int retriedCount)
+      throws LauncherClientException {
+    String msg = String.format(
+        "Retry [%s / %s -> %ss]: Failed Finally, check LauncherClientException for more details.",
+        retriedCount, maxRetryCount, retryIntervalSec);
+
+    Boolean shouldRetryCommonResult = shouldRetryCommon(output);
+    Boolean shouldRetryFinalResult;
+    if (shouldRetryCommonResult != null) {
+      shouldRetryFinalResult = shouldRetryCommonResult;
+    } else {
+      if (shouldRetrySupplement != null && shouldRetrySupplement.test(output)) {
+        shouldRetryFinalResult = true;
       } else {
-        if (retryIntervalSec > 0) {
-          Thread.sleep(retryIntervalSec * 1000);
-        }
-        retriedCount++;
+        // At last, consider all UNKNOWN Failure as NON_TRANSIENT
+        shouldRetryFinalResult = false;
       }
     }
+
+    if (!shouldRetryFinalResult) {
+      throw new LauncherClientException(msg, output, false);
+    } else if (maxRetryCount != GlobalConstants.USING_UNLIMITED_VALUE && retriedCount >= maxRetryCount) {
+      throw new LauncherClientException(msg, output, true);
+    }
+
+    // Honor the Retry-After from the Server, such as the one of a Throttled Request
+    if (output.getRetryAfterSec() != null) {
+      return output.getRetryAfterSec();
+    } else if (isPooled()) {
+      // Randomize the delay, so that the retries from many threads do not hit the Server together
+      return RetryUtils.calcRandomBackoffDelay(
+          retriedCount, clientConf.getMinRetryDelaySec(), clientConf.getMaxRetryDelaySec());
+    } else {
+      return retryIntervalSec;
+    }
+  }
+
+  /**
+   * REGION GET Coalescing
+   */
+  // The async GETs are always coalesced, but the sync GETs are only coalesced by the pooled
+  // LauncherClient. A coalesced GET may return the output of the identical GET which was sent
+  // slightly before it.
+  private WebClientOutput get(String relativeURI) {
+    return get(relativeURI, null);
+  }
+
+  private WebClientOutput get(String relativeURI, Map<String, String> parameters) {
+    if (!isPooled()) {
+      return webClient.get(relativeURI, parameters);
+    }
+
+    String uri = WebCommon.getURI(webClient.getBaseURI(), relativeURI, parameters);
+    CompletableFuture<WebClientOutput> newGet = new CompletableFuture<>();
+    CompletableFuture<WebClientOutput> inFlightGet = inFlightGets.putIfAbsent(uri, newGet);
+    if (inFlightGet != null) {
+      return inFlightGet.join();
+    }
+
+    // Send the GET in the calling thread
+    sendGet(uri, relativeURI, parameters, newGet);
+    return newGet.join();
+  }
+
+  // Only called by the async API, which already initialized the async executors
+  private CompletableFuture<WebClientOutput> getAsync(String relativeURI, Map<String, String> parameters) {
+    String uri = WebCommon.getURI(webClient.getBaseURI(), relativeURI, parameters);
+    CompletableFuture<WebClientOutput> newGet = new CompletableFuture<>();
+    CompletableFuture<WebClientOutput> inFlightGet = inFlightGets.putIfAbsent(uri, newGet);
+    if (inFlightGet != null) {
+      return inFlightGet;
+    }
+
+    try {
+      asyncExecutor.execute(() -> sendGet(uri, relativeURI, parameters, newGet));
+    } catch (RejectedExecutionException e) {
+      inFlightGets.remove(uri, newGet);
+      newGet.completeExceptionally(e);
+    }
+    return newGet;
+  }
+
+  private void sendGet(String uri, String relativeURI, Map<String, String> parameters,
+      CompletableFuture<WebClientOutput> newGet) {
+    WebClientOutput output = null;
+    Exception exception = null;
+    try {
+      output = webClient.get(relativeURI, parameters);
+    } catch (Exception e) {
+      exception = e;
+    }
+
+    // Remove before complete, so that the GETs after the completion send a new request
+    inFlightGets.remove(uri, newGet);
+    if (exception == null) {
+      newGet.complete(output);
+    } else {
+      newGet.completeExceptionally(exception);
+    }
   }
 }
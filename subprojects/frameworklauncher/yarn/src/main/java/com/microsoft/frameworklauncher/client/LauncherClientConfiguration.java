@@ -0,0 +1,113 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.client;
+
+// The configuration of a pooled LauncherClient, which shares a tuned connection pool
+// among all the calling threads, supports the async API and coalesces the identical
+// concurrent GETs into one request.
+// The failed requests are retried after a random exponential backoff delay within
+// [minRetryDelaySec, maxRetryDelaySec], unless the Server specifies the Retry-After.
+public class LauncherClientConfiguration {
+  private int maxRetryCount = 10;
+  private int minRetryDelaySec = 1;
+  private int maxRetryDelaySec = 30;
+  // All the requests are sent to the single LauncherWebServer,
+  // so it is also the max number of connections per route.
+  private int maxConnectionCount = 256;
+  // Also used as the timeout to lease a connection from the pool.
+  private int connectTimeoutMs = 10000;
+  // Should be larger than the webServerWatchMaxTimeoutSec of the Watch API.
+  private int socketTimeoutMs = 120000;
+  // The max time an idle connection is kept alive, the Server specified Keep-Alive
+  // timeout is honored if it is shorter.
+  private int connectionKeepAliveSec = 60;
+  // The number of threads to send the requests of the async API.
+  private int asyncThreadCount = 32;
+
+  public int getMaxRetryCount() {
+    return maxRetryCount;
+  }
+
+  public LauncherClientConfiguration setMaxRetryCount(int maxRetryCount) {
+    this.maxRetryCount = maxRetryCount;
+    return this;
+  }
+
+  public int getMinRetryDelaySec() {
+    return minRetryDelaySec;
+  }
+
+  public LauncherClientConfiguration setMinRetryDelaySec(int minRetryDelaySec) {
+    this.minRetryDelaySec = minRetryDelaySec;
+    return this;
+  }
+
+  public int getMaxRetryDelaySec() {
+    return maxRetryDelaySec;
+  }
+
+  public LauncherClientConfiguration setMaxRetryDelaySec(int maxRetryDelaySec) {
+    this.maxRetryDelaySec = maxRetryDelaySec;
+    return this;
+  }
+
+  public int getMaxConnectionCount() {
+    return maxConnectionCount;
+  }
+
+  public LauncherClientConfiguration setMaxConnectionCount(int maxConnectionCount) {
+    this.maxConnectionCount = maxConnectionCount;
+    return this;
+  }
+
+  public int getConnectTimeoutMs() {
+    return connectTimeoutMs;
+  }
+
+  public LauncherClientConfiguration setConnectTimeoutMs(int connectTimeoutMs) {
+    this.connectTimeoutMs = connectTimeoutMs;
+    return this;
+  }
+
+  public int getSocketTimeoutMs() {
+    return socketTimeoutMs;
+  }
+
+  public LauncherClientConfiguration setSocketTimeoutMs(int socketTimeoutMs) {
+    this.socketTimeoutMs = socketTimeoutMs;
+    return this;
+  }
+
+  public int getConnectionKeepAliveSec() {
+    return connectionKeepAliveSec;
+  }
+
+  public LauncherClientConfiguration setConnectionKeepAliveSec(int connectionKeepAliveSec) {
+    this.connectionKeepAliveSec = connectionKeepAliveSec;
+    return this;
+  }
+
+  public int getAsyncThreadCount() {
+    return asyncThreadCount;
+  }
+
+  public LauncherClientConfiguration setAsyncThreadCount(int asyncThreadCount) {
+    this.asyncThreadCount = asyncThreadCount;
+    return this;
+  }
+}
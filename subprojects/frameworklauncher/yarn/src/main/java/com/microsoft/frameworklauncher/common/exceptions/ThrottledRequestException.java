@@ -20,10 +20,18 @@
 public class ThrottledRequestException extends TransientException {
   private static final long serialVersionUID = 1L;
 
+  // The seconds after which the request can be retried, null if it is unknown
+  private Long retryAfterSec = null;
+
   public ThrottledRequestException() {
     super();
   }
 
+  public ThrottledRequestException(String message, Long retryAfterSec) {
+    super(message);
+    this.retryAfterSec = retryAfterSec;
+  }
+
   public ThrottledRequestException(String message) {
     super(message);
   }
@@ -35,4 +43,8 @@ public ThrottledRequestException(Throwable cause) {
   public ThrottledRequestException(String message, Throwable cause) {
     super(message, cause);
   }
-}
\ No newline at end of file
+
+  public Long getRetryAfterSec() {
+    return retryAfterSec;
+  }
+}
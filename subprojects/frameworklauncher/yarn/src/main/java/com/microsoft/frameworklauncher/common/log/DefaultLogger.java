@@ -51,7 +51,9 @@ public void logTrace(String format, Object... args) {
   }
 
   public void logDebug(String format, Object... args) {
-    logger.debug(CommonUtils.formatString(format, args));
+    if (logger.isDebugEnabled()) {
+      logger.debug(CommonUtils.formatString(format, args));
+    }
   }
 
   public void logInfo(String format, Object... args) {
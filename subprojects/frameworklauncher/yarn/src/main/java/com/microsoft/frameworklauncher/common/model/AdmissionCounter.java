@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.model;
+
+import java.io.Serializable;
+
+public class AdmissionCounter implements Serializable {
+  private Long admittedRequestCount;
+  private Long throttledRequestCount;
+  // The current Total TaskNumber of all the Frameworks, including the reserved ones
+  private Integer totalTaskNumber;
+
+  public Long getAdmittedRequestCount() {
+    return admittedRequestCount;
+  }
+
+  public void setAdmittedRequestCount(Long admittedRequestCount) {
+    this.admittedRequestCount = admittedRequestCount;
+  }
+
+  public Long getThrottledRequestCount() {
+    return throttledRequestCount;
+  }
+
+  public void setThrottledRequestCount(Long throttledRequestCount) {
+    this.throttledRequestCount = throttledRequestCount;
+  }
+
+  public Integer getTotalTaskNumber() {
+    return totalTaskNumber;
+  }
+
+  public void setTotalTaskNumber(Integer totalTaskNumber) {
+    this.totalTaskNumber = totalTaskNumber;
+  }
+}
@@ -0,0 +1,60 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.model;
+
+import javax.validation.constraints.Min;
+import java.io.Serializable;
+
+// The limits of the requests from a UserName, LaunchClientType or Queue,
+// a null limit means no limit.
+public class AdmissionLimit implements Serializable {
+  // The max average number of requests per second, i.e. the refill rate of its token bucket
+  @Min(1)
+  private Integer requestRatePerSec;
+  // The max number of requests in a burst, i.e. the capacity of its token bucket,
+  // default to be the same as requestRatePerSec.
+  @Min(1)
+  private Integer requestBurstCount;
+  // The max Total TaskNumber of all the Frameworks
+  @Min(0)
+  private Integer maxTotalTaskNumber;
+
+  public Integer getRequestRatePerSec() {
+    return requestRatePerSec;
+  }
+
+  public void setRequestRatePerSec(Integer requestRatePerSec) {
+    this.requestRatePerSec = requestRatePerSec;
+  }
+
+  public Integer getRequestBurstCount() {
+    return requestBurstCount;
+  }
+
+  public void setRequestBurstCount(Integer requestBurstCount) {
+    this.requestBurstCount = requestBurstCount;
+  }
+
+  public Integer getMaxTotalTaskNumber() {
+    return maxTotalTaskNumber;
+  }
+
+  public void setMaxTotalTaskNumber(Integer maxTotalTaskNumber) {
+    this.maxTotalTaskNumber = maxTotalTaskNumber;
+  }
+}
@@ -0,0 +1,88 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.model;
+
+import java.io.Serializable;
+
+// A FrameworkState or TaskState transition of a Framework
+public class FrameworkChange implements Serializable {
+  private String frameworkName;
+  // The frameworkVersion and frameworkState are null if the Framework is deleted
+  private Integer frameworkVersion;
+  private FrameworkState frameworkState;
+  private Boolean frameworkDeleted;
+  private Long changeDetectedTimestamp;
+
+  public static FrameworkChange newInstance(FrameworkStatus frameworkStatus) {
+    FrameworkChange frameworkChange = new FrameworkChange();
+    frameworkChange.setFrameworkName(frameworkStatus.getFrameworkName());
+    frameworkChange.setFrameworkVersion(frameworkStatus.getFrameworkVersion());
+    frameworkChange.setFrameworkState(frameworkStatus.getFrameworkState());
+    frameworkChange.setFrameworkDeleted(false);
+    frameworkChange.setChangeDetectedTimestamp(System.currentTimeMillis());
+    return frameworkChange;
+  }
+
+  public static FrameworkChange newDeletedInstance(String frameworkName) {
+    FrameworkChange frameworkChange = new FrameworkChange();
+    frameworkChange.setFrameworkName(frameworkName);
+    frameworkChange.setFrameworkDeleted(true);
+    frameworkChange.setChangeDetectedTimestamp(System.currentTimeMillis());
+    return frameworkChange;
+  }
+
+  public String getFrameworkName() {
+    return frameworkName;
+  }
+
+  public void setFrameworkName(String frameworkName) {
+    this.frameworkName = frameworkName;
+  }
+
+  public Integer getFrameworkVersion() {
+    return frameworkVersion;
+  }
+
+  public void setFrameworkVersion(Integer frameworkVersion) {
+    this.frameworkVersion = frameworkVersion;
+  }
+
+  public FrameworkState getFrameworkState() {
+    return frameworkState;
+  }
+
+  public void setFrameworkState(FrameworkState frameworkState) {
+    this.frameworkState = frameworkState;
+  }
+
+  public Boolean getFrameworkDeleted() {
+    return frameworkDeleted;
+  }
+
+  public void setFrameworkDeleted(Boolean frameworkDeleted) {
+    this.frameworkDeleted = frameworkDeleted;
+  }
+
+  public Long getChangeDetectedTimestamp() {
+    return changeDetectedTimestamp;
+  }
+
+  public void setChangeDetectedTimestamp(Long changeDetectedTimestamp) {
+    this.changeDetectedTimestamp = changeDetectedTimestamp;
+  }
+}
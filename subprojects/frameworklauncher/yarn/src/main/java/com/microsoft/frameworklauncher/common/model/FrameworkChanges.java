@@ -0,0 +1,55 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class FrameworkChanges implements Serializable {
+  // Only the latest FrameworkChange of each Framework is kept, in the order they are detected
+  private List<FrameworkChange> frameworkChanges;
+  // The Cursor to watch the FrameworkChanges after this
+  private String nextCursor;
+  // If it is true, some FrameworkChanges after the given Cursor are already discarded,
+  // so the client should get all the Frameworks again, and then watch from the nextCursor.
+  private Boolean resyncRequired;
+
+  public List<FrameworkChange> getFrameworkChanges() {
+    return frameworkChanges;
+  }
+
+  public void setFrameworkChanges(List<FrameworkChange> frameworkChanges) {
+    this.frameworkChanges = frameworkChanges;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  public Boolean getResyncRequired() {
+    return resyncRequired;
+  }
+
+  public void setResyncRequired(Boolean resyncRequired) {
+    this.resyncRequired = resyncRequired;
+  }
+}
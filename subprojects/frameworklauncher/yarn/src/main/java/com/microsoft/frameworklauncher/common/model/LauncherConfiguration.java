@@ -17,21 +17,57 @@
 
 package com.microsoft.frameworklauncher.common.model;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.Pattern;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 public class LauncherConfiguration implements Serializable {
   // Common Setup
   private String zkConnectString = "127.0.0.1:2181";
   private String zkRootDir = "/Launcher";
+  // The codec to serialize the hot objects, such as TaskStatuses, before Set them to ZK.
+  // BINARY is much faster and smaller than YAML, but it can only be read by the Launcher
+  // with this feature, so it should be enabled after all Launcher components are upgraded,
+  // including the running AMs.
+  // Objects are always Get by the codec detected from their bytes, regardless of this setting.
+  @Pattern(regexp = "^(YAML|BINARY)$")
+  private String zkSerializationCodec = "YAML";
+  // The Deflater level and strategy to compress the large objects before Set them to ZK.
+  // Lower level is faster but larger, -1 means the Deflater default level.
+  @Min(-1)
+  @Max(9)
+  private Integer zkCompressionLevel = -1;
+  @Pattern(regexp = "^(DEFAULT|FILTERED|HUFFMAN_ONLY)$")
+  private String zkCompressionStrategy = "DEFAULT";
+  // Whether to compress with the preset dictionary trained on the typical objects,
+  // such as TaskStatuses, which is smaller than GZIP for these objects.
+  // Similar to zkSerializationCodec, it should be enabled after all Launcher components
+  // are upgraded, and objects are always decompressed by the format detected from their bytes.
+  private Boolean zkCompressionDictionaryEnabled = false;
   private String hdfsRootDir = "/Launcher";
   private Set<UserDescriptor> rootAdminUsers = new HashSet<>();
 
   // Service Setup
   private Integer serviceRMResyncIntervalSec = 30;
   private Integer serviceRequestPullIntervalSec = 30;
+  // If this feature is enabled, Service watches the Requests in ZK and only re-reads
+  // the added, updated and deleted Frameworks once they are changed, instead of pulling
+  // all Requests every serviceRequestPullIntervalSec.
+  private Boolean serviceRequestWatchEnable = false;
+  // Even if the watch is enabled, Service still pulls all Requests every
+  // serviceRequestFullPullIntervalSec in case any change is missed.
+  private Integer serviceRequestFullPullIntervalSec = 600;
+  // The worker count to transition FrameworkStates. SystemTasks of different Frameworks,
+  // such as submitApplication, can be executed concurrently by these workers, while
+  // SystemTasks of the same Framework and the global SystemTasks are still executed in order.
+  @Min(1)
+  private Integer serviceTransitionFrameworkStateWorkerNumber = 4;
 
   // Application Setup
   private Integer applicationRetrieveDiagnosticsRetryIntervalSec = 30;
@@ -77,7 +113,16 @@ public class LauncherConfiguration implements Serializable {
   private Integer amRmResyncFrequency = 6;
   private Integer amRmResyncNmExpiryBufferSec = 60;
   private Integer amRequestPullIntervalSec = 30;
+  // If this feature is enabled, AM watches its own AggregatedFrameworkRequest in ZK and
+  // re-reads it once it is changed, and still pulls it every amRequestPullIntervalSec
+  // in case any change is missed.
+  private Boolean amRequestWatchEnable = false;
   private Integer amStatusPushIntervalSec = 30;
+  // To reduce the ZK write bytes, only the changed TaskStatuses are pushed as a TaskStatusesDelta,
+  // and the whole TaskStatuses is pushed after amTaskStatusesMaxDeltaCount TaskStatusesDeltas,
+  // which bounds the number of TaskStatusesDeltas to be applied when get the TaskStatuses.
+  // Set it to 0 to always push the whole TaskStatuses.
+  private Integer amTaskStatusesMaxDeltaCount = 50;
   private Integer amFrameworkInfoPublishIntervalSec = 30;
 
   // If a Task's ContainerRequest cannot be satisfied within
@@ -117,6 +162,45 @@ public class LauncherConfiguration implements Serializable {
   @Pattern(regexp = "^https?://[^:^/]+:\\d+$")
   private String webServerAddress = "http://localhost:9086";
   private Integer webServerStatusPullIntervalSec = 30;
+  // If this feature is enabled, WebServer watches the Statuses in ZK and only re-reads
+  // the changed Frameworks once they are changed, instead of pulling all Statuses
+  // every webServerStatusPullIntervalSec.
+  private Boolean webServerStatusWatchEnable = false;
+  // Even if the watch is enabled, WebServer still pulls all Statuses every
+  // webServerStatusFullPullIntervalSec in case any change is missed.
+  private Integer webServerStatusFullPullIntervalSec = 600;
+  // The max total size of the serialized Responses cached by WebServer, so that an unchanged
+  // Response is serialized only once for all the requests. 0 means the cache is disabled.
+  @Min(0)
+  private Integer webServerResponseCacheMaxMB = 256;
+  // The max number of recent FrameworkChanges retained by WebServer for the Watch API.
+  // A client whose Cursor is older than the retained ones needs to resync all Frameworks.
+  @Min(1)
+  private Integer webServerWatchMaxChangeCount = 100000;
+  // The max time a Watch request waits for new FrameworkChanges.
+  @Min(0)
+  private Integer webServerWatchMaxTimeoutSec = 60;
+  // The max number of Watch requests waiting at the same time, the others return immediately,
+  // so that the long polls cannot occupy all the WebServer threads.
+  @Min(0)
+  private Integer webServerWatchMaxWaiterCount = 100;
+  // The number of lock stripes for the Framework modifications, the modifications to the
+  // Frameworks in different stripes are written to ZK concurrently.
+  @Min(1)
+  private Integer webServerRequestLockStripeCount = 64;
+  // The AdmissionLimits of each UserName, LaunchClientType and Queue, they are checked by
+  // WebServer before any ZK access. The key "*" applies to the ones which are not specified,
+  // and each of them has its own request rate limit of it.
+  @Valid
+  private Map<String, AdmissionLimit> webServerUserAdmissionLimits = new HashMap<>();
+  @Valid
+  private Map<String, AdmissionLimit> webServerLaunchClientTypeAdmissionLimits = new HashMap<>();
+  @Valid
+  private Map<String, AdmissionLimit> webServerQueueAdmissionLimits = new HashMap<>();
+  // The max number of the request rate limit states kept for the names limited by the key "*".
+  // The least recently used one is evicted beyond it, since the UserName of a request is not verified.
+  @Min(1)
+  private Integer webServerDefaultAdmissionMaxNameCount = 10000;
   private Boolean webServerAclEnable = false;
   // If this feature is enabled, ACL check will be ignored for Framework which does
   // not belong to any Namespace.
@@ -140,6 +224,38 @@ public void setZkRootDir(String zkRootDir) {
     this.zkRootDir = zkRootDir;
   }
 
+  public String getZkSerializationCodec() {
+    return zkSerializationCodec;
+  }
+
+  public void setZkSerializationCodec(String zkSerializationCodec) {
+    this.zkSerializationCodec = zkSerializationCodec;
+  }
+
+  public Integer getZkCompressionLevel() {
+    return zkCompressionLevel;
+  }
+
+  public void setZkCompressionLevel(Integer zkCompressionLevel) {
+    this.zkCompressionLevel = zkCompressionLevel;
+  }
+
+  public String getZkCompressionStrategy() {
+    return zkCompressionStrategy;
+  }
+
+  public void setZkCompressionStrategy(String zkCompressionStrategy) {
+    this.zkCompressionStrategy = zkCompressionStrategy;
+  }
+
+  public Boolean getZkCompressionDictionaryEnabled() {
+    return zkCompressionDictionaryEnabled;
+  }
+
+  public void setZkCompressionDictionaryEnabled(Boolean zkCompressionDictionaryEnabled) {
+    this.zkCompressionDictionaryEnabled = zkCompressionDictionaryEnabled;
+  }
+
   public String getHdfsRootDir() {
     return hdfsRootDir;
   }
@@ -172,6 +288,30 @@ public void setServiceRequestPullIntervalSec(Integer serviceRequestPullIntervalS
     this.serviceRequestPullIntervalSec = serviceRequestPullIntervalSec;
   }
 
+  public Boolean getServiceRequestWatchEnable() {
+    return serviceRequestWatchEnable;
+  }
+
+  public void setServiceRequestWatchEnable(Boolean serviceRequestWatchEnable) {
+    this.serviceRequestWatchEnable = serviceRequestWatchEnable;
+  }
+
+  public Integer getServiceRequestFullPullIntervalSec() {
+    return serviceRequestFullPullIntervalSec;
+  }
+
+  public void setServiceRequestFullPullIntervalSec(Integer serviceRequestFullPullIntervalSec) {
+    this.serviceRequestFullPullIntervalSec = serviceRequestFullPullIntervalSec;
+  }
+
+  public Integer getServiceTransitionFrameworkStateWorkerNumber() {
+    return serviceTransitionFrameworkStateWorkerNumber;
+  }
+
+  public void setServiceTransitionFrameworkStateWorkerNumber(Integer serviceTransitionFrameworkStateWorkerNumber) {
+    this.serviceTransitionFrameworkStateWorkerNumber = serviceTransitionFrameworkStateWorkerNumber;
+  }
+
   public Integer getApplicationRetrieveDiagnosticsRetryIntervalSec() {
     return applicationRetrieveDiagnosticsRetryIntervalSec;
   }
@@ -316,6 +456,14 @@ public void setAmRequestPullIntervalSec(Integer amRequestPullIntervalSec) {
     this.amRequestPullIntervalSec = amRequestPullIntervalSec;
   }
 
+  public Boolean getAmRequestWatchEnable() {
+    return amRequestWatchEnable;
+  }
+
+  public void setAmRequestWatchEnable(Boolean amRequestWatchEnable) {
+    this.amRequestWatchEnable = amRequestWatchEnable;
+  }
+
   public Integer getAmStatusPushIntervalSec() {
     return amStatusPushIntervalSec;
   }
@@ -324,6 +472,14 @@ public void setAmStatusPushIntervalSec(Integer amStatusPushIntervalSec) {
     this.amStatusPushIntervalSec = amStatusPushIntervalSec;
   }
 
+  public Integer getAmTaskStatusesMaxDeltaCount() {
+    return amTaskStatusesMaxDeltaCount;
+  }
+
+  public void setAmTaskStatusesMaxDeltaCount(Integer amTaskStatusesMaxDeltaCount) {
+    this.amTaskStatusesMaxDeltaCount = amTaskStatusesMaxDeltaCount;
+  }
+
   public Integer getAmFrameworkInfoPublishIntervalSec() {
     return amFrameworkInfoPublishIntervalSec;
   }
@@ -420,6 +576,94 @@ public void setWebServerStatusPullIntervalSec(Integer webServerStatusPullInterva
     this.webServerStatusPullIntervalSec = webServerStatusPullIntervalSec;
   }
 
+  public Boolean getWebServerStatusWatchEnable() {
+    return webServerStatusWatchEnable;
+  }
+
+  public void setWebServerStatusWatchEnable(Boolean webServerStatusWatchEnable) {
+    this.webServerStatusWatchEnable = webServerStatusWatchEnable;
+  }
+
+  public Integer getWebServerStatusFullPullIntervalSec() {
+    return webServerStatusFullPullIntervalSec;
+  }
+
+  public void setWebServerStatusFullPullIntervalSec(Integer webServerStatusFullPullIntervalSec) {
+    this.webServerStatusFullPullIntervalSec = webServerStatusFullPullIntervalSec;
+  }
+
+  public Integer getWebServerResponseCacheMaxMB() {
+    return webServerResponseCacheMaxMB;
+  }
+
+  public void setWebServerResponseCacheMaxMB(Integer webServerResponseCacheMaxMB) {
+    this.webServerResponseCacheMaxMB = webServerResponseCacheMaxMB;
+  }
+
+  public Integer getWebServerWatchMaxChangeCount() {
+    return webServerWatchMaxChangeCount;
+  }
+
+  public void setWebServerWatchMaxChangeCount(Integer webServerWatchMaxChangeCount) {
+    this.webServerWatchMaxChangeCount = webServerWatchMaxChangeCount;
+  }
+
+  public Integer getWebServerWatchMaxTimeoutSec() {
+    return webServerWatchMaxTimeoutSec;
+  }
+
+  public void setWebServerWatchMaxTimeoutSec(Integer webServerWatchMaxTimeoutSec) {
+    this.webServerWatchMaxTimeoutSec = webServerWatchMaxTimeoutSec;
+  }
+
+  public Integer getWebServerWatchMaxWaiterCount() {
+    return webServerWatchMaxWaiterCount;
+  }
+
+  public void setWebServerWatchMaxWaiterCount(Integer webServerWatchMaxWaiterCount) {
+    this.webServerWatchMaxWaiterCount = webServerWatchMaxWaiterCount;
+  }
+
+  public Integer getWebServerRequestLockStripeCount() {
+    return webServerRequestLockStripeCount;
+  }
+
+  public void setWebServerRequestLockStripeCount(Integer webServerRequestLockStripeCount) {
+    this.webServerRequestLockStripeCount = webServerRequestLockStripeCount;
+  }
+
+  public Map<String, AdmissionLimit> getWebServerUserAdmissionLimits() {
+    return webServerUserAdmissionLimits;
+  }
+
+  public void setWebServerUserAdmissionLimits(Map<String, AdmissionLimit> webServerUserAdmissionLimits) {
+    this.webServerUserAdmissionLimits = webServerUserAdmissionLimits;
+  }
+
+  public Map<String, AdmissionLimit> getWebServerLaunchClientTypeAdmissionLimits() {
+    return webServerLaunchClientTypeAdmissionLimits;
+  }
+
+  public void setWebServerLaunchClientTypeAdmissionLimits(Map<String, AdmissionLimit> webServerLaunchClientTypeAdmissionLimits) {
+    this.webServerLaunchClientTypeAdmissionLimits = webServerLaunchClientTypeAdmissionLimits;
+  }
+
+  public Map<String, AdmissionLimit> getWebServerQueueAdmissionLimits() {
+    return webServerQueueAdmissionLimits;
+  }
+
+  public void setWebServerQueueAdmissionLimits(Map<String, AdmissionLimit> webServerQueueAdmissionLimits) {
+    this.webServerQueueAdmissionLimits = webServerQueueAdmissionLimits;
+  }
+
+  public Integer getWebServerDefaultAdmissionMaxNameCount() {
+    return webServerDefaultAdmissionMaxNameCount;
+  }
+
+  public void setWebServerDefaultAdmissionMaxNameCount(Integer webServerDefaultAdmissionMaxNameCount) {
+    this.webServerDefaultAdmissionMaxNameCount = webServerDefaultAdmissionMaxNameCount;
+  }
+
   public Boolean getWebServerAclEnable() {
     return webServerAclEnable;
   }
@@ -22,6 +22,8 @@
 
 public class SummarizedFrameworkInfos implements Serializable {
   private List<SummarizedFrameworkInfo> summarizedFrameworkInfos;
+  // The Cursor to get the next page, null means there is no more page
+  private String nextCursor;
 
   public List<SummarizedFrameworkInfo> getSummarizedFrameworkInfos() {
     return summarizedFrameworkInfos;
@@ -30,4 +32,12 @@ public List<SummarizedFrameworkInfo> getSummarizedFrameworkInfos() {
   public void setSummarizedFrameworkInfos(List<SummarizedFrameworkInfo> summarizedFrameworkInfos) {
     this.summarizedFrameworkInfos = summarizedFrameworkInfos;
   }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
 }
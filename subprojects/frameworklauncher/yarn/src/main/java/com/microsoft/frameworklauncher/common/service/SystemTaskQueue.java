@@ -20,58 +20,180 @@
 import com.microsoft.frameworklauncher.common.exts.CommonExts;
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 
+import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
-public class SystemTaskQueue {
+// SystemTasks are executed in queued order, and each SystemTask is one of:
+// 1. Global SystemTask:
+//  It is a barrier, i.e. it is executed after all previously queued SystemTasks completed,
+//  and before any later queued SystemTask started.
+// 2. Keyed SystemTask:
+//  SystemTasks with the same key, such as the same FrameworkName, are still executed one by one
+//  in queued order, but SystemTasks with different keys can be executed concurrently by workers.
+// So, with only one worker or only Global SystemTasks, it is the same as a single thread queue.
+public class SystemTaskQueue { // THREAD SAFE
   private static final DefaultLogger LOGGER = new DefaultLogger(SystemTaskQueue.class);
   private static final int QUEUE_LENGTH_WARNING_THRESHOLD = 5000;
+  private static final long TASK_TIME_WARNING_THRESHOLD_MS = 60 * 1000;
+  private static final int MAX_KEY_METRICS_COUNT = 1000;
 
   private final Function<Exception, Boolean> exceptionHandler;
-  private final ScheduledExecutorService executorService;
+  private final int workerNumber;
+  // Only used to delay the SystemTasks, they are queued to execute after the delay
+  private final ScheduledExecutorService delayExecutorService;
+  private final ExecutorService workerExecutorService;
+
+  // All below are protected by the lock
   private final Lock lock = new ReentrantLock();
-  private final Condition condition = lock.newCondition();
+  // Queued SystemTasks which are not yet completed
+  private final Deque<Segment> segments = new ArrayDeque<>();
+  private boolean started = false;
+  private int delayedTaskCount = 0;
+  private int queuedTaskCount = 0;
+  private int runningTaskCount = 0;
+
+  // Metrics, also protected by the lock
+  private long completedTaskCount = 0;
+  private long totalTaskWaitTimeMs = 0;
+  private long maxTaskWaitTimeMs = 0;
+  // Key -> Latest Task execution time of the key, only for the recently used keys
+  private final Map<String, Long> keyTaskRunTimeMs =
+      new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+          return size() > MAX_KEY_METRICS_COUNT;
+        }
+      };
+
+  // A Segment is either one Global SystemTask, or consecutive queued Keyed SystemTasks.
+  // Only the head Segment can be executed, so a Global SystemTask acts as a barrier.
+  private static class Segment {
+    private final QueuedTask globalTask;
+    private boolean globalTaskStarted = false;
+    // Key -> Not yet started SystemTasks of the key.
+    // A key is kept until all its SystemTasks in the Segment are completed.
+    private final Map<String, Deque<QueuedTask>> keyedTasks = new HashMap<>();
+    // Keys which have not yet started SystemTasks and no running SystemTask
+    private final Deque<String> readyKeys = new ArrayDeque<>();
+
+    private Segment(QueuedTask globalTask) {
+      this.globalTask = globalTask;
+    }
+
+    private boolean isGlobal() {
+      return globalTask != null;
+    }
+  }
+
+  private static class QueuedTask {
+    // Null for Global SystemTask
+    private final String key;
+    private final Runnable task;
+    private long queuedTimestamp;
+
+    private QueuedTask(String key, Runnable task) {
+      this.key = key;
+      this.task = task;
+    }
+  }
 
   public SystemTaskQueue(Function<Exception, Boolean> handler) {
-    executorService = Executors.newScheduledThreadPool(1);
-    exceptionHandler = handler;
-    executorService.submit(this::waitToStart);
+    this(handler, 1);
   }
 
-  private void waitToStart() {
+  public SystemTaskQueue(Function<Exception, Boolean> handler, int workerNumber) {
+    if (workerNumber < 1) {
+      throw new IllegalArgumentException(String.format(
+          "SystemTaskQueue WorkerNumber %s should be positive", workerNumber));
+    }
+    this.exceptionHandler = handler;
+    this.workerNumber = workerNumber;
+    this.delayExecutorService = Executors.newScheduledThreadPool(1);
+    this.workerExecutorService = Executors.newFixedThreadPool(workerNumber);
+    LOGGER.logInfo("Waiting to start SystemTaskQueue with %s workers", workerNumber);
+  }
+
+  public void start() {
     lock.lock();
-    LOGGER.logInfo("Waiting to start SystemTaskQueue");
     try {
-      condition.awaitUninterruptibly();
+      started = true;
+      dispatchTasks();
     } finally {
       lock.unlock();
     }
+    LOGGER.logInfo("Running SystemTaskQueue. Current Queue Length %s.", length());
   }
 
-  public void start() {
+  // Include the delayed, queued and running SystemTasks
+  public int length() {
     lock.lock();
     try {
-      condition.signal();
+      return delayedTaskCount + queuedTaskCount + runningTaskCount;
     } finally {
       lock.unlock();
     }
-    LOGGER.logInfo("Running SystemTaskQueue. Current Queue Length %s.", length());
   }
 
-  public int length() {
-    return ((ThreadPoolExecutor) executorService).getQueue().size() + 1;
+  public int getRunningTaskCount() {
+    lock.lock();
+    try {
+      return runningTaskCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getCompletedTaskCount() {
+    lock.lock();
+    try {
+      return completedTaskCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // The time from a SystemTask is queued to it is started, excluding the delay
+  public long getAvgTaskWaitTimeMs() {
+    lock.lock();
+    try {
+      return completedTaskCount == 0 ? 0 : totalTaskWaitTimeMs / completedTaskCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getMaxTaskWaitTimeMs() {
+    lock.lock();
+    try {
+      return maxTaskWaitTimeMs;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Return null if no SystemTask of the key is completed recently
+  public Long getTaskRunTimeMs(String key) {
+    lock.lock();
+    try {
+      return keyTaskRunTimeMs.get(key);
+    } finally {
+      lock.unlock();
+    }
   }
 
   private void checkTaskQueueHealthy() {
     int len = length();
     if (len > QUEUE_LENGTH_WARNING_THRESHOLD) {
-      LOGGER.logWarning("Too many Tasks in Queue. Current Queue Length %s.", len);
+      LOGGER.logWarning(
+          "Too many Tasks in Queue. Current Queue Length %s, Running Task Count %s, " +
+              "Average Task Wait Time %sms, Max Task Wait Time %sms.",
+          len, getRunningTaskCount(), getAvgTaskWaitTimeMs(), getMaxTaskWaitTimeMs());
     }
   }
 
@@ -86,12 +208,143 @@ private Runnable setupTaskExceptionHandler(CommonExts.VoidCallable task) {
   }
 
   public void queueSystemTask(CommonExts.VoidCallable task) {
-    executorService.submit(setupTaskExceptionHandler(task));
-    checkTaskQueueHealthy();
+    queueSystemTask(null, task);
   }
 
   public void queueSystemTaskDelayed(CommonExts.VoidCallable task, long milliseconds) {
-    executorService.schedule(setupTaskExceptionHandler(task), milliseconds, TimeUnit.MILLISECONDS);
+    queueSystemTaskDelayed(null, task, milliseconds);
+  }
+
+  // Queue a Keyed SystemTask, or a Global SystemTask if the key is null
+  public void queueSystemTask(String key, CommonExts.VoidCallable task) {
+    enqueueTask(new QueuedTask(key, setupTaskExceptionHandler(task)));
     checkTaskQueueHealthy();
   }
+
+  public void queueSystemTaskDelayed(String key, CommonExts.VoidCallable task, long milliseconds) {
+    QueuedTask queuedTask = new QueuedTask(key, setupTaskExceptionHandler(task));
+    lock.lock();
+    try {
+      delayedTaskCount++;
+    } finally {
+      lock.unlock();
+    }
+
+    delayExecutorService.schedule(() -> {
+      lock.lock();
+      try {
+        delayedTaskCount--;
+      } finally {
+        lock.unlock();
+      }
+      enqueueTask(queuedTask);
+    }, milliseconds, TimeUnit.MILLISECONDS);
+    checkTaskQueueHealthy();
+  }
+
+  private void enqueueTask(QueuedTask queuedTask) {
+    lock.lock();
+    try {
+      queuedTask.queuedTimestamp = System.currentTimeMillis();
+      queuedTaskCount++;
+
+      if (queuedTask.key == null) {
+        segments.addLast(new Segment(queuedTask));
+      } else {
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.isGlobal()) {
+          tail = new Segment(null);
+          segments.addLast(tail);
+        }
+
+        Deque<QueuedTask> keyTasks = tail.keyedTasks.get(queuedTask.key);
+        if (keyTasks == null) {
+          keyTasks = new ArrayDeque<>();
+          tail.keyedTasks.put(queuedTask.key, keyTasks);
+          tail.readyKeys.addLast(queuedTask.key);
+        }
+        keyTasks.addLast(queuedTask);
+      }
+
+      dispatchTasks();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Should be called under the lock
+  private void dispatchTasks() {
+    Segment head = segments.peekFirst();
+    if (!started || head == null) {
+      return;
+    }
+
+    if (head.isGlobal()) {
+      // All previous Segments are completed, so no other SystemTask is running
+      if (!head.globalTaskStarted) {
+        head.globalTaskStarted = true;
+        startTask(head.globalTask);
+      }
+    } else {
+      while (runningTaskCount < workerNumber && !head.readyKeys.isEmpty()) {
+        String key = head.readyKeys.pollFirst();
+        startTask(head.keyedTasks.get(key).pollFirst());
+      }
+    }
+  }
+
+  // Should be called under the lock
+  private void startTask(QueuedTask queuedTask) {
+    queuedTaskCount--;
+    runningTaskCount++;
+    workerExecutorService.execute(() -> executeTask(queuedTask));
+  }
+
+  private void executeTask(QueuedTask queuedTask) {
+    long startTimestamp = System.currentTimeMillis();
+    try {
+      queuedTask.task.run();
+    } finally {
+      completeTask(queuedTask, startTimestamp, System.currentTimeMillis());
+    }
+  }
+
+  private void completeTask(QueuedTask queuedTask, long startTimestamp, long completeTimestamp) {
+    long waitTimeMs = startTimestamp - queuedTask.queuedTimestamp;
+    long runTimeMs = completeTimestamp - startTimestamp;
+    if (waitTimeMs > TASK_TIME_WARNING_THRESHOLD_MS || runTimeMs > TASK_TIME_WARNING_THRESHOLD_MS) {
+      LOGGER.logWarning(
+          "[%s]: Task is too slow. Wait Time %sms, Run Time %sms.",
+          queuedTask.key, waitTimeMs, runTimeMs);
+    }
+
+    lock.lock();
+    try {
+      runningTaskCount--;
+      completedTaskCount++;
+      totalTaskWaitTimeMs += waitTimeMs;
+      maxTaskWaitTimeMs = Math.max(maxTaskWaitTimeMs, waitTimeMs);
+
+      Segment head = segments.peekFirst();
+      if (head.isGlobal()) {
+        segments.pollFirst();
+      } else {
+        keyTaskRunTimeMs.put(queuedTask.key, runTimeMs);
+
+        Deque<QueuedTask> keyTasks = head.keyedTasks.get(queuedTask.key);
+        if (keyTasks.isEmpty()) {
+          head.keyedTasks.remove(queuedTask.key);
+          if (head.keyedTasks.isEmpty()) {
+            segments.pollFirst();
+          }
+        } else {
+          head.readyKeys.addLast(queuedTask.key);
+        }
+      }
+
+      dispatchTasks();
+    } finally {
+      lock.unlock();
+    }
+  }
 }
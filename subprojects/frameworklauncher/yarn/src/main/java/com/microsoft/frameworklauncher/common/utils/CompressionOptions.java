@@ -0,0 +1,88 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.utils;
+
+import java.util.zip.Deflater;
+
+// The tunable options to compress bytes by CompressionUtils.
+// Compressed bytes are always self-describing, so they can be decompressed
+// regardless of the options used to compress them.
+// THREAD SAFE
+public class CompressionOptions {
+  public static final CompressionOptions DEFAULT = new CompressionOptions(
+      Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, false);
+
+  // Deflater level, from Deflater.DEFAULT_COMPRESSION(-1), Deflater.NO_COMPRESSION(0)
+  // to Deflater.BEST_COMPRESSION(9)
+  private final int level;
+  // Deflater strategy, such as Deflater.DEFAULT_STRATEGY
+  private final int strategy;
+  // Whether to compress with the preset dictionary instead of GZIP.
+  // See CompressionUtils.DICTIONARY_MAGIC.
+  private final boolean dictionaryEnabled;
+
+  public CompressionOptions(int level, int strategy, boolean dictionaryEnabled) {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid compression level [%s]", level));
+    }
+    if (strategy != Deflater.DEFAULT_STRATEGY &&
+        strategy != Deflater.FILTERED &&
+        strategy != Deflater.HUFFMAN_ONLY) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid compression strategy [%s]", strategy));
+    }
+
+    this.level = level;
+    this.strategy = strategy;
+    this.dictionaryEnabled = dictionaryEnabled;
+  }
+
+  public static int parseStrategy(String strategy) {
+    switch (strategy.toUpperCase()) {
+      case "DEFAULT":
+        return Deflater.DEFAULT_STRATEGY;
+      case "FILTERED":
+        return Deflater.FILTERED;
+      case "HUFFMAN_ONLY":
+        return Deflater.HUFFMAN_ONLY;
+      default:
+        throw new IllegalArgumentException(String.format(
+            "Unknown compression strategy [%s], supported strategies are " +
+                "[DEFAULT, FILTERED, HUFFMAN_ONLY]", strategy));
+    }
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public int getStrategy() {
+    return strategy;
+  }
+
+  public boolean getDictionaryEnabled() {
+    return dictionaryEnabled;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[Level: %s, Strategy: %s, DictionaryEnabled: %s]",
+        level, strategy, dictionaryEnabled);
+  }
+}
@@ -20,28 +20,123 @@
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 import org.apache.commons.io.IOUtils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.*;
 
+// Compressed bytes are self-describing by header, so that bytes compressed by
+// different formats can coexist and always be decompressed correctly:
+// 1. GZIP: The default format, which is compatible with GZIPInputStream/GZIPOutputStream.
+// 2. Dictionary: [DICTIONARY_MAGIC][DictionaryId][RawDeflate][CRC32][ISIZE], i.e. GZIP
+//    with a different header and the raw deflate is compressed with a preset dictionary,
+//    so that small payloads, such as TaskStatuses and FrameworkStatus, can be compressed
+//    better. It can only be decompressed by the Launcher with this feature.
+// THREAD SAFE
 public class CompressionUtils {
   private static final DefaultLogger LOGGER = new DefaultLogger(CompressionUtils.class);
+  private static final int DECOMPRESSION_BUFFER_BYTES = 64 * 1024;
+
+  // The same GZIP header as GZIPOutputStream writes, i.e. without optional fields
+  private static final byte[] GZIP_HEADER = new byte[]{
+      (byte) GZIPInputStream.GZIP_MAGIC, (byte) (GZIPInputStream.GZIP_MAGIC >> 8),
+      Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+  private static final int GZIP_FLAGS_OFFSET = 3;
+  // The CRC32 and the ISIZE of the decompressed bytes, both are little endian
+  private static final int TRAILER_BYTES = 8;
+
+  // It never equals to GZIP_MAGIC(0x8b1f), BinarySerializationCodec magic(0x4cfb),
+  // and YAML string header, since 0xFA is never a valid UTF-8 byte.
+  private static final int DICTIONARY_MAGIC = 0x5afa;
+  private static final int DICTIONARY_HEADER_BYTES = 3;
+  // The DictionaryId is persisted together with the compressed bytes, so an
+  // existing dictionary must never be changed, instead, a new dictionary should
+  // be added with a new DictionaryId.
+  private static final byte DICTIONARY_ID_V1 = 1;
+  private static final byte[] DICTIONARY_V1 = newDictionaryV1();
+
+  // The max ratio of the decompressed bytes to the compressed bytes of deflate,
+  // which is used to reject the corrupted ISIZE before allocation.
+  private static final int MAX_DEFLATE_RATIO = 1032;
+
+  // Deflater and Inflater hold native memory which is only released by end(),
+  // so they are pooled and reused instead of created for each compression.
+  private static final int MAX_POOLED_CODER_NUMBER =
+      Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+  private static final Queue<Deflater> deflaterPool = new ConcurrentLinkedQueue<>();
+  private static final Queue<Inflater> inflaterPool = new ConcurrentLinkedQueue<>();
+  // ConcurrentLinkedQueue.size() is not constant time, so count it separately
+  private static final AtomicInteger pooledDeflaterNumber = new AtomicInteger(0);
+  private static final AtomicInteger pooledInflaterNumber = new AtomicInteger(0);
+
+  // The output buffer of compression is reused by each thread, so that only
+  // the exact size compressed bytes need to be allocated.
+  // Huge buffer is not retained to avoid holding too much memory.
+  private static final int MAX_RETAINED_BUFFER_BYTES = 1024 * 1024;
+  private static final ThreadLocal<byte[]> compressionBuffer =
+      ThreadLocal.withInitial(() -> new byte[DECOMPRESSION_BUFFER_BYTES]);
 
   public static byte[] compress(byte[] bytes) throws IOException {
+    return compress(bytes, CompressionOptions.DEFAULT);
+  }
+
+  public static byte[] compress(byte[] bytes, CompressionOptions options) throws IOException {
     long start = System.currentTimeMillis();
 
-    try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-      try (GZIPOutputStream zos = new GZIPOutputStream(bos)) {
-        zos.write(bytes);
+    byte[] header;
+    byte[] dictionary;
+    if (options.getDictionaryEnabled()) {
+      header = new byte[]{
+          (byte) DICTIONARY_MAGIC, (byte) (DICTIONARY_MAGIC >> 8), DICTIONARY_ID_V1};
+      dictionary = DICTIONARY_V1;
+    } else {
+      header = GZIP_HEADER;
+      dictionary = null;
+    }
+
+    Deflater deflater = borrowDeflater();
+    try {
+      deflater.setLevel(options.getLevel());
+      deflater.setStrategy(options.getStrategy());
+      if (dictionary != null) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(bytes);
+      deflater.finish();
+
+      byte[] buffer = compressionBuffer.get();
+      System.arraycopy(header, 0, buffer, 0, header.length);
+      int length = header.length;
+      while (!deflater.finished()) {
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        }
+        length += deflater.deflate(buffer, length, buffer.length - length);
+      }
+
+      if (length + TRAILER_BYTES > buffer.length) {
+        buffer = Arrays.copyOf(buffer, length + TRAILER_BYTES);
+      }
+      CRC32 crc = new CRC32();
+      crc.update(bytes, 0, bytes.length);
+      writeIntLE(buffer, length, (int) crc.getValue());
+      writeIntLE(buffer, length + 4, bytes.length);
+      length += TRAILER_BYTES;
+
+      byte[] compressedBytes = Arrays.copyOf(buffer, length);
+      if (buffer.length <= MAX_RETAINED_BUFFER_BYTES) {
+        compressionBuffer.set(buffer);
       }
-      byte[] compressedBytes = bos.toByteArray();
 
       long end = System.currentTimeMillis();
-      LOGGER.logTrace("Compressed from %s bytes to %s bytes in %sms.",
-          bytes.length, compressedBytes.length, end - start);
+      LOGGER.logTrace("Compressed from %s bytes to %s bytes in %sms with options %s.",
+          bytes.length, compressedBytes.length, end - start, options);
       return compressedBytes;
+    } finally {
+      returnDeflater(deflater);
     }
   }
 
@@ -54,21 +149,282 @@ public static byte[] decompress(byte[] bytes) throws IOException {
 
     long start = System.currentTimeMillis();
 
-    try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes)) {
-      try (GZIPInputStream gis = new GZIPInputStream(bis)) {
-        byte[] decompressedBytes = IOUtils.toByteArray(gis);
-
-        long end = System.currentTimeMillis();
-        LOGGER.logTrace("Decompressed from %s bytes to %s bytes in %sms.",
-            bytes.length, decompressedBytes.length, end - start);
-        return decompressedBytes;
+    byte[] decompressedBytes;
+    if (isDictionaryCompressed(bytes)) {
+      decompressedBytes = inflate(bytes, DICTIONARY_HEADER_BYTES, getDictionary(bytes[2]));
+    } else if (bytes.length > GZIP_HEADER.length && bytes[GZIP_FLAGS_OFFSET] == 0) {
+      decompressedBytes = inflate(bytes, GZIP_HEADER.length, null);
+    } else {
+      // GZIP with optional fields, which is never written by Launcher itself
+      try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+        decompressedBytes = IOUtils.toByteArray(gis);
       }
     }
+
+    long end = System.currentTimeMillis();
+    LOGGER.logTrace("Decompressed from %s bytes to %s bytes in %sms.",
+        bytes.length, decompressedBytes.length, end - start);
+    return decompressedBytes;
+  }
+
+  // Works for both decompressed and compressed stream, the returned stream should be
+  // read instead of the given one.
+  // Decompress lazily when the returned stream is read, so that the whole decompressed
+  // bytes are never buffered.
+  public static InputStream decompress(InputStream in) throws IOException {
+    if (!in.markSupported()) {
+      in = new BufferedInputStream(in);
+    }
+
+    in.mark(DICTIONARY_HEADER_BYTES);
+    byte[] header = new byte[DICTIONARY_HEADER_BYTES];
+    int headerBytes = IOUtils.read(in, header);
+    in.reset();
+
+    if (headerBytes < 2 || !isCompressed(header)) {
+      return in;
+    }
+    if (!isDictionaryCompressed(header)) {
+      return new GZIPInputStream(in, DECOMPRESSION_BUFFER_BYTES);
+    }
+    if (headerBytes < DICTIONARY_HEADER_BYTES) {
+      throw new EOFException("Compressed stream is truncated in header");
+    }
+
+    IOUtils.skipFully(in, DICTIONARY_HEADER_BYTES);
+    return new DictionaryInflaterInputStream(in, getDictionary(header[2]));
   }
 
   public static boolean isCompressed(byte[] bytes) {
     // It can judge serialized YAML string correctly, since the YAML string
     // header !!(0x2121) always does not equal to GZIP_MAGIC(0x8b1f).
-    return CommonUtils.bytesToShort(bytes) == GZIPInputStream.GZIP_MAGIC;
+    if (bytes.length < 2) {
+      return false;
+    }
+    int magic = CommonUtils.bytesToShort(bytes);
+    return magic == GZIPInputStream.GZIP_MAGIC || magic == DICTIONARY_MAGIC;
+  }
+
+  private static boolean isDictionaryCompressed(byte[] bytes) {
+    return CommonUtils.bytesToShort(bytes) == DICTIONARY_MAGIC;
+  }
+
+  private static byte[] getDictionary(byte dictionaryId) throws ZipException {
+    if (dictionaryId == DICTIONARY_ID_V1) {
+      return DICTIONARY_V1;
+    }
+    throw new ZipException(String.format(
+        "Unknown compression DictionaryId [%s], it may be compressed by a newer Launcher",
+        dictionaryId));
+  }
+
+  // Inflate the raw deflate bytes which start at offset and are followed by the trailer
+  private static byte[] inflate(byte[] bytes, int offset, byte[] dictionary) throws IOException {
+    if (bytes.length < offset + TRAILER_BYTES) {
+      throw new EOFException("Compressed bytes are truncated");
+    }
+
+    int trailerOffset = bytes.length - TRAILER_BYTES;
+    int expectedCrc = readIntLE(bytes, trailerOffset);
+    long expectedLength = readIntLE(bytes, trailerOffset + 4) & 0xFFFFFFFFL;
+    if (expectedLength > (long) bytes.length * MAX_DEFLATE_RATIO ||
+        expectedLength > Integer.MAX_VALUE - 8) {
+      throw new ZipException(String.format(
+          "Compressed bytes are corrupted: Invalid decompressed length %s for %s compressed bytes",
+          expectedLength, bytes.length));
+    }
+
+    // The decompressed length is known from the trailer, so the result can be
+    // allocated once with the exact size.
+    byte[] decompressedBytes = new byte[(int) expectedLength];
+    Inflater inflater = borrowInflater();
+    try {
+      if (dictionary != null) {
+        inflater.setDictionary(dictionary);
+      }
+      inflater.setInput(bytes, offset, trailerOffset - offset);
+
+      int length = 0;
+      while (!inflater.finished()) {
+        if (length == decompressedBytes.length) {
+          // Probe whether there are more decompressed bytes than expected
+          if (inflater.inflate(new byte[1]) != 0 || !inflater.finished()) {
+            throw new ZipException("Compressed bytes are corrupted: Mismatched decompressed length");
+          }
+          break;
+        }
+        int read = inflater.inflate(decompressedBytes, length, decompressedBytes.length - length);
+        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new EOFException("Compressed bytes are truncated");
+        }
+        length += read;
+      }
+
+      if (length != decompressedBytes.length || inflater.getRemaining() != 0) {
+        throw new ZipException("Compressed bytes are corrupted: Mismatched decompressed length");
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException("Compressed bytes are corrupted: " + e.getMessage());
+    } finally {
+      returnInflater(inflater);
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(decompressedBytes, 0, decompressedBytes.length);
+    if ((int) crc.getValue() != expectedCrc) {
+      throw new ZipException("Compressed bytes are corrupted: Mismatched CRC32");
+    }
+    return decompressedBytes;
+  }
+
+  // Inflate the stream compressed with the dictionary lazily, and verify its
+  // trailer once the end of the raw deflate is reached.
+  private static class DictionaryInflaterInputStream extends InflaterInputStream {
+    private final CRC32 crc = new CRC32();
+    private long length = 0;
+    private boolean trailerVerified = false;
+    private boolean closed = false;
+
+    DictionaryInflaterInputStream(InputStream in, byte[] dictionary) {
+      super(in, borrowInflater(), DECOMPRESSION_BUFFER_BYTES);
+      inf.setDictionary(dictionary);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        crc.update(b, off, read);
+        length += read;
+      } else if (read < 0 && !trailerVerified) {
+        verifyTrailer();
+        trailerVerified = true;
+      }
+      return read;
+    }
+
+    private void verifyTrailer() throws IOException {
+      // The trailer may be partially or fully read into the input buffer already
+      byte[] trailer = new byte[TRAILER_BYTES];
+      int bufferedBytes = Math.min(inf.getRemaining(), TRAILER_BYTES);
+      System.arraycopy(buf, len - inf.getRemaining(), trailer, 0, bufferedBytes);
+      IOUtils.readFully(in, trailer, bufferedBytes, TRAILER_BYTES - bufferedBytes);
+
+      if (readIntLE(trailer, 0) != (int) crc.getValue() ||
+          readIntLE(trailer, 4) != (int) length) {
+        throw new ZipException("Compressed stream is corrupted: Mismatched trailer");
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        super.close();
+        returnInflater(inf);
+      }
+    }
+  }
+
+  private static Deflater borrowDeflater() {
+    Deflater deflater = deflaterPool.poll();
+    if (deflater == null) {
+      return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    }
+    pooledDeflaterNumber.decrementAndGet();
+    return deflater;
+  }
+
+  private static void returnDeflater(Deflater deflater) {
+    if (pooledDeflaterNumber.incrementAndGet() <= MAX_POOLED_CODER_NUMBER) {
+      deflater.reset();
+      deflaterPool.offer(deflater);
+    } else {
+      pooledDeflaterNumber.decrementAndGet();
+      deflater.end();
+    }
+  }
+
+  private static Inflater borrowInflater() {
+    Inflater inflater = inflaterPool.poll();
+    if (inflater == null) {
+      return new Inflater(true);
+    }
+    pooledInflaterNumber.decrementAndGet();
+    return inflater;
+  }
+
+  private static void returnInflater(Inflater inflater) {
+    if (pooledInflaterNumber.incrementAndGet() <= MAX_POOLED_CODER_NUMBER) {
+      inflater.reset();
+      inflaterPool.offer(inflater);
+    } else {
+      pooledInflaterNumber.decrementAndGet();
+      inflater.end();
+    }
+  }
+
+  private static void writeIntLE(byte[] bytes, int offset, int value) {
+    bytes[offset] = (byte) value;
+    bytes[offset + 1] = (byte) (value >> 8);
+    bytes[offset + 2] = (byte) (value >> 16);
+    bytes[offset + 3] = (byte) (value >> 24);
+  }
+
+  private static int readIntLE(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) |
+        ((bytes[offset + 1] & 0xFF) << 8) |
+        ((bytes[offset + 2] & 0xFF) << 16) |
+        ((bytes[offset + 3] & 0xFF) << 24);
+  }
+
+  // The dictionary is trained on the typical serialized TaskStatuses and FrameworkStatus.
+  // Deflate prefers closer matches, so the most common strings are put at the end.
+  // NEVER change it, see DICTIONARY_ID_V1.
+  private static byte[] newDictionaryV1() {
+    return (
+        "!!com.microsoft.frameworklauncher.common.model.FrameworkStatus {" +
+            "applicationCompletedTimestamp: null, applicationExitCode: null, " +
+            "applicationExitDescription: null, applicationExitDiagnostics: null, " +
+            "applicationExitTriggerMessage: null, applicationExitTriggerTaskIndex: null, " +
+            "applicationExitTriggerTaskRoleName: null, applicationExitType: null, " +
+            "applicationId: application_, applicationLaunchedTimestamp: null, " +
+            "applicationProgress: null, applicationTrackingUrl: null, " +
+            "frameworkCompletedTimestamp: null, frameworkCreatedTimestamp: null, " +
+            "frameworkName: null, frameworkRetryPolicyState: null, frameworkState: " +
+            "APPLICATION_RUNNING, frameworkVersion: null}\n" +
+            "!!com.microsoft.frameworklauncher.common.model.TaskRoleStatus {" +
+            "frameworkVersion: null, taskRoleName: null, taskRoleRolloutStatus: null}\n" +
+            "CONTAINER_COMPLETED CONTAINER_REQUESTED CONTAINER_ALLOCATED CONTAINER_LAUNCHED " +
+            "TASK_WAITING TASK_COMPLETED SUCCEEDED TRANSIENT_NORMAL TRANSIENT_CONFLICT " +
+            "NON_TRANSIENT UNKNOWN FAILED\n" +
+            "!!com.microsoft.frameworklauncher.common.model.TaskStatuses\n" +
+            "frameworkVersion: 1\ntaskRoleName: worker\ntaskStatusArray:\n" +
+            "- containerCompletedTimestamp: null\n" +
+            "  containerConnectionLostCount: 0\n" +
+            "  containerExitCode: null\n" +
+            "  containerExitDescription: null\n" +
+            "  containerExitDiagnostics: null\n" +
+            "  containerExitType: null\n" +
+            "  containerGpus: null\n" +
+            "  containerHost: host\n" +
+            "  containerId: container_e01_1500000000000_0001_01_000001\n" +
+            "  containerIp: 10.0.0.1\n" +
+            "  containerIsDecommissioning: false\n" +
+            "  containerLaunchedTimestamp: 1500000000000\n" +
+            "  containerLogHttpAddress: http://host:8042/node/containerlogs/" +
+            "container_e01_1500000000000_0001_01_000001/user/\n" +
+            "  containerPorts: null\n" +
+            "  taskCompletedTimestamp: null\n" +
+            "  taskCreatedTimestamp: 1500000000000\n" +
+            "  taskIndex: 0\n" +
+            "  taskRetryPolicyState: {nonTransientRetriedCount: 0, retriedCount: 0, " +
+            "succeededRetriedCount: 0,\n" +
+            "    transientConflictRetriedCount: 0, transientNormalRetriedCount: 0, " +
+            "unKnownRetriedCount: 0}\n" +
+            "  taskRoleName: worker\n" +
+            "  taskServiceStatus: {serviceVersion: 0}\n" +
+            "  taskState: CONTAINER_RUNNING\n"
+    ).getBytes(StandardCharsets.UTF_8);
   }
-}
\ No newline at end of file
+}
@@ -340,7 +340,7 @@ public static boolean matchNodeLabel(String requestNodeLabel, Set<String> availa
    * empty or null, it belongs to NO_LABEL partition. And since we only support
    * one partition for each node (YARN-2694), first label will be its partition.
    */
-  private static String getPartition(String nodeLabel) {
+  public static String getPartition(String nodeLabel) {
     if (nodeLabel == null) {
       return CommonNodeLabelsManager.NO_LABEL;
     } else {
@@ -355,7 +355,7 @@ private static String getPartition(String nodeLabel) {
    * empty or null, it belongs to NO_LABEL partition. And since we only support
    * one partition for each node (YARN-2694), first label will be its partition.
    */
-  private static String getPartition(Set<String> nodeLabels) {
+  public static String getPartition(Set<String> nodeLabels) {
     if (nodeLabels == null || nodeLabels.isEmpty()) {
       return CommonNodeLabelsManager.NO_LABEL;
     } else {
@@ -0,0 +1,300 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.utils;
+
+import com.microsoft.frameworklauncher.common.log.DefaultLogger;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Deep copy and equals for the model classes, such as the ones in common.model.
+// They are equivalent to the YAML based YamlUtils.deepCopy and YamlUtils.deepEquals,
+// i.e. based on the same JavaBean properties which have both getter and setter,
+// but the objects are traversed directly instead of serialized.
+// The property accessors of a class are resolved once, and then generated as lambdas,
+// so that no reflection is involved after the first access of the class.
+//
+// Differences from YamlUtils:
+//  Map and Set are compared regardless of their iteration order, which is the same as
+//  YamlUtils.deepEquals for the top level Map.
+//  The value whose class is not a Launcher class, a supported immutable class or
+//  a supported collection class falls back to the YAML based one.
+// THREAD SAFE
+public class ModelUtils {
+  private static final DefaultLogger LOGGER = new DefaultLogger(ModelUtils.class);
+
+  private static final String MODEL_PACKAGE_PREFIX = "com.microsoft.frameworklauncher.";
+  private static final Set<Class<?>> IMMUTABLE_CLASSES = new HashSet<>(Arrays.asList(
+      String.class, Boolean.class, Character.class, Byte.class, Short.class,
+      Integer.class, Long.class, Float.class, Double.class,
+      BigInteger.class, BigDecimal.class));
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  // Class -> BeanSchema, and UNSUPPORTED_SCHEMA for the class which is not a bean
+  private static final ConcurrentMap<Class<?>, BeanSchema> schemas = new ConcurrentHashMap<>();
+  private static final BeanSchema UNSUPPORTED_SCHEMA = new BeanSchema(null, new BeanProperty[0]);
+
+  private static class BeanProperty {
+    private final String name;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    private BeanProperty(String name, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+      this.name = name;
+      this.getter = getter;
+      this.setter = setter;
+    }
+  }
+
+  private static class BeanSchema {
+    private final Supplier<Object> constructor;
+    // Sorted by name, which is the same order as YAML sets the properties,
+    // so the setters which also set other properties, such as
+    // ResourceDescriptor.setPortDefinitions, behave the same.
+    private final BeanProperty[] properties;
+
+    private BeanSchema(Supplier<Object> constructor, BeanProperty[] properties) {
+      this.constructor = constructor;
+      this.properties = properties;
+    }
+  }
+
+  /**
+   * REGION PublicInterface
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T deepCopy(T obj, Class<T> classRef) {
+    return (T) copyValue(obj);
+  }
+
+  public static <T> boolean deepEquals(T obj, T otherObj) {
+    return equalsValue(obj, otherObj);
+  }
+
+  /**
+   * REGION InternalUtils
+   */
+  private static Object copyValue(Object value) {
+    if (value == null || isImmutable(value.getClass())) {
+      return value;
+    }
+    if (value instanceof List) {
+      List<Object> copy = new ArrayList<>(((List<?>) value).size());
+      for (Object element : (List<?>) value) {
+        copy.add(copyValue(element));
+      }
+      return copy;
+    }
+    if (value instanceof Set) {
+      Set<Object> copy = new LinkedHashSet<>();
+      for (Object element : (Set<?>) value) {
+        copy.add(copyValue(element));
+      }
+      return copy;
+    }
+    if (value instanceof Map) {
+      Map<Object, Object> copy = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        copy.put(copyValue(entry.getKey()), copyValue(entry.getValue()));
+      }
+      return copy;
+    }
+
+    BeanSchema schema = getSchema(value.getClass());
+    if (schema == UNSUPPORTED_SCHEMA) {
+      return yamlCopy(value);
+    }
+    Object copy = schema.constructor.get();
+    for (BeanProperty property : schema.properties) {
+      property.setter.accept(copy, copyValue(property.getter.apply(value)));
+    }
+    return copy;
+  }
+
+  private static boolean equalsValue(Object value, Object otherValue) {
+    if (value == otherValue) {
+      return true;
+    }
+    if (value == null || otherValue == null) {
+      return false;
+    }
+    if (value instanceof List) {
+      return (otherValue instanceof List) && equalsList((List<?>) value, (List<?>) otherValue);
+    }
+    if (value instanceof Set) {
+      return (otherValue instanceof Set) && equalsSet((Set<?>) value, (Set<?>) otherValue);
+    }
+    if (value instanceof Map) {
+      return (otherValue instanceof Map) && equalsMap((Map<?, ?>) value, (Map<?, ?>) otherValue);
+    }
+    if (value.getClass() != otherValue.getClass()) {
+      return false;
+    }
+    if (isImmutable(value.getClass())) {
+      return value.equals(otherValue);
+    }
+
+    BeanSchema schema = getSchema(value.getClass());
+    if (schema == UNSUPPORTED_SCHEMA) {
+      return YamlUtils.deepEquals(value, otherValue);
+    }
+    for (BeanProperty property : schema.properties) {
+      if (!equalsValue(property.getter.apply(value), property.getter.apply(otherValue))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean equalsList(List<?> list, List<?> otherList) {
+    if (list.size() != otherList.size()) {
+      return false;
+    }
+    Iterator<?> otherIterator = otherList.iterator();
+    for (Object element : list) {
+      if (!equalsValue(element, otherIterator.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Elements in the same order are matched at the first try, so it is linear for them
+  private static boolean equalsSet(Set<?> set, Set<?> otherSet) {
+    if (set.size() != otherSet.size()) {
+      return false;
+    }
+    List<Object> unmatchedElements = new LinkedList<>(otherSet);
+    for (Object element : set) {
+      boolean matched = false;
+      Iterator<Object> iterator = unmatchedElements.iterator();
+      while (iterator.hasNext()) {
+        if (equalsValue(element, iterator.next())) {
+          iterator.remove();
+          matched = true;
+          break;
+        }
+      }
+      if (!matched) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean equalsMap(Map<?, ?> map, Map<?, ?> otherMap) {
+    if (map.size() != otherMap.size()) {
+      return false;
+    }
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      Object otherValue = otherMap.get(entry.getKey());
+      if (otherValue == null && !otherMap.containsKey(entry.getKey())) {
+        return false;
+      }
+      if (!equalsValue(entry.getValue(), otherValue)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isImmutable(Class<?> classRef) {
+    return IMMUTABLE_CLASSES.contains(classRef) || Enum.class.isAssignableFrom(classRef);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T yamlCopy(T value) {
+    return YamlUtils.deepCopy(value, (Class<T>) value.getClass());
+  }
+
+  private static BeanSchema getSchema(Class<?> classRef) {
+    BeanSchema schema = schemas.get(classRef);
+    if (schema == null) {
+      schema = schemas.computeIfAbsent(classRef, ModelUtils::newSchema);
+    }
+    return schema;
+  }
+
+  private static BeanSchema newSchema(Class<?> classRef) {
+    if (!classRef.getName().startsWith(MODEL_PACKAGE_PREFIX) ||
+        !Modifier.isPublic(classRef.getModifiers()) ||
+        Modifier.isAbstract(classRef.getModifiers())) {
+      return UNSUPPORTED_SCHEMA;
+    }
+
+    try {
+      List<BeanProperty> properties = new ArrayList<>();
+      for (PropertyDescriptor descriptor : Introspector.getBeanInfo(classRef).getPropertyDescriptors()) {
+        Method readMethod = descriptor.getReadMethod();
+        Method writeMethod = descriptor.getWriteMethod();
+        if (readMethod == null || writeMethod == null) {
+          continue;
+        }
+        properties.add(new BeanProperty(
+            descriptor.getName(), newGetter(readMethod), newSetter(writeMethod)));
+      }
+      properties.sort(Comparator.comparing(property -> property.name));
+
+      LOGGER.logDebug("Generated BeanSchema for %s with %s properties",
+          classRef.getName(), properties.size());
+      return new BeanSchema(newConstructor(classRef), properties.toArray(new BeanProperty[0]));
+    } catch (Throwable e) {
+      LOGGER.logWarning(e,
+          "Failed to generate BeanSchema for %s, fallback to YAML", classRef.getName());
+      return UNSUPPORTED_SCHEMA;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Supplier<Object> newConstructor(Class<?> classRef) throws Throwable {
+    MethodHandle handle = LOOKUP.findConstructor(classRef, MethodType.methodType(void.class));
+    return (Supplier<Object>) LambdaMetafactory.metafactory(LOOKUP, "get",
+        MethodType.methodType(Supplier.class),
+        MethodType.methodType(Object.class),
+        handle, handle.type()).getTarget().invokeExact();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> newGetter(Method method) throws Throwable {
+    MethodHandle handle = LOOKUP.unreflect(method);
+    return (Function<Object, Object>) LambdaMetafactory.metafactory(LOOKUP, "apply",
+        MethodType.methodType(Function.class),
+        MethodType.methodType(Object.class, Object.class),
+        handle, handle.type().wrap()).getTarget().invokeExact();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static BiConsumer<Object, Object> newSetter(Method method) throws Throwable {
+    MethodHandle handle = LOOKUP.unreflect(method);
+    return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(LOOKUP, "accept",
+        MethodType.methodType(BiConsumer.class),
+        MethodType.methodType(void.class, Object.class, Object.class),
+        handle, handle.type().wrap().changeReturnType(void.class)).getTarget().invokeExact();
+  }
+}
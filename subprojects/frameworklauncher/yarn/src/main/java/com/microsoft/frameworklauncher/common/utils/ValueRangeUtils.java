@@ -20,11 +20,13 @@
 import com.microsoft.frameworklauncher.common.model.ValueRange;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
 public class ValueRangeUtils {
+  private static final Random RANDOM = new Random();
 
   /*
     sort the list range from small to big.
@@ -272,6 +274,81 @@ public static List<ValueRange> getSubRangeRandomly(List<ValueRange> availableRan
     return resultList;
   }
 
+  /*
+    get a random subRange list with requestNumber values from the available value set, all the values in the
+    subRange are not less than baseValue.
+    It takes the values after a random start value first, and wraps around to baseValue if they are not enough.
+    Return empty list if the available values are not enough.
+   */
+  public static List<ValueRange> getSubRangeRandomly(BitSet availableValues, int requestNumber, int baseValue) {
+    baseValue = Math.max(baseValue, 0);
+    int maxValue = availableValues.length() - 1;
+    if (requestNumber <= 0 || maxValue < baseValue ||
+        countValues(availableValues, baseValue, maxValue + 1, requestNumber) < requestNumber) {
+      return new ArrayList<>();
+    }
+
+    BitSet selectedValues = new BitSet();
+    int randomBase = baseValue + RANDOM.nextInt(maxValue - baseValue + 1);
+    int needNumber = requestNumber;
+    needNumber -= selectValues(availableValues, randomBase, maxValue + 1, needNumber, selectedValues);
+    selectValues(availableValues, baseValue, randomBase, needNumber, selectedValues);
+    return fromBitSet(selectedValues);
+  }
+
+  // Count the values in [fromValue, toValue), at most maxNumber values are counted.
+  private static int countValues(BitSet values, int fromValue, int toValue, int maxNumber) {
+    return selectValues(values, fromValue, toValue, maxNumber, null);
+  }
+
+  // Select the first needNumber values in [fromValue, toValue) range by range,
+  // and return the number of values selected.
+  private static int selectValues(BitSet values, int fromValue, int toValue, int needNumber, BitSet selectedValues) {
+    int selectedNumber = 0;
+    int begin = values.nextSetBit(fromValue);
+    while (begin >= 0 && begin < toValue && selectedNumber < needNumber) {
+      int end = Math.min(values.nextClearBit(begin), toValue);
+      int number = Math.min(end - begin, needNumber - selectedNumber);
+      if (selectedValues != null) {
+        selectedValues.set(begin, begin + number);
+      }
+      selectedNumber += number;
+      begin = values.nextSetBit(end);
+    }
+    return selectedNumber;
+  }
+
+  /*
+    convert the range list to the set of values in it, the values must be not negative.
+   */
+  public static BitSet toBitSet(List<ValueRange> rangeList) {
+    BitSet values = new BitSet();
+    if (rangeList != null) {
+      for (ValueRange range : rangeList) {
+        if (range.getBegin() < 0 || range.getBegin() > range.getEnd()) {
+          throw new IllegalArgumentException(String.format(
+              "Invalid range for BitSet: [%s, %s]", range.getBegin(), range.getEnd()));
+        }
+        values.set(range.getBegin(), range.getEnd() + 1);
+      }
+    }
+    return values;
+  }
+
+  /*
+    convert the value set to the coalesced range list.
+   */
+  public static List<ValueRange> fromBitSet(BitSet values) {
+    List<ValueRange> rangeList = new ArrayList<>();
+    int begin = values.nextSetBit(0);
+    while (begin >= 0) {
+      int end = values.nextClearBit(begin);
+      rangeList.add(ValueRange.newInstance(begin, end - 1));
+      begin = values.nextSetBit(end);
+    }
+    return rangeList;
+  }
+
   /*
     get a sequential subRange list from the available range list, all the values in the subRange are bigger than baseValue.
   */
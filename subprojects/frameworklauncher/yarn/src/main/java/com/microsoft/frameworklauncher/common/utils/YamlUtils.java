@@ -25,6 +25,8 @@
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -37,6 +39,15 @@ public static <T> T toObject(byte[] bytes, Class<T> classRef) {
     return yaml.loadAs(new String(bytes), classRef);
   }
 
+  // Parse from the stream directly, so that the whole Yaml String is never built.
+  // Same as toObject bytes, the stream is decoded by the default Charset.
+  public static <T> T toObject(InputStream in, Class<T> classRef) {
+    Representer representer = new Representer();
+    representer.getPropertyUtils().setSkipMissingProperties(true);
+    Yaml yaml = new Yaml(new Constructor(classRef), representer);
+    return yaml.loadAs(new InputStreamReader(in), classRef);
+  }
+
   public static <T> T toObject(String fileName, Class<T> classRef) throws FileNotFoundException {
     Representer representer = new Representer();
     representer.getPropertyUtils().setSkipMissingProperties(true);
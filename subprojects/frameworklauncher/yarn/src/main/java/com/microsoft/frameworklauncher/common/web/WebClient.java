@@ -21,36 +21,96 @@
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.SocketException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
-public class WebClient {
+public class WebClient implements Closeable {
   // Each instance of the HttpClient will create a new socket and hold a connection open for a specific interval.
   // To avoid socket exhaustion problem, HttpClient instance need to be shared to use.
   private final CloseableHttpClient httpClient;
   private final String baseURI;
 
+  // The last successful GET output with ETag for each URI, so that the GET can be sent
+  // with If-None-Match and the output can be reused if the content is not modified.
+  private static final int MAX_CONDITIONAL_GET_CACHE_SIZE = 64;
+  private final Map<String, WebClientOutput> conditionalGetCache = Collections.synchronizedMap(
+      new LinkedHashMap<String, WebClientOutput>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WebClientOutput> eldest) {
+          return size() > MAX_CONDITIONAL_GET_CACHE_SIZE;
+        }
+      });
+
   public WebClient(String baseURI, LaunchClientType launchClientType, String userName) {
     this.baseURI = baseURI;
+    this.httpClient = newHttpClientBuilder(launchClientType, userName).build();
+  }
+
+  // All the requests are sent to the single baseURI, so the maxConnectionCount is
+  // shared by the whole pool and the route.
+  public WebClient(String baseURI, LaunchClientType launchClientType, String userName,
+      int maxConnectionCount, int connectTimeoutMs, int socketTimeoutMs, int connectionKeepAliveSec) {
+    this.baseURI = baseURI;
+
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxConnectionCount);
+    connectionManager.setDefaultMaxPerRoute(maxConnectionCount);
+
+    RequestConfig requestConfig = RequestConfig.custom()
+        .setConnectTimeout(connectTimeoutMs)
+        .setConnectionRequestTimeout(connectTimeoutMs)
+        .setSocketTimeout(socketTimeoutMs)
+        .build();
+
+    long maxKeepAliveMs = connectionKeepAliveSec * 1000L;
+    this.httpClient = newHttpClientBuilder(launchClientType, userName)
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy((response, context) -> {
+          long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+          return (keepAliveMs > 0 ? Math.min(keepAliveMs, maxKeepAliveMs) : maxKeepAliveMs);
+        })
+        .build();
+  }
 
+  private static HttpClientBuilder newHttpClientBuilder(LaunchClientType launchClientType, String userName) {
     List<Header> headers = new ArrayList<>();
     headers.add(new BasicHeader(WebCommon.REQUEST_HEADER_LAUNCH_CLIENT_TYPE, launchClientType.toString()));
     headers.add(new BasicHeader(WebCommon.REQUEST_HEADER_USER_NAME, userName));
 
-    this.httpClient = HttpClients.custom().setDefaultHeaders(headers).build();
+    // The HttpClient sends Accept-Encoding and decompresses the gzip content by default
+    return HttpClients.custom().setDefaultHeaders(headers);
+  }
+
+  public String getBaseURI() {
+    return baseURI;
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
   }
 
   public WebClientOutput put(String relativeURI, ContentType contentType, String body) {
@@ -59,6 +119,12 @@ public WebClientOutput put(String relativeURI, ContentType contentType, String b
     return execute(() -> httpClient.execute(request));
   }
 
+  public WebClientOutput post(String relativeURI, ContentType contentType, String body) {
+    HttpPost request = new HttpPost(WebCommon.getURI(baseURI, relativeURI));
+    request.setEntity(new StringEntity(body, contentType));
+    return execute(() -> httpClient.execute(request));
+  }
+
   public WebClientOutput delete(String relativeURI) {
     HttpDelete request = new HttpDelete(WebCommon.getURI(baseURI, relativeURI));
     return execute(() -> httpClient.execute(request));
@@ -69,16 +135,42 @@ public WebClientOutput get(String relativeURI) {
   }
 
   public WebClientOutput get(String relativeURI, Map<String, String> parameters) {
-    HttpGet request = new HttpGet(WebCommon.getURI(baseURI, relativeURI, parameters));
-    return execute(() -> httpClient.execute(request));
+    String uri = WebCommon.getURI(baseURI, relativeURI, parameters);
+    HttpGet request = new HttpGet(uri);
+    WebClientOutput cachedOutput = conditionalGetCache.get(uri);
+    if (cachedOutput != null) {
+      request.setHeader(WebCommon.HEADER_IF_NONE_MATCH, cachedOutput.getETag());
+    }
+
+    WebClientOutput output = execute(() -> httpClient.execute(request));
+    if (output.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && cachedOutput != null) {
+      return cachedOutput;
+    }
+
+    if (output.isSuccessStatusCode() && output.getETag() != null) {
+      conditionalGetCache.put(uri, output);
+    } else {
+      conditionalGetCache.remove(uri);
+    }
+    return output;
   }
 
   private static WebClientOutput execute(Callable<HttpResponse> action) {
     try {
       HttpResponse response = action.call();
-      String content = new BasicResponseHandler().handleResponse(response);
       int statusCode = response.getStatusLine().getStatusCode();
-      return new WebClientOutput(statusCode, content, statusCode >= 200 && statusCode <= 299);
+      Header eTagHeader = response.getFirstHeader(WebCommon.HEADER_ETAG);
+      String eTag = (eTagHeader == null ? null : eTagHeader.getValue());
+      if (statusCode == HttpStatus.SC_NOT_MODIFIED) {
+        EntityUtils.consume(response.getEntity());
+        return new WebClientOutput(statusCode, null, false, null, eTag);
+      }
+
+      // Keep the content and status code of a failed response, so that the caller can
+      // tell whether and when to retry it.
+      String content = (response.getEntity() == null ? null : EntityUtils.toString(response.getEntity()));
+      return new WebClientOutput(statusCode, content, statusCode >= 200 && statusCode <= 299, null, eTag,
+          getRetryAfterSec(response));
     } catch (Exception e) {
       if (isNetworkError(e)) {
         return new WebClientOutput(HttpStatus.SC_REQUEST_TIMEOUT, e.toString(), false, e);
@@ -88,6 +180,19 @@ private static WebClientOutput execute(Callable<HttpResponse> action) {
     }
   }
 
+  // Only the delay-seconds form of the Retry-After is supported
+  private static Long getRetryAfterSec(HttpResponse response) {
+    Header retryAfterHeader = response.getFirstHeader(WebCommon.HEADER_RETRY_AFTER);
+    if (retryAfterHeader == null) {
+      return null;
+    }
+    try {
+      return Math.max(0, Long.parseLong(retryAfterHeader.getValue().trim()));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
   private static Boolean isNetworkError(Throwable e) {
     if (e instanceof SocketException)
       return true;
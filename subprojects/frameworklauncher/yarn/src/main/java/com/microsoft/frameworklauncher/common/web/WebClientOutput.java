@@ -22,16 +22,30 @@ public class WebClientOutput {
   private final String content;
   private final Boolean isSuccessStatusCode;
   private final Exception clientSideException;
+  private final String eTag;
+  private final Long retryAfterSec;
 
   public WebClientOutput(int statusCode, String content, Boolean isSuccessStatusCode) {
     this(statusCode, content, isSuccessStatusCode, null);
   }
 
   public WebClientOutput(int statusCode, String content, Boolean isSuccessStatusCode, Exception clientSideException) {
+    this(statusCode, content, isSuccessStatusCode, clientSideException, null);
+  }
+
+  public WebClientOutput(int statusCode, String content, Boolean isSuccessStatusCode, Exception clientSideException,
+      String eTag) {
+    this(statusCode, content, isSuccessStatusCode, clientSideException, eTag, null);
+  }
+
+  public WebClientOutput(int statusCode, String content, Boolean isSuccessStatusCode, Exception clientSideException,
+      String eTag, Long retryAfterSec) {
     this.statusCode = statusCode;
     this.content = content;
     this.isSuccessStatusCode = isSuccessStatusCode;
     this.clientSideException = clientSideException;
+    this.eTag = eTag;
+    this.retryAfterSec = retryAfterSec;
   }
 
   public int getStatusCode() {
@@ -55,6 +69,16 @@ public Exception getClientSideException() {
     return clientSideException;
   }
 
+  // The ETag of the content, null if the Server does not provide it
+  public String getETag() {
+    return eTag;
+  }
+
+  // The seconds after which the request can be retried, null if the Server does not provide it
+  public Long getRetryAfterSec() {
+    return retryAfterSec;
+  }
+
   public String toString() {
     return String.format(
         "HttpStatusCode: %2$s%1$sContent: %3$s%1$sIsSuccessStatusCode: %4$s%1$sClientSideException: %5$s",
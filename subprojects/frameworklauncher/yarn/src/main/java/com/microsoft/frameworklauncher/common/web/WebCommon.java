@@ -29,6 +29,12 @@ public class WebCommon {
   public static final String REQUEST_HEADER_LAUNCH_CLIENT_TYPE = "LaunchClientType";
   public static final String REQUEST_HEADER_USER_NAME = "UserName";
   public static final int SC_TOO_MANY_REQUESTS = 429;
+  public static final String HEADER_ETAG = "ETag";
+  public static final String HEADER_RETRY_AFTER = "Retry-After";
+  public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+  public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+  public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+  public static final String CONTENT_ENCODING_GZIP = "gzip";
   private static final ObjectMapper OBJECT_MAPPER;
 
   static {
@@ -64,6 +70,56 @@ public static String getBindAddress(String bindHost, String address) {
     return bindHost.trim() + ":" + NetUtils.createSocketAddr(address).getPort();
   }
 
+  // Whether the If-None-Match header value matches the strong eTag, so that
+  // the Response is not modified. Weak comparison is used as RFC 7232 required.
+  public static boolean matchesETag(String ifNoneMatch, String eTag) {
+    if (ifNoneMatch == null || eTag == null) {
+      return false;
+    }
+
+    String opaqueETag = removeWeakPrefix(eTag.trim());
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.equals("*") || removeWeakPrefix(candidate).equals(opaqueETag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String removeWeakPrefix(String eTag) {
+    return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+  }
+
+  // Whether the Accept-Encoding header value accepts the gzip Content-Encoding
+  public static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+
+    for (String coding : acceptEncoding.split(",")) {
+      String[] params = coding.split(";");
+      String codingName = params[0].trim();
+      if (!codingName.equalsIgnoreCase(CONTENT_ENCODING_GZIP) && !codingName.equals("*")) {
+        continue;
+      }
+
+      boolean rejected = false;
+      for (int i = 1; i < params.length; i++) {
+        String param = params[i].trim();
+        if (param.startsWith("q=")) {
+          try {
+            rejected = (Double.parseDouble(param.substring(2).trim()) <= 0);
+          } catch (NumberFormatException e) {
+            rejected = true;
+          }
+        }
+      }
+      return !rejected;
+    }
+    return false;
+  }
+
   // Object <-> Json
   // obj can be null, but cannot be Exception
   public static String toJson(Object obj) {
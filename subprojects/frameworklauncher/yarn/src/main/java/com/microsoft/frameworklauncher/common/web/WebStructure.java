@@ -40,7 +40,9 @@ public class WebStructure {
   public static final String DATA_DEPLOYMENT_VERSION_PATH = LAUNCHER_REQUEST_PATH + PATH_SEPARATOR + "DataDeploymentVersion";
   public static final String CLUSTER_CONFIGURATION_PATH = LAUNCHER_REQUEST_PATH + PATH_SEPARATOR + "ClusterConfiguration";
   public static final String ACL_CONFIGURATION_PATH = LAUNCHER_REQUEST_PATH + PATH_SEPARATOR + "AclConfiguration";
+  public static final String ADMISSION_STATUS_PATH = VERSION_PATH + PATH_SEPARATOR + "AdmissionStatus";
   public static final String FRAMEWORK_ROOT_PATH = VERSION_PATH + PATH_SEPARATOR + "Frameworks";
+  public static final String DELETE_FRAMEWORKS_PATH = VERSION_PATH + PATH_SEPARATOR + "DeleteFrameworks";
   public static final String FRAMEWORK_PATH = FRAMEWORK_ROOT_PATH + PATH_SEPARATOR + FRAMEWORK_NAME_PATH_PARAM_PLACEMENT;
   public static final String AGGREGATED_FRAMEWORK_STATUS_PATH = FRAMEWORK_PATH + PATH_SEPARATOR + "AggregatedFrameworkStatus";
   public static final String FRAMEWORK_STATUS_PATH = FRAMEWORK_PATH + PATH_SEPARATOR + "FrameworkStatus";
@@ -51,11 +53,22 @@ public class WebStructure {
   public static final String APPLICATION_PROGRESS_PATH = FRAMEWORK_PATH + PATH_SEPARATOR + "ApplicationProgress";
   public static final String AGGREGATED_FRAMEWORK_REQUEST_PATH = FRAMEWORK_PATH + PATH_SEPARATOR + "AggregatedFrameworkRequest";
   public static final String FRAMEWORK_REQUEST_PATH = FRAMEWORK_PATH + PATH_SEPARATOR + "FrameworkRequest";
+  public static final String WATCH_PATH = VERSION_PATH + PATH_SEPARATOR + "Watch";
   public static final String LOG_ROOT_PATH = VERSION_PATH + PATH_SEPARATOR + "Logs";
   public static final String LOG_PATH = LOG_ROOT_PATH + PATH_SEPARATOR + LOG_NAME_PATH_PARAM_PLACEMENT;
 
   public static final String REQUEST_PARAM_LAUNCH_CLIENT_TYPE = WebCommon.REQUEST_HEADER_LAUNCH_CLIENT_TYPE;
   public static final String REQUEST_PARAM_USER_NAME = WebCommon.REQUEST_HEADER_USER_NAME;
+  public static final String REQUEST_PARAM_QUEUE = "Queue";
+  // Comma separated FrameworkStates
+  public static final String REQUEST_PARAM_FRAMEWORK_STATE = "FrameworkState";
+  public static final String REQUEST_PARAM_MIN_FIRST_REQUEST_TIMESTAMP = "MinFirstRequestTimestamp";
+  public static final String REQUEST_PARAM_MAX_FIRST_REQUEST_TIMESTAMP = "MaxFirstRequestTimestamp";
+  public static final String REQUEST_PARAM_LIMIT = "Limit";
+  public static final String REQUEST_PARAM_CURSOR = "Cursor";
+  // Comma separated SummarizedFrameworkInfo field names
+  public static final String REQUEST_PARAM_FIELDS = "Fields";
+  public static final String REQUEST_PARAM_TIMEOUT_SEC = "TimeoutSec";
 
   public static String getNodePath(String parentNodePath, String nodeName) {
     return (StringUtils.stripEnd(parentNodePath, PATH_SEPARATOR) +
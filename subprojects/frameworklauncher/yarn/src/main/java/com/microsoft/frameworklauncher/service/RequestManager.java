@@ -22,11 +22,16 @@
 import com.microsoft.frameworklauncher.common.model.FrameworkRequest;
 import com.microsoft.frameworklauncher.common.model.LauncherConfiguration;
 import com.microsoft.frameworklauncher.common.service.AbstractService;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
+import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperRequestWatcher;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 import org.apache.zookeeper.KeeperException;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 // Manage the CURD to ZK Request
@@ -47,7 +52,26 @@ public class RequestManager extends AbstractService {  // THREAD SAFE
    */
   // Service only need to retrieve AllFrameworkRequests
   // FrameworkName -> FrameworkRequest
+  // It is replaced by each changed pull, and updated in place by the watched changes,
+  // so it is backed by a concurrent map for the readers in other Threads.
   private volatile Map<String, FrameworkRequest> frameworkRequests = null;
+  // The writable backing map of frameworkRequests, only used in the RequestManager Thread
+  private Map<String, FrameworkRequest> writableFrameworkRequests = null;
+
+  // Only used if serviceRequestWatchEnable
+  private ZookeeperRequestWatcher requestWatcher;
+  private long lastFullPullTimestamp = 0;
+
+  /**
+   * REGION Counters
+   */
+  // Only updated in the RequestManager Thread
+  private long requestWatchEventCount = 0;
+  private long frameworkReReadCount = 0;
+  private long fullPullCount = 0;
+  // The latency from a Request change is detected to it is notified to Service
+  private long lastRequestStalenessMs = 0;
+  private long maxRequestStalenessMs = 0;
 
 
   /**
@@ -73,7 +97,18 @@ protected Boolean handleException(Exception e) {
     return false;
   }
 
-  // No need to initialize for RequestManager
+  @Override
+  protected void initialize() throws Exception {
+    super.initialize();
+
+    if (conf.getServiceRequestWatchEnable()) {
+      // The initial changes always require resync, i.e. all watches are set before pullRequest,
+      // so that no change will be missed after pullRequest.
+      requestWatcher = zkStore.newRequestWatcher();
+      requestWatcher.start();
+    }
+  }
+
   // No need to recover for RequestManager
   // No need to stop ongoing Thread, since zkStore is Atomic
   @Override
@@ -83,9 +118,13 @@ protected void run() throws Exception {
     new Thread(() -> {
       while (true) {
         try {
-          pullRequest();
+          if (requestWatcher == null) {
+            pullRequest();
 
-          Thread.sleep(conf.getServiceRequestPullIntervalSec() * 1000);
+            Thread.sleep(conf.getServiceRequestPullIntervalSec() * 1000);
+          } else {
+            watchRequest(conf.getServiceRequestPullIntervalSec() * 1000);
+          }
         } catch (Exception e) {
           // Directly throw TransientException to Service, since it may not be recovered or make progress any more
           handleException(e);
@@ -102,6 +141,8 @@ private void pullRequest() throws Exception {
     try {
       LOGGER.logDebug("Pulling AllFrameworkRequests");
 
+      lastFullPullTimestamp = System.currentTimeMillis();
+      fullPullCount++;
       newFrameworkRequests = zkStore.getAllFrameworkRequests();
 
       LOGGER.logDebug("Pulled AllFrameworkRequests");
@@ -115,8 +156,97 @@ private void pullRequest() throws Exception {
     updateFrameworkRequests(newFrameworkRequests);
   }
 
+  // Apply the watched Request changes until durationMs elapsed
+  // ONLY package-private for testing
+  void watchRequest(long durationMs) throws Exception {
+    long deadline = System.currentTimeMillis() + durationMs;
+    long remainingMs;
+    while ((remainingMs = deadline - System.currentTimeMillis()) > 0) {
+      ZookeeperRequestWatcher.RequestChanges changes = requestWatcher.takeChanges(remainingMs);
+      if (changes != null) {
+        applyRequestChanges(changes);
+      }
+
+      if (System.currentTimeMillis() - lastFullPullTimestamp >=
+          conf.getServiceRequestFullPullIntervalSec() * 1000L) {
+        pullRequest();
+      }
+    }
+
+    // Only the changed Frameworks are driven by the changes, so periodically retry all the
+    // FRAMEWORK_WAITING Frameworks, as the pulled Requests drive them each time.
+    if (frameworkRequests != null) {
+      service.onFrameworkRequestsRecheckRequired();
+    }
+
+    LOGGER.logInfo("RequestWatchCounters: " +
+            "WatchEvents: [%s], FrameworkReReads: [%s], FullPulls: [%s], " +
+            "LastStalenessMs: [%s], MaxStalenessMs: [%s]",
+        requestWatchEventCount, frameworkReReadCount, fullPullCount,
+        lastRequestStalenessMs, maxRequestStalenessMs);
+  }
+
+  private void applyRequestChanges(ZookeeperRequestWatcher.RequestChanges changes) throws Exception {
+    requestWatchEventCount += changes.getEventCount();
+
+    if (changes.isResyncRequired() || frameworkRequests == null) {
+      pullRequest();
+    } else {
+      Set<String> changedFrameworkNames = changes.getChangedFrameworkNames();
+      if (!changedFrameworkNames.isEmpty()) {
+        LOGGER.logDebug("Re-reading changed FrameworkRequests: %s", changedFrameworkNames);
+
+        // Deleted Frameworks are not contained in changedFrameworkRequests
+        Map<String, FrameworkRequest> changedFrameworkRequests =
+            zkStore.getFrameworkRequests(changedFrameworkNames);
+        frameworkReReadCount += changedFrameworkNames.size();
+
+        updateFrameworkRequests(changedFrameworkNames, changedFrameworkRequests);
+      }
+    }
+
+    if (changes.getFirstEventTimestamp() != Long.MAX_VALUE) {
+      lastRequestStalenessMs = System.currentTimeMillis() - changes.getFirstEventTimestamp();
+      maxRequestStalenessMs = Math.max(maxRequestStalenessMs, lastRequestStalenessMs);
+    }
+  }
+
+  // Only send the really changed Frameworks to Service
+  // Only the changed Frameworks are compared and updated in place, so the cost does not
+  // depend on the number of all Frameworks.
+  private void updateFrameworkRequests(
+      Set<String> changedFrameworkNames, Map<String, FrameworkRequest> changedFrameworkRequests) {
+    Set<String> updatedFrameworkNames = new HashSet<>();
+    for (String frameworkName : changedFrameworkNames) {
+      FrameworkRequest oldFrameworkRequest = frameworkRequests.get(frameworkName);
+      FrameworkRequest newFrameworkRequest = changedFrameworkRequests.get(frameworkName);
+      if (ModelUtils.deepEquals(oldFrameworkRequest, newFrameworkRequest)) {
+        continue;
+      }
+
+      // Update
+      updatedFrameworkNames.add(frameworkName);
+      if (newFrameworkRequest == null) {
+        writableFrameworkRequests.remove(frameworkName);
+      } else {
+        writableFrameworkRequests.put(frameworkName, newFrameworkRequest);
+      }
+    }
+
+    if (updatedFrameworkNames.isEmpty()) {
+      return;
+    }
+
+    // The Service handles it later in its queue, while the frameworkRequests may be updated
+    // in place again, so a shallow copy is sent as the Request snapshot
+    Map<String, FrameworkRequest> frameworkRequestsSnapshot =
+        CommonExts.asReadOnly(new HashMap<>(writableFrameworkRequests));
+    service.onFrameworkRequestsChanged(frameworkRequestsSnapshot, updatedFrameworkNames);
+  }
+
   private void updateFrameworkRequests(Map<String, FrameworkRequest> newFrameworkRequests) {
-    if (YamlUtils.deepEquals(frameworkRequests, newFrameworkRequests)) {
+    // deepEquals stops at the first difference, so the changed Requests are detected early
+    if (ModelUtils.deepEquals(frameworkRequests, newFrameworkRequests)) {
       return;
     }
 
@@ -124,11 +254,14 @@ private void updateFrameworkRequests(Map<String, FrameworkRequest> newFrameworkR
     Map<String, FrameworkRequest> oldFrameworkRequests = frameworkRequests;
 
     // Update
-    frameworkRequests = CommonExts.asReadOnly(newFrameworkRequests);
+    writableFrameworkRequests = new ConcurrentHashMap<>(newFrameworkRequests);
+    frameworkRequests = CommonExts.asReadOnly(writableFrameworkRequests);
 
+    // The pulled newFrameworkRequests is never modified, so it is sent as the Request snapshot
+    Map<String, FrameworkRequest> frameworkRequestsSnapshot = CommonExts.asReadOnly(newFrameworkRequests);
     if (oldFrameworkRequests == null) {
       // For the first time, send all Request to AM
-      service.onFrameworkRequestsUpdated(frameworkRequests);
+      service.onFrameworkRequestsUpdated(frameworkRequestsSnapshot);
       {
         // Only start them for the first time
         service.onStartRMResyncHandler();
@@ -138,7 +271,7 @@ private void updateFrameworkRequests(Map<String, FrameworkRequest> newFrameworkR
       }
     } else {
       // For the other times, only send changed Request to AM
-      service.onFrameworkRequestsUpdated(frameworkRequests);
+      service.onFrameworkRequestsUpdated(frameworkRequestsSnapshot);
     }
   }
 
@@ -33,13 +33,16 @@
 import com.microsoft.frameworklauncher.common.service.StopStatus;
 import com.microsoft.frameworklauncher.common.service.SystemTaskQueue;
 import com.microsoft.frameworklauncher.common.utils.CommonUtils;
+import com.microsoft.frameworklauncher.common.utils.CompressionOptions;
 import com.microsoft.frameworklauncher.common.utils.HadoopUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import com.microsoft.frameworklauncher.common.utils.RetryUtils;
 import com.microsoft.frameworklauncher.common.utils.YamlUtils;
 import com.microsoft.frameworklauncher.common.validation.CommonValidation;
 import com.microsoft.frameworklauncher.common.web.WebCommon;
 import com.microsoft.frameworklauncher.hdfsstore.HdfsStore;
 import com.microsoft.frameworklauncher.webserver.WebServer;
+import com.microsoft.frameworklauncher.zookeeperstore.SerializationCodecs;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.io.DataOutputBuffer;
@@ -125,12 +128,14 @@ protected Boolean handleException(Exception e) {
   @Override
   protected void initialize() throws Exception {
     super.initialize();
-    transitionFrameworkStateQueue = new SystemTaskQueue(this::handleException);
 
     // Initialize Configurations
     conf = YamlUtils.toObject(GlobalConstants.LAUNCHER_CONFIG_FILE, LauncherConfiguration.class);
     CommonValidation.validate(conf);
 
+    transitionFrameworkStateQueue = new SystemTaskQueue(
+        this::handleException, conf.getServiceTransitionFrameworkStateWorkerNumber());
+
     if (new File(GlobalConstants.USER_CONTAINER_EXIT_SPEC_FILE).exists()) {
       userContainerExitSpec = FrameworkExitSpec.initialize(
           YamlUtils.toObject(GlobalConstants.USER_CONTAINER_EXIT_SPEC_FILE, UserContainerExitSpec.class));
@@ -143,6 +148,11 @@ protected void initialize() throws Exception {
 
     // Initialize Launcher Store
     zkStore = new ZookeeperStore(conf.getZkConnectString(), conf.getZkRootDir());
+    zkStore.setSerializationCodec(SerializationCodecs.getCodec(conf.getZkSerializationCodec()));
+    zkStore.setCompressionOptions(new CompressionOptions(
+        conf.getZkCompressionLevel(),
+        CompressionOptions.parseStrategy(conf.getZkCompressionStrategy()),
+        conf.getZkCompressionDictionaryEnabled()));
     hdfsStore = new HdfsStore(conf.getHdfsRootDir());
 
     // Initialize other components
@@ -403,8 +413,10 @@ private void setupApplicationContext(
     applicationContext.setMaxAppAttempts(conf.getAmAttemptMaxCount());
     applicationContext.setAttemptFailuresValidityInterval(conf.getAmAttemptFailuresValidityIntervalSec() * 1000);
 
-    // Queue launchApplication to avoid race condition
-    transitionFrameworkStateQueue.queueSystemTask(() -> {
+    // Queue launchApplication to avoid race condition.
+    // It only touches this Framework, so it is keyed by FrameworkName to not block other Frameworks
+    // during the slow submitApplication.
+    transitionFrameworkStateQueue.queueSystemTask(frameworkStatus.getFrameworkName(), () -> {
       launchApplication(frameworkStatus, applicationContext);
     });
   }
@@ -414,7 +426,9 @@ private void setupApplicationContext(
    * REGION FrameworkStateMachine
    */
   // Method which will cause transitionFrameworkState
-  // Note they should be called in single thread, such as from transitionFrameworkStateQueue
+  // Note they should be called from transitionFrameworkStateQueue, which serializes the calls
+  // for the same FrameworkName, i.e. the SystemTasks keyed by the FrameworkName, and the Global
+  // SystemTasks are barriers which exclude all keyed SystemTasks.
 
   // Should be called after StatusManager recover completed
   private void reviseCorruptedFrameworkStates() throws Exception {
@@ -674,7 +688,7 @@ private void createApplication(FrameworkStatus frameworkStatus, boolean isPlaceh
 
     if (!isPlaceholderApplication) {
       // Concurrently setupApplicationContext
-      FrameworkStatus frameworkStatusSnapshot = YamlUtils.deepCopy(frameworkStatus, FrameworkStatus.class);
+      FrameworkStatus frameworkStatusSnapshot = ModelUtils.deepCopy(frameworkStatus, FrameworkStatus.class);
       new Thread(() -> {
         try {
           // Always Setup a brand new ApplicationContext to tolerate ApplicationContext corruption,
@@ -737,7 +751,7 @@ private void attemptToRetry(FrameworkStatus frameworkStatus) throws Exception {
     Integer exitCode = frameworkStatus.getApplicationExitCode();
     ExitType exitType = frameworkStatus.getApplicationExitType();
     Integer retriedCount = frameworkStatus.getFrameworkRetryPolicyState().getRetriedCount();
-    RetryPolicyState newRetryPolicyState = YamlUtils.deepCopy(frameworkStatus.getFrameworkRetryPolicyState(), RetryPolicyState.class);
+    RetryPolicyState newRetryPolicyState = ModelUtils.deepCopy(frameworkStatus.getFrameworkRetryPolicyState(), RetryPolicyState.class);
     Integer transientConflictRetriedCount = frameworkStatus.getFrameworkRetryPolicyState().getTransientConflictRetriedCount();
     String logPrefix = String.format("[%s]: attemptToRetry: ", frameworkName);
 
@@ -779,8 +793,8 @@ private void attemptToRetry(FrameworkStatus frameworkStatus) throws Exception {
             "Will retryFramework with new Application after %ss. Reason: " +
             fancyRetryPolicyLogSuffix, delaySec);
 
-        FrameworkStatus frameworkStatusSnapshot = YamlUtils.deepCopy(frameworkStatus, FrameworkStatus.class);
-        transitionFrameworkStateQueue.queueSystemTaskDelayed(() -> {
+        FrameworkStatus frameworkStatusSnapshot = ModelUtils.deepCopy(frameworkStatus, FrameworkStatus.class);
+        transitionFrameworkStateQueue.queueSystemTaskDelayed(frameworkName, () -> {
           retryFramework(frameworkStatusSnapshot, newRetryPolicyState);
         }, delaySec * 1000);
         return;
@@ -964,6 +978,37 @@ public void onFrameworkRequestsUpdated(Map<String, FrameworkRequest> frameworkRe
     });
   }
 
+  // Callbacks from RequestManager
+  // Only the Frameworks in changedFrameworkNames are added, updated or deleted in frameworkRequests,
+  // so only them need to be updated into Status and created Application.
+  public void onFrameworkRequestsChanged(
+      Map<String, FrameworkRequest> frameworkRequests, Set<String> changedFrameworkNames) {
+    LOGGER.logInfo("onFrameworkRequestsChanged: FrameworkRequests: [%s], ChangedFrameworkNames: %s",
+        frameworkRequests.size(), changedFrameworkNames);
+    transitionFrameworkStateQueue.queueSystemTask(() -> {
+      statusManager.updateFrameworkRequests(frameworkRequests, changedFrameworkNames);
+      for (String frameworkName : changedFrameworkNames) {
+        if (statusManager.containsFramework(frameworkName)) {
+          FrameworkStatus frameworkStatus = statusManager.getFrameworkStatus(frameworkName);
+          if (frameworkStatus.getFrameworkState() == FrameworkState.FRAMEWORK_WAITING) {
+            createApplication(frameworkStatus, false);
+          }
+        }
+      }
+    });
+  }
+
+  // Callbacks from RequestManager
+  // onFrameworkRequestsChanged only creates Application for the changed Frameworks, so the
+  // FRAMEWORK_WAITING Frameworks which failed or were skipped to create Application are
+  // periodically retried here, instead of waiting for the next full pull.
+  public void onFrameworkRequestsRecheckRequired() {
+    LOGGER.logDebug("onFrameworkRequestsRecheckRequired");
+    transitionFrameworkStateQueue.queueSystemTask(() -> {
+      createApplication();
+    });
+  }
+
   // Cleanup Framework level external resource [HDFS, RM] before RemoveFramework.
   // onFrameworkToRemove is already in queue, so queue it again will disorder
   // the result of onFrameworkRequestsUpdated and other SystemTasks.
@@ -25,7 +25,7 @@
 import com.microsoft.frameworklauncher.common.model.*;
 import com.microsoft.frameworklauncher.common.service.AbstractService;
 import com.microsoft.frameworklauncher.common.utils.DnsUtils;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import com.microsoft.frameworklauncher.common.web.WebCommon;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 import org.apache.hadoop.security.UserGroupInformation;
@@ -175,7 +175,7 @@ protected void recover() throws Exception {
    * REGION InternalUtils
    */
   private void updateLauncherStatus(LauncherStatus newLauncherStatus) throws Exception {
-    if (YamlUtils.deepEquals(launcherStatus, newLauncherStatus)) {
+    if (ModelUtils.deepEquals(launcherStatus, newLauncherStatus)) {
       return;
     }
 
@@ -376,7 +376,7 @@ public synchronized boolean containsFramework(FrameworkStatus frameworkStatus) {
     }
 
     FrameworkStatus thisFrameworkStatus = getFrameworkStatus(frameworkName);
-    if (!YamlUtils.deepEquals(thisFrameworkStatus, frameworkStatus)) {
+    if (!ModelUtils.deepEquals(thisFrameworkStatus, frameworkStatus)) {
       LOGGER.logSplittedLines(Level.DEBUG,
           "FrameworkStatus not found in Status. FrameworkStatus:\n%s\nCurrent FrameworkStatus in Status:\n%s",
           WebCommon.toJson(frameworkStatus), WebCommon.toJson(thisFrameworkStatus));
@@ -563,43 +563,66 @@ public synchronized void transitionFrameworkState(
   public synchronized void updateFrameworkRequests(Map<String, FrameworkRequest> frameworkRequests) throws Exception {
     // Add or Update Framework
     for (FrameworkRequest frameworkRequest : frameworkRequests.values()) {
-      String frameworkName = frameworkRequest.getFrameworkName();
-      Integer frameworkVersion = frameworkRequest.getFrameworkDescriptor().getVersion();
-
-      String logPrefix = String.format(
-          "[%s][%s]: updateFrameworkRequests: ",
-          frameworkName, frameworkVersion);
-
-      // Initialize new Framework: Add or NonRolling Upgrade Framework
-      if (!frameworkStatuses.containsKey(frameworkName)) {
-        LOGGER.logInfo(logPrefix + "Add new Framework");
-        addFramework(frameworkRequest);
-      } else {
-        FrameworkStatus frameworkStatus = frameworkStatuses.get(frameworkName);
-        if (!frameworkStatus.getFrameworkVersion().equals(frameworkVersion)) {
-          LOGGER.logInfo(logPrefix + "NonRolling Upgrade Framework");
-          upgradeFramework(frameworkRequest);
-        }
-      }
-
-      // Update Framework according to specific FrameworkRequest requirements
-      updateFramework(frameworkRequest);
+      updateFrameworkRequest(frameworkRequest);
     }
 
     // Remove Framework
     for (FrameworkStatus frameworkStatus : new ArrayList<>(frameworkStatuses.values())) {
       String frameworkName = frameworkStatus.getFrameworkName();
-      Integer frameworkVersion = frameworkStatus.getFrameworkVersion();
+      if (!frameworkRequests.containsKey(frameworkName)) {
+        removeFrameworkRequest(frameworkName);
+      }
+    }
+  }
 
-      String logPrefix = String.format(
-          "[%s][%s]: updateFrameworkRequests: ",
-          frameworkName, frameworkVersion);
+  // Only the Frameworks in changedFrameworkNames are updated, the others in
+  // frameworkRequests are considered as unchanged since last update.
+  public synchronized void updateFrameworkRequests(
+      Map<String, FrameworkRequest> frameworkRequests, Set<String> changedFrameworkNames) throws Exception {
+    for (String frameworkName : changedFrameworkNames) {
+      FrameworkRequest frameworkRequest = frameworkRequests.get(frameworkName);
+      if (frameworkRequest != null) {
+        updateFrameworkRequest(frameworkRequest);
+      } else if (frameworkStatuses.containsKey(frameworkName)) {
+        removeFrameworkRequest(frameworkName);
+      }
+    }
+  }
 
-      if (!frameworkRequests.containsKey(frameworkName)) {
-        LOGGER.logInfo(logPrefix + "Remove Framework permanently");
-        removeFramework(frameworkName, false);
+  private void updateFrameworkRequest(FrameworkRequest frameworkRequest) throws Exception {
+    String frameworkName = frameworkRequest.getFrameworkName();
+    Integer frameworkVersion = frameworkRequest.getFrameworkDescriptor().getVersion();
+
+    String logPrefix = String.format(
+        "[%s][%s]: updateFrameworkRequests: ",
+        frameworkName, frameworkVersion);
+
+    // Initialize new Framework: Add or NonRolling Upgrade Framework
+    if (!frameworkStatuses.containsKey(frameworkName)) {
+      LOGGER.logInfo(logPrefix + "Add new Framework");
+      addFramework(frameworkRequest);
+    } else {
+      FrameworkStatus frameworkStatus = frameworkStatuses.get(frameworkName);
+      if (!frameworkStatus.getFrameworkVersion().equals(frameworkVersion)) {
+        LOGGER.logInfo(logPrefix + "NonRolling Upgrade Framework");
+        upgradeFramework(frameworkRequest);
       }
     }
+
+    // Update Framework according to specific FrameworkRequest requirements
+    updateFramework(frameworkRequest);
+  }
+
+  private void removeFrameworkRequest(String frameworkName) throws Exception {
+    FrameworkStatus frameworkStatus = frameworkStatuses.get(frameworkName);
+    Integer frameworkVersion = frameworkStatus.getFrameworkVersion();
+
+    String logPrefix = String.format(
+        "[%s][%s]: updateFrameworkRequests: ",
+        frameworkName, frameworkVersion);
+
+    LOGGER.logInfo(logPrefix + "Remove Framework permanently");
+    removeFramework(frameworkName, false);
   }
 
   public synchronized void updateApplicationStatus(String frameworkName, ApplicationReport applicationReport) throws Exception {
@@ -0,0 +1,234 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import com.microsoft.frameworklauncher.common.exceptions.BadRequestException;
+import com.microsoft.frameworklauncher.common.exceptions.ThrottledRequestException;
+import com.microsoft.frameworklauncher.common.model.AdmissionCounter;
+import com.microsoft.frameworklauncher.common.model.AdmissionLimit;
+import com.microsoft.frameworklauncher.common.model.AdmissionStatus;
+import com.microsoft.frameworklauncher.common.model.LaunchClientType;
+import com.microsoft.frameworklauncher.common.model.LauncherConfiguration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Admit the requests by the request rate limits of their UserName, LaunchClientType
+// and Queue, so that a runaway client cannot starve the others and ZK.
+// A request consumes a token from all of its token buckets, and it is throttled with
+// a Retry-After once any of them is empty.
+// Each name has its own token bucket, including the ones which fall back to the default
+// AdmissionLimit, so that a runaway unconfigured client cannot throttle the other ones.
+// The UserName is provided by the client and not verified, so the token buckets of the
+// names which fall back to the default key are kept in a bounded LRU map, and their
+// counters are aggregated into the default key, such as User/*.
+public class AdmissionController { // THREAD SAFE
+  public static final String DEFAULT_ADMISSION_LIMIT_KEY = "*";
+  public static final String USER_ADMISSION_KEY_PREFIX = "User/";
+  public static final String LAUNCH_CLIENT_TYPE_ADMISSION_KEY_PREFIX = "LaunchClientType/";
+  public static final String QUEUE_ADMISSION_KEY_PREFIX = "Queue/";
+
+  private final LauncherConfiguration conf;
+  // AdmissionKey -> TokenBucket, only for the ones with request rate limit.
+  // The AdmissionKey is the one of the name, such as User/alice.
+  // For the names with their own AdmissionLimit
+  private final ConcurrentMap<String, TokenBucket> tokenBuckets = new ConcurrentHashMap<>();
+  // For the names without their own AdmissionLimit, only the recently used ones are kept
+  private final Map<String, TokenBucket> defaultTokenBuckets;
+
+
+  /**
+   * REGION Counters
+   */
+  // AdmissionKey -> Count, only for the ones with AdmissionLimit, and the AdmissionKey of
+  // a name without its own AdmissionLimit is the default one, such as User/*
+  private final ConcurrentMap<String, LongAdder> admittedRequestCounts = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> throttledRequestCounts = new ConcurrentHashMap<>();
+
+  public AdmissionController(LauncherConfiguration conf) {
+    this.conf = conf;
+    int maxDefaultTokenBucketCount = conf.getWebServerDefaultAdmissionMaxNameCount();
+    this.defaultTokenBuckets = Collections.synchronizedMap(
+        new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+            return size() > maxDefaultTokenBucketCount;
+          }
+        });
+  }
+
+  // Return the AdmissionLimit of the key, or the default one if it is not specified.
+  // Return null if there is no limit.
+  public static AdmissionLimit getAdmissionLimit(Map<String, AdmissionLimit> admissionLimits, String key) {
+    if (admissionLimits == null || key == null) {
+      return null;
+    }
+    AdmissionLimit admissionLimit = admissionLimits.get(key);
+    if (admissionLimit == null) {
+      admissionLimit = admissionLimits.get(DEFAULT_ADMISSION_LIMIT_KEY);
+    }
+    return admissionLimit;
+  }
+
+  // A null userName, launchClientType or queue is not limited
+  public void admit(String userName, LaunchClientType launchClientType, String queue)
+      throws ThrottledRequestException, BadRequestException {
+    admit(launchClientType, Collections.singletonList(userName), Collections.singletonList(queue));
+  }
+
+  // Admit a batch of requests as a whole, the userNames and queues are the ones of each request.
+  // So, each token bucket is charged with the number of requests in it, and the whole batch is
+  // throttled once any of them does not have enough tokens.
+  public void admit(LaunchClientType launchClientType, List<String> userNames, List<String> queues)
+      throws ThrottledRequestException, BadRequestException {
+    // AdmissionKey -> AdmissionLimit, the number of requests in it and its counter AdmissionKey
+    Map<String, AdmissionLimit> admissionLimits = new LinkedHashMap<>();
+    Map<String, Integer> requestCounts = new LinkedHashMap<>();
+    Map<String, String> counterKeys = new HashMap<>();
+    for (String userName : userNames) {
+      addAdmissionKey(admissionLimits, requestCounts, counterKeys, USER_ADMISSION_KEY_PREFIX,
+          conf.getWebServerUserAdmissionLimits(), userName);
+    }
+    for (int i = 0; i < userNames.size(); i++) {
+      addAdmissionKey(admissionLimits, requestCounts, counterKeys, LAUNCH_CLIENT_TYPE_ADMISSION_KEY_PREFIX,
+          conf.getWebServerLaunchClientTypeAdmissionLimits(),
+          (launchClientType == null ? null : launchClientType.toString()));
+    }
+    for (String queue : queues) {
+      addAdmissionKey(admissionLimits, requestCounts, counterKeys, QUEUE_ADMISSION_KEY_PREFIX,
+          conf.getWebServerQueueAdmissionLimits(), queue);
+    }
+
+    Map<TokenBucket, Integer> acquiredTokenBuckets = new HashMap<>();
+    for (Map.Entry<String, AdmissionLimit> admissionLimitKV : admissionLimits.entrySet()) {
+      String admissionKey = admissionLimitKV.getKey();
+      AdmissionLimit admissionLimit = admissionLimitKV.getValue();
+      int requestCount = requestCounts.get(admissionKey);
+      TokenBucket tokenBucket = getTokenBucket(
+          admissionKey, admissionLimit, !admissionKey.equals(counterKeys.get(admissionKey)));
+      if (tokenBucket == null) {
+        continue;
+      }
+
+      if (requestCount > tokenBucket.getBurstCount()) {
+        // It can never be admitted, so it is rejected as a NON_TRANSIENT failure
+        releaseTokens(acquiredTokenBuckets);
+        increaseCounts(throttledRequestCounts, requestCounts, counterKeys);
+        throw new BadRequestException(String.format(
+            "Request Rejected: Since the %s requests of [%s] in the batch exceed its burst count %s, " +
+                "split the batch", requestCount, admissionKey, tokenBucket.getBurstCount()));
+      }
+
+      long waitNanos = tokenBucket.tryAcquire(System.nanoTime(), requestCount);
+      if (waitNanos > 0) {
+        // Give back the tokens acquired from the other buckets, since the request is not admitted
+        releaseTokens(acquiredTokenBuckets);
+        increaseCounts(throttledRequestCounts, requestCounts, counterKeys);
+
+        long retryAfterSec = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        throw new ThrottledRequestException(String.format(
+            "Request Rejected: Since the request rate of [%s] exceeds its limit %s/s, retry after %ss",
+            admissionKey, admissionLimit.getRequestRatePerSec(), retryAfterSec), retryAfterSec);
+      }
+      acquiredTokenBuckets.put(tokenBucket, requestCount);
+    }
+
+    increaseCounts(admittedRequestCounts, requestCounts, counterKeys);
+  }
+
+  // The taskNumbers are the current Total TaskNumbers of the AdmissionKeys
+  public AdmissionStatus getAdmissionStatus(Map<String, Integer> taskNumbers) {
+    Map<String, AdmissionCounter> admissionCounters = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> countKV : admittedRequestCounts.entrySet()) {
+      getAdmissionCounter(admissionCounters, countKV.getKey()).setAdmittedRequestCount(countKV.getValue().sum());
+    }
+    for (Map.Entry<String, LongAdder> countKV : throttledRequestCounts.entrySet()) {
+      getAdmissionCounter(admissionCounters, countKV.getKey()).setThrottledRequestCount(countKV.getValue().sum());
+    }
+    for (Map.Entry<String, Integer> taskNumberKV : taskNumbers.entrySet()) {
+      getAdmissionCounter(admissionCounters, taskNumberKV.getKey()).setTotalTaskNumber(taskNumberKV.getValue());
+    }
+
+    AdmissionStatus admissionStatus = new AdmissionStatus();
+    admissionStatus.setAdmissionCounters(admissionCounters);
+    return admissionStatus;
+  }
+
+  // Add a request to the AdmissionKey of the name, its counter AdmissionKey is the default key
+  // if it does not have its own AdmissionLimit, and nothing is added if it has no limit.
+  private static void addAdmissionKey(
+      Map<String, AdmissionLimit> admissionLimits, Map<String, Integer> requestCounts,
+      Map<String, String> counterKeys, String admissionKeyPrefix,
+      Map<String, AdmissionLimit> limits, String name) {
+    AdmissionLimit admissionLimit = getAdmissionLimit(limits, name);
+    if (admissionLimit == null) {
+      return;
+    }
+    String admissionKey = admissionKeyPrefix + name;
+    admissionLimits.put(admissionKey, admissionLimit);
+    requestCounts.merge(admissionKey, 1, Integer::sum);
+    counterKeys.put(admissionKey, admissionKeyPrefix +
+        (limits.containsKey(name) ? name : DEFAULT_ADMISSION_LIMIT_KEY));
+  }
+
+  private static void releaseTokens(Map<TokenBucket, Integer> acquiredTokenBuckets) {
+    for (Map.Entry<TokenBucket, Integer> acquiredTokenBucketKV : acquiredTokenBuckets.entrySet()) {
+      acquiredTokenBucketKV.getKey().release(acquiredTokenBucketKV.getValue());
+    }
+  }
+
+  // An evicted default TokenBucket is created again with full tokens, so the max number of
+  // them should be larger than the number of the active names.
+  private TokenBucket getTokenBucket(String admissionKey, AdmissionLimit admissionLimit, boolean isDefault) {
+    if (admissionLimit == null || admissionLimit.getRequestRatePerSec() == null) {
+      return null;
+    }
+    return (isDefault ? defaultTokenBuckets : tokenBuckets).computeIfAbsent(admissionKey, key -> new TokenBucket(
+        admissionLimit.getRequestRatePerSec(),
+        admissionLimit.getRequestBurstCount() != null ?
+            admissionLimit.getRequestBurstCount() : admissionLimit.getRequestRatePerSec()));
+  }
+
+  private static void increaseCounts(
+      ConcurrentMap<String, LongAdder> counts, Map<String, Integer> requestCounts,
+      Map<String, String> counterKeys) {
+    for (Map.Entry<String, Integer> requestCountKV : requestCounts.entrySet()) {
+      counts.computeIfAbsent(counterKeys.get(requestCountKV.getKey()), key -> new LongAdder())
+          .add(requestCountKV.getValue());
+    }
+  }
+
+  private static AdmissionCounter getAdmissionCounter(
+      Map<String, AdmissionCounter> admissionCounters, String admissionKey) {
+    return admissionCounters.computeIfAbsent(admissionKey, key -> {
+      AdmissionCounter admissionCounter = new AdmissionCounter();
+      admissionCounter.setAdmittedRequestCount(0L);
+      admissionCounter.setThrottledRequestCount(0L);
+      admissionCounter.setTotalTaskNumber(0);
+      return admissionCounter;
+    });
+  }
+}
@@ -0,0 +1,170 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import com.microsoft.frameworklauncher.common.exceptions.BadRequestException;
+import com.microsoft.frameworklauncher.common.model.FrameworkChange;
+import com.microsoft.frameworklauncher.common.model.FrameworkChanges;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// A bounded feed of the FrameworkChanges detected by the StatusManager, so that the
+// clients can long-poll the FrameworkChanges after a Cursor, instead of polling
+// the Status of each Framework.
+// Each FrameworkChange gets an increasing version in the feed, and the Cursor is
+// the version of the last FrameworkChange returned to the client.
+public class FrameworkChangeFeed { // THREAD SAFE
+  // The Cursors of different WebServer processes should never match, since the
+  // versions are only increased within a process.
+  private final String epoch = Long.toHexString(System.currentTimeMillis());
+  // The max number of FrameworkChanges retained, the older ones are discarded
+  private final int maxChangeCount;
+  // The max number of the clients waiting for new FrameworkChanges, the other
+  // clients return immediately instead of holding the WebServer threads.
+  private final int maxWaiterCount;
+
+  // All below are guarded by this
+  private final ArrayDeque<VersionedChange> changes = new ArrayDeque<>();
+  private long lastVersion = 0;
+  private int waiterCount = 0;
+
+  private static class VersionedChange {
+    private final long version;
+    private final FrameworkChange change;
+
+    private VersionedChange(long version, FrameworkChange change) {
+      this.version = version;
+      this.change = change;
+    }
+  }
+
+  public FrameworkChangeFeed(int maxChangeCount, int maxWaiterCount) {
+    this.maxChangeCount = maxChangeCount;
+    this.maxWaiterCount = maxWaiterCount;
+  }
+
+  public synchronized void append(List<FrameworkChange> newChanges) {
+    if (newChanges.isEmpty()) {
+      return;
+    }
+
+    for (FrameworkChange change : newChanges) {
+      changes.addLast(new VersionedChange(++lastVersion, change));
+    }
+    while (changes.size() > maxChangeCount) {
+      changes.removeFirst();
+    }
+    notifyAll();
+  }
+
+  // Get the FrameworkChanges after the cursor, and if there is no such change,
+  // wait until a new change is appended or the timeoutMs elapsed.
+  // A null cursor means to start watching from now, so it returns immediately.
+  public synchronized FrameworkChanges getChanges(
+      String cursor, int maxReturnedChangeCount, long timeoutMs)
+      throws BadRequestException, InterruptedException {
+    if (cursor == null) {
+      return newFrameworkChanges(new ArrayList<>(), lastVersion, false);
+    }
+
+    Long cursorVersion = parseCursor(cursor);
+    long oldestVersion = lastVersion - changes.size() + 1;
+    if (cursorVersion == null || cursorVersion > lastVersion || cursorVersion + 1 < oldestVersion) {
+      // The cursor is from another WebServer process, or its next changes are already discarded
+      return newFrameworkChanges(new ArrayList<>(), lastVersion, true);
+    }
+
+    if (lastVersion == cursorVersion && timeoutMs > 0 && waiterCount < maxWaiterCount) {
+      waiterCount++;
+      try {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remainingMs = timeoutMs;
+        while (lastVersion == cursorVersion && remainingMs > 0) {
+          wait(remainingMs);
+          remainingMs = deadline - System.currentTimeMillis();
+        }
+      } finally {
+        waiterCount--;
+      }
+
+      // The changes may be discarded during waiting
+      if (cursorVersion + 1 < lastVersion - changes.size() + 1) {
+        return newFrameworkChanges(new ArrayList<>(), lastVersion, true);
+      }
+    }
+
+    // Walk back from the newest change, since the client is usually watching the latest changes
+    List<VersionedChange> newerChanges = new ArrayList<>();
+    Iterator<VersionedChange> iterator = changes.descendingIterator();
+    while (iterator.hasNext()) {
+      VersionedChange versionedChange = iterator.next();
+      if (versionedChange.version <= cursorVersion) {
+        break;
+      }
+      newerChanges.add(versionedChange);
+    }
+
+    // Only return the oldest maxReturnedChangeCount changes, and the client will get the others next time
+    long nextVersion = cursorVersion;
+    Map<String, FrameworkChange> latestChanges = new LinkedHashMap<>();
+    for (int i = newerChanges.size() - 1; i >= 0 && nextVersion - cursorVersion < maxReturnedChangeCount; i--) {
+      VersionedChange versionedChange = newerChanges.get(i);
+      latestChanges.remove(versionedChange.change.getFrameworkName());
+      latestChanges.put(versionedChange.change.getFrameworkName(), versionedChange.change);
+      nextVersion = versionedChange.version;
+    }
+
+    return newFrameworkChanges(new ArrayList<>(latestChanges.values()), nextVersion, false);
+  }
+
+  public synchronized long getLastVersion() {
+    return lastVersion;
+  }
+
+  private FrameworkChanges newFrameworkChanges(
+      List<FrameworkChange> frameworkChanges, long nextVersion, boolean resyncRequired) {
+    FrameworkChanges returnedChanges = new FrameworkChanges();
+    returnedChanges.setFrameworkChanges(frameworkChanges);
+    returnedChanges.setNextCursor(epoch + "-" + nextVersion);
+    returnedChanges.setResyncRequired(resyncRequired);
+    return returnedChanges;
+  }
+
+  // Return null if the cursor is from another WebServer process
+  private Long parseCursor(String cursor) throws BadRequestException {
+    int separatorIndex = cursor.lastIndexOf('-');
+    try {
+      if (separatorIndex < 0) {
+        throw new IllegalArgumentException("Separator not found");
+      }
+      long version = Long.parseLong(cursor.substring(separatorIndex + 1));
+      if (version < 0) {
+        throw new IllegalArgumentException("Negative version");
+      }
+      return (epoch.equals(cursor.substring(0, separatorIndex)) ? version : null);
+    } catch (Exception e) {
+      throw new BadRequestException(String.format(
+          "Failed to ParseCursor: [%s]", cursor), e);
+    }
+  }
+}
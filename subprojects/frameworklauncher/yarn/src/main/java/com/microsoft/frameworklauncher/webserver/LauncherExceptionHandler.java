@@ -90,7 +90,11 @@ public Response toResponse(Exception e) {
         StringUtils.stringifyException(e),
         e.getClass().getName());
 
-    return Response.status(statusCode).entity(exception)
-        .build();
+    Response.ResponseBuilder responseBuilder = Response.status(statusCode).entity(exception);
+    if (e instanceof ThrottledRequestException &&
+        ((ThrottledRequestException) e).getRetryAfterSec() != null) {
+      responseBuilder.header(WebCommon.HEADER_RETRY_AFTER, ((ThrottledRequestException) e).getRetryAfterSec());
+    }
+    return responseBuilder.build();
   }
 }
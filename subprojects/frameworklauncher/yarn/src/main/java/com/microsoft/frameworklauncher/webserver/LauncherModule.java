@@ -21,6 +21,8 @@
 import com.microsoft.frameworklauncher.common.GlobalConstants;
 import com.microsoft.frameworklauncher.common.exceptions.AuthorizationException;
 import com.microsoft.frameworklauncher.common.exceptions.BadRequestException;
+import com.microsoft.frameworklauncher.common.exceptions.NotFoundException;
+import com.microsoft.frameworklauncher.common.exceptions.ThrottledRequestException;
 import com.microsoft.frameworklauncher.common.exts.CommonExts;
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 import com.microsoft.frameworklauncher.common.model.*;
@@ -38,23 +40,48 @@
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 @Path(WebStructure.ROOT_PATH)
 public class LauncherModule {
   private static final DefaultLogger LOGGER = new DefaultLogger(LauncherModule.class);
+  // The ETags of different WebServer processes should never match, since the
+  // Status and Request versions are only increased within a process.
+  private static final String ETAG_EPOCH = Long.toHexString(System.currentTimeMillis());
+  // Small Response is not worth to compress
+  private static final int GZIP_MIN_BYTES = 1024;
+  // SummarizedFrameworkInfo field name -> its getter, for the field projection
+  private static final Map<String, Method> SUMMARIZED_FRAMEWORK_INFO_GETTERS = getSummarizedFrameworkInfoGetters();
+
   private final LauncherConfiguration conf;
   private final StatusManager statusManager;
   private final RequestManager requestManager;
+  private final ResponseCache responseCache;
+  private final AdmissionController admissionController;
 
   @Inject
-  public LauncherModule(LauncherConfiguration conf, StatusManager statusManager, RequestManager requestManager) {
+  public LauncherModule(LauncherConfiguration conf, StatusManager statusManager, RequestManager requestManager,
+      ResponseCache responseCache, AdmissionController admissionController) {
     this.conf = conf;
     this.statusManager = statusManager;
     this.requestManager = requestManager;
+    this.responseCache = responseCache;
+    this.admissionController = admissionController;
   }
 
   private static LaunchClientType getLaunchClientType(
@@ -99,6 +126,111 @@ private static Boolean getBoolean(
     return Boolean.valueOf(booleanStr);
   }
 
+  private static Long getLong(
+      CommonExts.NoExceptionCallable<String> ResolveLong) throws BadRequestException {
+    String longStr = ResolveLong.call();
+    if (longStr == null) {
+      return null;
+    }
+
+    try {
+      return Long.valueOf(longStr);
+    } catch (Exception e) {
+      throw new BadRequestException(String.format(
+          "Failed to ParseLongStr: [%s]", longStr), e);
+    }
+  }
+
+  private static Integer getInteger(
+      CommonExts.NoExceptionCallable<String> ResolveInteger, int minValue) throws BadRequestException {
+    String integerStr = ResolveInteger.call();
+    if (integerStr == null) {
+      return null;
+    }
+
+    Integer integer;
+    try {
+      integer = Integer.valueOf(integerStr);
+    } catch (Exception e) {
+      throw new BadRequestException(String.format(
+          "Failed to ParseIntegerStr: [%s]", integerStr), e);
+    }
+    if (integer < minValue) {
+      throw new BadRequestException(String.format(
+          "Failed to ParseIntegerStr: [%s], it should not be less than %s", integerStr, minValue));
+    }
+
+    return integer;
+  }
+
+  private static Set<String> getCommaSeparatedStrs(
+      CommonExts.NoExceptionCallable<String> ResolveCommaSeparatedStr) {
+    String commaSeparatedStr = ResolveCommaSeparatedStr.call();
+    if (commaSeparatedStr == null) {
+      return null;
+    }
+
+    Set<String> strs = new LinkedHashSet<>();
+    for (String str : commaSeparatedStr.split(",")) {
+      if (!str.trim().isEmpty()) {
+        strs.add(str.trim());
+      }
+    }
+    return strs;
+  }
+
+  private static Set<FrameworkState> getFrameworkStates(
+      CommonExts.NoExceptionCallable<String> ResolveFrameworkStatesStr) throws BadRequestException {
+    Set<String> frameworkStateStrs = getCommaSeparatedStrs(ResolveFrameworkStatesStr);
+    if (frameworkStateStrs == null) {
+      return null;
+    }
+
+    Set<FrameworkState> frameworkStates = new HashSet<>();
+    for (String frameworkStateStr : frameworkStateStrs) {
+      try {
+        frameworkStates.add(FrameworkState.valueOf(frameworkStateStr));
+      } catch (Exception e) {
+        throw new BadRequestException(String.format(
+            "Failed to ParseFrameworkStateStr: [%s]",
+            frameworkStateStr), e);
+      }
+    }
+    return frameworkStates;
+  }
+
+  private static Set<String> getSummarizedFrameworkInfoFields(
+      CommonExts.NoExceptionCallable<String> ResolveFieldsStr) throws BadRequestException {
+    Set<String> fields = getCommaSeparatedStrs(ResolveFieldsStr);
+    if (fields == null) {
+      return null;
+    }
+
+    for (String field : fields) {
+      if (!SUMMARIZED_FRAMEWORK_INFO_GETTERS.containsKey(field)) {
+        throw new BadRequestException(String.format(
+            "Unknown SummarizedFrameworkInfo field: [%s], the known fields are %s",
+            field, SUMMARIZED_FRAMEWORK_INFO_GETTERS.keySet()));
+      }
+    }
+    return fields;
+  }
+
+  private static Map<String, Method> getSummarizedFrameworkInfoGetters() {
+    Map<String, Method> getters = new LinkedHashMap<>();
+    try {
+      for (PropertyDescriptor propertyDescriptor :
+          Introspector.getBeanInfo(SummarizedFrameworkInfo.class, Object.class).getPropertyDescriptors()) {
+        if (propertyDescriptor.getReadMethod() != null) {
+          getters.put(propertyDescriptor.getName(), propertyDescriptor.getReadMethod());
+        }
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException("Failed to introspect SummarizedFrameworkInfo", e);
+    }
+    return Collections.unmodifiableMap(getters);
+  }
+
   private void checkWritableAccess(
       HttpServletRequest hsr) throws Exception {
     checkWritableAccess(hsr, null, null);
@@ -191,6 +323,105 @@ private Set<UserDescriptor> getAdminUsers(AclConfiguration aclConf) {
     return adminUsers;
   }
 
+  // Return 304 if the Response is not modified since the client last got it, i.e. its
+  // version is not changed, otherwise return the entity as Json and compress it if the
+  // client accepts gzip.
+  // The version should be got before the entity, so that the ETag will never be newer
+  // than the entity.
+  // The serialized entity is cached with its ETag, so it is only serialized and compressed
+  // once for each version.
+  private Response getConditionalResponse(
+      HttpServletRequest hsr, String version, Callable<Object> entityGetter) throws Exception {
+    String eTag = "\"" + ETAG_EPOCH + "-" + version + "\"";
+    if (WebCommon.matchesETag(hsr.getHeader(WebCommon.HEADER_IF_NONE_MATCH), eTag)) {
+      return Response
+          .status(HttpStatus.SC_NOT_MODIFIED)
+          .header(WebCommon.HEADER_ETAG, eTag)
+          .build();
+    }
+
+    // The Request parameters are also a part of the cached Response's identity
+    String uri = (hsr.getQueryString() == null ?
+        hsr.getRequestURI() : hsr.getRequestURI() + "?" + hsr.getQueryString());
+    ResponseCache.CachedResponse cachedResponse = responseCache.get(uri, eTag, GZIP_MIN_BYTES,
+        () -> WebCommon.toJson(entityGetter.call()).getBytes(StandardCharsets.UTF_8));
+
+    Response.ResponseBuilder responseBuilder = Response
+        .ok()
+        .type(MediaType.APPLICATION_JSON_TYPE)
+        .header(WebCommon.HEADER_ETAG, eTag)
+        .header("Cache-Control", "no-cache")
+        .header("Vary", WebCommon.HEADER_ACCEPT_ENCODING);
+    if (cachedResponse.getCompressedJson() != null &&
+        WebCommon.acceptsGzip(hsr.getHeader(WebCommon.HEADER_ACCEPT_ENCODING))) {
+      responseBuilder
+          .header(WebCommon.HEADER_CONTENT_ENCODING, WebCommon.CONTENT_ENCODING_GZIP)
+          .entity(cachedResponse.getCompressedJson());
+    } else {
+      responseBuilder.entity(cachedResponse.getJson());
+    }
+    return responseBuilder.build();
+  }
+
+  // Admit the request by the AdmissionLimits of its UserName, LaunchClientType and Queue,
+  // before any ZK access. The UserName is the one of the Framework's UserDescriptor if
+  // exists, so that a client cannot bypass its limit by not providing the UserName header.
+  private void admit(HttpServletRequest hsr, String frameworkUserName, String queue) throws Exception {
+    admitBatch(hsr, Collections.singletonList(frameworkUserName), Collections.singletonList(queue));
+  }
+
+  // Admit the batch request as a whole, the frameworkUserNames and queues are the ones of each
+  // Framework in it, so that it is charged the same as the separate requests of the Frameworks.
+  private void admitBatch(HttpServletRequest hsr, List<String> frameworkUserNames, List<String> queues) throws Exception {
+    String userName = getName(() -> hsr.getHeader(WebCommon.REQUEST_HEADER_USER_NAME));
+    LaunchClientType clientType = getLaunchClientType(() ->
+        hsr.getHeader(WebCommon.REQUEST_HEADER_LAUNCH_CLIENT_TYPE));
+    List<String> userNames = new ArrayList<>();
+    for (String frameworkUserName : frameworkUserNames) {
+      userNames.add(frameworkUserName == null ? userName : frameworkUserName);
+    }
+    admissionController.admit(
+        (clientType == null ? LaunchClientType.UNKNOWN : clientType),
+        userNames, queues);
+  }
+
+  private void admitFramework(HttpServletRequest hsr, String frameworkName) throws Exception {
+    admitFrameworks(hsr, Collections.singletonList(frameworkName));
+  }
+
+  // Admit the request to the existing Frameworks by their UserNames and Queues.
+  // The frameworkNames should be already validated.
+  private void admitFrameworks(HttpServletRequest hsr, Collection<String> frameworkNames) throws Exception {
+    List<String> userNames = new ArrayList<>();
+    List<String> queues = new ArrayList<>();
+    for (String frameworkName : frameworkNames) {
+      FrameworkDescriptor frameworkDescriptor = getFrameworkDescriptor(frameworkName);
+      if (frameworkDescriptor == null) {
+        userNames.add(null);
+        queues.add(null);
+      } else {
+        userNames.add(frameworkDescriptor.getUser().getName());
+        queues.add(frameworkDescriptor.getPlatformSpecificParameters().getQueue());
+      }
+    }
+    admitBatch(hsr, userNames, queues);
+  }
+
+  // Return null if the Framework does not exist
+  private FrameworkDescriptor getFrameworkDescriptor(String frameworkName) throws Exception {
+    try {
+      return requestManager.getFrameworkRequest(frameworkName).getFrameworkDescriptor();
+    } catch (NotFoundException e) {
+      return null;
+    }
+  }
+
+  private String getFrameworkVersion(String frameworkName) throws Exception {
+    return String.format("r%s-s%s",
+        requestManager.getAggregatedFrameworkRequestVersion(frameworkName),
+        statusManager.getAggregatedFrameworkStatusVersion(frameworkName));
+  }
+
   @GET
   // Default to WebStructure.ROOT_PATH
   @Produces({MediaType.APPLICATION_JSON})
@@ -208,15 +439,21 @@ public String getVersionActiveMessage() {
   @GET
   @Path(WebStructure.LAUNCHER_STATUS_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public LauncherStatus getLauncherStatus() {
-    return statusManager.getLauncherStatus();
+  public Response getLauncherStatus(@Context HttpServletRequest hsr) throws Exception {
+    admit(hsr, null, null);
+    return getConditionalResponse(hsr,
+        "s" + statusManager.getLauncherStatusVersion(),
+        statusManager::getLauncherStatus);
   }
 
   @GET
   @Path(WebStructure.LAUNCHER_REQUEST_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public LauncherRequest getLauncherRequest() throws Exception {
-    return requestManager.getLauncherRequest();
+  public Response getLauncherRequest(@Context HttpServletRequest hsr) throws Exception {
+    admit(hsr, null, null);
+    return getConditionalResponse(hsr,
+        "r" + requestManager.getLauncherRequestVersion(),
+        requestManager::getLauncherRequest);
   }
 
   @PUT
@@ -259,11 +496,23 @@ public Response putClusterConfiguration(
         .build();
   }
 
+  // Not admitted, so that the throttling can still be diagnosed while it is in effect
+  @GET
+  @Path(WebStructure.ADMISSION_STATUS_PATH)
+  @Produces({MediaType.APPLICATION_JSON})
+  public AdmissionStatus getAdmissionStatus() throws Exception {
+    return admissionController.getAdmissionStatus(requestManager.getAdmissionTaskNumbers());
+  }
+
   @GET
   @Path(WebStructure.CLUSTER_CONFIGURATION_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public ClusterConfiguration getClusterConfiguration() throws Exception {
-    return requestManager.getClusterConfiguration();
+  public Response getClusterConfiguration(@Context HttpServletRequest hsr) throws Exception {
+    admit(hsr, null, null);
+    // ClusterConfiguration is a part of LauncherRequest, so it shares the LauncherRequest version
+    return getConditionalResponse(hsr,
+        "r" + requestManager.getLauncherRequestVersion(),
+        requestManager::getClusterConfiguration);
   }
 
   @PUT
@@ -289,21 +538,79 @@ public Response putAclConfiguration(
   @GET
   @Path(WebStructure.ACL_CONFIGURATION_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public AclConfiguration getAclConfiguration() throws Exception {
-    return requestManager.getAclConfiguration();
+  public Response getAclConfiguration(@Context HttpServletRequest hsr) throws Exception {
+    admit(hsr, null, null);
+    // AclConfiguration is a part of LauncherRequest, so it shares the LauncherRequest version
+    return getConditionalResponse(hsr,
+        "r" + requestManager.getLauncherRequestVersion(),
+        requestManager::getAclConfiguration);
   }
 
   @GET
   @Path(WebStructure.FRAMEWORK_ROOT_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public SummarizedFrameworkInfos getFrameworks(@Context HttpServletRequest hsr) throws Exception {
+  public Response getFrameworks(@Context HttpServletRequest hsr) throws Exception {
+    admit(hsr, null, null);
+    // The Request parameters are already a part of the URL to be cached by client
+    return getConditionalResponse(hsr,
+        String.format("r%s-s%s", requestManager.getRequestVersion(), statusManager.getStatusVersion()),
+        () -> getSummarizedFrameworkInfos(hsr));
+  }
+
+  // All the Request parameters are optional, and without them all Frameworks are returned as before.
+  // With Limit, at most Limit Frameworks are returned in FrameworkName order, and the returned
+  // NextCursor can be passed as the Cursor to get the next page.
+  // With Fields, only the specified SummarizedFrameworkInfo fields are returned.
+  private Object getSummarizedFrameworkInfos(HttpServletRequest hsr) throws Exception {
     LaunchClientType clientType = getLaunchClientType(() ->
         hsr.getParameter(WebStructure.REQUEST_PARAM_LAUNCH_CLIENT_TYPE));
     String userName = getName(() ->
         hsr.getParameter(WebStructure.REQUEST_PARAM_USER_NAME));
+    String queue = getName(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_QUEUE));
+    Set<FrameworkState> frameworkStates = getFrameworkStates(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_FRAMEWORK_STATE));
+    Long minFirstRequestTimestamp = getLong(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_MIN_FIRST_REQUEST_TIMESTAMP));
+    Long maxFirstRequestTimestamp = getLong(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_MAX_FIRST_REQUEST_TIMESTAMP));
+    Integer limit = getInteger(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_LIMIT), 1);
+    String cursor = getName(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_CURSOR));
+    Set<String> fields = getSummarizedFrameworkInfoFields(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_FIELDS));
+
+    // The inferred FrameworkStatus is always FRAMEWORK_WAITING and it is not indexed,
+    // so the FrameworkState index can only be used if FRAMEWORK_WAITING is not queried.
+    NavigableSet<String> candidateFrameworkNames = null;
+    if (frameworkStates != null && !frameworkStates.contains(FrameworkState.FRAMEWORK_WAITING)) {
+      candidateFrameworkNames = statusManager.getFrameworkNames(frameworkStates);
+    }
 
-    List<FrameworkRequest> frameworkRequests =
-        requestManager.getFrameworkRequests(clientType, userName);
+    // Get one more FrameworkRequest to tell whether there is a next page
+    List<FrameworkRequest> frameworkRequests = requestManager.getFrameworkRequests(
+        clientType, userName, queue, candidateFrameworkNames, cursor,
+        (limit == null ? Integer.MAX_VALUE : limit + 1),
+        frameworkRequest -> {
+          Long firstRequestTimestamp = frameworkRequest.getFirstRequestTimestamp();
+          if (minFirstRequestTimestamp != null &&
+              (firstRequestTimestamp == null || firstRequestTimestamp < minFirstRequestTimestamp)) {
+            return false;
+          }
+          if (maxFirstRequestTimestamp != null &&
+              (firstRequestTimestamp == null || firstRequestTimestamp > maxFirstRequestTimestamp)) {
+            return false;
+          }
+          return (frameworkStates == null || frameworkStates.contains(
+              statusManager.getFrameworkStatus(frameworkRequest).getFrameworkState()));
+        });
+
+    String nextCursor = null;
+    if (limit != null && frameworkRequests.size() > limit) {
+      frameworkRequests = frameworkRequests.subList(0, limit);
+      nextCursor = frameworkRequests.get(limit - 1).getFrameworkName();
+    }
 
     List<SummarizedFrameworkInfo> sFrameworkInfoList = new ArrayList<>();
     for (FrameworkRequest frameworkRequest : frameworkRequests) {
@@ -311,9 +618,48 @@ public SummarizedFrameworkInfos getFrameworks(@Context HttpServletRequest hsr) t
       sFrameworkInfoList.add(SummarizedFrameworkInfo.newInstance(frameworkRequest, frameworkStatus));
     }
 
-    SummarizedFrameworkInfos sFrameworkInfos = new SummarizedFrameworkInfos();
-    sFrameworkInfos.setSummarizedFrameworkInfos(sFrameworkInfoList);
-    return sFrameworkInfos;
+    if (fields == null) {
+      SummarizedFrameworkInfos sFrameworkInfos = new SummarizedFrameworkInfos();
+      sFrameworkInfos.setSummarizedFrameworkInfos(sFrameworkInfoList);
+      sFrameworkInfos.setNextCursor(nextCursor);
+      return sFrameworkInfos;
+    }
+
+    // Projected SummarizedFrameworkInfos, which can still be parsed as SummarizedFrameworkInfos
+    List<Map<String, Object>> projectedSFrameworkInfoList = new ArrayList<>();
+    for (SummarizedFrameworkInfo sFrameworkInfo : sFrameworkInfoList) {
+      Map<String, Object> projectedSFrameworkInfo = new LinkedHashMap<>();
+      for (String field : fields) {
+        projectedSFrameworkInfo.put(field, SUMMARIZED_FRAMEWORK_INFO_GETTERS.get(field).invoke(sFrameworkInfo));
+      }
+      projectedSFrameworkInfoList.add(projectedSFrameworkInfo);
+    }
+
+    Map<String, Object> projectedSFrameworkInfos = new LinkedHashMap<>();
+    projectedSFrameworkInfos.put("summarizedFrameworkInfos", projectedSFrameworkInfoList);
+    projectedSFrameworkInfos.put("nextCursor", nextCursor);
+    return projectedSFrameworkInfos;
+  }
+
+  // Long-poll the FrameworkChanges after the Cursor, i.e. the Frameworks whose FrameworkState
+  // or TaskStates are changed. Without Cursor, it returns the Cursor to start watching from now.
+  // It returns once there are FrameworkChanges or the TimeoutSec elapsed, and the returned
+  // NextCursor should be passed as the Cursor of the next Watch.
+  @GET
+  @Path(WebStructure.WATCH_PATH)
+  @Produces({MediaType.APPLICATION_JSON})
+  public FrameworkChanges getFrameworkChanges(@Context HttpServletRequest hsr) throws Exception {
+    admit(hsr, null, null);
+    String cursor = hsr.getParameter(WebStructure.REQUEST_PARAM_CURSOR);
+    Integer timeoutSec = getInteger(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_TIMEOUT_SEC), 0);
+    Integer limit = getInteger(() ->
+        hsr.getParameter(WebStructure.REQUEST_PARAM_LIMIT), 1);
+
+    int maxTimeoutSec = conf.getWebServerWatchMaxTimeoutSec();
+    timeoutSec = (timeoutSec == null ? maxTimeoutSec : Math.min(timeoutSec, maxTimeoutSec));
+    return statusManager.getFrameworkChangeFeed().getChanges(
+        cursor, (limit == null ? Integer.MAX_VALUE : limit), timeoutSec * 1000L);
   }
 
   @PUT
@@ -329,8 +675,79 @@ public Response putFramework(
 
     CommonValidation.validate(frameworkName);
     CommonValidation.validate(frameworkDescriptor);
+    admit(hsr, frameworkDescriptor.getUser().getName(),
+        frameworkDescriptor.getPlatformSpecificParameters().getQueue());
     checkWritableAccess(hsr, frameworkName, frameworkDescriptor.getUser());
 
+    FrameworkRequest frameworkRequest = newFrameworkRequest(hsr, frameworkName, frameworkDescriptor, logPrefix);
+    requestManager.setFrameworkRequest(frameworkRequest.getFrameworkName(), frameworkRequest);
+    return Response
+        .status(HttpStatus.SC_ACCEPTED)
+        .header("Location", hsr.getRequestURL())
+        .build();
+  }
+
+  // Batch version of putFramework, the result of each Framework is reported separately,
+  // and a rejected Framework does not affect the others.
+  // However, the valid Frameworks are admitted as a whole, i.e. they are all throttled
+  // once any of their UserNames and Queues exceeds its AdmissionLimit.
+  @PUT
+  @Path(WebStructure.FRAMEWORK_ROOT_PATH)
+  @Consumes({MediaType.APPLICATION_JSON})
+  @Produces({MediaType.APPLICATION_JSON})
+  public Response putFrameworks(
+      @Context HttpServletRequest hsr,
+      PutFrameworksRequest putFrameworksRequest) throws Exception {
+    CommonValidation.validate(putFrameworksRequest);
+    Map<String, FrameworkDescriptor> frameworkDescriptors = putFrameworksRequest.getFrameworkDescriptors();
+    LOGGER.logInfo("putFrameworks: %s Frameworks: %s", frameworkDescriptors.size(), frameworkDescriptors.keySet());
+
+    Map<String, FrameworkOperationResult> results = new LinkedHashMap<>();
+    Map<String, FrameworkRequest> frameworkRequests = new LinkedHashMap<>();
+    for (Map.Entry<String, FrameworkDescriptor> frameworkDescriptorKV : frameworkDescriptors.entrySet()) {
+      String frameworkName = frameworkDescriptorKV.getKey();
+      FrameworkDescriptor frameworkDescriptor = frameworkDescriptorKV.getValue();
+      try {
+        CommonValidation.validate(frameworkName);
+        CommonValidation.validate(frameworkDescriptor);
+        checkWritableAccess(hsr, frameworkName, frameworkDescriptor.getUser());
+        frameworkRequests.put(frameworkName, newFrameworkRequest(hsr, frameworkName, frameworkDescriptor,
+            String.format("[%s]: putFrameworks: ", frameworkName)));
+      } catch (BadRequestException | AuthorizationException e) {
+        results.put(frameworkName, newRejectedResult(e));
+      }
+    }
+
+    List<String> userNames = new ArrayList<>();
+    List<String> queues = new ArrayList<>();
+    for (FrameworkRequest frameworkRequest : frameworkRequests.values()) {
+      FrameworkDescriptor frameworkDescriptor = frameworkRequest.getFrameworkDescriptor();
+      userNames.add(frameworkDescriptor.getUser().getName());
+      queues.add(frameworkDescriptor.getPlatformSpecificParameters().getQueue());
+    }
+    admitBatch(hsr, userNames, queues);
+
+    Map<String, Exception> rejectedFrameworks;
+    try {
+      rejectedFrameworks = requestManager.setFrameworkRequests(frameworkRequests);
+    } catch (Exception e) {
+      // Not sure which ones are Set, so all of them are reported as failed
+      LOGGER.logWarning(e, "putFrameworks: Failed to set Frameworks: %s", frameworkRequests.keySet());
+      rejectedFrameworks = new HashMap<>();
+      for (String frameworkName : frameworkRequests.keySet()) {
+        rejectedFrameworks.put(frameworkName, e);
+      }
+    }
+    for (String frameworkName : frameworkRequests.keySet()) {
+      results.put(frameworkName, rejectedFrameworks.containsKey(frameworkName) ?
+          newRejectedResult(rejectedFrameworks.get(frameworkName)) : newAcceptedResult());
+    }
+    return newBatchResponse(results);
+  }
+
+  private FrameworkRequest newFrameworkRequest(
+      HttpServletRequest hsr, String frameworkName, FrameworkDescriptor frameworkDescriptor,
+      String logPrefix) throws Exception {
     // Get LaunchClientType
     LaunchClientType clientType = getLaunchClientType(() ->
         hsr.getHeader(WebCommon.REQUEST_HEADER_LAUNCH_CLIENT_TYPE));
@@ -366,11 +783,36 @@ public Response putFramework(
     frameworkRequest.setLaunchClientType(clientType);
     frameworkRequest.setLaunchClientHostName(clientHostName);
     frameworkRequest.setLaunchClientUserName(clientUserName);
+    return frameworkRequest;
+  }
 
-    requestManager.setFrameworkRequest(frameworkRequest.getFrameworkName(), frameworkRequest);
+  private static FrameworkOperationResult newAcceptedResult() {
+    return FrameworkOperationResult.newInstance(HttpStatus.SC_ACCEPTED, null);
+  }
+
+  // Consistent with the status code of LauncherExceptionHandler, so the failed one
+  // caused by an unexpected Exception, such as a ZK failure, can be retried later
+  private static FrameworkOperationResult newRejectedResult(Exception e) {
+    int statusCode;
+    if (e instanceof AuthorizationException) {
+      statusCode = HttpStatus.SC_FORBIDDEN;
+    } else if (e instanceof ThrottledRequestException) {
+      statusCode = WebCommon.SC_TOO_MANY_REQUESTS;
+    } else if (e instanceof BadRequestException) {
+      statusCode = HttpStatus.SC_BAD_REQUEST;
+    } else {
+      statusCode = HttpStatus.SC_SERVICE_UNAVAILABLE;
+    }
+    return FrameworkOperationResult.newInstance(statusCode, e.getMessage());
+  }
+
+  private static Response newBatchResponse(Map<String, FrameworkOperationResult> results) {
+    FrameworkOperationResults frameworkOperationResults = new FrameworkOperationResults();
+    frameworkOperationResults.setFrameworkOperationResults(results);
     return Response
         .status(HttpStatus.SC_ACCEPTED)
-        .header("Location", hsr.getRequestURL())
+        .type(MediaType.APPLICATION_JSON_TYPE)
+        .entity(frameworkOperationResults)
         .build();
   }
 
@@ -389,6 +831,7 @@ public Response putTaskNumber(
     CommonValidation.validate(frameworkName);
     CommonValidation.validate(taskRoleName);
     CommonValidation.validate(updateTaskNumberRequest);
+    admitFramework(hsr, frameworkName);
     checkWritableAccess(hsr, frameworkName);
 
     requestManager.updateTaskNumber(frameworkName, taskRoleName, updateTaskNumberRequest);
@@ -411,6 +854,7 @@ public Response putExecutionType(
 
     CommonValidation.validate(frameworkName);
     CommonValidation.validate(updateExecutionTypeRequest);
+    admitFramework(hsr, frameworkName);
     checkWritableAccess(hsr, frameworkName);
 
     requestManager.updateExecutionType(frameworkName, updateExecutionTypeRequest);
@@ -434,6 +878,7 @@ public Response putMigrateTask(
 
     CommonValidation.validate(frameworkName);
     CommonValidation.validate(migrateTaskRequest);
+    admitFramework(hsr, frameworkName);
     checkWritableAccess(hsr, frameworkName);
 
     requestManager.updateMigrateTask(frameworkName, containerId, migrateTaskRequest);
@@ -456,6 +901,7 @@ public Response putApplicationProgress(
 
     CommonValidation.validate(frameworkName);
     CommonValidation.validate(overrideApplicationProgressRequest);
+    admitFramework(hsr, frameworkName);
     checkWritableAccess(hsr, frameworkName);
 
     requestManager.updateApplicationProgress(frameworkName, overrideApplicationProgressRequest);
@@ -473,6 +919,7 @@ public Response deleteFramework(
     LOGGER.logInfo("[%s]: deleteFramework: Started", frameworkName);
 
     CommonValidation.validate(frameworkName);
+    admitFramework(hsr, frameworkName);
     checkWritableAccess(hsr, frameworkName);
 
     requestManager.deleteFrameworkRequest(frameworkName);
@@ -481,6 +928,52 @@ public Response deleteFramework(
         .build();
   }
 
+  // Batch version of deleteFramework, the result of each Framework is reported separately,
+  // and a rejected Framework does not affect the others.
+  // However, the valid Frameworks are admitted as a whole, same as putFrameworks.
+  @POST
+  @Path(WebStructure.DELETE_FRAMEWORKS_PATH)
+  @Consumes({MediaType.APPLICATION_JSON})
+  @Produces({MediaType.APPLICATION_JSON})
+  public Response deleteFrameworks(
+      @Context HttpServletRequest hsr,
+      DeleteFrameworksRequest deleteFrameworksRequest) throws Exception {
+    CommonValidation.validate(deleteFrameworksRequest);
+    List<String> frameworkNames = deleteFrameworksRequest.getFrameworkNames();
+    LOGGER.logInfo("deleteFrameworks: %s Frameworks: %s", frameworkNames.size(), frameworkNames);
+
+    Map<String, FrameworkOperationResult> results = new LinkedHashMap<>();
+    Set<String> acceptedFrameworkNames = new LinkedHashSet<>();
+    for (String frameworkName : frameworkNames) {
+      try {
+        CommonValidation.validate(frameworkName);
+        checkWritableAccess(hsr, frameworkName);
+        acceptedFrameworkNames.add(frameworkName);
+      } catch (BadRequestException | AuthorizationException e) {
+        results.put(frameworkName, newRejectedResult(e));
+      }
+    }
+
+    admitFrameworks(hsr, acceptedFrameworkNames);
+
+    Map<String, Exception> failedFrameworks;
+    try {
+      failedFrameworks = requestManager.deleteFrameworkRequests(acceptedFrameworkNames);
+    } catch (Exception e) {
+      // Not sure which ones are deleted, so all of them are reported as failed
+      LOGGER.logWarning(e, "deleteFrameworks: Failed to delete Frameworks: %s", acceptedFrameworkNames);
+      failedFrameworks = new HashMap<>();
+      for (String frameworkName : acceptedFrameworkNames) {
+        failedFrameworks.put(frameworkName, e);
+      }
+    }
+    for (String frameworkName : acceptedFrameworkNames) {
+      results.put(frameworkName, failedFrameworks.containsKey(frameworkName) ?
+          newRejectedResult(failedFrameworks.get(frameworkName)) : newAcceptedResult());
+    }
+    return newBatchResponse(results);
+  }
+
   @DELETE
   @Path(WebStructure.MIGRATE_TASK_PATH)
   public Response deleteMigrateTask(
@@ -490,6 +983,7 @@ public Response deleteMigrateTask(
     LOGGER.logInfo("[%s][%s]: deleteMigrateTask: Started", frameworkName, containerId);
 
     CommonValidation.validate(frameworkName);
+    admitFramework(hsr, frameworkName);
     checkWritableAccess(hsr, frameworkName);
 
     requestManager.deleteMigrateTaskRequest(frameworkName, containerId);
@@ -501,9 +995,17 @@ public Response deleteMigrateTask(
   @GET
   @Path(WebStructure.FRAMEWORK_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public FrameworkInfo getFramework(
+  public Response getFramework(
+      @Context HttpServletRequest hsr,
       @PathParam(WebStructure.FRAMEWORK_NAME_PATH_PARAM) String frameworkName)
       throws Exception {
+    admit(hsr, null, null);
+    return getConditionalResponse(hsr,
+        getFrameworkVersion(frameworkName),
+        () -> getFrameworkInfo(frameworkName));
+  }
+
+  private FrameworkInfo getFrameworkInfo(String frameworkName) throws Exception {
     AggregatedFrameworkRequest aggFrameworkRequest =
         requestManager.getAggregatedFrameworkRequest(frameworkName);
     FrameworkRequest frameworkRequest = aggFrameworkRequest.getFrameworkRequest();
@@ -523,47 +1025,62 @@ public FrameworkInfo getFramework(
   @GET
   @Path(WebStructure.AGGREGATED_FRAMEWORK_STATUS_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public AggregatedFrameworkStatus getAggregatedFrameworkStatus(
+  public Response getAggregatedFrameworkStatus(
+      @Context HttpServletRequest hsr,
       @PathParam(WebStructure.FRAMEWORK_NAME_PATH_PARAM) String frameworkName)
       throws Exception {
-    FrameworkRequest frameworkRequest =
-        requestManager.getFrameworkRequest(frameworkName);
-    return statusManager.getAggregatedFrameworkStatus(frameworkRequest);
+    admit(hsr, null, null);
+    return getConditionalResponse(hsr,
+        getFrameworkVersion(frameworkName),
+        () -> statusManager.getAggregatedFrameworkStatus(
+            requestManager.getFrameworkRequest(frameworkName)));
   }
 
   @GET
   @Path(WebStructure.FRAMEWORK_STATUS_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public FrameworkStatus getFrameworkStatus(
+  public Response getFrameworkStatus(
+      @Context HttpServletRequest hsr,
       @PathParam(WebStructure.FRAMEWORK_NAME_PATH_PARAM) String frameworkName)
       throws Exception {
-    FrameworkRequest frameworkRequest =
-        requestManager.getFrameworkRequest(frameworkName);
-    return statusManager.getFrameworkStatus(frameworkRequest);
+    admit(hsr, null, null);
+    return getConditionalResponse(hsr,
+        getFrameworkVersion(frameworkName),
+        () -> statusManager.getFrameworkStatus(
+            requestManager.getFrameworkRequest(frameworkName)));
   }
 
   @GET
   @Path(WebStructure.AGGREGATED_FRAMEWORK_REQUEST_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public AggregatedFrameworkRequest getAggregatedFrameworkRequest(
+  public Response getAggregatedFrameworkRequest(
+      @Context HttpServletRequest hsr,
       @PathParam(WebStructure.FRAMEWORK_NAME_PATH_PARAM) String frameworkName)
       throws Exception {
-    return requestManager.getAggregatedFrameworkRequest(frameworkName);
+    admit(hsr, null, null);
+    return getConditionalResponse(hsr,
+        "r" + requestManager.getAggregatedFrameworkRequestVersion(frameworkName),
+        () -> requestManager.getAggregatedFrameworkRequest(frameworkName));
   }
 
   @GET
   @Path(WebStructure.FRAMEWORK_REQUEST_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public FrameworkRequest getFrameworkRequest(
+  public Response getFrameworkRequest(
+      @Context HttpServletRequest hsr,
       @PathParam(WebStructure.FRAMEWORK_NAME_PATH_PARAM) String frameworkName)
       throws Exception {
-    return requestManager.getFrameworkRequest(frameworkName);
+    admit(hsr, null, null);
+    return getConditionalResponse(hsr,
+        "r" + requestManager.getAggregatedFrameworkRequestVersion(frameworkName),
+        () -> requestManager.getFrameworkRequest(frameworkName));
   }
 
   @GET
   @Path(WebStructure.LOG_ROOT_PATH)
   @Produces({MediaType.APPLICATION_JSON})
-  public Set<String> getLogs() throws Exception {
+  public Set<String> getLogs(@Context HttpServletRequest hsr) throws Exception {
+    admit(hsr, null, null);
     String launcherLogDir = System.getProperty(GlobalConstants.ENV_VAR_LAUNCHER_LOG_DIR);
     return CommonUtils.listFiles(launcherLogDir);
   }
@@ -576,8 +1093,10 @@ public Set<String> getLogs() throws Exception {
   @Path(WebStructure.LOG_PATH)
   @Produces({MediaType.APPLICATION_JSON})
   public Response getLog(
+      @Context HttpServletRequest hsr,
       @PathParam(WebStructure.LOG_NAME_PATH_PARAM) String logName)
       throws Exception {
+    admit(hsr, null, null);
     String launcherLogDir = System.getProperty(GlobalConstants.ENV_VAR_LAUNCHER_LOG_DIR);
     String logPath = CommonUtils.getFilePath(launcherLogDir, logName);
     byte[] logPayload = CompressionUtils.compress(CommonUtils.readBinaryFile(logPath));
@@ -39,5 +39,8 @@ public void setup() {
     bind(LauncherConfiguration.class).toInstance(conf);
     bind(StatusManager.class).toInstance(statusManager);
     bind(RequestManager.class).toInstance(requestManager);
+    bind(ResponseCache.class).toInstance(
+        new ResponseCache(conf.getWebServerResponseCacheMaxMB() * 1024L * 1024L));
+    bind(AdmissionController.class).toInstance(new AdmissionController(conf));
   }
 }
@@ -19,21 +19,38 @@
 
 import com.microsoft.frameworklauncher.common.exceptions.BadRequestException;
 import com.microsoft.frameworklauncher.common.exceptions.ThrottledRequestException;
+import com.microsoft.frameworklauncher.common.exts.CommonExts;
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 import com.microsoft.frameworklauncher.common.model.*;
 import com.microsoft.frameworklauncher.common.service.AbstractService;
 import com.microsoft.frameworklauncher.common.utils.CommonUtils;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 import org.apache.zookeeper.KeeperException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static com.microsoft.frameworklauncher.common.utils.CommonUtils.checkExist;
 
@@ -44,8 +61,17 @@ public class RequestManager extends AbstractService {  // THREAD SAFE
   private final WebServer webServer;
   private final LauncherConfiguration conf;
   private final ZookeeperStore zkStore;
+  // The readLock and writeLock only protect the in-memory Requests, and they are never
+  // held across a ZK write, so the reads are not blocked by the ZK latency.
   private final ReadLock readLock;
   private final WriteLock writeLock;
+  // The lock stripes of the Frameworks, a Framework is modified on ZK and then in memory
+  // with its FrameworkLock, so the modifications to different Frameworks can be written
+  // to ZK concurrently, while the ones to the same Framework are still serialized.
+  // Lock order: FrameworkLocks in ascending stripe order -> writeLock or readLock.
+  private final Lock[] frameworkLocks;
+  // The LauncherRequest is modified on ZK and then in memory with the launcherRequestLock.
+  private final Lock launcherRequestLock = new ReentrantLock();
 
 
   /**
@@ -61,7 +87,41 @@ public class RequestManager extends AbstractService {  // THREAD SAFE
    * REGION ExtensionRequest
    * ExtensionRequest should be always CONSISTENT with BaseRequest
    */
-  private int totalTaskNumber = 0;
+  // It also includes the TaskNumber reserved by the ongoing setFrameworkRequests,
+  // so that it can be checked and reserved without any lock.
+  private final AtomicInteger totalTaskNumber = new AtomicInteger(0);
+  // AdmissionKey, such as User/alice -> TaskNumber, including the reserved ones,
+  // for the MaxTotalTaskNumber of the AdmissionLimits.
+  private final ConcurrentMap<String, AtomicInteger> admissionTaskNumbers = new ConcurrentHashMap<>();
+
+
+  /**
+   * REGION RequestVersion
+   * RequestVersion should be always CONSISTENT with BaseRequest
+   */
+  // The versions are increased once the corresponding Request is changed, so that
+  // the WebServer can tell whether a Request is changed since it was last returned.
+  // The version of the whole Request, i.e. any Request is changed
+  private long requestVersion = 0;
+  private long launcherRequestVersion = 0;
+  // FrameworkName -> AggregatedFrameworkRequest version
+  private final Map<String, Long> aggFrameworkRequestVersions = new HashMap<>();
+
+
+  /**
+   * REGION RequestIndex
+   * RequestIndex should be always CONSISTENT with BaseRequest
+   */
+  // The secondary indexes of the FrameworkRequests, so that a query does not need
+  // to scan all FrameworkRequests. All FrameworkNames are sorted to support to
+  // page through the FrameworkRequests in FrameworkName order.
+  private final NavigableSet<String> frameworkNames = new TreeSet<>();
+  // LaunchClientType -> FrameworkNames
+  private final Map<LaunchClientType, NavigableSet<String>> launchClientTypeIndex = new HashMap<>();
+  // UserName -> FrameworkNames
+  private final Map<String, NavigableSet<String>> userNameIndex = new HashMap<>();
+  // Queue -> FrameworkNames
+  private final Map<String, NavigableSet<String>> queueIndex = new HashMap<>();
 
 
   /**
@@ -77,6 +137,11 @@ public RequestManager(WebServer webServer, LauncherConfiguration conf, Zookeeper
     ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
     this.readLock = lock.readLock();
     this.writeLock = lock.writeLock();
+
+    this.frameworkLocks = new Lock[conf.getWebServerRequestLockStripeCount()];
+    for (int i = 0; i < frameworkLocks.length; i++) {
+      this.frameworkLocks[i] = new ReentrantLock();
+    }
   }
 
   @Override
@@ -103,7 +168,13 @@ protected void recover() throws Exception {
       AggregatedLauncherRequest aggLauncherRequest = zkStore.getAggregatedLauncherRequest();
       launcherRequest = aggLauncherRequest.getLauncherRequest();
       aggFrameworkRequests = aggLauncherRequest.getAggregatedFrameworkRequests();
-      totalTaskNumber = getTotalTaskNumber();
+      increaseLauncherRequestVersion();
+      for (Map.Entry<String, AggregatedFrameworkRequest> aggFrameworkRequestKV : aggFrameworkRequests.entrySet()) {
+        FrameworkRequest frameworkRequest = aggFrameworkRequestKV.getValue().getFrameworkRequest();
+        addTaskNumbers(frameworkRequest, frameworkRequest.calcTotalTaskNumber());
+        increaseAggregatedFrameworkRequestVersion(aggFrameworkRequestKV.getKey());
+        addRequestIndex(aggFrameworkRequestKV.getValue().getFrameworkRequest());
+      }
 
       LOGGER.logDebug("Total TaskNumber: %s", totalTaskNumber);
     } catch (KeeperException.NoNodeException e) {
@@ -111,6 +182,7 @@ protected void recover() throws Exception {
       launcherRequest = new LauncherRequest();
       aggFrameworkRequests = new HashMap<>();
       zkStore.setLauncherRequest(launcherRequest);
+      increaseLauncherRequestVersion();
     }
 
     // Continue previous deleteOrphanFrameworks to provide Atomic deleteFrameworkRequest
@@ -125,153 +197,518 @@ protected void recover() throws Exception {
   /**
    * REGION InternalUtils
    */
+  private Lock getFrameworkLock(String frameworkName) {
+    return frameworkLocks[Math.floorMod(frameworkName.hashCode(), frameworkLocks.length)];
+  }
+
+  private void executeWithFrameworkLock(
+      String frameworkName, CommonExts.VoidCallable action) throws Exception {
+    CommonUtils.executeWithLock(getFrameworkLock(frameworkName), action);
+  }
+
+  private <T> T executeWithFrameworkLock(
+      String frameworkName, Callable<T> action) throws Exception {
+    return CommonUtils.executeWithLock(getFrameworkLock(frameworkName), action);
+  }
+
+  // The lock stripes are locked in ascending order to avoid deadlock with each other
+  private <T> T executeWithFrameworkLocks(
+      Collection<String> frameworkNames, Callable<T> action) throws Exception {
+    Set<Integer> stripes = new TreeSet<>();
+    for (String frameworkName : frameworkNames) {
+      stripes.add(Math.floorMod(frameworkName.hashCode(), frameworkLocks.length));
+    }
+
+    List<Lock> lockedLocks = new ArrayList<>();
+    try {
+      for (Integer stripe : stripes) {
+        frameworkLocks[stripe].lock();
+        lockedLocks.add(frameworkLocks[stripe]);
+      }
+      return action.call();
+    } finally {
+      for (int i = lockedLocks.size() - 1; i >= 0; i--) {
+        lockedLocks.get(i).unlock();
+      }
+    }
+  }
+
+  // Should be called with the FrameworkLock
+  private void setFrameworkRequestInternal(
+      String frameworkName, FrameworkRequest frameworkRequest) throws Exception {
+    prepareFrameworkRequest(frameworkName, frameworkRequest, this::getCurrentFrameworkRequest);
+    TaskNumberReservation reservation = reserveTaskNumbers(frameworkName, frameworkRequest);
+
+    try {
+      zkStore.setFrameworkRequest(frameworkName, frameworkRequest);
+    } catch (Exception e) {
+      reservation.rollback();
+      throw e;
+    }
+
+    CommonUtils.executeWithLock(writeLock, () -> {
+      reservation.commit();
+      putFrameworkRequestInternal(frameworkName, frameworkRequest);
+    });
+
+    LOGGER.logDebug("[%s]: setFrameworkRequest: " +
+            "Total TaskNumber: %s, Framework TaskNumber: %s",
+        frameworkName, totalTaskNumber.get(), frameworkRequest.calcTotalTaskNumber());
+  }
+
+  // Should be called with the FrameworkLock
   private boolean deleteFrameworkRequestInternal(String frameworkName) throws Exception {
     // Should success even if frameworkName does not exist
     zkStore.deleteFrameworkRequest(frameworkName);
+    return CommonUtils.executeWithLock(writeLock, () -> removeFrameworkRequestInternal(frameworkName));
+  }
 
+  // Remove the FrameworkRequest which is already deleted on ZK
+  // Should be called with the writeLock
+  private boolean removeFrameworkRequestInternal(String frameworkName) {
     if (aggFrameworkRequests.containsKey(frameworkName)) {
       AggregatedFrameworkRequest aggFrameworkRequest = aggFrameworkRequests.get(frameworkName);
-      int oldTotalTaskNumber = totalTaskNumber;
       int frameworkTaskNumber = aggFrameworkRequest.calcTotalTaskNumber();
-      totalTaskNumber -= frameworkTaskNumber;
+      addTaskNumbers(aggFrameworkRequest.getFrameworkRequest(), -frameworkTaskNumber);
+      int newTotalTaskNumber = totalTaskNumber.get();
 
       LOGGER.logDebug(
           "[%s]: deleteFrameworkRequestInternal: " +
               "New Total TaskNumber: %s, Old Total TaskNumber: %s, Framework TaskNumber: %s",
-          frameworkName, totalTaskNumber, oldTotalTaskNumber, frameworkTaskNumber);
+          frameworkName, newTotalTaskNumber, newTotalTaskNumber + frameworkTaskNumber, frameworkTaskNumber);
+    }
+    if (aggFrameworkRequestVersions.remove(frameworkName) != null) {
+      requestVersion++;
+    }
+    AggregatedFrameworkRequest aggFrameworkRequest = aggFrameworkRequests.remove(frameworkName);
+    if (aggFrameworkRequest == null) {
+      return true;
+    }
+    removeRequestIndex(aggFrameworkRequest.getFrameworkRequest());
+    return false;
+  }
+
+  // Return null if the Framework does not exist
+  private FrameworkRequest getCurrentFrameworkRequest(String frameworkName) {
+    readLock.lock();
+    try {
+      AggregatedFrameworkRequest aggFrameworkRequest = aggFrameworkRequests.get(frameworkName);
+      return (aggFrameworkRequest == null ? null : aggFrameworkRequest.getFrameworkRequest());
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  // Check and complete the FrameworkRequest to be Set, according to the current FrameworkRequests
+  // got by the getFrameworkRequest, which returns null if the Framework does not exist.
+  private static void prepareFrameworkRequest(
+      String frameworkName, FrameworkRequest frameworkRequest,
+      Function<String, FrameworkRequest> getFrameworkRequest) throws BadRequestException {
+    FrameworkDescriptor frameworkDescriptor = frameworkRequest.getFrameworkDescriptor();
+    ParentFrameworkDescriptor parentFramework = frameworkDescriptor.getParentFramework();
+
+    if (parentFramework != null) {
+      String parentFrameworkName = parentFramework.getParentFrameworkName();
+      FrameworkRequest parentFrameworkRequest = getFrameworkRequest.apply(parentFrameworkName);
+      boolean deleteOnParentDeleted = parentFramework.isDeleteOnParentDeleted();
+      if (deleteOnParentDeleted && parentFrameworkRequest == null &&
+          !frameworkName.equals(parentFrameworkName)) {
+        // Reject future child Frameworks
+        throw new BadRequestException(String.format(
+            "[%s]: setFrameworkRequest Rejected: " +
+                "Since its DeleteOnParentDeleted is enabled and its ParentFramework [%s] is Deleted",
+            frameworkName, parentFrameworkName));
+      }
+
+      boolean stopOnParentStopped = parentFramework.isStopOnParentStopped();
+      if (stopOnParentStopped && frameworkDescriptor.getExecutionType() != ExecutionType.STOP &&
+          parentFrameworkRequest != null &&
+          parentFrameworkRequest.getFrameworkDescriptor().getExecutionType() == ExecutionType.STOP) {
+        // Stop future child Frameworks
+        frameworkDescriptor.setExecutionType(ExecutionType.STOP);
+      }
+    }
+
+    Long currentTimestamp = System.currentTimeMillis();
+    FrameworkRequest oldFrameworkRequest = getFrameworkRequest.apply(frameworkName);
+    if (oldFrameworkRequest != null) {
+      frameworkRequest.setFirstRequestTimestamp(oldFrameworkRequest.getFirstRequestTimestamp());
+    } else {
+      frameworkRequest.setFirstRequestTimestamp(currentTimestamp);
+    }
+    frameworkRequest.setLastRequestTimestamp(currentTimestamp);
+  }
+
+  // Reserve the TaskNumbers of the FrameworkRequest to be Set, so that the concurrent
+  // setFrameworkRequests cannot exceed the Max Total TaskNumber and the AdmissionLimits together.
+  // The returned reservation should be committed or rolled back once the ZK write is done.
+  // Should be called with the FrameworkLock
+  private TaskNumberReservation reserveTaskNumbers(
+      String frameworkName, FrameworkRequest frameworkRequest)
+      throws ThrottledRequestException {
+    int newTaskNumber = frameworkRequest.calcTotalTaskNumber();
+    FrameworkRequest oldFrameworkRequest = getCurrentFrameworkRequest(frameworkName);
+    int oldTaskNumber = (oldFrameworkRequest == null ? 0 : oldFrameworkRequest.calcTotalTaskNumber());
+
+    // AdmissionKey -> TaskNumber delta
+    Map<String, Integer> admissionTaskNumberDeltas = new LinkedHashMap<>();
+    Map<String, AdmissionLimit> admissionLimits = getAdmissionLimits(frameworkRequest);
+    if (oldFrameworkRequest != null) {
+      for (String admissionKey : getAdmissionLimits(oldFrameworkRequest).keySet()) {
+        admissionTaskNumberDeltas.merge(admissionKey, -oldTaskNumber, Integer::sum);
+      }
+    }
+    for (String admissionKey : admissionLimits.keySet()) {
+      admissionTaskNumberDeltas.merge(admissionKey, newTaskNumber, Integer::sum);
+    }
+
+    TaskNumberReservation reservation = new TaskNumberReservation();
+    try {
+      reservation.reserve(frameworkName, "Total", totalTaskNumber,
+          newTaskNumber - oldTaskNumber, conf.getMaxTotalTaskNumber());
+      for (Map.Entry<String, Integer> deltaKV : admissionTaskNumberDeltas.entrySet()) {
+        String admissionKey = deltaKV.getKey();
+        AdmissionLimit admissionLimit = admissionLimits.get(admissionKey);
+        reservation.reserve(frameworkName, admissionKey, getAdmissionTaskNumber(admissionKey),
+            deltaKV.getValue(), (admissionLimit == null ? null : admissionLimit.getMaxTotalTaskNumber()));
+      }
+    } catch (ThrottledRequestException e) {
+      reservation.rollback();
+      throw e;
+    }
+    return reservation;
+  }
+
+  // Add the TaskNumber of the FrameworkRequest to the TaskNumber counters, a negative one to remove it
+  // Should be called with the writeLock
+  private void addTaskNumbers(FrameworkRequest frameworkRequest, int taskNumber) {
+    totalTaskNumber.addAndGet(taskNumber);
+    for (String admissionKey : getAdmissionLimits(frameworkRequest).keySet()) {
+      getAdmissionTaskNumber(admissionKey).addAndGet(taskNumber);
+    }
+  }
+
+  private AtomicInteger getAdmissionTaskNumber(String admissionKey) {
+    return admissionTaskNumbers.computeIfAbsent(admissionKey, key -> new AtomicInteger(0));
+  }
+
+  // AdmissionKey -> AdmissionLimit of the FrameworkRequest, the AdmissionLimit is null if there is no limit
+  private Map<String, AdmissionLimit> getAdmissionLimits(FrameworkRequest frameworkRequest) {
+    Map<String, AdmissionLimit> admissionLimits = new HashMap<>();
+    String userName = getUserName(frameworkRequest);
+    if (userName != null) {
+      admissionLimits.put(AdmissionController.USER_ADMISSION_KEY_PREFIX + userName,
+          AdmissionController.getAdmissionLimit(conf.getWebServerUserAdmissionLimits(), userName));
+    }
+    LaunchClientType launchClientType = frameworkRequest.getLaunchClientType();
+    if (launchClientType != null) {
+      admissionLimits.put(AdmissionController.LAUNCH_CLIENT_TYPE_ADMISSION_KEY_PREFIX + launchClientType,
+          AdmissionController.getAdmissionLimit(
+              conf.getWebServerLaunchClientTypeAdmissionLimits(), launchClientType.toString()));
+    }
+    String queue = getQueue(frameworkRequest);
+    if (queue != null) {
+      admissionLimits.put(AdmissionController.QUEUE_ADMISSION_KEY_PREFIX + queue,
+          AdmissionController.getAdmissionLimit(conf.getWebServerQueueAdmissionLimits(), queue));
+    }
+    return admissionLimits;
+  }
+
+  // Put the FrameworkRequest which is already Set on ZK
+  // Should be called with the writeLock
+  private void putFrameworkRequestInternal(String frameworkName, FrameworkRequest frameworkRequest) {
+    if (!aggFrameworkRequests.containsKey(frameworkName)) {
+      aggFrameworkRequests.put(frameworkName, new AggregatedFrameworkRequest());
+    } else {
+      removeRequestIndex(aggFrameworkRequests.get(frameworkName).getFrameworkRequest());
+    }
+    aggFrameworkRequests.get(frameworkName).setFrameworkRequest(frameworkRequest);
+    increaseAggregatedFrameworkRequestVersion(frameworkName);
+    addRequestIndex(frameworkRequest);
+  }
+
+  // Resync the FrameworkRequests with ZK, in case they are partially Set or Deleted on ZK
+  // Should be called with the FrameworkLocks of the frameworkNames
+  private void resyncFrameworkRequests(Collection<String> frameworkNames) throws Exception {
+    Map<String, FrameworkRequest> persistedFrameworkRequests = zkStore.getFrameworkRequests(frameworkNames);
+    CommonUtils.executeWithLock(writeLock, () -> {
+      for (String frameworkName : frameworkNames) {
+        FrameworkRequest persistedFrameworkRequest = persistedFrameworkRequests.get(frameworkName);
+        if (persistedFrameworkRequest == null) {
+          // It is already Deleted on ZK
+          removeFrameworkRequestInternal(frameworkName);
+          continue;
+        }
+
+        FrameworkRequest frameworkRequest = getCurrentFrameworkRequest(frameworkName);
+        if (!ModelUtils.deepEquals(frameworkRequest, persistedFrameworkRequest)) {
+          if (frameworkRequest != null) {
+            addTaskNumbers(frameworkRequest, -frameworkRequest.calcTotalTaskNumber());
+          }
+          addTaskNumbers(persistedFrameworkRequest, persistedFrameworkRequest.calcTotalTaskNumber());
+          putFrameworkRequestInternal(frameworkName, persistedFrameworkRequest);
+        }
+      }
+    });
+  }
+
+  private void addRequestIndex(FrameworkRequest frameworkRequest) {
+    String frameworkName = frameworkRequest.getFrameworkName();
+    frameworkNames.add(frameworkName);
+    launchClientTypeIndex.computeIfAbsent(
+        frameworkRequest.getLaunchClientType(), k -> new TreeSet<>()).add(frameworkName);
+    userNameIndex.computeIfAbsent(
+        getUserName(frameworkRequest), k -> new TreeSet<>()).add(frameworkName);
+    queueIndex.computeIfAbsent(
+        getQueue(frameworkRequest), k -> new TreeSet<>()).add(frameworkName);
+  }
+
+  private void removeRequestIndex(FrameworkRequest frameworkRequest) {
+    String frameworkName = frameworkRequest.getFrameworkName();
+    frameworkNames.remove(frameworkName);
+    removeRequestIndex(launchClientTypeIndex, frameworkRequest.getLaunchClientType(), frameworkName);
+    removeRequestIndex(userNameIndex, getUserName(frameworkRequest), frameworkName);
+    removeRequestIndex(queueIndex, getQueue(frameworkRequest), frameworkName);
+  }
+
+  private static <K> void removeRequestIndex(
+      Map<K, NavigableSet<String>> index, K key, String frameworkName) {
+    NavigableSet<String> indexedFrameworkNames = index.get(key);
+    if (indexedFrameworkNames != null) {
+      indexedFrameworkNames.remove(frameworkName);
+      if (indexedFrameworkNames.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private static String getUserName(FrameworkRequest frameworkRequest) {
+    return frameworkRequest.getFrameworkDescriptor().getUser().getName();
+  }
+
+  private static String getQueue(FrameworkRequest frameworkRequest) {
+    return frameworkRequest.getFrameworkDescriptor().getPlatformSpecificParameters().getQueue();
+  }
+
+  private static <K> NavigableSet<String> getIndexedFrameworkNames(
+      Map<K, NavigableSet<String>> index, K key) {
+    if (key == null) {
+      return null;
+    }
+    return index.getOrDefault(key, Collections.emptyNavigableSet());
+  }
+
+  private void increaseLauncherRequestVersion() {
+    launcherRequestVersion = ++requestVersion;
+  }
+
+  private void increaseAggregatedFrameworkRequestVersion(String frameworkName) {
+    aggFrameworkRequestVersions.put(frameworkName, ++requestVersion);
+  }
+
+  // Handle the orphan Frameworks which may be caused by the Set FrameworkRequests.
+  // Should be called without any FrameworkLock.
+  // Since a child Framework and its ParentFramework may be Set concurrently, both of them
+  // check the orphan Frameworks after they are put in memory, so at least one of them
+  // will find the orphan child Framework.
+  private void onFrameworkRequestsSet(Collection<FrameworkRequest> frameworkRequests) throws Exception {
+    boolean anyFrameworkStopped = false;
+    boolean anyFrameworkHasParent = false;
+    for (FrameworkRequest frameworkRequest : frameworkRequests) {
+      FrameworkDescriptor frameworkDescriptor = frameworkRequest.getFrameworkDescriptor();
+      if (frameworkDescriptor.getExecutionType() == ExecutionType.STOP) {
+        anyFrameworkStopped = true;
+      }
+      if (frameworkDescriptor.getParentFramework() != null) {
+        anyFrameworkHasParent = true;
+      }
+    }
+
+    if (anyFrameworkHasParent) {
+      // Delete the child Frameworks whose ParentFramework is Deleted concurrently
+      deleteOrphanFrameworks();
+    }
+    if (anyFrameworkStopped || anyFrameworkHasParent) {
+      // Stop existing child Frameworks, including the ones whose ParentFramework is Stopped concurrently
+      stopOrphanFrameworks();
+    }
+  }
+
+  // Return the FrameworkNames whose FrameworkRequest matches the predicate now
+  private List<String> getFrameworkNames(Predicate<FrameworkRequest> predicate) throws Exception {
+    return CommonUtils.executeWithLock(readLock, () -> {
+      List<String> matchedFrameworkNames = new ArrayList<>();
+      for (AggregatedFrameworkRequest aggFrameworkRequest : aggFrameworkRequests.values()) {
+        FrameworkRequest frameworkRequest = aggFrameworkRequest.getFrameworkRequest();
+        if (predicate.test(frameworkRequest)) {
+          matchedFrameworkNames.add(frameworkRequest.getFrameworkName());
+        }
+      }
+      return matchedFrameworkNames;
+    });
+  }
+
+  // Return whether the Framework still exists and its FrameworkRequest matches the predicate now
+  private boolean isFrameworkMatched(String frameworkName, Predicate<FrameworkRequest> predicate) throws Exception {
+    return CommonUtils.executeWithLock(readLock, () -> {
+      AggregatedFrameworkRequest aggFrameworkRequest = aggFrameworkRequests.get(frameworkName);
+      return aggFrameworkRequest != null && predicate.test(aggFrameworkRequest.getFrameworkRequest());
+    });
+  }
+
+  // A Framework is DeleteOrphan, if and only if its ParentFramework is not null and Deleted.
+  // Should be called with the readLock or writeLock
+  private boolean isDeleteOrphanFramework(FrameworkRequest frameworkRequest) {
+    ParentFrameworkDescriptor parentFramework =
+        frameworkRequest.getFrameworkDescriptor().getParentFramework();
+    return parentFramework != null &&
+        parentFramework.isDeleteOnParentDeleted() &&
+        !aggFrameworkRequests.containsKey(parentFramework.getParentFrameworkName());
+  }
+
+  // A Framework is StopOrphan, if and only if its ParentFramework is not null and Stopped.
+  // Should be called with the readLock or writeLock
+  private boolean isStopOrphanFramework(FrameworkRequest frameworkRequest) {
+    FrameworkDescriptor frameworkDescriptor = frameworkRequest.getFrameworkDescriptor();
+    ParentFrameworkDescriptor parentFramework = frameworkDescriptor.getParentFramework();
+    if (parentFramework == null ||
+        !parentFramework.isStopOnParentStopped() ||
+        frameworkDescriptor.getExecutionType() == ExecutionType.STOP) {
+      return false;
     }
-    return aggFrameworkRequests.remove(frameworkName) == null;
+    AggregatedFrameworkRequest parentAggFrameworkRequest =
+        aggFrameworkRequests.get(parentFramework.getParentFrameworkName());
+    return parentAggFrameworkRequest != null &&
+        parentAggFrameworkRequest.getFrameworkRequest().
+            getFrameworkDescriptor().getExecutionType() == ExecutionType.STOP;
   }
 
   // deleteOrphanFrameworks need to be handled in WebServer side instead of AM side,
   // since AM is not always running, such as when the FrameworkState is not APPLICATION_RUNNING.
+  // Should be called without any FrameworkLock.
   private void deleteOrphanFrameworks() throws Exception {
-    // A Framework is DeleteOrphan, if and only if its ParentFramework is not null and Deleted.
     // DeleteOrphan Framework will be Deleted here, if its DeleteOnParentDeleted is enabled.
     boolean frameworkDeletedInThisPass;
     do {
       frameworkDeletedInThisPass = false;
 
-      for (AggregatedFrameworkRequest aggFrameworkRequest : new ArrayList<>(aggFrameworkRequests.values())) {
-        FrameworkRequest frameworkRequest = aggFrameworkRequest.getFrameworkRequest();
-        String frameworkName = frameworkRequest.getFrameworkName();
-        ParentFrameworkDescriptor parentFramework =
-            frameworkRequest.getFrameworkDescriptor().getParentFramework();
-
-        if (parentFramework != null) {
-          String parentFrameworkName = parentFramework.getParentFrameworkName();
-          boolean deleteOnParentDeleted = parentFramework.isDeleteOnParentDeleted();
-          if (deleteOnParentDeleted && !aggFrameworkRequests.containsKey(parentFrameworkName)) {
-            LOGGER.logInfo(
-                "[%s]: deleteOrphanFrameworks: " +
-                    "Since its DeleteOnParentDeleted is enabled and its ParentFramework [%s] is Deleted",
-                frameworkName, parentFrameworkName);
-
-            deleteFrameworkRequestInternal(frameworkName);
-            frameworkDeletedInThisPass = true;
+      for (String frameworkName : getFrameworkNames(this::isDeleteOrphanFramework)) {
+        boolean frameworkDeleted = executeWithFrameworkLock(frameworkName, () -> {
+          // Recheck it with its FrameworkLock, since it may be changed after it is found
+          if (!isFrameworkMatched(frameworkName, this::isDeleteOrphanFramework)) {
+            return false;
           }
-        }
+
+          LOGGER.logInfo(
+              "[%s]: deleteOrphanFrameworks: " +
+                  "Since its DeleteOnParentDeleted is enabled and its ParentFramework [%s] is Deleted",
+              frameworkName, getCurrentFrameworkRequest(frameworkName).
+                  getFrameworkDescriptor().getParentFramework().getParentFrameworkName());
+
+          deleteFrameworkRequestInternal(frameworkName);
+          return true;
+        });
+        frameworkDeletedInThisPass |= frameworkDeleted;
       }
     } while (frameworkDeletedInThisPass);
   }
 
-  private void updateExecutionTypeInternal(String frameworkName, ExecutionType executionType) throws Exception {
-    FrameworkRequest frameworkRequest = YamlUtils.deepCopy(
-        checkExist(aggFrameworkRequests.get(frameworkName)).getFrameworkRequest(), FrameworkRequest.class);
+  // Should be called with the FrameworkLock
+  private FrameworkRequest updateExecutionTypeInternal(String frameworkName, ExecutionType executionType) throws Exception {
+    FrameworkRequest frameworkRequest = ModelUtils.deepCopy(
+        checkExist(getCurrentFrameworkRequest(frameworkName)), FrameworkRequest.class);
     frameworkRequest.getFrameworkDescriptor().setExecutionType(executionType);
-    setFrameworkRequest(frameworkName, frameworkRequest);
+    setFrameworkRequestInternal(frameworkName, frameworkRequest);
+    return frameworkRequest;
   }
 
+  // Should be called with the FrameworkLock
   private void stopFrameworkRequestInternal(String frameworkName) throws Exception {
     updateExecutionTypeInternal(frameworkName, ExecutionType.STOP);
   }
 
   // stopOrphanFrameworks need to be handled in WebServer side instead of AM side,
   // since AM is not always running, such as when the FrameworkState is not APPLICATION_RUNNING.
+  // Should be called without any FrameworkLock.
   private void stopOrphanFrameworks() throws Exception {
-    // A Framework is StopOrphan, if and only if its ParentFramework is not null and Stopped.
     // StopOrphan Framework will be Stopped here, if its StopOnParentStopped is enabled.
     boolean frameworkStoppedInThisPass;
     do {
       frameworkStoppedInThisPass = false;
 
-      for (AggregatedFrameworkRequest aggFrameworkRequest : new ArrayList<>(aggFrameworkRequests.values())) {
-        FrameworkRequest frameworkRequest = aggFrameworkRequest.getFrameworkRequest();
-        String frameworkName = frameworkRequest.getFrameworkName();
-        FrameworkDescriptor frameworkDescriptor = frameworkRequest.getFrameworkDescriptor();
-        ExecutionType executionType = frameworkDescriptor.getExecutionType();
-        ParentFrameworkDescriptor parentFramework = frameworkDescriptor.getParentFramework();
-
-        if (parentFramework != null) {
-          String parentFrameworkName = parentFramework.getParentFrameworkName();
-          boolean stopOnParentStopped = parentFramework.isStopOnParentStopped();
-          if (stopOnParentStopped && executionType != ExecutionType.STOP &&
-              aggFrameworkRequests.containsKey(parentFrameworkName) &&
-              aggFrameworkRequests.get(parentFrameworkName).getFrameworkRequest().
-                  getFrameworkDescriptor().getExecutionType() == ExecutionType.STOP) {
-            LOGGER.logInfo(
-                "[%s]: stopOrphanFrameworks: " +
-                    "Since its StopOnParentStopped is enabled and its ParentFramework [%s] is Stopped",
-                frameworkName, parentFrameworkName);
-
-            stopFrameworkRequestInternal(frameworkName);
-            frameworkStoppedInThisPass = true;
+      for (String frameworkName : getFrameworkNames(this::isStopOrphanFramework)) {
+        boolean frameworkStopped = executeWithFrameworkLock(frameworkName, () -> {
+          // Recheck it with its FrameworkLock, since it may be changed after it is found
+          if (!isFrameworkMatched(frameworkName, this::isStopOrphanFramework)) {
+            return false;
           }
-        }
+
+          LOGGER.logInfo(
+              "[%s]: stopOrphanFrameworks: " +
+                  "Since its StopOnParentStopped is enabled and its ParentFramework [%s] is Stopped",
+              frameworkName, getCurrentFrameworkRequest(frameworkName).
+                  getFrameworkDescriptor().getParentFramework().getParentFrameworkName());
+
+          stopFrameworkRequestInternal(frameworkName);
+          return true;
+        });
+        frameworkStoppedInThisPass |= frameworkStopped;
       }
     } while (frameworkStoppedInThisPass);
   }
 
   private void gcCompletedFrameworks(Map<String, FrameworkStatus> completedFrameworkStatuses) throws Exception {
     Long currentTimestamp = System.currentTimeMillis();
+    boolean anyFrameworkDeleted = false;
     for (FrameworkStatus completedFrameworkStatus : completedFrameworkStatuses.values()) {
       String frameworkName = completedFrameworkStatus.getFrameworkName();
       Integer frameworkVersion = completedFrameworkStatus.getFrameworkVersion();
       Long frameworkCompletedTimestamp = completedFrameworkStatus.getFrameworkCompletedTimestamp();
 
-      if (!aggFrameworkRequests.containsKey(frameworkName)) {
-        // Framework is already deleted.
-        continue;
-      }
-
-      FrameworkRequest frameworkRequest = aggFrameworkRequests.get(frameworkName).getFrameworkRequest();
-      if (!frameworkRequest.getFrameworkDescriptor().getVersion().equals(frameworkVersion)) {
-        // Framework is already upgraded.
-        // Note although FrameworkStatus maybe older than FrameworkRequest, it is still unchanged if version matched,
-        // since CompletedFrameworks are in FINAL_STATES.
-        // So, FrameworkStatus should be synced with FrameworkRequest if version matched.
-        continue;
-      }
+      boolean frameworkDeleted = executeWithFrameworkLock(frameworkName, () -> {
+        FrameworkRequest frameworkRequest = getCurrentFrameworkRequest(frameworkName);
+        if (frameworkRequest == null) {
+          // Framework is already deleted.
+          return false;
+        }
 
-      if (frameworkRequest.getLaunchClientType() == LaunchClientType.DATA_DEPLOYMENT) {
-        // Framework launched by DataDeployment should be totally managed by DataDeploymentManager.
-        continue;
-      }
+        if (!frameworkRequest.getFrameworkDescriptor().getVersion().equals(frameworkVersion)) {
+          // Framework is already upgraded.
+          // Note although FrameworkStatus maybe older than FrameworkRequest, it is still unchanged if version matched,
+          // since CompletedFrameworks are in FINAL_STATES.
+          // So, FrameworkStatus should be synced with FrameworkRequest if version matched.
+          return false;
+        }
 
-      if (currentTimestamp - frameworkCompletedTimestamp <= conf.getFrameworkCompletedRetainSec() * 1000) {
-        // Framework should be retained in recent FrameworkCompletedRetainSec.
-        continue;
-      }
+        if (frameworkRequest.getLaunchClientType() == LaunchClientType.DATA_DEPLOYMENT) {
+          // Framework launched by DataDeployment should be totally managed by DataDeploymentManager.
+          return false;
+        }
 
-      // Framework is allowed to GC now.
-      LOGGER.logInfo(
-          "[%s]: gcCompletedFrameworks: " +
-              "Since its FrameworkCompletedTime [%sms] is beyond the FrameworkCompletedRetainSec [%ss] now [%sms]",
-          frameworkName,
-          frameworkCompletedTimestamp,
-          conf.getFrameworkCompletedRetainSec(),
-          currentTimestamp);
+        if (currentTimestamp - frameworkCompletedTimestamp <= conf.getFrameworkCompletedRetainSec() * 1000) {
+          // Framework should be retained in recent FrameworkCompletedRetainSec.
+          return false;
+        }
 
-      deleteFrameworkRequest(frameworkName);
+        // Framework is allowed to GC now.
+        LOGGER.logInfo(
+            "[%s]: gcCompletedFrameworks: " +
+                "Since its FrameworkCompletedTime [%sms] is beyond the FrameworkCompletedRetainSec [%ss] now [%sms]",
+            frameworkName,
+            frameworkCompletedTimestamp,
+            conf.getFrameworkCompletedRetainSec(),
+            currentTimestamp);
+
+        deleteFrameworkRequestInternal(frameworkName);
+        return true;
+      });
+      anyFrameworkDeleted |= frameworkDeleted;
     }
-  }
 
-  private int getTotalTaskNumber() {
-    int totalTaskNumber = 0;
-    for (AggregatedFrameworkRequest aggFrameworkRequest : aggFrameworkRequests.values()) {
-      totalTaskNumber += aggFrameworkRequest.calcTotalTaskNumber();
+    if (anyFrameworkDeleted) {
+      // Delete existing child Frameworks
+      deleteOrphanFrameworks();
     }
-    return totalTaskNumber;
   }
 
   /**
@@ -284,18 +721,52 @@ public LauncherRequest getLauncherRequest() throws Exception {
   }
 
   public List<FrameworkRequest> getFrameworkRequests(LaunchClientType clientType, String userName) throws Exception {
+    return getFrameworkRequests(clientType, userName, null, null, null, Integer.MAX_VALUE, null);
+  }
+
+  // Query the FrameworkRequests by the secondary indexes, a null filter matches all.
+  // The FrameworkRequests are returned in FrameworkName order, starting after the
+  // cursorFrameworkName (exclusive) and at most limit ones.
+  // The candidateFrameworkNames is an extra index from the caller, such as the index of
+  // FrameworkState, and the predicate is the extra filter which cannot be indexed here.
+  public List<FrameworkRequest> getFrameworkRequests(
+      LaunchClientType clientType, String userName, String queue,
+      NavigableSet<String> candidateFrameworkNames, String cursorFrameworkName,
+      int limit, Predicate<FrameworkRequest> predicate) throws Exception {
     return CommonUtils.executeWithLock(readLock, () -> {
-      List<FrameworkRequest> frameworkRequests = new ArrayList<>();
+      // Scan the smallest index, and check the others for each FrameworkRequest
+      NavigableSet<String> scanFrameworkNames = frameworkNames;
+      for (NavigableSet<String> indexedFrameworkNames : Arrays.asList(
+          getIndexedFrameworkNames(launchClientTypeIndex, clientType),
+          getIndexedFrameworkNames(userNameIndex, userName),
+          getIndexedFrameworkNames(queueIndex, queue),
+          candidateFrameworkNames)) {
+        if (indexedFrameworkNames != null && indexedFrameworkNames.size() < scanFrameworkNames.size()) {
+          scanFrameworkNames = indexedFrameworkNames;
+        }
+      }
+      if (cursorFrameworkName != null) {
+        scanFrameworkNames = scanFrameworkNames.tailSet(cursorFrameworkName, false);
+      }
 
-      for (AggregatedFrameworkRequest aggFrameworkRequest : aggFrameworkRequests.values()) {
-        FrameworkRequest frameworkRequest = aggFrameworkRequest.getFrameworkRequest();
+      List<FrameworkRequest> frameworkRequests = new ArrayList<>();
+      for (String frameworkName : scanFrameworkNames) {
+        if (frameworkRequests.size() >= limit) {
+          break;
+        }
 
-        if (clientType != null &&
-            !clientType.equals(frameworkRequest.getLaunchClientType())) {
+        AggregatedFrameworkRequest aggFrameworkRequest = aggFrameworkRequests.get(frameworkName);
+        if (aggFrameworkRequest == null) {
+          // The candidateFrameworkNames may contain deleted Frameworks
           continue;
         }
-        if (userName != null &&
-            !userName.equals(frameworkRequest.getFrameworkDescriptor().getUser().getName())) {
+
+        FrameworkRequest frameworkRequest = aggFrameworkRequest.getFrameworkRequest();
+        if (!matches(clientType, frameworkRequest, FrameworkRequest::getLaunchClientType) ||
+            !matches(userName, frameworkRequest, RequestManager::getUserName) ||
+            !matches(queue, frameworkRequest, RequestManager::getQueue) ||
+            (candidateFrameworkNames != null && !candidateFrameworkNames.contains(frameworkName)) ||
+            (predicate != null && !predicate.test(frameworkRequest))) {
           continue;
         }
 
@@ -306,9 +777,14 @@ public List<FrameworkRequest> getFrameworkRequests(LaunchClientType clientType,
     });
   }
 
+  private static <T> boolean matches(
+      T expectedValue, FrameworkRequest frameworkRequest, Function<FrameworkRequest, T> valueGetter) {
+    return expectedValue == null || expectedValue.equals(valueGetter.apply(frameworkRequest));
+  }
+
   public AggregatedFrameworkRequest getAggregatedFrameworkRequest(String frameworkName) throws Exception {
     return CommonUtils.executeWithLock(readLock, () ->
-        YamlUtils.deepCopy(checkExist(aggFrameworkRequests.get(frameworkName)), AggregatedFrameworkRequest.class));
+        ModelUtils.deepCopy(checkExist(aggFrameworkRequests.get(frameworkName)), AggregatedFrameworkRequest.class));
   }
 
   public FrameworkRequest getFrameworkRequest(String frameworkName) throws Exception {
@@ -316,6 +792,29 @@ public FrameworkRequest getFrameworkRequest(String frameworkName) throws Excepti
         checkExist(aggFrameworkRequests.get(frameworkName)).getFrameworkRequest());
   }
 
+  // AdmissionKey -> TaskNumber, including the reserved ones
+  public Map<String, Integer> getAdmissionTaskNumbers() {
+    Map<String, Integer> taskNumbers = new HashMap<>();
+    for (Map.Entry<String, AtomicInteger> taskNumberKV : admissionTaskNumbers.entrySet()) {
+      taskNumbers.put(taskNumberKV.getKey(), taskNumberKV.getValue().get());
+    }
+    return taskNumbers;
+  }
+
+  public long getRequestVersion() throws Exception {
+    return CommonUtils.executeWithLock(readLock, () -> requestVersion);
+  }
+
+  public long getLauncherRequestVersion() throws Exception {
+    return CommonUtils.executeWithLock(readLock, () -> launcherRequestVersion);
+  }
+
+  // Return 0 if the AggregatedFrameworkRequest does not exist
+  public long getAggregatedFrameworkRequestVersion(String frameworkName) throws Exception {
+    return CommonUtils.executeWithLock(readLock, () ->
+        aggFrameworkRequestVersions.getOrDefault(frameworkName, 0L));
+  }
+
   public ClusterConfiguration getClusterConfiguration() throws Exception {
     return CommonUtils.executeWithLock(readLock, () -> launcherRequest.getClusterConfiguration());
   }
@@ -326,176 +825,255 @@ public AclConfiguration getAclConfiguration() throws Exception {
 
   /**
    * REGION ModifyInterface
+   * The FrameworkRequests are Set on ZK with the FrameworkLocks instead of the writeLock,
+   * so the modifications to different Frameworks are not serialized by the ZK latency.
    */
   // Note to avoid update partially modified Request on ZK
   public void setFrameworkRequest(
       String frameworkName, FrameworkRequest frameworkRequest)
       throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
-      FrameworkDescriptor frameworkDescriptor = frameworkRequest.getFrameworkDescriptor();
-      ExecutionType executionType = frameworkDescriptor.getExecutionType();
-      ParentFrameworkDescriptor parentFramework = frameworkDescriptor.getParentFramework();
-
-      if (parentFramework != null) {
-        String parentFrameworkName = parentFramework.getParentFrameworkName();
-        boolean deleteOnParentDeleted = parentFramework.isDeleteOnParentDeleted();
-        if (deleteOnParentDeleted && !aggFrameworkRequests.containsKey(parentFrameworkName) &&
-            !frameworkName.equals(parentFrameworkName)) {
-          // Reject future child Frameworks
-          throw new BadRequestException(String.format(
-              "[%s]: setFrameworkRequest Rejected: " +
-                  "Since its DeleteOnParentDeleted is enabled and its ParentFramework [%s] is Deleted",
-              frameworkName, parentFrameworkName));
-        }
+    executeWithFrameworkLock(frameworkName, () -> {
+      setFrameworkRequestInternal(frameworkName, frameworkRequest);
+    });
+    onFrameworkRequestsSet(Collections.singletonList(frameworkRequest));
+  }
 
-        boolean stopOnParentStopped = parentFramework.isStopOnParentStopped();
-        if (stopOnParentStopped && executionType != ExecutionType.STOP &&
-            aggFrameworkRequests.containsKey(parentFrameworkName) &&
-            aggFrameworkRequests.get(parentFrameworkName).getFrameworkRequest().
-                getFrameworkDescriptor().getExecutionType() == ExecutionType.STOP) {
-          // Stop future child Frameworks
-          executionType = ExecutionType.STOP;
-          frameworkDescriptor.setExecutionType(executionType);
+  // Batch version of setFrameworkRequest, it checks all the FrameworkRequests and reserves
+  // the TaskNumbers for them in one pass, then Sets the accepted ones on ZK together.
+  // Return FrameworkName -> the Exception why it is rejected or failed to be Set, the others
+  // are accepted. Same as deleteFrameworkRequests, the FrameworkRequests are Set on ZK in
+  // several transactions, so the failed ones are the ones not Set after resync.
+  public Map<String, Exception> setFrameworkRequests(
+      Map<String, FrameworkRequest> frameworkRequests)
+      throws Exception {
+    Map<String, Exception> rejectedFrameworks = new HashMap<>();
+    Map<String, FrameworkRequest> acceptedFrameworkRequests = new LinkedHashMap<>();
+    executeWithFrameworkLocks(frameworkRequests.keySet(), () -> {
+      Map<String, TaskNumberReservation> reservations = new HashMap<>();
+      for (Map.Entry<String, FrameworkRequest> frameworkRequestKV : frameworkRequests.entrySet()) {
+        String frameworkName = frameworkRequestKV.getKey();
+        FrameworkRequest frameworkRequest = frameworkRequestKV.getValue();
+        try {
+          // The ParentFramework may be also accepted in the same batch
+          prepareFrameworkRequest(frameworkName, frameworkRequest, name ->
+              (acceptedFrameworkRequests.containsKey(name) ?
+                  acceptedFrameworkRequests.get(name) : getCurrentFrameworkRequest(name)));
+          reservations.put(frameworkName, reserveTaskNumbers(frameworkName, frameworkRequest));
+          acceptedFrameworkRequests.put(frameworkName, frameworkRequest);
+        } catch (BadRequestException | ThrottledRequestException e) {
+          rejectedFrameworks.put(frameworkName, e);
         }
       }
-
-      Long currentTimestamp = System.currentTimeMillis();
-      int frameworkTaskNumber = frameworkRequest.calcTotalTaskNumber();
-      int newTotalTaskNumber = totalTaskNumber + frameworkTaskNumber;
-      if (aggFrameworkRequests.containsKey(frameworkName)) {
-        FrameworkRequest oldFrameworkRequest = aggFrameworkRequests.get(frameworkName).getFrameworkRequest();
-        newTotalTaskNumber -= oldFrameworkRequest.calcTotalTaskNumber();
-        frameworkRequest.setFirstRequestTimestamp(oldFrameworkRequest.getFirstRequestTimestamp());
-      } else {
-        frameworkRequest.setFirstRequestTimestamp(currentTimestamp);
+      if (acceptedFrameworkRequests.isEmpty()) {
+        return null;
       }
-      frameworkRequest.setLastRequestTimestamp(currentTimestamp);
 
-      if (newTotalTaskNumber > conf.getMaxTotalTaskNumber()) {
-        throw new ThrottledRequestException(String.format(
-            "[%s]: setFrameworkRequest Rejected: " +
-                "Since the New Total TaskNumber %s will exceed the Max Total TaskNumber %s",
-            frameworkName, newTotalTaskNumber, conf.getMaxTotalTaskNumber()));
-      } else {
-        zkStore.setFrameworkRequest(frameworkName, frameworkRequest);
-
-        LOGGER.logDebug("[%s]: setFrameworkRequest: " +
-                "New Total TaskNumber: %s, Old Total TaskNumber: %s, Framework TaskNumber: %s",
-            frameworkName, newTotalTaskNumber, totalTaskNumber, frameworkTaskNumber);
-        totalTaskNumber = newTotalTaskNumber;
+      Set<String> existingFrameworkNames = new HashSet<>();
+      for (String frameworkName : acceptedFrameworkRequests.keySet()) {
+        if (getCurrentFrameworkRequest(frameworkName) != null) {
+          existingFrameworkNames.add(frameworkName);
+        }
       }
-
-      if (!aggFrameworkRequests.containsKey(frameworkName)) {
-        aggFrameworkRequests.put(frameworkName, new AggregatedFrameworkRequest());
+      try {
+        zkStore.setFrameworkRequests(acceptedFrameworkRequests, existingFrameworkNames);
+      } catch (Exception e) {
+        for (TaskNumberReservation reservation : reservations.values()) {
+          reservation.rollback();
+        }
+        // Some of them may be already Set on ZK, so resync them to be CONSISTENT with ZK
+        resyncFrameworkRequests(acceptedFrameworkRequests.keySet());
+        Set<String> failedFrameworkNames = new HashSet<>();
+        for (Map.Entry<String, FrameworkRequest> frameworkRequestKV : acceptedFrameworkRequests.entrySet()) {
+          if (!ModelUtils.deepEquals(
+              getCurrentFrameworkRequest(frameworkRequestKV.getKey()), frameworkRequestKV.getValue())) {
+            failedFrameworkNames.add(frameworkRequestKV.getKey());
+          }
+        }
+        for (String frameworkName : failedFrameworkNames) {
+          acceptedFrameworkRequests.remove(frameworkName);
+          rejectedFrameworks.put(frameworkName, e);
+        }
+        LOGGER.logWarning(e, "setFrameworkRequests: Failed to set %s Frameworks: %s",
+            failedFrameworkNames.size(), failedFrameworkNames);
+        return null;
       }
-      aggFrameworkRequests.get(frameworkName).setFrameworkRequest(frameworkRequest);
 
-      if (executionType == ExecutionType.STOP) {
-        // Stop existing child Frameworks
-        stopOrphanFrameworks();
-      }
+      CommonUtils.executeWithLock(writeLock, () -> {
+        for (Map.Entry<String, FrameworkRequest> frameworkRequestKV : acceptedFrameworkRequests.entrySet()) {
+          reservations.get(frameworkRequestKV.getKey()).commit();
+          putFrameworkRequestInternal(frameworkRequestKV.getKey(), frameworkRequestKV.getValue());
+        }
+      });
+
+      LOGGER.logInfo("setFrameworkRequests: " +
+              "Accepted %s Frameworks, Rejected %s Frameworks, Total TaskNumber: %s",
+          acceptedFrameworkRequests.size(), rejectedFrameworks.size(), totalTaskNumber.get());
+      return null;
     });
+
+    onFrameworkRequestsSet(acceptedFrameworkRequests.values());
+    return rejectedFrameworks;
   }
 
   public void deleteFrameworkRequest(
       String frameworkName)
       throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
-      // Should success even if frameworkName does not exist
-      if (deleteFrameworkRequestInternal(frameworkName)) {
-        // Delete existing child Frameworks
-        deleteOrphanFrameworks();
+    // Should success even if frameworkName does not exist
+    executeWithFrameworkLock(frameworkName, () -> {
+      deleteFrameworkRequestInternal(frameworkName);
+    });
+
+    // Delete existing child Frameworks
+    deleteOrphanFrameworks();
+  }
+
+  // Batch version of deleteFrameworkRequest, the FrameworkRequests are deleted on ZK together.
+  // Return FrameworkName -> the Exception why it is failed to be deleted, the others are deleted.
+  // Since the FrameworkRequests are deleted on ZK in several transactions, a failure may
+  // only delete a part of them, so the failed ones are the ones still exist after resync.
+  public Map<String, Exception> deleteFrameworkRequests(
+      Collection<String> frameworkNames)
+      throws Exception {
+    Map<String, Exception> failedFrameworks = new HashMap<>();
+    executeWithFrameworkLocks(frameworkNames, () -> {
+      try {
+        // Should success even if frameworkNames do not exist
+        zkStore.deleteFrameworkRequests(frameworkNames);
+      } catch (Exception e) {
+        // Some of them may be already Deleted on ZK, so resync them to be CONSISTENT with ZK
+        resyncFrameworkRequests(frameworkNames);
+        for (String frameworkName : frameworkNames) {
+          if (getCurrentFrameworkRequest(frameworkName) != null) {
+            failedFrameworks.put(frameworkName, e);
+          }
+        }
+        LOGGER.logWarning(e, "deleteFrameworkRequests: Failed to delete %s Frameworks: %s",
+            failedFrameworks.size(), failedFrameworks.keySet());
+        return null;
       }
+
+      CommonUtils.executeWithLock(writeLock, () -> {
+        for (String frameworkName : frameworkNames) {
+          removeFrameworkRequestInternal(frameworkName);
+        }
+      });
+
+      LOGGER.logInfo("deleteFrameworkRequests: Deleted %s Frameworks, Total TaskNumber: %s",
+          frameworkNames.size(), totalTaskNumber.get());
+      return null;
     });
+
+    // Delete existing child Frameworks
+    deleteOrphanFrameworks();
+    return failedFrameworks;
   }
 
   public void deleteMigrateTaskRequest(
       String frameworkName, String containerId)
       throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
+    executeWithFrameworkLock(frameworkName, () -> {
       // Should success even if frameworkName and containerId does not exist
       zkStore.deleteMigrateTaskRequest(frameworkName, containerId);
-      try {
-        aggFrameworkRequests.get(frameworkName).getMigrateTaskRequests().remove(containerId);
-      } catch (Exception ignored) {
-      }
+      CommonUtils.executeWithLock(writeLock, () -> {
+        try {
+          if (aggFrameworkRequests.get(frameworkName).getMigrateTaskRequests().remove(containerId) != null) {
+            increaseAggregatedFrameworkRequestVersion(frameworkName);
+          }
+        } catch (Exception ignored) {
+        }
+      });
     });
   }
 
   public void updateTaskNumber(
       String frameworkName, String taskRoleName, UpdateTaskNumberRequest updateTaskNumberRequest)
       throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
-      FrameworkRequest frameworkRequest = YamlUtils.deepCopy(
-          checkExist(aggFrameworkRequests.get(frameworkName)).getFrameworkRequest(), FrameworkRequest.class);
-      Map<String, TaskRoleDescriptor> taskRoles = frameworkRequest.getFrameworkDescriptor().getTaskRoles();
+    FrameworkRequest frameworkRequest = executeWithFrameworkLock(frameworkName, () -> {
+      FrameworkRequest newFrameworkRequest = ModelUtils.deepCopy(
+          checkExist(getCurrentFrameworkRequest(frameworkName)), FrameworkRequest.class);
+      Map<String, TaskRoleDescriptor> taskRoles = newFrameworkRequest.getFrameworkDescriptor().getTaskRoles();
       TaskRoleDescriptor taskRole = checkExist(taskRoles.get(taskRoleName));
       taskRole.setTaskNumber(updateTaskNumberRequest.getTaskNumber());
-      setFrameworkRequest(frameworkName, frameworkRequest);
+      setFrameworkRequestInternal(frameworkName, newFrameworkRequest);
+      return newFrameworkRequest;
     });
+    onFrameworkRequestsSet(Collections.singletonList(frameworkRequest));
   }
 
   public void updateExecutionType(
       String frameworkName, UpdateExecutionTypeRequest updateExecutionTypeRequest)
       throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
-      updateExecutionTypeInternal(frameworkName, updateExecutionTypeRequest.getExecutionType());
-    });
+    FrameworkRequest frameworkRequest = executeWithFrameworkLock(frameworkName, () ->
+        updateExecutionTypeInternal(frameworkName, updateExecutionTypeRequest.getExecutionType()));
+    onFrameworkRequestsSet(Collections.singletonList(frameworkRequest));
   }
 
   public void updateMigrateTask(
       String frameworkName, String containerId, MigrateTaskRequest migrateTaskRequest)
       throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
+    executeWithFrameworkLock(frameworkName, () -> {
       // Check whether frameworkName exists first
-      AggregatedFrameworkRequest aggFrameworkRequest = checkExist(aggFrameworkRequests.get(frameworkName));
+      checkExist(getCurrentFrameworkRequest(frameworkName));
       zkStore.setMigrateTaskRequest(frameworkName, containerId, migrateTaskRequest);
-      if (aggFrameworkRequest.getMigrateTaskRequests() == null) {
-        aggFrameworkRequest.setMigrateTaskRequests(new HashMap<>());
-      }
-      aggFrameworkRequest.getMigrateTaskRequests().put(containerId, migrateTaskRequest);
+      CommonUtils.executeWithLock(writeLock, () -> {
+        AggregatedFrameworkRequest aggFrameworkRequest = aggFrameworkRequests.get(frameworkName);
+        if (aggFrameworkRequest.getMigrateTaskRequests() == null) {
+          aggFrameworkRequest.setMigrateTaskRequests(new HashMap<>());
+        }
+        aggFrameworkRequest.getMigrateTaskRequests().put(containerId, migrateTaskRequest);
+        increaseAggregatedFrameworkRequestVersion(frameworkName);
+      });
     });
   }
 
   public void updateApplicationProgress(
       String frameworkName, OverrideApplicationProgressRequest overrideApplicationProgressRequest)
       throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
+    executeWithFrameworkLock(frameworkName, () -> {
       // Check whether frameworkName exists first
-      AggregatedFrameworkRequest aggFrameworkRequest = checkExist(aggFrameworkRequests.get(frameworkName));
+      checkExist(getCurrentFrameworkRequest(frameworkName));
       zkStore.setOverrideApplicationProgressRequest(frameworkName, overrideApplicationProgressRequest);
-      aggFrameworkRequest.setOverrideApplicationProgressRequest(overrideApplicationProgressRequest);
+      CommonUtils.executeWithLock(writeLock, () -> {
+        aggFrameworkRequests.get(frameworkName).setOverrideApplicationProgressRequest(overrideApplicationProgressRequest);
+        increaseAggregatedFrameworkRequestVersion(frameworkName);
+      });
     });
   }
 
   public void updateDataDeploymentVersion(UpdateDataDeploymentVersionRequest updateDataDeploymentVersionRequest) throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
-      LauncherRequest newLauncherRequest = YamlUtils.deepCopy(launcherRequest, LauncherRequest.class);
+    CommonUtils.executeWithLock(launcherRequestLock, () -> {
+      LauncherRequest newLauncherRequest = ModelUtils.deepCopy(launcherRequest, LauncherRequest.class);
       if (updateDataDeploymentVersionRequest.getDataDeploymentVersionType() == DataDeploymentVersionType.LAUNCHING) {
         newLauncherRequest.setLaunchingDataDeploymentVersion(updateDataDeploymentVersionRequest.getDataDeploymentVersion());
       } else if (updateDataDeploymentVersionRequest.getDataDeploymentVersionType() == DataDeploymentVersionType.LAUNCHED) {
         newLauncherRequest.setLaunchedDataDeploymentVersion(updateDataDeploymentVersionRequest.getDataDeploymentVersion());
       }
-      zkStore.setLauncherRequest(newLauncherRequest);
-      launcherRequest = newLauncherRequest;
+      setLauncherRequestInternal(newLauncherRequest);
     });
   }
 
   public void updateClusterConfiguration(ClusterConfiguration clusterConfiguration) throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
-      LauncherRequest newLauncherRequest = YamlUtils.deepCopy(launcherRequest, LauncherRequest.class);
+    CommonUtils.executeWithLock(launcherRequestLock, () -> {
+      LauncherRequest newLauncherRequest = ModelUtils.deepCopy(launcherRequest, LauncherRequest.class);
       newLauncherRequest.setClusterConfiguration(clusterConfiguration);
-      zkStore.setLauncherRequest(newLauncherRequest);
-      launcherRequest = newLauncherRequest;
+      setLauncherRequestInternal(newLauncherRequest);
     });
   }
 
   public void updateAclConfiguration(AclConfiguration aclConfiguration) throws Exception {
-    CommonUtils.executeWithLock(writeLock, () -> {
-      LauncherRequest newLauncherRequest = YamlUtils.deepCopy(launcherRequest, LauncherRequest.class);
+    CommonUtils.executeWithLock(launcherRequestLock, () -> {
+      LauncherRequest newLauncherRequest = ModelUtils.deepCopy(launcherRequest, LauncherRequest.class);
       newLauncherRequest.setAclConfiguration(aclConfiguration);
-      zkStore.setLauncherRequest(newLauncherRequest);
+      setLauncherRequestInternal(newLauncherRequest);
+    });
+  }
+
+  // Should be called with the launcherRequestLock
+  private void setLauncherRequestInternal(LauncherRequest newLauncherRequest) throws Exception {
+    zkStore.setLauncherRequest(newLauncherRequest);
+    CommonUtils.executeWithLock(writeLock, () -> {
       launcherRequest = newLauncherRequest;
+      increaseLauncherRequestVersion();
     });
   }
 
@@ -506,8 +1084,7 @@ public void onCompletedFrameworkStatusesUpdated(
       Map<String, FrameworkStatus> completedFrameworkStatuses)
       throws Exception {
     if (completedFrameworkStatuses.size() > 0) {
-      CommonUtils.executeWithLock(writeLock, () ->
-          gcCompletedFrameworks(completedFrameworkStatuses));
+      gcCompletedFrameworks(completedFrameworkStatuses);
     }
   }
-}
\ No newline at end of file
+}
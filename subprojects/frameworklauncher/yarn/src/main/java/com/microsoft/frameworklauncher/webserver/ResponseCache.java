@@ -0,0 +1,176 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import com.microsoft.frameworklauncher.common.log.DefaultLogger;
+import com.microsoft.frameworklauncher.common.utils.CompressionUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Cache the serialized Json Response of each request URI together with its ETag,
+// so that the same version of a Response is only serialized once, no matter how
+// many clients are polling it.
+// A cached Response is replaced once its ETag is changed, i.e. the underlying
+// Status or Request is replaced, and the least recently used Responses are
+// evicted once the total size exceeds maxBytes.
+public class ResponseCache { // THREAD SAFE
+  private static final DefaultLogger LOGGER = new DefaultLogger(ResponseCache.class);
+
+  private final long maxBytes;
+  // RequestURI -> CachedResponse, in access order
+  private final LinkedHashMap<String, CachedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes = 0;
+  // The Responses which are being serialized, so that the concurrent requests
+  // for the same version of a Response wait for a single serialization.
+  private final ConcurrentMap<String, CompletableFuture<CachedResponse>> loadingResponses =
+      new ConcurrentHashMap<>();
+
+  /**
+   * REGION Counters
+   */
+  private volatile long hitCount = 0;
+  private volatile long missCount = 0;
+
+  public ResponseCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  // Return the cached Response if its ETag is the same as the given one,
+  // otherwise serialize it by the serializer and cache it.
+  // The compressedMinBytes is the min size of Json to be pre-compressed.
+  public CachedResponse get(
+      String uri, String eTag, int compressedMinBytes, Callable<byte[]> serializer) throws Exception {
+    if (maxBytes <= 0) {
+      return newCachedResponse(eTag, compressedMinBytes, serializer);
+    }
+
+    synchronized (this) {
+      CachedResponse cachedResponse = responses.get(uri);
+      if (cachedResponse != null && cachedResponse.eTag.equals(eTag)) {
+        hitCount++;
+        return cachedResponse;
+      }
+      missCount++;
+    }
+
+    String loadingKey = uri + "@" + eTag;
+    CompletableFuture<CachedResponse> future = new CompletableFuture<>();
+    CompletableFuture<CachedResponse> loadingFuture = loadingResponses.putIfAbsent(loadingKey, future);
+    if (loadingFuture != null) {
+      try {
+        return loadingFuture.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof Exception) {
+          throw (Exception) e.getCause();
+        }
+        throw e;
+      }
+    }
+
+    try {
+      CachedResponse cachedResponse = newCachedResponse(eTag, compressedMinBytes, serializer);
+      put(uri, cachedResponse);
+      future.complete(cachedResponse);
+      return cachedResponse;
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loadingResponses.remove(loadingKey, future);
+    }
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  private static CachedResponse newCachedResponse(
+      String eTag, int compressedMinBytes, Callable<byte[]> serializer) throws Exception {
+    byte[] json = serializer.call();
+    byte[] compressedJson = (json.length >= compressedMinBytes ? CompressionUtils.compress(json) : null);
+    return new CachedResponse(eTag, json, compressedJson);
+  }
+
+  private synchronized void put(String uri, CachedResponse cachedResponse) {
+    CachedResponse oldCachedResponse = responses.remove(uri);
+    if (oldCachedResponse != null) {
+      totalBytes -= oldCachedResponse.getBytes();
+    }
+
+    // The Response larger than maxBytes is not cached
+    if (cachedResponse.getBytes() > maxBytes) {
+      LOGGER.logDebug("Skipped to cache the Response of %s with %s bytes", uri, cachedResponse.getBytes());
+      return;
+    }
+
+    responses.put(uri, cachedResponse);
+    totalBytes += cachedResponse.getBytes();
+
+    Iterator<Map.Entry<String, CachedResponse>> iterator = responses.entrySet().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      totalBytes -= iterator.next().getValue().getBytes();
+      iterator.remove();
+    }
+  }
+
+  public static class CachedResponse {
+    private final String eTag;
+    private final byte[] json;
+    private final byte[] compressedJson;
+
+    private CachedResponse(String eTag, byte[] json, byte[] compressedJson) {
+      this.eTag = eTag;
+      this.json = json;
+      this.compressedJson = compressedJson;
+    }
+
+    public String getETag() {
+      return eTag;
+    }
+
+    // Returned bytes are readonly, caller should not modify it
+    public byte[] getJson() {
+      return json;
+    }
+
+    // The gzip compressed Json, null if the Json is too small to be compressed.
+    // Returned bytes are readonly, caller should not modify it
+    public byte[] getCompressedJson() {
+      return compressedJson;
+    }
+
+    private long getBytes() {
+      return json.length + (compressedJson == null ? 0 : compressedJson.length);
+    }
+  }
+}
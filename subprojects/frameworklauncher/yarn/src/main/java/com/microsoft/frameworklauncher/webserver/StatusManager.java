@@ -26,11 +26,19 @@
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 import com.microsoft.frameworklauncher.common.model.*;
 import com.microsoft.frameworklauncher.common.service.AbstractService;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
+import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStatusWatcher;
 import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
 // Manage the CURD to ZK Status
 public class StatusManager extends AbstractService { // THREAD SAFE
@@ -48,6 +56,50 @@ public class StatusManager extends AbstractService { // THREAD SAFE
   // FrameworkName -> AggregatedFrameworkStatus
   private volatile Map<String, AggregatedFrameworkStatus> aggFrameworkStatuses;
 
+  /**
+   * REGION StatusVersion
+   */
+  // The versions are increased once the corresponding Status is changed, so that
+  // the WebServer can tell whether a Status is changed since it was last returned.
+  // A version is always updated after its Status, so the caller should get the
+  // version before the Status, then the version will never be newer than the Status.
+  // Only updated in the StatusManager Thread
+  private long lastStatusVersion = 0;
+  // The version of the whole Status, i.e. any Status is changed
+  private volatile long statusVersion = 0;
+  private volatile long launcherStatusVersion = 0;
+  // FrameworkName -> AggregatedFrameworkStatus version
+  private volatile Map<String, Long> aggFrameworkStatusVersions = new HashMap<>();
+
+  /**
+   * REGION StatusIndex
+   */
+  // The secondary index of the AggregatedFrameworkStatuses, rebuilt once they are changed.
+  // Note the index does not contain the inferred FrameworkStatus, see getAggregatedFrameworkStatus.
+  // FrameworkState -> FrameworkNames
+  private volatile Map<FrameworkState, NavigableSet<String>> frameworkStateIndex = new HashMap<>();
+
+  /**
+   * REGION StatusChangeFeed
+   */
+  // The FrameworkState and TaskState transitions detected when the AggregatedFrameworkStatuses are updated
+  private final FrameworkChangeFeed frameworkChangeFeed;
+
+  // Only used if webServerStatusWatchEnable
+  private ZookeeperStatusWatcher statusWatcher;
+  private long lastFullPullTimestamp = 0;
+
+  /**
+   * REGION Counters
+   */
+  // Only updated in the StatusManager Thread
+  private long statusWatchEventCount = 0;
+  private long frameworkReReadCount = 0;
+  private long fullPullCount = 0;
+  // The latency from a Status change is detected to it is applied to the cache
+  private long lastStatusStalenessMs = 0;
+  private long maxStatusStalenessMs = 0;
+
 
   /**
    * REGION AbstractService
@@ -58,6 +110,8 @@ public StatusManager(WebServer webServer, LauncherConfiguration conf, ZookeeperS
     this.webServer = webServer;
     this.conf = conf;
     this.zkStore = zkStore;
+    this.frameworkChangeFeed = new FrameworkChangeFeed(
+        conf.getWebServerWatchMaxChangeCount(), conf.getWebServerWatchMaxWaiterCount());
   }
 
   @Override
@@ -78,7 +132,15 @@ protected Boolean handleException(Exception e) {
   protected void recover() throws Exception {
     super.recover();
 
-    pullStatus();
+    if (conf.getWebServerStatusWatchEnable()) {
+      // The initial changes always require resync, i.e. all watches are set before pullStatus,
+      // so that no change will be missed after pullStatus.
+      statusWatcher = zkStore.newStatusWatcher();
+      statusWatcher.start();
+      applyStatusChanges(statusWatcher.takeChanges(0));
+    } else {
+      pullStatus();
+    }
 
     LOGGER.logInfo("Succeeded to recover %s.", serviceName);
   }
@@ -94,9 +156,13 @@ protected void run() throws Exception {
           // No need to updateCompletedFrameworkStatuses when recover
           updateCompletedFrameworkStatuses();
 
-          Thread.sleep(conf.getWebServerStatusPullIntervalSec() * 1000);
+          if (statusWatcher == null) {
+            Thread.sleep(conf.getWebServerStatusPullIntervalSec() * 1000);
 
-          pullStatus();
+            pullStatus();
+          } else {
+            watchStatus(conf.getWebServerStatusPullIntervalSec() * 1000);
+          }
         } catch (Exception e) {
           // Directly throw TransientException to WebServer, since it may not be recovered or make progress any more
           handleException(e);
@@ -111,11 +177,14 @@ protected void run() throws Exception {
   private void pullStatus() throws Exception {
     LOGGER.logDebug("Pulling AggregatedLauncherStatus");
 
+    lastFullPullTimestamp = System.currentTimeMillis();
+    fullPullCount++;
+
     Map<String, AggregatedFrameworkStatus> reusableAggFrameworkStatuses =
         getReusableAggregatedFrameworkStatuses();
     AggregatedLauncherStatus aggLauncherStatus =
         zkStore.getAggregatedLauncherStatus(reusableAggFrameworkStatuses.keySet());
-    launcherStatus = aggLauncherStatus.getLauncherStatus();
+    updateLauncherStatus(aggLauncherStatus.getLauncherStatus());
     Map<String, AggregatedFrameworkStatus> nonreusableAggFrameworkStatuses =
         aggLauncherStatus.getAggregatedFrameworkStatuses();
 
@@ -124,13 +193,186 @@ private void pullStatus() throws Exception {
     newAggFrameworkStatuses.putAll(reusableAggFrameworkStatuses);
     newAggFrameworkStatuses.putAll(nonreusableAggFrameworkStatuses);
     reviseAggregatedFrameworkStatuses(newAggFrameworkStatuses);
-    aggFrameworkStatuses = CommonExts.asReadOnly(newAggFrameworkStatuses);
+    updateAggregatedFrameworkStatuses(newAggFrameworkStatuses);
 
     LOGGER.logDebug("Pulled AggregatedLauncherStatus: " +
             "AggregatedFrameworkStatus Reused Percentage: [%s / %s]",
         reusableAggFrameworkStatuses.size(), aggFrameworkStatuses.size());
 
-    // Detect the corrupted AggregatedFrameworkStatus and lead Service.StatusManager.recover to clean
+    checkAggregatedFrameworkStatuses(aggFrameworkStatuses);
+  }
+
+  // Apply the watched Status changes until durationMs elapsed
+  private void watchStatus(long durationMs) throws Exception {
+    long deadline = System.currentTimeMillis() + durationMs;
+    long remainingMs;
+    while ((remainingMs = deadline - System.currentTimeMillis()) > 0) {
+      if (System.currentTimeMillis() - lastFullPullTimestamp >=
+          conf.getWebServerStatusFullPullIntervalSec() * 1000L) {
+        pullStatus();
+      }
+
+      ZookeeperStatusWatcher.StatusChanges changes = statusWatcher.takeChanges(remainingMs);
+      if (changes != null) {
+        applyStatusChanges(changes);
+      }
+    }
+
+    LOGGER.logInfo("StatusCacheCounters: " +
+            "WatchEvents: [%s], FrameworkReReads: [%s], FullPulls: [%s], " +
+            "LastStalenessMs: [%s], MaxStalenessMs: [%s]",
+        statusWatchEventCount, frameworkReReadCount, fullPullCount,
+        lastStatusStalenessMs, maxStatusStalenessMs);
+  }
+
+  private void applyStatusChanges(ZookeeperStatusWatcher.StatusChanges changes) throws Exception {
+    statusWatchEventCount += changes.getEventCount();
+
+    if (changes.isResyncRequired()) {
+      pullStatus();
+    } else {
+      if (changes.isLauncherStatusChanged()) {
+        updateLauncherStatus(zkStore.getLauncherStatus());
+      }
+
+      Set<String> changedFrameworkNames = changes.getChangedFrameworkNames();
+      if (!changedFrameworkNames.isEmpty()) {
+        LOGGER.logDebug("Re-reading changed AggregatedFrameworkStatuses: %s", changedFrameworkNames);
+
+        // Deleted Frameworks are not contained in changedAggFrameworkStatuses
+        Map<String, AggregatedFrameworkStatus> changedAggFrameworkStatuses =
+            zkStore.getAggregatedFrameworkStatuses(changedFrameworkNames);
+        frameworkReReadCount += changedFrameworkNames.size();
+        reviseAggregatedFrameworkStatuses(changedAggFrameworkStatuses);
+
+        Map<String, AggregatedFrameworkStatus> newAggFrameworkStatuses = new HashMap<>(aggFrameworkStatuses);
+        newAggFrameworkStatuses.keySet().removeAll(changedFrameworkNames);
+        newAggFrameworkStatuses.putAll(changedAggFrameworkStatuses);
+        updateAggregatedFrameworkStatuses(newAggFrameworkStatuses);
+
+        checkAggregatedFrameworkStatuses(changedAggFrameworkStatuses);
+      }
+    }
+
+    if (changes.getFirstEventTimestamp() != Long.MAX_VALUE) {
+      lastStatusStalenessMs = System.currentTimeMillis() - changes.getFirstEventTimestamp();
+      maxStatusStalenessMs = Math.max(maxStatusStalenessMs, lastStatusStalenessMs);
+    }
+  }
+
+  private void updateLauncherStatus(LauncherStatus newLauncherStatus) {
+    if (launcherStatus != null && ModelUtils.deepEquals(launcherStatus, newLauncherStatus)) {
+      return;
+    }
+
+    launcherStatus = newLauncherStatus;
+    launcherStatusVersion = ++lastStatusVersion;
+    statusVersion = lastStatusVersion;
+  }
+
+  // Only the changed AggregatedFrameworkStatuses get new versions, the reused or
+  // re-read but unchanged ones keep their versions.
+  private void updateAggregatedFrameworkStatuses(Map<String, AggregatedFrameworkStatus> newAggFrameworkStatuses) {
+    Map<String, AggregatedFrameworkStatus> oldAggFrameworkStatuses = aggFrameworkStatuses;
+    Map<String, Long> newAggFrameworkStatusVersions = new HashMap<>();
+    List<FrameworkChange> frameworkChanges = new ArrayList<>();
+    boolean changed = (oldAggFrameworkStatuses == null ||
+        oldAggFrameworkStatuses.size() != newAggFrameworkStatuses.size());
+    for (Map.Entry<String, AggregatedFrameworkStatus> aggFrameworkStatusKV : newAggFrameworkStatuses.entrySet()) {
+      String frameworkName = aggFrameworkStatusKV.getKey();
+      AggregatedFrameworkStatus newAggFrameworkStatus = aggFrameworkStatusKV.getValue();
+      AggregatedFrameworkStatus oldAggFrameworkStatus =
+          (oldAggFrameworkStatuses == null ? null : oldAggFrameworkStatuses.get(frameworkName));
+      Long oldVersion = aggFrameworkStatusVersions.get(frameworkName);
+
+      if (oldVersion != null && oldAggFrameworkStatus != null &&
+          (oldAggFrameworkStatus == newAggFrameworkStatus ||
+              ModelUtils.deepEquals(oldAggFrameworkStatus, newAggFrameworkStatus))) {
+        // Keep the old instance, so that the unchanged Status will be reused as it is
+        newAggFrameworkStatuses.put(frameworkName, oldAggFrameworkStatus);
+        newAggFrameworkStatusVersions.put(frameworkName, oldVersion);
+      } else {
+        newAggFrameworkStatusVersions.put(frameworkName, ++lastStatusVersion);
+        changed = true;
+        // The initial AggregatedFrameworkStatuses are not changes, since no client can watch before them
+        if (oldAggFrameworkStatuses != null && isStateChanged(oldAggFrameworkStatus, newAggFrameworkStatus)) {
+          frameworkChanges.add(FrameworkChange.newInstance(newAggFrameworkStatus.getFrameworkStatus()));
+        }
+      }
+    }
+    if (oldAggFrameworkStatuses != null) {
+      for (String frameworkName : oldAggFrameworkStatuses.keySet()) {
+        if (!newAggFrameworkStatuses.containsKey(frameworkName)) {
+          frameworkChanges.add(FrameworkChange.newDeletedInstance(frameworkName));
+        }
+      }
+    }
+
+    aggFrameworkStatuses = CommonExts.asReadOnly(newAggFrameworkStatuses);
+    aggFrameworkStatusVersions = newAggFrameworkStatusVersions;
+    if (changed) {
+      frameworkStateIndex = buildFrameworkStateIndex(newAggFrameworkStatuses);
+      statusVersion = ++lastStatusVersion;
+    }
+    // Append after the new AggregatedFrameworkStatuses are published, so that the watching
+    // client can always get the changed Status.
+    frameworkChangeFeed.append(frameworkChanges);
+  }
+
+  private static boolean isStateChanged(
+      AggregatedFrameworkStatus oldAggFrameworkStatus, AggregatedFrameworkStatus newAggFrameworkStatus) {
+    if (oldAggFrameworkStatus == null) {
+      return true;
+    }
+
+    FrameworkStatus oldFrameworkStatus = oldAggFrameworkStatus.getFrameworkStatus();
+    FrameworkStatus newFrameworkStatus = newAggFrameworkStatus.getFrameworkStatus();
+    if (!Objects.equals(oldFrameworkStatus.getFrameworkVersion(), newFrameworkStatus.getFrameworkVersion()) ||
+        oldFrameworkStatus.getFrameworkState() != newFrameworkStatus.getFrameworkState()) {
+      return true;
+    }
+
+    return !getTaskStates(oldAggFrameworkStatus).equals(getTaskStates(newAggFrameworkStatus));
+  }
+
+  // TaskRoleName -> TaskStates in TaskStatusArray order
+  private static Map<String, List<TaskState>> getTaskStates(AggregatedFrameworkStatus aggFrameworkStatus) {
+    Map<String, List<TaskState>> taskStates = new HashMap<>();
+    if (aggFrameworkStatus.getAggregatedTaskRoleStatuses() == null) {
+      return taskStates;
+    }
+
+    for (Map.Entry<String, AggregatedTaskRoleStatus> aggTaskRoleStatusKV :
+        aggFrameworkStatus.getAggregatedTaskRoleStatuses().entrySet()) {
+      List<TaskState> taskRoleTaskStates = new ArrayList<>();
+      TaskStatuses taskStatuses = aggTaskRoleStatusKV.getValue().getTaskStatuses();
+      if (taskStatuses != null && taskStatuses.getTaskStatusArray() != null) {
+        for (TaskStatus taskStatus : taskStatuses.getTaskStatusArray()) {
+          taskRoleTaskStates.add(taskStatus.getTaskState());
+        }
+      }
+      taskStates.put(aggTaskRoleStatusKV.getKey(), taskRoleTaskStates);
+    }
+    return taskStates;
+  }
+
+  private static Map<FrameworkState, NavigableSet<String>> buildFrameworkStateIndex(
+      Map<String, AggregatedFrameworkStatus> aggFrameworkStatuses) {
+    Map<FrameworkState, NavigableSet<String>> frameworkStateIndex = new HashMap<>();
+    for (Map.Entry<String, AggregatedFrameworkStatus> aggFrameworkStatusKV : aggFrameworkStatuses.entrySet()) {
+      frameworkStateIndex.computeIfAbsent(
+          aggFrameworkStatusKV.getValue().getFrameworkStatus().getFrameworkState(),
+          k -> new TreeSet<>()).add(aggFrameworkStatusKV.getKey());
+    }
+    for (Map.Entry<FrameworkState, NavigableSet<String>> frameworkStateKV : frameworkStateIndex.entrySet()) {
+      frameworkStateKV.setValue(Collections.unmodifiableNavigableSet(frameworkStateKV.getValue()));
+    }
+    return frameworkStateIndex;
+  }
+
+  // Detect the corrupted AggregatedFrameworkStatus and lead Service.StatusManager.recover to clean
+  private static void checkAggregatedFrameworkStatuses(
+      Map<String, AggregatedFrameworkStatus> aggFrameworkStatuses) throws Exception {
     for (Map.Entry<String, AggregatedFrameworkStatus> aggFrameworkStatusKV : aggFrameworkStatuses.entrySet()) {
       String frameworkName = aggFrameworkStatusKV.getKey();
       AggregatedFrameworkStatus aggFrameworkStatus = aggFrameworkStatusKV.getValue();
@@ -286,6 +528,40 @@ public AggregatedFrameworkStatus getAggregatedFrameworkStatus(FrameworkRequest f
     }
   }
 
+  public long getStatusVersion() {
+    return statusVersion;
+  }
+
+  public long getLauncherStatusVersion() {
+    return launcherStatusVersion;
+  }
+
+  // Return 0 if the AggregatedFrameworkStatus does not exist
+  public long getAggregatedFrameworkStatusVersion(String frameworkName) {
+    return aggFrameworkStatusVersions.getOrDefault(frameworkName, 0L);
+  }
+
+  // Return the FrameworkNames whose real FrameworkStatus is in the frameworkStates.
+  // Since the inferred FrameworkStatus is not indexed, the caller should still check the
+  // FrameworkStatus got by getFrameworkStatus, and should not use it for FRAMEWORK_WAITING.
+  public NavigableSet<String> getFrameworkNames(Set<FrameworkState> frameworkStates) {
+    Map<FrameworkState, NavigableSet<String>> frameworkStateIndex = this.frameworkStateIndex;
+    if (frameworkStates.size() == 1) {
+      return frameworkStateIndex.getOrDefault(
+          frameworkStates.iterator().next(), Collections.emptyNavigableSet());
+    }
+
+    NavigableSet<String> frameworkNames = new TreeSet<>();
+    for (FrameworkState frameworkState : frameworkStates) {
+      frameworkNames.addAll(frameworkStateIndex.getOrDefault(frameworkState, Collections.emptyNavigableSet()));
+    }
+    return frameworkNames;
+  }
+
+  public FrameworkChangeFeed getFrameworkChangeFeed() {
+    return frameworkChangeFeed;
+  }
+
   public FrameworkStatus getFrameworkStatus(FrameworkRequest frameworkRequest) {
     AggregatedFrameworkStatus aggFrameworkStatus = getAggregatedFrameworkStatus(frameworkRequest);
     return aggFrameworkStatus.getFrameworkStatus();
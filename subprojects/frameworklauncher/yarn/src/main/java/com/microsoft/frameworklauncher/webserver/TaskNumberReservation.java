@@ -0,0 +1,73 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import com.microsoft.frameworklauncher.common.exceptions.ThrottledRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The TaskNumber deltas of the TaskNumber counters caused by a FrameworkRequest to be Set.
+// The increased TaskNumbers are reserved before the FrameworkRequest is Set on ZK, so that
+// the concurrent Sets cannot exceed the limits together, and they are rolled back if the
+// Set failed. The decreased TaskNumbers are only released after the Set is committed.
+public class TaskNumberReservation {
+  private final List<AtomicInteger> counters = new ArrayList<>();
+  private final List<Integer> deltas = new ArrayList<>();
+
+  // Reserve the delta on the counter, a null maxTaskNumber means no limit.
+  // The frameworkName and counterName are only used to explain the rejection.
+  public void reserve(
+      String frameworkName, String counterName, AtomicInteger counter, int delta, Integer maxTaskNumber)
+      throws ThrottledRequestException {
+    if (delta > 0) {
+      while (true) {
+        int oldTaskNumber = counter.get();
+        int newTaskNumber = oldTaskNumber + delta;
+        if (maxTaskNumber != null && newTaskNumber > maxTaskNumber) {
+          throw new ThrottledRequestException(String.format(
+              "[%s]: setFrameworkRequest Rejected: " +
+                  "Since the New %2$s TaskNumber %3$s will exceed the Max %2$s TaskNumber %4$s",
+              frameworkName, counterName, newTaskNumber, maxTaskNumber));
+        }
+        if (counter.compareAndSet(oldTaskNumber, newTaskNumber)) {
+          break;
+        }
+      }
+    }
+    counters.add(counter);
+    deltas.add(delta);
+  }
+
+  public void commit() {
+    for (int i = 0; i < counters.size(); i++) {
+      if (deltas.get(i) < 0) {
+        counters.get(i).addAndGet(deltas.get(i));
+      }
+    }
+  }
+
+  public void rollback() {
+    for (int i = 0; i < counters.size(); i++) {
+      if (deltas.get(i) > 0) {
+        counters.get(i).addAndGet(-deltas.get(i));
+      }
+    }
+  }
+}
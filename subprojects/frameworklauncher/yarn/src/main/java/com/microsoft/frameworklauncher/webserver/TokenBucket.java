@@ -0,0 +1,78 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A lock-free token bucket, which is refilled with ratePerSec tokens per second
+// and holds at most burstCount tokens.
+// It is implemented as the Generic Cell Rate Algorithm, i.e. instead of the token
+// count, it only tracks the time when the bucket will be full again, so that a
+// token can be acquired by a single CAS.
+public class TokenBucket { // THREAD SAFE
+  private final int burstCount;
+  private final long nanosPerToken;
+  private final long burstNanos;
+  // The time in System.nanoTime() when the bucket will be full again
+  private final AtomicLong fullNanos;
+
+  public TokenBucket(int ratePerSec, int burstCount) {
+    this.burstCount = burstCount;
+    this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / ratePerSec;
+    this.burstNanos = nanosPerToken * burstCount;
+    this.fullNanos = new AtomicLong(System.nanoTime());
+  }
+
+  public int getBurstCount() {
+    return burstCount;
+  }
+
+  // Return 0 if a token is acquired, otherwise the nanos to wait for the next token
+  public long tryAcquire() {
+    return tryAcquire(System.nanoTime());
+  }
+
+  public long tryAcquire(long nowNanos) {
+    return tryAcquire(nowNanos, 1);
+  }
+
+  // Acquire the tokens all or nothing, the tokens more than the burstCount can never be acquired
+  public long tryAcquire(long nowNanos, int tokenCount) {
+    while (true) {
+      long oldFullNanos = fullNanos.get();
+      long newFullNanos = Math.max(oldFullNanos, nowNanos) + nanosPerToken * tokenCount;
+      long waitNanos = newFullNanos - nowNanos - burstNanos;
+      if (waitNanos > 0) {
+        return waitNanos;
+      }
+      if (fullNanos.compareAndSet(oldFullNanos, newFullNanos)) {
+        return 0;
+      }
+    }
+  }
+
+  // Give back an acquired token which is not used
+  public void release() {
+    release(1);
+  }
+
+  public void release(int tokenCount) {
+    fullNanos.addAndGet(-nanosPerToken * tokenCount);
+  }
+}
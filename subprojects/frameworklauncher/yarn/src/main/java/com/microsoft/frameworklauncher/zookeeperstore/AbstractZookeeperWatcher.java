@@ -0,0 +1,255 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import com.microsoft.frameworklauncher.common.log.DefaultLogger;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Watch the ZK nodes under a root path, so that the caller only needs to re-read the changed
+// objects instead of periodically pulling all of them.
+// ZK watch is one-time triggered, so a triggered watch is set again in takeChanges
+// before the caller re-reads the changed object, which ensures no change will be missed.
+// The derived class decides which nodes to watch by watchData and watchChildren, and
+// which objects are changed according to the triggered events.
+// NOT THREAD SAFE: takeChanges should always be called in the same Thread.
+public abstract class AbstractZookeeperWatcher<T extends AbstractZookeeperWatcher.Changes>
+    implements ConnectionStateListener {
+  private static final DefaultLogger LOGGER = new DefaultLogger(AbstractZookeeperWatcher.class);
+
+  protected final ZooKeeperClient zkClient;
+  protected final ZookeeperStoreStructure zkStruct;
+  // Wait a while after the first event, so that a burst of events can be taken in one batch.
+  private final long eventBatchWaitMs;
+
+  // Events from both the EpochWatcher and the ConnectionStateListener
+  private final LinkedBlockingQueue<PendingEvent> pendingEvents = new LinkedBlockingQueue<>();
+  private final AtomicBoolean resyncRequired = new AtomicBoolean(true);
+
+  // All watches are set by the currentWatcher, and the watches set by previous
+  // EpochWatchers are ignored after resync, so that the duplicated watches set
+  // before and after resync will not trigger duplicated events.
+  private volatile EpochWatcher currentWatcher = new EpochWatcher();
+  // Paths whose watch has been set by the currentWatcher and not yet triggered,
+  // so that a watch will not be set on a path more than once.
+  private final Set<String> dataWatchedPaths = new HashSet<>();
+  // Path -> Children, the children are still up to date since the watch is not yet
+  // triggered, so that they can be reused without another ZK round trip.
+  private final Map<String, List<String>> childrenWatchedPaths = new HashMap<>();
+  // Paths which do not exist and whose creation watch is not yet triggered,
+  // so that they will not be listed again before they are created.
+  private final Set<String> creationWatchedPaths = new HashSet<>();
+  private volatile boolean sessionMayExpire = false;
+
+  AbstractZookeeperWatcher(ZooKeeperClient zkClient, ZookeeperStoreStructure zkStruct, long eventBatchWaitMs) {
+    this.zkClient = zkClient;
+    this.zkStruct = zkStruct;
+    this.eventBatchWaitMs = eventBatchWaitMs;
+  }
+
+  // The root path of all the watched nodes
+  protected abstract String getRootPath();
+
+  protected abstract T newChanges();
+
+  // All the watches are cleared, so set them again and record all the objects as changed
+  protected abstract void resync(T changes) throws Exception;
+
+  // The triggered watch of the path is already cleared, so set it again if still needed
+  protected abstract void processEvent(String path, EventType type, T changes) throws Exception;
+
+  public void start() {
+    zkClient.addConnectionStateListener(this);
+  }
+
+  // The watches are kept by ZK after reconnected within the session, but they may be
+  // lost after the session expired, so resync all watches once reconnected after LOST.
+  // Do not always resync after reconnected, since the kept watches cannot be removed and
+  // they will become duplicated with the resynced watches.
+  @Override
+  public void stateChanged(CuratorFramework client, ConnectionState newState) {
+    if (newState == ConnectionState.LOST) {
+      sessionMayExpire = true;
+    } else if (newState == ConnectionState.RECONNECTED && sessionMayExpire) {
+      sessionMayExpire = false;
+      LOGGER.logWarning(
+          "ZK reconnected after connection LOST, will resync all watches under %s", getRootPath());
+      requireResync();
+    }
+  }
+
+  public void requireResync() {
+    resyncRequired.set(true);
+    pendingEvents.offer(new PendingEvent(null, EventType.None));
+  }
+
+  // Block until any change is detected or timeout, return null if timeout.
+  // If Changes.isResyncRequired, the caller should re-read all the objects.
+  public T takeChanges(long timeoutMs) throws Exception {
+    List<PendingEvent> events = new ArrayList<>();
+    if (!resyncRequired.get()) {
+      PendingEvent firstEvent = pendingEvents.poll(timeoutMs, TimeUnit.MILLISECONDS);
+      if (firstEvent == null) {
+        return null;
+      }
+      events.add(firstEvent);
+      Thread.sleep(eventBatchWaitMs);
+    }
+    pendingEvents.drainTo(events);
+
+    T changes = newChanges();
+    for (PendingEvent event : events) {
+      if (event.path != null) {
+        changes.eventCount++;
+      }
+      changes.firstEventTimestamp = Math.min(changes.firstEventTimestamp, event.timestamp);
+    }
+
+    try {
+      if (resyncRequired.getAndSet(false)) {
+        LOGGER.logInfo("Resyncing all watches under %s", getRootPath());
+
+        currentWatcher = new EpochWatcher();
+        dataWatchedPaths.clear();
+        childrenWatchedPaths.clear();
+        creationWatchedPaths.clear();
+        changes.resyncRequired = true;
+        resync(changes);
+        return changes;
+      }
+
+      for (PendingEvent event : events) {
+        if (event.path != null) {
+          unwatch(event.path, event.type);
+          processEvent(event.path, event.type, changes);
+        }
+      }
+    } catch (Exception e) {
+      // Some watches may not be set again, so retry all of them in next takeChanges
+      requireResync();
+      throw e;
+    }
+    return changes;
+  }
+
+  private void unwatch(String path, EventType type) {
+    creationWatchedPaths.remove(path);
+    if (type == EventType.NodeDeleted) {
+      dataWatchedPaths.remove(path);
+      childrenWatchedPaths.remove(path);
+    } else if (type == EventType.NodeChildrenChanged) {
+      childrenWatchedPaths.remove(path);
+    } else {
+      dataWatchedPaths.remove(path);
+    }
+  }
+
+  protected void watchData(String path) throws Exception {
+    if (dataWatchedPaths.add(path)) {
+      zkClient.exists(path, currentWatcher);
+    }
+  }
+
+  // Return null if the path does not exist
+  protected List<String> watchChildren(String path) throws Exception {
+    List<String> children = childrenWatchedPaths.get(path);
+    if (children != null) {
+      return children;
+    }
+
+    try {
+      children = zkClient.getChildren(path, currentWatcher);
+    } catch (KeeperException.NoNodeException e) {
+      return null;
+    }
+    childrenWatchedPaths.put(path, children);
+    return children;
+  }
+
+  // Watch the children of the path, or its creation if it does not exist.
+  // Return null if the path does not exist
+  protected List<String> watchChildrenOrCreation(String path) throws Exception {
+    if (creationWatchedPaths.contains(path)) {
+      return null;
+    }
+
+    List<String> children = watchChildren(path);
+    if (children == null && dataWatchedPaths.add(path)) {
+      if (zkClient.exists(path, currentWatcher)) {
+        // The path is created after watchChildren, so its creation will never be triggered
+        children = watchChildren(path);
+      } else {
+        creationWatchedPaths.add(path);
+      }
+    }
+    return children;
+  }
+
+  private class EpochWatcher implements CuratorWatcher {
+    @Override
+    public void process(WatchedEvent event) throws Exception {
+      // Ignore connection events and events from previous EpochWatchers
+      if (event.getType() == EventType.None || this != currentWatcher) {
+        return;
+      }
+      pendingEvents.offer(new PendingEvent(event.getPath(), event.getType()));
+    }
+  }
+
+  private static class PendingEvent {
+    private final String path;
+    private final EventType type;
+    private final long timestamp = System.currentTimeMillis();
+
+    private PendingEvent(String path, EventType type) {
+      this.path = path;
+      this.type = type;
+    }
+  }
+
+  public static class Changes {
+    int eventCount = 0;
+    long firstEventTimestamp = Long.MAX_VALUE;
+    boolean resyncRequired = false;
+
+    // The number of triggered watches in this batch
+    public int getEventCount() {
+      return eventCount;
+    }
+
+    // The time when the earliest change in this batch is detected,
+    // Long.MAX_VALUE if no event is taken, such as the initial resync.
+    public long getFirstEventTimestamp() {
+      return firstEventTimestamp;
+    }
+
+    public boolean isResyncRequired() {
+      return resyncRequired;
+    }
+  }
+}
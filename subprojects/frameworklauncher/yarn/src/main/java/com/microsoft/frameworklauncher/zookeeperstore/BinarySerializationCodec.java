@@ -0,0 +1,1085 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import com.microsoft.frameworklauncher.common.exceptions.NonTransientException;
+import com.microsoft.frameworklauncher.common.model.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// A compact binary codec specialized for the hot model classes which are frequently
+// Set/Get to ZK, such as the TaskStatuses with huge number of TaskStatus.
+// Compared with YamlSerializationCodec, it does not need reflection, and its output
+// is several times smaller, since each String is only written once per payload and
+// later occurrences are written as the index of the first occurrence.
+//
+// Payload Layout:
+//  [MAGIC_0][MAGIC_1][FORMAT_VERSION][TypeId][Body]
+// MAGIC_0 is not a valid leading byte of UTF-8, so the header never conflicts with
+// the YAML string, and also does not conflict with the GZIP_MAGIC.
+//
+// Body Layout:
+//  Object fields are written in declaration order, and each nullable field starts
+//  with a presence byte, so that the null value can also be deserialized as it is.
+//  Any field change of the specialized classes must bump the FORMAT_VERSION.
+public class BinarySerializationCodec implements SerializationCodec {
+  private static final byte MAGIC_0 = (byte) 0xFB;
+  private static final byte MAGIC_1 = (byte) 0x4C;
+  private static final byte FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 4;
+
+  private static final byte TYPE_ID_TASK_STATUSES = 1;
+  private static final byte TYPE_ID_FRAMEWORK_STATUS = 2;
+  private static final byte TYPE_ID_TASK_ROLE_STATUS = 3;
+  private static final byte TYPE_ID_FRAMEWORK_REQUEST = 4;
+  private static final byte TYPE_ID_TASK_STATUSES_DELTA = 5;
+
+  private static final Map<Class<?>, Byte> TYPE_IDS = new HashMap<>();
+
+  static {
+    TYPE_IDS.put(TaskStatuses.class, TYPE_ID_TASK_STATUSES);
+    TYPE_IDS.put(FrameworkStatus.class, TYPE_ID_FRAMEWORK_STATUS);
+    TYPE_IDS.put(TaskRoleStatus.class, TYPE_ID_TASK_ROLE_STATUS);
+    TYPE_IDS.put(FrameworkRequest.class, TYPE_ID_FRAMEWORK_REQUEST);
+    TYPE_IDS.put(TaskStatusesDelta.class, TYPE_ID_TASK_STATUSES_DELTA);
+  }
+
+  @Override
+  public String getName() {
+    return "BINARY";
+  }
+
+  @Override
+  public boolean canSerialize(Class<?> classRef) {
+    return TYPE_IDS.containsKey(classRef);
+  }
+
+  @Override
+  public boolean canDeserialize(byte[] bytes) {
+    return bytes != null && bytes.length >= HEADER_BYTES &&
+        bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+  }
+
+  @Override
+  public byte[] serialize(Object obj) throws Exception {
+    Byte typeId = TYPE_IDS.get(obj.getClass());
+    if (typeId == null) {
+      throw new NonTransientException(String.format(
+          "%s codec does not support to serialize %s", getName(), obj.getClass().getName()));
+    }
+
+    BinaryOutput out = new BinaryOutput();
+    out.writeByte(MAGIC_0);
+    out.writeByte(MAGIC_1);
+    out.writeByte(FORMAT_VERSION);
+    out.writeByte(typeId);
+    switch (typeId) {
+      case TYPE_ID_TASK_STATUSES:
+        writeTaskStatuses(out, (TaskStatuses) obj);
+        break;
+      case TYPE_ID_FRAMEWORK_STATUS:
+        writeFrameworkStatus(out, (FrameworkStatus) obj);
+        break;
+      case TYPE_ID_TASK_ROLE_STATUS:
+        writeTaskRoleStatus(out, (TaskRoleStatus) obj);
+        break;
+      case TYPE_ID_FRAMEWORK_REQUEST:
+        writeFrameworkRequest(out, (FrameworkRequest) obj);
+        break;
+      case TYPE_ID_TASK_STATUSES_DELTA:
+        writeTaskStatusesDelta(out, (TaskStatusesDelta) obj);
+        break;
+    }
+    return out.toByteArray();
+  }
+
+  @Override
+  public <T> T deserialize(byte[] bytes, Class<T> classRef) throws Exception {
+    return deserialize(new BinaryInput(bytes == null ? new byte[0] : bytes), classRef);
+  }
+
+  // Deserialize from the stream directly, so the whole payload is never buffered
+  @Override
+  public <T> T deserialize(InputStream in, Class<T> classRef) throws Exception {
+    return deserialize(new BinaryInput(in), classRef);
+  }
+
+  private <T> T deserialize(BinaryInput in, Class<T> classRef) throws Exception {
+    byte[] header = in.readHeader();
+    if (!canDeserialize(header)) {
+      throw new NonTransientException(String.format(
+          "%s codec does not recognize the payload header", getName()));
+    }
+    if (header[2] != FORMAT_VERSION) {
+      throw new NonTransientException(String.format(
+          "%s codec does not support the payload FormatVersion %s, expected %s",
+          getName(), header[2], FORMAT_VERSION));
+    }
+    Byte expectedTypeId = TYPE_IDS.get(classRef);
+    if (expectedTypeId == null || expectedTypeId != header[3]) {
+      throw new NonTransientException(String.format(
+          "%s codec payload TypeId %s does not match the expected class %s",
+          getName(), header[3], classRef.getName()));
+    }
+
+    Object obj;
+    switch (expectedTypeId) {
+      case TYPE_ID_TASK_STATUSES:
+        obj = readTaskStatuses(in);
+        break;
+      case TYPE_ID_FRAMEWORK_STATUS:
+        obj = readFrameworkStatus(in);
+        break;
+      case TYPE_ID_TASK_ROLE_STATUS:
+        obj = readTaskRoleStatus(in);
+        break;
+      case TYPE_ID_TASK_STATUSES_DELTA:
+        obj = readTaskStatusesDelta(in);
+        break;
+      default:
+        obj = readFrameworkRequest(in);
+        break;
+    }
+    return classRef.cast(obj);
+  }
+
+  /**
+   * REGION Statuses
+   */
+  private static void writeTaskStatuses(BinaryOutput out, TaskStatuses o) {
+    out.writeString(o.getTaskRoleName());
+    List<TaskStatus> taskStatusArray = o.getTaskStatusArray();
+    if (out.writeCollectionSize(taskStatusArray)) {
+      for (TaskStatus taskStatus : taskStatusArray) {
+        writeTaskStatus(out, taskStatus);
+      }
+    }
+    out.writeInteger(o.getFrameworkVersion());
+  }
+
+  private static TaskStatuses readTaskStatuses(BinaryInput in) {
+    TaskStatuses o = new TaskStatuses();
+    o.setTaskRoleName(in.readString());
+    int size = in.readCollectionSize();
+    if (size >= 0) {
+      List<TaskStatus> taskStatusArray = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        taskStatusArray.add(readTaskStatus(in));
+      }
+      o.setTaskStatusArray(taskStatusArray);
+    } else {
+      o.setTaskStatusArray(null);
+    }
+    o.setFrameworkVersion(in.readInteger());
+    return o;
+  }
+
+  private static void writeTaskStatusesDelta(BinaryOutput out, TaskStatusesDelta o) {
+    out.writeInteger(o.getTaskStatusArraySize());
+    List<TaskStatus> changedTaskStatusArray = o.getChangedTaskStatusArray();
+    if (out.writeCollectionSize(changedTaskStatusArray)) {
+      for (TaskStatus taskStatus : changedTaskStatusArray) {
+        writeTaskStatus(out, taskStatus);
+      }
+    }
+  }
+
+  private static TaskStatusesDelta readTaskStatusesDelta(BinaryInput in) {
+    TaskStatusesDelta o = new TaskStatusesDelta();
+    o.setTaskStatusArraySize(in.readInteger());
+    int size = in.readCollectionSize();
+    if (size >= 0) {
+      List<TaskStatus> changedTaskStatusArray = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        changedTaskStatusArray.add(readTaskStatus(in));
+      }
+      o.setChangedTaskStatusArray(changedTaskStatusArray);
+    } else {
+      o.setChangedTaskStatusArray(null);
+    }
+    return o;
+  }
+
+  private static void writeTaskStatus(BinaryOutput out, TaskStatus o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getTaskIndex());
+    out.writeString(o.getTaskRoleName());
+    out.writeEnum(o.getTaskState());
+    writeRetryPolicyState(out, o.getTaskRetryPolicyState());
+    out.writeLong(o.getTaskCreatedTimestamp());
+    out.writeLong(o.getTaskCompletedTimestamp());
+    writeServiceStatus(out, o.getTaskServiceStatus());
+    out.writeString(o.getContainerId());
+    out.writeString(o.getContainerHost());
+    out.writeString(o.getContainerIp());
+    out.writeString(o.getContainerPorts());
+    out.writeLong(o.getContainerGpus());
+    out.writeString(o.getContainerLogHttpAddress());
+    out.writeInteger(o.getContainerConnectionLostCount());
+    out.writeBoolean(o.getContainerIsDecommissioning());
+    out.writeLong(o.getContainerLaunchedTimestamp());
+    out.writeLong(o.getContainerCompletedTimestamp());
+    out.writeInteger(o.getContainerExitCode());
+    out.writeString(o.getContainerExitDescription());
+    out.writeString(o.getContainerExitDiagnostics());
+    out.writeEnum(o.getContainerExitType());
+  }
+
+  private static TaskStatus readTaskStatus(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    TaskStatus o = new TaskStatus();
+    o.setTaskIndex(in.readInteger());
+    o.setTaskRoleName(in.readString());
+    o.setTaskState(in.readEnum(TaskState.class));
+    o.setTaskRetryPolicyState(readRetryPolicyState(in));
+    o.setTaskCreatedTimestamp(in.readLong());
+    o.setTaskCompletedTimestamp(in.readLong());
+    o.setTaskServiceStatus(readServiceStatus(in));
+    o.setContainerId(in.readString());
+    o.setContainerHost(in.readString());
+    o.setContainerIp(in.readString());
+    o.setContainerPorts(in.readString());
+    o.setContainerGpus(in.readLong());
+    o.setContainerLogHttpAddress(in.readString());
+    o.setContainerConnectionLostCount(in.readInteger());
+    o.setContainerIsDecommissioning(in.readBoolean());
+    o.setContainerLaunchedTimestamp(in.readLong());
+    o.setContainerCompletedTimestamp(in.readLong());
+    o.setContainerExitCode(in.readInteger());
+    o.setContainerExitDescription(in.readString());
+    o.setContainerExitDiagnostics(in.readString());
+    o.setContainerExitType(in.readEnum(ExitType.class));
+    return o;
+  }
+
+  private static void writeRetryPolicyState(BinaryOutput out, RetryPolicyState o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getRetriedCount());
+    out.writeInteger(o.getSucceededRetriedCount());
+    out.writeInteger(o.getTransientNormalRetriedCount());
+    out.writeInteger(o.getTransientConflictRetriedCount());
+    out.writeInteger(o.getNonTransientRetriedCount());
+    out.writeInteger(o.getUnKnownRetriedCount());
+  }
+
+  private static RetryPolicyState readRetryPolicyState(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    RetryPolicyState o = new RetryPolicyState();
+    o.setRetriedCount(in.readInteger());
+    o.setSucceededRetriedCount(in.readInteger());
+    o.setTransientNormalRetriedCount(in.readInteger());
+    o.setTransientConflictRetriedCount(in.readInteger());
+    o.setNonTransientRetriedCount(in.readInteger());
+    o.setUnKnownRetriedCount(in.readInteger());
+    return o;
+  }
+
+  private static void writeServiceStatus(BinaryOutput out, ServiceStatus o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getServiceVersion());
+  }
+
+  private static ServiceStatus readServiceStatus(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    ServiceStatus o = new ServiceStatus();
+    o.setServiceVersion(in.readInteger());
+    return o;
+  }
+
+  private static void writeFrameworkStatus(BinaryOutput out, FrameworkStatus o) {
+    out.writeString(o.getFrameworkName());
+    out.writeInteger(o.getFrameworkVersion());
+    out.writeEnum(o.getFrameworkState());
+    writeRetryPolicyState(out, o.getFrameworkRetryPolicyState());
+    out.writeLong(o.getFrameworkCreatedTimestamp());
+    out.writeLong(o.getFrameworkCompletedTimestamp());
+    out.writeString(o.getApplicationId());
+    out.writeFloat(o.getApplicationProgress());
+    out.writeString(o.getApplicationTrackingUrl());
+    out.writeLong(o.getApplicationLaunchedTimestamp());
+    out.writeLong(o.getApplicationCompletedTimestamp());
+    out.writeInteger(o.getApplicationExitCode());
+    out.writeString(o.getApplicationExitDescription());
+    out.writeString(o.getApplicationExitDiagnostics());
+    out.writeEnum(o.getApplicationExitType());
+    out.writeString(o.getApplicationExitTriggerMessage());
+    out.writeString(o.getApplicationExitTriggerTaskRoleName());
+    out.writeInteger(o.getApplicationExitTriggerTaskIndex());
+  }
+
+  private static FrameworkStatus readFrameworkStatus(BinaryInput in) {
+    FrameworkStatus o = new FrameworkStatus();
+    o.setFrameworkName(in.readString());
+    o.setFrameworkVersion(in.readInteger());
+    o.setFrameworkState(in.readEnum(FrameworkState.class));
+    o.setFrameworkRetryPolicyState(readRetryPolicyState(in));
+    o.setFrameworkCreatedTimestamp(in.readLong());
+    o.setFrameworkCompletedTimestamp(in.readLong());
+    o.setApplicationId(in.readString());
+    o.setApplicationProgress(in.readFloat());
+    o.setApplicationTrackingUrl(in.readString());
+    o.setApplicationLaunchedTimestamp(in.readLong());
+    o.setApplicationCompletedTimestamp(in.readLong());
+    o.setApplicationExitCode(in.readInteger());
+    o.setApplicationExitDescription(in.readString());
+    o.setApplicationExitDiagnostics(in.readString());
+    o.setApplicationExitType(in.readEnum(ExitType.class));
+    o.setApplicationExitTriggerMessage(in.readString());
+    o.setApplicationExitTriggerTaskRoleName(in.readString());
+    o.setApplicationExitTriggerTaskIndex(in.readInteger());
+    return o;
+  }
+
+  private static void writeTaskRoleStatus(BinaryOutput out, TaskRoleStatus o) {
+    out.writeString(o.getTaskRoleName());
+    writeTaskRoleRolloutStatus(out, o.getTaskRoleRolloutStatus());
+    out.writeInteger(o.getFrameworkVersion());
+  }
+
+  private static TaskRoleStatus readTaskRoleStatus(BinaryInput in) {
+    TaskRoleStatus o = new TaskRoleStatus();
+    o.setTaskRoleName(in.readString());
+    o.setTaskRoleRolloutStatus(readTaskRoleRolloutStatus(in));
+    o.setFrameworkVersion(in.readInteger());
+    return o;
+  }
+
+  private static void writeTaskRoleRolloutStatus(BinaryOutput out, TaskRoleRolloutStatus o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getOverallRolloutServiceVersion());
+    out.writeEnum(o.getOverallRolloutStatus());
+    out.writeInteger(o.getOverallRolloutStartTimestamp());
+    out.writeInteger(o.getOverallRolloutEndTimestamp());
+    out.writeInteger(o.getCurrentRolloutScaleUnit());
+    List<Integer> currentRolloutTaskIndexes = o.getCurrentRolloutTaskIndexes();
+    if (out.writeCollectionSize(currentRolloutTaskIndexes)) {
+      for (Integer taskIndex : currentRolloutTaskIndexes) {
+        out.writeInteger(taskIndex);
+      }
+    }
+    out.writeEnum(o.getCurrentRolloutStatus());
+    out.writeInteger(o.getCurrentRolloutStartTimestamp());
+    out.writeInteger(o.getCurrentRolloutEndTimestamp());
+  }
+
+  private static TaskRoleRolloutStatus readTaskRoleRolloutStatus(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    TaskRoleRolloutStatus o = new TaskRoleRolloutStatus();
+    o.setOverallRolloutServiceVersion(in.readInteger());
+    o.setOverallRolloutStatus(in.readEnum(RolloutStatus.class));
+    o.setOverallRolloutStartTimestamp(in.readInteger());
+    o.setOverallRolloutEndTimestamp(in.readInteger());
+    o.setCurrentRolloutScaleUnit(in.readInteger());
+    int size = in.readCollectionSize();
+    if (size >= 0) {
+      List<Integer> currentRolloutTaskIndexes = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        currentRolloutTaskIndexes.add(in.readInteger());
+      }
+      o.setCurrentRolloutTaskIndexes(currentRolloutTaskIndexes);
+    } else {
+      o.setCurrentRolloutTaskIndexes(null);
+    }
+    o.setCurrentRolloutStatus(in.readEnum(RolloutStatus.class));
+    o.setCurrentRolloutStartTimestamp(in.readInteger());
+    o.setCurrentRolloutEndTimestamp(in.readInteger());
+    return o;
+  }
+
+  /**
+   * REGION Requests
+   */
+  private static void writeFrameworkRequest(BinaryOutput out, FrameworkRequest o) {
+    out.writeString(o.getFrameworkName());
+    writeFrameworkDescriptor(out, o.getFrameworkDescriptor());
+    out.writeEnum(o.getLaunchClientType());
+    out.writeString(o.getLaunchClientHostName());
+    out.writeString(o.getLaunchClientUserName());
+    out.writeLong(o.getFirstRequestTimestamp());
+    out.writeLong(o.getLastRequestTimestamp());
+  }
+
+  private static FrameworkRequest readFrameworkRequest(BinaryInput in) {
+    FrameworkRequest o = new FrameworkRequest();
+    o.setFrameworkName(in.readString());
+    o.setFrameworkDescriptor(readFrameworkDescriptor(in));
+    o.setLaunchClientType(in.readEnum(LaunchClientType.class));
+    o.setLaunchClientHostName(in.readString());
+    o.setLaunchClientUserName(in.readString());
+    o.setFirstRequestTimestamp(in.readLong());
+    o.setLastRequestTimestamp(in.readLong());
+    return o;
+  }
+
+  private static void writeFrameworkDescriptor(BinaryOutput out, FrameworkDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeString(o.getDescription());
+    out.writeInteger(o.getVersion());
+    out.writeEnum(o.getExecutionType());
+    writeRetryPolicyDescriptor(out, o.getRetryPolicy());
+    writeParentFrameworkDescriptor(out, o.getParentFramework());
+    writeUserDescriptor(out, o.getUser());
+    Map<String, TaskRoleDescriptor> taskRoles = o.getTaskRoles();
+    if (out.writeCollectionSize(taskRoles == null ? null : taskRoles.entrySet())) {
+      for (Map.Entry<String, TaskRoleDescriptor> taskRole : taskRoles.entrySet()) {
+        out.writeString(taskRole.getKey());
+        writeTaskRoleDescriptor(out, taskRole.getValue());
+      }
+    }
+    writePlatformSpecificParametersDescriptor(out, o.getPlatformSpecificParameters());
+  }
+
+  private static FrameworkDescriptor readFrameworkDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    FrameworkDescriptor o = new FrameworkDescriptor();
+    o.setDescription(in.readString());
+    o.setVersion(in.readInteger());
+    o.setExecutionType(in.readEnum(ExecutionType.class));
+    o.setRetryPolicy(readRetryPolicyDescriptor(in));
+    o.setParentFramework(readParentFrameworkDescriptor(in));
+    o.setUser(readUserDescriptor(in));
+    int size = in.readCollectionSize();
+    if (size >= 0) {
+      Map<String, TaskRoleDescriptor> taskRoles = new LinkedHashMap<>();
+      for (int i = 0; i < size; i++) {
+        String taskRoleName = in.readString();
+        taskRoles.put(taskRoleName, readTaskRoleDescriptor(in));
+      }
+      o.setTaskRoles(taskRoles);
+    } else {
+      o.setTaskRoles(null);
+    }
+    o.setPlatformSpecificParameters(readPlatformSpecificParametersDescriptor(in));
+    return o;
+  }
+
+  private static void writeRetryPolicyDescriptor(BinaryOutput out, RetryPolicyDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeBoolean(o.getFancyRetryPolicy());
+    out.writeInteger(o.getMaxRetryCount());
+  }
+
+  private static RetryPolicyDescriptor readRetryPolicyDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    RetryPolicyDescriptor o = new RetryPolicyDescriptor();
+    o.setFancyRetryPolicy(in.readBoolean());
+    o.setMaxRetryCount(in.readInteger());
+    return o;
+  }
+
+  private static void writeParentFrameworkDescriptor(BinaryOutput out, ParentFrameworkDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeString(o.getParentFrameworkName());
+    out.writeBoolean(o.isDeleteOnParentDeleted());
+    out.writeBoolean(o.isStopOnParentStopped());
+  }
+
+  private static ParentFrameworkDescriptor readParentFrameworkDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    ParentFrameworkDescriptor o = new ParentFrameworkDescriptor();
+    o.setParentFrameworkName(in.readString());
+    o.setDeleteOnParentDeleted(in.readBoolean());
+    o.setStopOnParentStopped(in.readBoolean());
+    return o;
+  }
+
+  private static void writeUserDescriptor(BinaryOutput out, UserDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeString(o.getName());
+  }
+
+  private static UserDescriptor readUserDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    UserDescriptor o = new UserDescriptor();
+    o.setName(in.readString());
+    return o;
+  }
+
+  private static void writeTaskRoleDescriptor(BinaryOutput out, TaskRoleDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getTaskNumber());
+    out.writeInteger(o.getScaleUnitNumber());
+    out.writeInteger(o.getScaleUnitTimeoutSec());
+    writeRetryPolicyDescriptor(out, o.getTaskRetryPolicy());
+    writeTaskRoleApplicationCompletionPolicyDescriptor(out, o.getApplicationCompletionPolicy());
+    writeServiceDescriptor(out, o.getTaskService());
+    writeTaskRolePlatformSpecificParametersDescriptor(out, o.getPlatformSpecificParameters());
+  }
+
+  private static TaskRoleDescriptor readTaskRoleDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    TaskRoleDescriptor o = new TaskRoleDescriptor();
+    o.setTaskNumber(in.readInteger());
+    o.setScaleUnitNumber(in.readInteger());
+    o.setScaleUnitTimeoutSec(in.readInteger());
+    o.setTaskRetryPolicy(readRetryPolicyDescriptor(in));
+    o.setApplicationCompletionPolicy(readTaskRoleApplicationCompletionPolicyDescriptor(in));
+    o.setTaskService(readServiceDescriptor(in));
+    o.setPlatformSpecificParameters(readTaskRolePlatformSpecificParametersDescriptor(in));
+    return o;
+  }
+
+  private static void writeTaskRoleApplicationCompletionPolicyDescriptor(
+      BinaryOutput out, TaskRoleApplicationCompletionPolicyDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getMinFailedTaskCount());
+    out.writeInteger(o.getMinSucceededTaskCount());
+  }
+
+  private static TaskRoleApplicationCompletionPolicyDescriptor readTaskRoleApplicationCompletionPolicyDescriptor(
+      BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    TaskRoleApplicationCompletionPolicyDescriptor o = new TaskRoleApplicationCompletionPolicyDescriptor();
+    o.setMinFailedTaskCount(in.readInteger());
+    o.setMinSucceededTaskCount(in.readInteger());
+    return o;
+  }
+
+  private static void writeServiceDescriptor(BinaryOutput out, ServiceDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getVersion());
+    out.writeString(o.getEntryPoint());
+    List<String> sourceLocations = o.getSourceLocations();
+    if (out.writeCollectionSize(sourceLocations)) {
+      for (String sourceLocation : sourceLocations) {
+        out.writeString(sourceLocation);
+      }
+    }
+    writeResourceDescriptor(out, o.getResource());
+  }
+
+  private static ServiceDescriptor readServiceDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    ServiceDescriptor o = new ServiceDescriptor();
+    o.setVersion(in.readInteger());
+    o.setEntryPoint(in.readString());
+    int size = in.readCollectionSize();
+    if (size >= 0) {
+      List<String> sourceLocations = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        sourceLocations.add(in.readString());
+      }
+      o.setSourceLocations(sourceLocations);
+    } else {
+      o.setSourceLocations(null);
+    }
+    o.setResource(readResourceDescriptor(in));
+    return o;
+  }
+
+  private static void writeResourceDescriptor(BinaryOutput out, ResourceDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getCpuNumber());
+    out.writeInteger(o.getMemoryMB());
+    Map<String, Ports> portDefinitions = o.getPortDefinitions();
+    if (out.writeCollectionSize(portDefinitions == null ? null : portDefinitions.entrySet())) {
+      for (Map.Entry<String, Ports> portDefinition : portDefinitions.entrySet()) {
+        out.writeString(portDefinition.getKey());
+        writePorts(out, portDefinition.getValue());
+      }
+    }
+    List<ValueRange> portRanges = o.getPortRanges();
+    if (out.writeCollectionSize(portRanges)) {
+      for (ValueRange portRange : portRanges) {
+        writeValueRange(out, portRange);
+      }
+    }
+    out.writeInteger(o.getPortNumber());
+    out.writeEnum(o.getDiskType());
+    out.writeInteger(o.getDiskMB());
+    out.writeInteger(o.getGpuNumber());
+    out.writeLong(o.getGpuAttribute());
+  }
+
+  private static ResourceDescriptor readResourceDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    ResourceDescriptor o = new ResourceDescriptor();
+    o.setCpuNumber(in.readInteger());
+    o.setMemoryMB(in.readInteger());
+    int size = in.readCollectionSize();
+    if (size >= 0) {
+      Map<String, Ports> portDefinitions = new LinkedHashMap<>();
+      for (int i = 0; i < size; i++) {
+        String portLabel = in.readString();
+        portDefinitions.put(portLabel, readPorts(in));
+      }
+      o.setPortDefinitions(portDefinitions);
+    } else {
+      o.setPortDefinitions(null);
+    }
+    // Override the portRanges and portNumber derived by setPortDefinitions,
+    // since they are internal StateVariables which may be changed after that.
+    size = in.readCollectionSize();
+    if (size >= 0) {
+      List<ValueRange> portRanges = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        portRanges.add(readValueRange(in));
+      }
+      o.setPortRanges(portRanges);
+    } else {
+      o.setPortRanges(null);
+    }
+    o.setPortNumber(in.readInteger());
+    o.setDiskType(in.readEnum(DiskType.class));
+    o.setDiskMB(in.readInteger());
+    o.setGpuNumber(in.readInteger());
+    o.setGpuAttribute(in.readLong());
+    return o;
+  }
+
+  private static void writePorts(BinaryOutput out, Ports o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getStart());
+    out.writeInteger(o.getCount());
+  }
+
+  private static Ports readPorts(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    Ports o = new Ports();
+    o.setStart(in.readInteger());
+    o.setCount(in.readInteger());
+    return o;
+  }
+
+  private static void writeValueRange(BinaryOutput out, ValueRange o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeInteger(o.getBegin());
+    out.writeInteger(o.getEnd());
+  }
+
+  private static ValueRange readValueRange(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    ValueRange o = new ValueRange();
+    o.setBegin(in.readInteger());
+    o.setEnd(in.readInteger());
+    return o;
+  }
+
+  private static void writeTaskRolePlatformSpecificParametersDescriptor(
+      BinaryOutput out, TaskRolePlatformSpecificParametersDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeString(o.getTaskNodeLabel());
+    out.writeString(o.getTaskNodeGpuType());
+    out.writeBoolean(o.getSamePortAllocation());
+  }
+
+  private static TaskRolePlatformSpecificParametersDescriptor readTaskRolePlatformSpecificParametersDescriptor(
+      BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    TaskRolePlatformSpecificParametersDescriptor o = new TaskRolePlatformSpecificParametersDescriptor();
+    o.setTaskNodeLabel(in.readString());
+    o.setTaskNodeGpuType(in.readString());
+    o.setSamePortAllocation(in.readBoolean());
+    return o;
+  }
+
+  private static void writePlatformSpecificParametersDescriptor(
+      BinaryOutput out, PlatformSpecificParametersDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    writeResourceDescriptor(out, o.getAmResource());
+    out.writeString(o.getAmNodeLabel());
+    out.writeString(o.getTaskNodeLabel());
+    out.writeString(o.getTaskNodeGpuType());
+    out.writeString(o.getQueue());
+    out.writeInteger(o.getContainerConnectionMaxLostCount());
+    out.writeInteger(o.getContainerConnectionMaxExceedCount());
+    out.writeBoolean(o.getAntiaffinityAllocation());
+    out.writeBoolean(o.getGangAllocation());
+    out.writeBoolean(o.getSkipLocalTriedResource());
+    out.writeEnum(o.getAmType());
+    out.writeBoolean(o.getAgentUseHeartbeat());
+    out.writeInteger(o.getAgentHeartbeatIntervalSec());
+    out.writeInteger(o.getAgentExpiryIntervalSec());
+    out.writeBoolean(o.getAgentUseHealthCheck());
+    writeHealthCheckDescriptor(out, o.getTaskServiceHealthCheck());
+  }
+
+  private static PlatformSpecificParametersDescriptor readPlatformSpecificParametersDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    PlatformSpecificParametersDescriptor o = new PlatformSpecificParametersDescriptor();
+    o.setAmResource(readResourceDescriptor(in));
+    o.setAmNodeLabel(in.readString());
+    o.setTaskNodeLabel(in.readString());
+    o.setTaskNodeGpuType(in.readString());
+    o.setQueue(in.readString());
+    o.setContainerConnectionMaxLostCount(in.readInteger());
+    o.setContainerConnectionMaxExceedCount(in.readInteger());
+    o.setAntiaffinityAllocation(in.readBoolean());
+    o.setGangAllocation(in.readBoolean());
+    o.setSkipLocalTriedResource(in.readBoolean());
+    o.setAmType(in.readEnum(AMType.class));
+    o.setAgentUseHeartbeat(in.readBoolean());
+    o.setAgentHeartbeatIntervalSec(in.readInteger());
+    o.setAgentExpiryIntervalSec(in.readInteger());
+    o.setAgentUseHealthCheck(in.readBoolean());
+    o.setTaskServiceHealthCheck(readHealthCheckDescriptor(in));
+    return o;
+  }
+
+  private static void writeHealthCheckDescriptor(BinaryOutput out, HealthCheckDescriptor o) {
+    if (!out.writePresence(o)) {
+      return;
+    }
+    out.writeEnum(o.getHealthCheckType());
+    out.writeString(o.getEntryPoint());
+    out.writeString(o.getWebUrl());
+    out.writeInteger(o.getDelaySeconds());
+    out.writeInteger(o.getIntervalSeconds());
+    out.writeInteger(o.getTimeoutSeconds());
+    out.writeInteger(o.getConsecutiveFailures());
+    out.writeInteger(o.getGracePeriodSeconds());
+    out.writeEnum(o.getHealthCheckFailureType());
+  }
+
+  private static HealthCheckDescriptor readHealthCheckDescriptor(BinaryInput in) {
+    if (!in.readPresence()) {
+      return null;
+    }
+    HealthCheckDescriptor o = new HealthCheckDescriptor();
+    o.setHealthCheckType(in.readEnum(HealthCheckType.class));
+    o.setEntryPoint(in.readString());
+    o.setWebUrl(in.readString());
+    o.setDelaySeconds(in.readInteger());
+    o.setIntervalSeconds(in.readInteger());
+    o.setTimeoutSeconds(in.readInteger());
+    o.setConsecutiveFailures(in.readInteger());
+    o.setGracePeriodSeconds(in.readInteger());
+    o.setHealthCheckFailureType(in.readEnum(HealthCheckFailureType.class));
+    return o;
+  }
+
+  /**
+   * REGION Primitives
+   */
+  // Growable output buffer which dedups the written Strings.
+  // NOT THREAD SAFE, one instance per serialize.
+  private static class BinaryOutput {
+    private byte[] buf = new byte[256];
+    private int count = 0;
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+    private void ensureCapacity(int extraBytes) {
+      if (count + extraBytes > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + extraBytes));
+      }
+    }
+
+    void writeByte(byte b) {
+      ensureCapacity(1);
+      buf[count++] = b;
+    }
+
+    void writeVarLong(long v) {
+      ensureCapacity(10);
+      while ((v & ~0x7FL) != 0) {
+        buf[count++] = (byte) ((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      buf[count++] = (byte) v;
+    }
+
+    // ZigZag encoding to make small negative values also compact
+    void writeSignedVarLong(long v) {
+      writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    boolean writePresence(Object o) {
+      writeByte((byte) (o == null ? 0 : 1));
+      return o != null;
+    }
+
+    boolean writeCollectionSize(Collection<?> c) {
+      // 0 means null, otherwise size + 1
+      writeVarLong(c == null ? 0 : c.size() + 1);
+      return c != null;
+    }
+
+    void writeInteger(Integer v) {
+      if (writePresence(v)) {
+        writeSignedVarLong(v);
+      }
+    }
+
+    void writeLong(Long v) {
+      if (writePresence(v)) {
+        writeSignedVarLong(v);
+      }
+    }
+
+    void writeFloat(Float v) {
+      if (writePresence(v)) {
+        int bits = Float.floatToIntBits(v);
+        ensureCapacity(4);
+        buf[count++] = (byte) (bits >>> 24);
+        buf[count++] = (byte) (bits >>> 16);
+        buf[count++] = (byte) (bits >>> 8);
+        buf[count++] = (byte) bits;
+      }
+    }
+
+    void writeBoolean(Boolean v) {
+      // 0 means null, 1 means false, 2 means true
+      writeByte((byte) (v == null ? 0 : (v ? 2 : 1)));
+    }
+
+    // 0 means null, 1 means a new String follows, otherwise the index + 2 of the
+    // already written String.
+    void writeString(String v) {
+      if (v == null) {
+        writeVarLong(0);
+        return;
+      }
+
+      Integer index = stringIndexes.get(v);
+      if (index != null) {
+        writeVarLong(index + 2);
+        return;
+      }
+
+      stringIndexes.put(v, stringIndexes.size());
+      byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(1);
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buf, count, bytes.length);
+      count += bytes.length;
+    }
+
+    void writeEnum(Enum<?> v) {
+      writeString(v == null ? null : v.name());
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buf, count);
+    }
+  }
+
+  // NOT THREAD SAFE, one instance per deserialize.
+  // It reads either from the whole payload bytes, or from a stream through a small buffer.
+  private static class BinaryInput {
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+
+    // Null if read from the whole payload bytes
+    private final InputStream in;
+    private byte[] buf;
+    private int pos = 0;
+    // The end of the valid bytes in buf
+    private int limit;
+    private final List<String> strings = new ArrayList<>();
+
+    BinaryInput(byte[] buf) {
+      this.in = null;
+      this.buf = buf;
+      this.limit = buf.length;
+    }
+
+    BinaryInput(InputStream in) {
+      this.in = in;
+      this.buf = new byte[STREAM_BUFFER_BYTES];
+      this.limit = 0;
+    }
+
+    // Return the header bytes, it may be shorter than HEADER_BYTES if the payload is too short
+    byte[] readHeader() {
+      ensureAvailable(HEADER_BYTES);
+      byte[] header = Arrays.copyOfRange(buf, pos, Math.min(pos + HEADER_BYTES, limit));
+      pos += header.length;
+      return header;
+    }
+
+    // Try to make at least n bytes available in buf after pos, return whether succeeded
+    private boolean ensureAvailable(int n) {
+      if (limit - pos >= n) {
+        return true;
+      }
+      if (in == null) {
+        return false;
+      }
+
+      // Compact the unread bytes to the head, and grow buf if it is still not enough
+      int remaining = limit - pos;
+      byte[] newBuf = (n > buf.length ? new byte[Math.max(n, buf.length * 2)] : buf);
+      System.arraycopy(buf, pos, newBuf, 0, remaining);
+      buf = newBuf;
+      pos = 0;
+      limit = remaining;
+
+      try {
+        while (limit < n) {
+          int read = in.read(buf, limit, buf.length - limit);
+          if (read < 0) {
+            return false;
+          }
+          limit += read;
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to read the binary payload", e);
+      }
+      return true;
+    }
+
+    byte readByte() {
+      if (pos >= limit && !ensureAvailable(1)) {
+        throw new IllegalStateException("Unexpected end of the binary payload", new EOFException());
+      }
+      return buf[pos++];
+    }
+
+    long readVarLong() {
+      long v = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte b = readByte();
+        v |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return v;
+        }
+      }
+      throw new IllegalStateException("Malformed VarLong in the binary payload");
+    }
+
+    long readSignedVarLong() {
+      long v = readVarLong();
+      return (v >>> 1) ^ -(v & 1);
+    }
+
+    boolean readPresence() {
+      return readByte() != 0;
+    }
+
+    // Return -1 if null
+    int readCollectionSize() {
+      return (int) readVarLong() - 1;
+    }
+
+    Integer readInteger() {
+      return readPresence() ? (int) readSignedVarLong() : null;
+    }
+
+    Long readLong() {
+      return readPresence() ? readSignedVarLong() : null;
+    }
+
+    Float readFloat() {
+      if (!readPresence()) {
+        return null;
+      }
+      int bits = ((readByte() & 0xFF) << 24) |
+          ((readByte() & 0xFF) << 16) |
+          ((readByte() & 0xFF) << 8) |
+          (readByte() & 0xFF);
+      return Float.intBitsToFloat(bits);
+    }
+
+    Boolean readBoolean() {
+      byte b = readByte();
+      return b == 0 ? null : b == 2;
+    }
+
+    String readString() {
+      long tag = readVarLong();
+      if (tag == 0) {
+        return null;
+      }
+      if (tag >= 2) {
+        return strings.get((int) (tag - 2));
+      }
+
+      int length = (int) readVarLong();
+      if (length < 0 || !ensureAvailable(length)) {
+        throw new IllegalStateException("Malformed String in the binary payload");
+      }
+      String v = new String(buf, pos, length, StandardCharsets.UTF_8);
+      pos += length;
+      strings.add(v);
+      return v;
+    }
+
+    <E extends Enum<E>> E readEnum(Class<E> enumClass) {
+      String name = readString();
+      return name == null ? null : Enum.valueOf(enumClass, name);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.InputStream;
+
+// SerializationCodec converts objects to and from the bytes stored in ZK nodes.
+// The serialized bytes must be self-describing, i.e. a codec can recognize its own
+// payload by header, so that payloads written by different codecs can coexist
+// and always be read back correctly.
+// See SerializationCodecs for the registered codecs.
+public interface SerializationCodec {
+  String getName();
+
+  // Whether the codec can serialize objects of the given class
+  boolean canSerialize(Class<?> classRef);
+
+  // Whether the given bytes are serialized by this codec
+  boolean canDeserialize(byte[] bytes);
+
+  byte[] serialize(Object obj) throws Exception;
+
+  <T> T deserialize(byte[] bytes, Class<T> classRef) throws Exception;
+
+  // Deserialize from the stream which starts with the serialized bytes.
+  // A codec should override it if it can deserialize without buffering the whole bytes.
+  default <T> T deserialize(InputStream in, Class<T> classRef) throws Exception {
+    return deserialize(IOUtils.toByteArray(in), classRef);
+  }
+}
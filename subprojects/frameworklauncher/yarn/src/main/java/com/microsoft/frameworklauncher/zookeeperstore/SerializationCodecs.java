@@ -0,0 +1,102 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+public class SerializationCodecs {
+  public static final SerializationCodec YAML = new YamlSerializationCodec();
+  public static final SerializationCodec BINARY = new BinarySerializationCodec();
+
+  // Codecs with header are detected in order, and YAML is the final fallback
+  // since it has no header.
+  private static final List<SerializationCodec> DETECTABLE_CODECS = Arrays.asList(BINARY, YAML);
+  // The max header length of all codecs, which is enough to detect the codec of a stream
+  private static final int MAX_HEADER_BYTES = 16;
+
+  public static SerializationCodec getCodec(String name) {
+    for (SerializationCodec codec : DETECTABLE_CODECS) {
+      if (codec.getName().equalsIgnoreCase(name)) {
+        return codec;
+      }
+    }
+    throw new IllegalArgumentException(String.format(
+        "Unknown SerializationCodec [%s], supported SerializationCodecs are %s",
+        name, getCodecNames()));
+  }
+
+  public static String getCodecNames() {
+    StringBuilder names = new StringBuilder();
+    for (SerializationCodec codec : DETECTABLE_CODECS) {
+      if (names.length() != 0) {
+        names.append(", ");
+      }
+      names.append(codec.getName());
+    }
+    return "[" + names.toString() + "]";
+  }
+
+  // Fallback to YAML if the preferred codec cannot serialize the object
+  public static byte[] serialize(SerializationCodec preferredCodec, Object obj) throws Exception {
+    if (preferredCodec.canSerialize(obj.getClass())) {
+      return preferredCodec.serialize(obj);
+    } else {
+      return YAML.serialize(obj);
+    }
+  }
+
+  // Detect the codec by the header of the bytes
+  public static <T> T deserialize(byte[] bytes, Class<T> classRef) throws Exception {
+    for (SerializationCodec codec : DETECTABLE_CODECS) {
+      if (codec.canDeserialize(bytes)) {
+        return codec.deserialize(bytes, classRef);
+      }
+    }
+    return YAML.deserialize(bytes, classRef);
+  }
+
+  // Same as deserialize bytes, but only the header is buffered to detect the codec
+  public static <T> T deserialize(InputStream in, Class<T> classRef) throws Exception {
+    if (!in.markSupported()) {
+      in = new BufferedInputStream(in);
+    }
+
+    in.mark(MAX_HEADER_BYTES);
+    byte[] header = new byte[MAX_HEADER_BYTES];
+    int headerBytes = 0;
+    while (headerBytes < header.length) {
+      int read = in.read(header, headerBytes, header.length - headerBytes);
+      if (read < 0) {
+        break;
+      }
+      headerBytes += read;
+    }
+    in.reset();
+
+    header = Arrays.copyOf(header, headerBytes);
+    for (SerializationCodec codec : DETECTABLE_CODECS) {
+      if (codec.canDeserialize(header)) {
+        return codec.deserialize(in, classRef);
+      }
+    }
+    return YAML.deserialize(in, classRef);
+  }
+}
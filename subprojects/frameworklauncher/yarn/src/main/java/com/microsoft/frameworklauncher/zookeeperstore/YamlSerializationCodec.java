@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+
+import java.io.InputStream;
+
+// The legacy codec which has no header, all existing ZK nodes are serialized by it.
+// It is also the fallback codec for the bytes cannot be recognized by any other codec.
+public class YamlSerializationCodec implements SerializationCodec {
+  @Override
+  public String getName() {
+    return "YAML";
+  }
+
+  @Override
+  public boolean canSerialize(Class<?> classRef) {
+    return true;
+  }
+
+  @Override
+  public boolean canDeserialize(byte[] bytes) {
+    return true;
+  }
+
+  @Override
+  public byte[] serialize(Object obj) {
+    return YamlUtils.toBytes(obj);
+  }
+
+  @Override
+  public <T> T deserialize(byte[] bytes, Class<T> classRef) {
+    return YamlUtils.toObject(bytes, classRef);
+  }
+
+  @Override
+  public <T> T deserialize(InputStream in, Class<T> classRef) {
+    return YamlUtils.toObject(in, classRef);
+  }
+}
@@ -21,18 +21,28 @@
 import com.microsoft.frameworklauncher.common.exceptions.TransientException;
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 import com.microsoft.frameworklauncher.common.utils.CommonUtils;
+import com.microsoft.frameworklauncher.common.utils.CompressionOptions;
 import com.microsoft.frameworklauncher.common.utils.CompressionUtils;
-import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionBridge;
+import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.curator.retry.BoundedExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
 public class ZooKeeperClient {
   private static final DefaultLogger LOGGER = new DefaultLogger(ZooKeeperClient.class);
@@ -42,7 +52,55 @@ public class ZooKeeperClient {
   private static final int ZK_MAX_NODE_BYTES = 768 * 1024;
   private static final int ZK_MIN_COMPRESSION_BYTES = 10 * 1024;
   private static final String READY_PAYLOAD_VERSIONS_NODE_NAME = "ReadyPayloadVersions";
+  private static final String DELTAS_NODE_NAME = "Deltas";
+  private static final String DELTA_NAME_SEPARATOR = "-";
+  // Bound the async requests in flight, so that a huge batch of async Get will
+  // not flood the ZK server.
+  private static final int MAX_IN_FLIGHT_ASYNC_REQUESTS = 256;
+  // The max total PayloadPart bytes in one transaction, its request must be smaller than the
+  // jute.maxbuffer (1MB by default) of the ZK server.
+  private static final int ZK_MAX_TRANSACTION_BYTES = ZK_MAX_NODE_BYTES;
+  // The max bytes of one PayloadPart, so that several PayloadParts can be packed into one
+  // transaction, and the Payload slightly larger than one transaction does not need a
+  // whole extra transaction for its tail PayloadPart.
+  private static final int ZK_MAX_PAYLOAD_PART_BYTES = ZK_MAX_TRANSACTION_BYTES / 4;
+  // The max number of operations in one transaction, so that a failed transaction
+  // does not need to fallback too many operations.
+  private static final int ZK_MAX_TRANSACTION_OPS = 1000;
+  private static final int MAX_WRITE_METRICS_COUNT = 10000;
+  private static final int MAX_CACHED_OBJECT_COUNT = 10000;
+  // The max number of times to retry getLargeObject if the LargeObject is concurrently Set during the Get,
+  // so that a LargeObject which is Set too frequently will not make the Get retry forever.
+  private static final int MAX_GET_LARGE_OBJECT_RETRY_COUNT = 10;
   private final CuratorFramework curator;
+  // Only used to decompress and deserialize the async Get result, so that the
+  // Curator EventThread will not be blocked by them.
+  private final ExecutorService decodeExecutor;
+  private final Semaphore inFlightAsyncRequestPermits = new Semaphore(MAX_IN_FLIGHT_ASYNC_REQUESTS);
+  private final Queue<Runnable> pendingAsyncRequests = new ConcurrentLinkedQueue<>();
+  // Only used to GC the old versions of LargeObjects, so that setLargeObject will not wait for it.
+  private final ExecutorService gcExecutor;
+  // Path -> The latest PayloadVersion to GC the older versions for, which is not yet GC
+  private final Map<String, String> pendingGcPayloadVersions = new ConcurrentHashMap<>();
+  // Path -> WriteMetrics, only for the recently written paths
+  private final Map<String, WriteMetrics> writeMetrics = Collections.synchronizedMap(
+      new LinkedHashMap<String, WriteMetrics>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WriteMetrics> eldest) {
+          return size() > MAX_WRITE_METRICS_COUNT;
+        }
+      });
+  // Path -> The latest CachedObject Get by the versioned Get, only for the recently Get paths
+  private final Map<String, CachedObject> objectCache = Collections.synchronizedMap(
+      new LinkedHashMap<String, CachedObject>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedObject> eldest) {
+          return size() > MAX_CACHED_OBJECT_COUNT;
+        }
+      });
+  // Only used to Set object, the object is always Get by the codec detected from its bytes.
+  private volatile SerializationCodec serializationCodec = SerializationCodecs.YAML;
+  private volatile CompressionOptions compressionOptions = CompressionOptions.DEFAULT;
 
   public ZooKeeperClient(String connectString) {
     curator = CuratorFrameworkFactory.builder()
@@ -52,15 +110,140 @@ public ZooKeeperClient(String connectString) {
         .retryPolicy(new BoundedExponentialBackoffRetry(1000, 60000, 10))
         .build();
     curator.start();
+    decodeExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    gcExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, ZooKeeperClient.class.getSimpleName() + "-GC");
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   // ONLY for testing
   protected ZooKeeperClient() {
     curator = null;
+    decodeExecutor = null;
+    gcExecutor = null;
   }
 
   public void stop() {
     curator.close();
+    decodeExecutor.shutdown();
+    gcExecutor.shutdown();
+  }
+
+  // Metrics of the writes to a path, written bytes are the bytes after compression
+  public static class WriteMetrics {
+    private long writeCount = 0;
+    private long writtenBytes = 0;
+    private long lastWriteLatencyMs = 0;
+    private long maxWriteLatencyMs = 0;
+
+    private WriteMetrics() {
+    }
+
+    private WriteMetrics(WriteMetrics other) {
+      this.writeCount = other.writeCount;
+      this.writtenBytes = other.writtenBytes;
+      this.lastWriteLatencyMs = other.lastWriteLatencyMs;
+      this.maxWriteLatencyMs = other.maxWriteLatencyMs;
+    }
+
+    public long getWriteCount() {
+      return writeCount;
+    }
+
+    public long getWrittenBytes() {
+      return writtenBytes;
+    }
+
+    public long getLastWriteLatencyMs() {
+      return lastWriteLatencyMs;
+    }
+
+    public long getMaxWriteLatencyMs() {
+      return maxWriteLatencyMs;
+    }
+  }
+
+  // Return a snapshot of the WriteMetrics, null if the path is not written recently
+  public WriteMetrics getWriteMetrics(String path) {
+    synchronized (writeMetrics) {
+      WriteMetrics metrics = writeMetrics.get(path);
+      return (metrics == null ? null : new WriteMetrics(metrics));
+    }
+  }
+
+  private void recordWrite(String path, long writtenBytes, long latencyMs) {
+    synchronized (writeMetrics) {
+      WriteMetrics metrics = writeMetrics.get(path);
+      if (metrics == null) {
+        metrics = new WriteMetrics();
+        writeMetrics.put(path, metrics);
+      }
+      metrics.writeCount++;
+      metrics.writtenBytes += writtenBytes;
+      metrics.lastWriteLatencyMs = latencyMs;
+      metrics.maxWriteLatencyMs = Math.max(metrics.maxWriteLatencyMs, latencyMs);
+    }
+  }
+
+  // The object Get from a node together with the version of the node, i.e. the mzxid of
+  // the node Stat, which changes whenever the node is Set, even if the node is deleted
+  // and created again, so the version identifies the node data.
+  public static class VersionedObject<T> {
+    private final T object;
+    private final long version;
+
+    VersionedObject(T object, long version) {
+      this.object = object;
+      this.version = version;
+    }
+
+    public T getObject() {
+      return object;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+  }
+
+  private static class CachedObject {
+    private final Object object;
+    private final long version;
+
+    private CachedObject(Object object, long version) {
+      this.object = object;
+      this.version = version;
+    }
+  }
+
+  public SerializationCodec getSerializationCodec() {
+    return serializationCodec;
+  }
+
+  public void setSerializationCodec(SerializationCodec serializationCodec) {
+    LOGGER.logInfo("Set SerializationCodec from %s to %s",
+        this.serializationCodec.getName(), serializationCodec.getName());
+    this.serializationCodec = serializationCodec;
+  }
+
+  public CompressionOptions getCompressionOptions() {
+    return compressionOptions;
+  }
+
+  public void setCompressionOptions(CompressionOptions compressionOptions) {
+    LOGGER.logInfo("Set CompressionOptions from %s to %s",
+        this.compressionOptions, compressionOptions);
+    this.compressionOptions = compressionOptions;
+  }
+
+  private <T> byte[] serialize(T obj) throws Exception {
+    return SerializationCodecs.serialize(serializationCodec, obj);
+  }
+
+  private static <T> T deserialize(byte[] bytes, Class<T> classRef) throws Exception {
+    return SerializationCodecs.deserialize(bytes, classRef);
   }
 
   private String create(String path, byte[] data, CreateMode mode) throws Exception {
@@ -75,6 +258,21 @@ public List<String> getChildren(String path) throws Exception {
     return curator.getChildren().forPath(path);
   }
 
+  // The watcher is one-time triggered, i.e. it needs to be set again after it is triggered.
+  // Note the watcher will also be set even if the path does not exist, and it will be
+  // triggered when the path is created.
+  public Boolean exists(String path, CuratorWatcher watcher) throws Exception {
+    return curator.checkExists().usingWatcher(watcher).forPath(path) != null;
+  }
+
+  public List<String> getChildren(String path, CuratorWatcher watcher) throws Exception {
+    return curator.getChildren().usingWatcher(watcher).forPath(path);
+  }
+
+  public void addConnectionStateListener(ConnectionStateListener listener) {
+    curator.getConnectionStateListenable().addListener(listener);
+  }
+
   private byte[] getData(String path) throws Exception {
     return curator.getData().forPath(path);
   }
@@ -150,23 +348,196 @@ public void deleteRecursively(String path, Boolean childrenOnly) throws Exceptio
   // Set/Get small size (<= ZK_MAX_NODE_BYTES) object to the node of the given path, no matter the given path exist or not.
   // DISTRIBUTED THREAD SAFE
   public <T> void setSmallObject(String path, T obj) throws Exception {
-    byte[] serializedObj = YamlUtils.toBytes(obj);
+    byte[] serializedObj = serialize(obj);
 
     long start = System.currentTimeMillis();
 
-    byte[] payload;
-    if (serializedObj.length >= ZK_MIN_COMPRESSION_BYTES) {
-      payload = CompressionUtils.compress(serializedObj);
-    } else {
-      payload = serializedObj;
-    }
+    byte[] payload = getSmallObjectPayload(serializedObj);
     createNode(path, payload);
 
     long end = System.currentTimeMillis();
+    recordWrite(path, payload.length, end - start);
     LOGGER.logTrace("setSmallObject with %s bytes on path %s in %sms.",
         serializedObj.length, path, end - start);
   }
 
+  private byte[] getSmallObjectPayload(byte[] serializedObj) throws Exception {
+    if (serializedObj.length >= ZK_MIN_COMPRESSION_BYTES) {
+      return CompressionUtils.compress(serializedObj, compressionOptions);
+    } else {
+      return serializedObj;
+    }
+  }
+
+  // A small object to be Set by setSmallObjects
+  public static class SmallObjectWrite {
+    private final String path;
+    // Null means to Set an empty node
+    private final Object object;
+    // The hint of whether the node already exists, so that it is Set instead of Created in the transaction
+    private final boolean exists;
+
+    public SmallObjectWrite(String path, Object object, boolean exists) {
+      this.path = path;
+      this.object = object;
+      this.exists = exists;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public Object getObject() {
+      return object;
+    }
+
+    public boolean isExists() {
+      return exists;
+    }
+  }
+
+  // Set the small objects in order, and group them in as few transactions as possible,
+  // so that a batch of objects costs a few round trips instead of one per object.
+  // The objects in one transaction are Set atomically, but not across the transactions.
+  // If an exists hint is stale, the transaction fails as a whole, and then falls back to
+  // Set its nodes one by one, which tolerates both the existing and not existing nodes.
+  // DISTRIBUTED THREAD SAFE
+  public void setSmallObjects(List<SmallObjectWrite> writes) throws Exception {
+    long start = System.currentTimeMillis();
+
+    List<NodeWrite> transaction = new ArrayList<>();
+    int transactionBytes = 0;
+    int transactionCount = 0;
+    for (SmallObjectWrite write : writes) {
+      byte[] payload = (write.object == null ? new byte[0] : getSmallObjectPayload(serialize(write.object)));
+      if (!transaction.isEmpty() &&
+          (transactionBytes + payload.length > ZK_MAX_TRANSACTION_BYTES ||
+              transaction.size() >= ZK_MAX_TRANSACTION_OPS)) {
+        setNodes(transaction);
+        transactionCount++;
+        transaction = new ArrayList<>();
+        transactionBytes = 0;
+      }
+      transaction.add(new NodeWrite(write.path, payload, write.exists));
+      transactionBytes += payload.length;
+    }
+    if (!transaction.isEmpty()) {
+      setNodes(transaction);
+      transactionCount++;
+    }
+
+    long end = System.currentTimeMillis();
+    LOGGER.logTrace("setSmallObjects with %s objects in %s transactions in %sms.",
+        writes.size(), transactionCount, end - start);
+  }
+
+  private static class NodeWrite {
+    private final String path;
+    private final byte[] bytes;
+    private final boolean exists;
+
+    private NodeWrite(String path, byte[] bytes, boolean exists) {
+      this.path = path;
+      this.bytes = bytes;
+      this.exists = exists;
+    }
+  }
+
+  private void setNodes(List<NodeWrite> nodeWrites) throws Exception {
+    long start = System.currentTimeMillis();
+
+    try {
+      CuratorTransaction curatorTransaction = curator.inTransaction();
+      CuratorTransactionBridge bridge = null;
+      for (NodeWrite nodeWrite : nodeWrites) {
+        CuratorTransaction nextTransaction = (bridge == null ? curatorTransaction : bridge.and());
+        bridge = (nodeWrite.exists ?
+            nextTransaction.setData().forPath(nodeWrite.path, nodeWrite.bytes) :
+            nextTransaction.create().forPath(nodeWrite.path, nodeWrite.bytes));
+      }
+      if (bridge != null) {
+        bridge.and().commit();
+      }
+    } catch (KeeperException.NodeExistsException | KeeperException.NoNodeException e) {
+      LOGGER.logDebug(e, "Transaction for %s nodes has stale exists hints, fallback to Set them one by one",
+          nodeWrites.size());
+      for (NodeWrite nodeWrite : nodeWrites) {
+        createNode(nodeWrite.path, nodeWrite.bytes);
+      }
+    }
+
+    long end = System.currentTimeMillis();
+    for (NodeWrite nodeWrite : nodeWrites) {
+      recordWrite(nodeWrite.path, nodeWrite.bytes.length, end - start);
+    }
+  }
+
+  // Delete the given nodes recursively like deleteRecursively, but group the deletions of
+  // all their descendants in as few transactions as possible like setSmallObjects.
+  // DISTRIBUTED THREAD SAFE
+  public void deleteRecursively(Collection<String> paths) throws Exception {
+    long start = System.currentTimeMillis();
+
+    // Get the existing descendants level by level, each level is Get in parallel
+    List<List<String>> levels = new ArrayList<>();
+    List<String> level = new ArrayList<>(paths);
+    while (!level.isEmpty()) {
+      Map<String, CompletableFuture<List<String>>> futures = new LinkedHashMap<>();
+      for (String path : level) {
+        futures.put(path, getChildrenAsync(path));
+      }
+
+      List<String> existingLevel = new ArrayList<>();
+      List<String> nextLevel = new ArrayList<>();
+      for (Map.Entry<String, CompletableFuture<List<String>>> future : futures.entrySet()) {
+        try {
+          for (String child : await(future.getValue())) {
+            nextLevel.add(ZookeeperStoreStructure.getNodePath(future.getKey(), child));
+          }
+          existingLevel.add(future.getKey());
+        } catch (KeeperException.NoNodeException ignored) {
+        }
+      }
+      levels.add(existingLevel);
+      level = nextLevel;
+    }
+
+    // Delete the deepest level first, so that a node is always deleted after its children
+    List<String> nodePaths = new ArrayList<>();
+    for (int i = levels.size() - 1; i >= 0; i--) {
+      nodePaths.addAll(levels.get(i));
+    }
+    int transactionCount = 0;
+    for (int i = 0; i < nodePaths.size(); i += ZK_MAX_TRANSACTION_OPS) {
+      deleteNodes(nodePaths.subList(i, Math.min(i + ZK_MAX_TRANSACTION_OPS, nodePaths.size())));
+      transactionCount++;
+    }
+
+    long end = System.currentTimeMillis();
+    LOGGER.logTrace("deleteRecursively %s paths with %s nodes in %s transactions in %sms.",
+        paths.size(), nodePaths.size(), transactionCount, end - start);
+  }
+
+  private void deleteNodes(List<String> nodePaths) throws Exception {
+    try {
+      CuratorTransaction curatorTransaction = curator.inTransaction();
+      CuratorTransactionBridge bridge = null;
+      for (String nodePath : nodePaths) {
+        bridge = (bridge == null ? curatorTransaction : bridge.and()).delete().forPath(nodePath);
+      }
+      if (bridge != null) {
+        bridge.and().commit();
+      }
+    } catch (KeeperException.NoNodeException | KeeperException.NotEmptyException e) {
+      // The nodes may be changed since they are Get
+      LOGGER.logDebug(e, "Transaction for %s nodes is outdated, fallback to delete them one by one",
+          nodePaths.size());
+      for (String nodePath : nodePaths) {
+        deleteRecursively(nodePath, false);
+      }
+    }
+  }
+
   // DISTRIBUTED THREAD SAFE
   public <T> T getSmallObject(String path, Class<T> classRef) throws Exception {
     long start = System.currentTimeMillis();
@@ -177,60 +548,57 @@ public <T> T getSmallObject(String path, Class<T> classRef) throws Exception {
     LOGGER.logTrace("getSmallObject with %s bytes on path %s in %sms.",
         serializedObj.length, path, end - start);
 
-    return YamlUtils.toObject(serializedObj, classRef);
+    return deserialize(serializedObj, classRef);
   }
 
   // Set/Get large size (> ZK_MAX_NODE_BYTES) object to the node of the given path, no matter the given path exist or not.
   // Note the node of the given path can only be leaf node.
   // DISTRIBUTED THREAD SAFE and Atomic like getSmallObject
   public <T> void setLargeObject(String path, T obj) throws Exception {
-    byte[] serializedObj = YamlUtils.toBytes(obj);
+    byte[] serializedObj = serialize(obj);
 
     long start = System.currentTimeMillis();
 
     byte[] payload;
     if (serializedObj.length >= ZK_MIN_COMPRESSION_BYTES) {
-      payload = CompressionUtils.compress(serializedObj);
+      payload = CompressionUtils.compress(serializedObj, compressionOptions);
     } else {
       payload = serializedObj;
     }
 
-    // Prepare internal ZookeeperStoreStructure for LargeObject
-    if (!exists(path)) {
-      createPath(path);
-    }
-
     // ReadyPayloadVersionsRootPath is used to store ReadyPayloadVersions whose Payload has been Set, i.e. Path/ReadyPayloadVersions
     // At any time, we can guarantee that:
     //  The Payload of the latest ReadyPayloadVersion is complete.
     // Note:
     //  The Payload of not the latest ReadyPayloadVersion may be incomplete.
     //  Such as in case that new Payload GC old Payload before the old PayloadVersion add under ReadyPayloadVersionsRootPath.
-    String readyPayloadVersionsRootPath = ZookeeperStoreStructure.getNodePath(path, READY_PAYLOAD_VERSIONS_NODE_NAME);
-    if (!exists(readyPayloadVersionsRootPath)) {
-      createPath(readyPayloadVersionsRootPath);
-    }
+    String readyPayloadVersionsRootPath = getReadyPayloadVersionsRootPath(path);
 
     // Generate new PayloadVersion for this Payload
-    String payloadVersion = createSequentialPath(path);
+    String payloadVersion;
+    try {
+      payloadVersion = createSequentialPath(path);
+    } catch (KeeperException.NoNodeException e) {
+      // Prepare internal ZookeeperStoreStructure for LargeObject only when it is not yet prepared
+      createPath(path);
+      createPath(readyPayloadVersionsRootPath);
+      payloadVersion = createSequentialPath(path);
+    }
 
     // PayloadRootPath is already cleaned and created in createSequentialPath, i.e. Path/{PayloadVersion}
     String payloadRootPath = ZookeeperStoreStructure.getNodePath(path, payloadVersion);
 
-    // Split and Set Payload
+    // The last transaction also adds the PayloadVersion under ReadyPayloadVersionsRootPath,
+    // i.e. Path/ReadyPayloadVersions/{PayloadVersion}, so that the PayloadVersion is ready iff
+    // all its PayloadParts are Set, and the Payload which fits in one transaction is Set in one
+    // round trip.
+    List<List<PayloadPart>> transactions = packPayloadParts(
+        payloadRootPath, payload, ZK_MAX_PAYLOAD_PART_BYTES, ZK_MAX_TRANSACTION_BYTES);
     try {
-      for (int partStartOffset = 0; partStartOffset < payload.length; partStartOffset += ZK_MAX_NODE_BYTES) {
-        // Split Payload by ZK_MAX_NODE_BYTES to PayloadParts
-        // PayloadPart: {partIndex : [partStartOffset, partEndOffset)}
-        int partEndOffset = Math.min(payload.length, partStartOffset + ZK_MAX_NODE_BYTES);
-        int partBytes = partEndOffset - partStartOffset;
-        byte[] payloadPart = CommonUtils.subArray(payload, partStartOffset, partBytes);
-
-        // Set each PayloadParts into corresponding PayloadPartPath, i.e. Path/{PayloadVersion}/{PayLoadPartIndex}
-        Integer partIndex = partStartOffset / ZK_MAX_NODE_BYTES;
-        String partIndexStr = partIndex.toString();
-        String partIndexPath = ZookeeperStoreStructure.getNodePath(payloadRootPath, partIndexStr);
-        createNode(partIndexPath, payloadPart);
+      for (int i = 0; i < transactions.size(); i++) {
+        String readyPayloadVersionPath = (i < transactions.size() - 1 ? null :
+            ZookeeperStoreStructure.getNodePath(readyPayloadVersionsRootPath, payloadVersion));
+        setPayloadParts(payloadRootPath, transactions.get(i), readyPayloadVersionPath, readyPayloadVersionsRootPath);
       }
     } catch (KeeperException.NoNodeException e) {
       LOGGER.logWarning(e,
@@ -238,22 +606,149 @@ public <T> void setLargeObject(String path, T obj) throws Exception {
               "There should be a newer version Payload, so give up here",
           payloadRootPath);
       return;
+    } catch (Exception e) {
+      // The PayloadVersion is sequentially created before its PayloadParts, since ZK cannot
+      // create the children of a sequential node in the same transaction, so clean up the
+      // PayloadVersion which will never be ready, instead of leaving it until the next Set.
+      deletePayloadVersionQuietly(payloadRootPath);
+      throw e;
     }
 
-    // Add PayloadVersion under ReadyPayloadVersionsRootPath, i.e. Path/ReadyPayloadVersions/{PayloadVersion}
-    addNewVersion(readyPayloadVersionsRootPath, payloadVersion);
-
-    // First GC old PayloadVersion under ReadyPayloadVersionsRootPath, then GC old Payload under Path
-    gcOldVersions(readyPayloadVersionsRootPath, payloadVersion, null);
-    gcOldVersions(path, payloadVersion, new HashSet<>(Collections.singletonList(READY_PAYLOAD_VERSIONS_NODE_NAME)));
+    // GC asynchronously, since the old versions are already ignored by Get
+    gcOldVersionsAsync(path, payloadVersion);
 
     long end = System.currentTimeMillis();
-    LOGGER.logTrace("setLargeObject with %s bytes on path %s in %sms.",
-        serializedObj.length, path, end - start);
+    recordWrite(path, payload.length, end - start);
+    LOGGER.logTrace("setLargeObject with %s bytes in %s transactions on path %s in %sms.",
+        serializedObj.length, transactions.size(), path, end - start);
+  }
+
+  private void deletePayloadVersionQuietly(String payloadRootPath) {
+    try {
+      deleteRecursively(payloadRootPath);
+    } catch (Exception e) {
+      LOGGER.logWarning(e,
+          "Failed to clean up the unready Payload under Path %s, will GC it in next setLargeObject",
+          payloadRootPath);
+    }
   }
 
-  private void addNewVersion(String versionsRootPath, String newVersion) throws Exception {
-    createPath(ZookeeperStoreStructure.getNodePath(versionsRootPath, newVersion));
+  static class PayloadPart {
+    final String path;
+    final byte[] bytes;
+
+    PayloadPart(String path, byte[] bytes) {
+      this.path = path;
+      this.bytes = bytes;
+    }
+  }
+
+  // Split Payload by maxPartBytes to PayloadParts, and pack the PayloadParts into as few
+  // transactions of at most maxTransactionBytes as possible.
+  // There is always at least one transaction, even if the Payload is empty.
+  // ONLY package-private for testing
+  static List<List<PayloadPart>> packPayloadParts(
+      String payloadRootPath, byte[] payload, int maxPartBytes, int maxTransactionBytes) {
+    List<List<PayloadPart>> transactions = new ArrayList<>();
+    List<PayloadPart> transaction = new ArrayList<>();
+    int transactionBytes = 0;
+    for (int partStartOffset = 0; partStartOffset < payload.length; partStartOffset += maxPartBytes) {
+      // PayloadPart: {partIndex : [partStartOffset, partEndOffset)}
+      int partEndOffset = Math.min(payload.length, partStartOffset + maxPartBytes);
+      int partBytes = partEndOffset - partStartOffset;
+
+      // Set each PayloadParts into corresponding PayloadPartPath, i.e. Path/{PayloadVersion}/{PayLoadPartIndex}
+      Integer partIndex = partStartOffset / maxPartBytes;
+      String partIndexPath = ZookeeperStoreStructure.getNodePath(payloadRootPath, partIndex.toString());
+      if (transactionBytes + partBytes > maxTransactionBytes && !transaction.isEmpty()) {
+        transactions.add(transaction);
+        transaction = new ArrayList<>();
+        transactionBytes = 0;
+      }
+      transaction.add(new PayloadPart(partIndexPath,
+          CommonUtils.subArray(payload, partStartOffset, partBytes)));
+      transactionBytes += partBytes;
+    }
+    transactions.add(transaction);
+    return transactions;
+  }
+
+  // Create the PayloadParts and the ReadyPayloadVersion node if it is not null in one transaction.
+  // Throw NoNodeException if the PayloadRootPath has already been GC by a newer version Payload.
+  // ONLY package-private for testing
+  void setPayloadParts(
+      String payloadRootPath, List<PayloadPart> payloadParts,
+      String readyPayloadVersionPath, String readyPayloadVersionsRootPath) throws Exception {
+    // The ReadyPayloadVersionsRootPath may be deleted externally, so create it once on demand.
+    for (int attempt = 0; ; attempt++) {
+      try {
+        CuratorTransaction curatorTransaction = curator.inTransaction();
+        CuratorTransactionBridge bridge = null;
+        for (PayloadPart payloadPart : payloadParts) {
+          bridge = (bridge == null ? curatorTransaction : bridge.and())
+              .create().forPath(payloadPart.path, payloadPart.bytes);
+        }
+        if (readyPayloadVersionPath != null) {
+          bridge = (bridge == null ? curatorTransaction : bridge.and())
+              .create().forPath(readyPayloadVersionPath, new byte[0]);
+        }
+        if (bridge != null) {
+          bridge.and().commit();
+        }
+        return;
+      } catch (KeeperException.NodeExistsException e) {
+        // The transaction may be already committed before the connection loss and then retried,
+        // so fallback to Set the nodes one by one, which also tolerates the existing nodes.
+        LOGGER.logDebug(e, "Transaction for PayloadParts is partially retried, fallback to Set them one by one");
+        for (PayloadPart payloadPart : payloadParts) {
+          createNode(payloadPart.path, payloadPart.bytes);
+        }
+        if (readyPayloadVersionPath != null) {
+          createPath(readyPayloadVersionPath);
+        }
+        return;
+      } catch (KeeperException.NoNodeException e) {
+        if (readyPayloadVersionPath == null || attempt > 0 || !exists(payloadRootPath)) {
+          throw e;
+        }
+        createPath(readyPayloadVersionsRootPath);
+      }
+    }
+  }
+  // The children of ReadyPayloadVersionsRootPath are changed iff a new Payload of the
+  // LargeObject is Set completely, so it can be watched to detect the LargeObject changes.
+  public static String getReadyPayloadVersionsRootPath(String path) {
+    return ZookeeperStoreStructure.getNodePath(path, READY_PAYLOAD_VERSIONS_NODE_NAME);
+  }
+
+  // DeltasRootPath is used to store the Deltas appended to the LargeObject, i.e. Path/Deltas
+  // Its children are changed iff a new Delta is appended or old Deltas are GC.
+  public static String getDeltasRootPath(String path) {
+    return ZookeeperStoreStructure.getNodePath(path, DELTAS_NODE_NAME);
+  }
+
+  // GC old versions for the latest PayloadVersion in the gcExecutor.
+  // If there are multiple PayloadVersions Set before the GC started, only the latest one is GC for.
+  private void gcOldVersionsAsync(String path, String payloadVersion) {
+    if (pendingGcPayloadVersions.put(path, payloadVersion) == null) {
+      gcExecutor.submit(() -> gcOldVersions(path));
+    }
+  }
+
+  // ONLY package-private for testing
+  void gcOldVersions(String path) {
+    String payloadVersion = pendingGcPayloadVersions.remove(path);
+    try {
+      // First GC old PayloadVersion under ReadyPayloadVersionsRootPath, then GC old Payload under Path,
+      // and finally GC the Deltas based on old Payload, since they are already ignored by Get.
+      gcOldVersions(getReadyPayloadVersionsRootPath(path), payloadVersion, null);
+      gcOldVersions(path, payloadVersion, new HashSet<>(Arrays.asList(READY_PAYLOAD_VERSIONS_NODE_NAME, DELTAS_NODE_NAME)));
+      gcOldDeltas(getDeltasRootPath(path), payloadVersion);
+    } catch (KeeperException.NoNodeException ignored) {
+      // The LargeObject is already deleted
+    } catch (Exception e) {
+      LOGGER.logWarning(e, "Failed to GC old versions on path %s, will GC them in next setLargeObject", path);
+    }
   }
 
   // Try best to GC old version nodes under versionsRootPath and return the failed GC Versions
@@ -292,11 +787,101 @@ private void gcOldVersions(
     }
   }
 
+  // Try best to GC the Deltas which are not based on currentVersion
+  private void gcOldDeltas(String deltasRootPath, String currentVersion) throws Exception {
+    List<String> deltaNames;
+    try {
+      deltaNames = getChildren(deltasRootPath);
+    } catch (KeeperException.NoNodeException ignored) {
+      return;
+    }
+
+    for (String deltaName : deltaNames) {
+      if (!deltaName.startsWith(currentVersion + DELTA_NAME_SEPARATOR)) {
+        String deltaPath = ZookeeperStoreStructure.getNodePath(deltasRootPath, deltaName);
+        try {
+          deleteRecursively(deltaPath);
+        } catch (Exception e) {
+          LOGGER.logDebug(e, "Failed to Delete old Delta node under DeltaPath %s", deltaPath);
+        }
+      }
+    }
+  }
+
+  // Append a Delta to the LargeObject of the given path, instead of Set the whole LargeObject again.
+  // The Delta is based on the latest ReadyPayloadVersion, i.e. it will be applied to the Payload of
+  // that version by getLargeObject in append order, until a newer Payload is Set by setLargeObject.
+  // Return false if the Delta cannot be appended, then the caller should setLargeObject instead:
+  //  1. No Payload has been Set before.
+  //  2. The Delta is too large to fit in a single node.
+  // NOT DISTRIBUTED THREAD SAFE: It should only be called by the single writer of the LargeObject.
+  // Atomic like setSmallObject
+  public <D> Boolean appendLargeObjectDelta(String path, D delta) throws Exception {
+    byte[] serializedDelta = serialize(delta);
+
+    long start = System.currentTimeMillis();
+
+    byte[] payload;
+    if (serializedDelta.length >= ZK_MIN_COMPRESSION_BYTES) {
+      payload = CompressionUtils.compress(serializedDelta, compressionOptions);
+    } else {
+      payload = serializedDelta;
+    }
+    if (payload.length > ZK_MAX_NODE_BYTES) {
+      LOGGER.logDebug("Delta with %s bytes is too large to append on path %s.", payload.length, path);
+      return false;
+    }
+
+    String basePayloadVersion = getLatestVersion(this, getReadyPayloadVersionsRootPath(path));
+    if (basePayloadVersion == null) {
+      return false;
+    }
+
+    // Append Delta as a sequential node based on the PayloadVersion,
+    // i.e. Path/Deltas/{PayloadVersion}-{DeltaSequence}
+    String deltasRootPath = getDeltasRootPath(path);
+    String deltaPathPrefix = ZookeeperStoreStructure.getNodePath(
+        deltasRootPath, basePayloadVersion + DELTA_NAME_SEPARATOR);
+    try {
+      create(deltaPathPrefix, payload, CreateMode.PERSISTENT_SEQUENTIAL);
+    } catch (KeeperException.NoNodeException e) {
+      createPath(deltasRootPath);
+      create(deltaPathPrefix, payload, CreateMode.PERSISTENT_SEQUENTIAL);
+    }
+
+    long end = System.currentTimeMillis();
+    recordWrite(path, payload.length, end - start);
+    LOGGER.logTrace("appendLargeObjectDelta with %s bytes on path %s in %sms.",
+        serializedDelta.length, path, end - start);
+    return true;
+  }
+
+  // Select the names of the Deltas based on the given PayloadVersion in append order
+  private static List<String> selectDeltaNames(List<String> deltaNames, String payloadVersion) {
+    // DeltaSequence is zero padded, so the append order is the same as the name order
+    List<String> selectedDeltaNames = new ArrayList<>();
+    for (String deltaName : deltaNames) {
+      if (deltaName.startsWith(payloadVersion + DELTA_NAME_SEPARATOR)) {
+        selectedDeltaNames.add(deltaName);
+      }
+    }
+    Collections.sort(selectedDeltaNames);
+    return selectedDeltaNames;
+  }
+
   private static String getLatestVersion(ZooKeeperClient zkClient, String versionsRootPath) {
+    try {
+      return getLatestVersion(zkClient.getChildren(versionsRootPath));
+    } catch (Exception ignored) {
+      return null;
+    }
+  }
+
+  private static String getLatestVersion(List<String> versions) {
     String latestVersion = null;
     Long latestVersionInt = 0L;
     try {
-      for (String version : zkClient.getChildren(versionsRootPath)) {
+      for (String version : versions) {
         Long versionInt = Long.parseLong(version);
         if (versionInt >= latestVersionInt) {
           latestVersionInt = versionInt;
@@ -310,83 +895,345 @@ private static String getLatestVersion(ZooKeeperClient zkClient, String versions
   }
 
 
+  // Apply a Delta appended by appendLargeObjectDelta to the LargeObject in place
+  public interface DeltaApplier<T, D> {
+    void apply(T obj, D delta) throws Exception;
+  }
+
   // DISTRIBUTED THREAD SAFE and Atomic like getSmallObject
   public <T> T getLargeObject(String path, Class<T> classRef) throws Exception {
-    // Get the Payload of the latest ReadyPayloadVersion which is complete.
-    while (true) {
-      try {
-        return getLargeObjectInternal(this, path, classRef);
-      } catch (TransientException e) {
-        LOGGER.logWarning(e, "TransientException occurred during getLargeObject, will retry again.");
-      }
-    }
+    return getLargeObject(path, classRef, null, null);
   }
 
-  private static <T> T getLargeObjectInternal(ZooKeeperClient zkClient, String path, Class<T> classRef) throws Exception {
+  // Get the LargeObject with its Deltas applied, i.e. the Payload of the latest ReadyPayloadVersion
+  // and then all the Deltas based on it.
+  // It waits for getLargeObjectAsync, so that the PayloadParts and Deltas are also Get in parallel,
+  // thus it should not be called in the Curator EventThread.
+  // DISTRIBUTED THREAD SAFE and Atomic like getSmallObject
+  public <T, D> T getLargeObject(
+      String path, Class<T> classRef, Class<D> deltaClassRef, DeltaApplier<T, D> deltaApplier) throws Exception {
     long start = System.currentTimeMillis();
 
-    // Get the latest ReadyPayloadVersion as CompletePayloadVersion
-    String readyPayloadVersionsRootPath = ZookeeperStoreStructure.getNodePath(path, READY_PAYLOAD_VERSIONS_NODE_NAME);
-    String completePayloadVersion = getLatestVersion(zkClient, readyPayloadVersionsRootPath);
-    if (completePayloadVersion == null) {
-      LOGGER.logWarning(
-          "Failed to find any valid version under VersionPath %s when getLatestVersion.",
-          readyPayloadVersionsRootPath);
+    T obj = await(getLargeObjectAsync(path, classRef, deltaClassRef, deltaApplier));
 
-      throw new KeeperException.NoNodeException("No node found in Zookeeper.");
+    long end = System.currentTimeMillis();
+    LOGGER.logTrace("getLargeObject on path %s in %sms.", path, end - start);
+
+    return obj;
+  }
+
+
+  // Async Get: the returned future is completed with the same result or exception
+  // as the corresponding sync Get, use await to get it.
+  // DISTRIBUTED THREAD SAFE
+  public CompletableFuture<List<String>> getChildrenAsync(String path) {
+    return inBackground(path,
+        callback -> curator.getChildren().inBackground(callback).forPath(path),
+        CuratorEvent::getChildren);
+  }
+
+  private CompletableFuture<byte[]> getDataAsync(String path) {
+    return inBackground(path,
+        callback -> curator.getData().inBackground(callback).forPath(path),
+        CuratorEvent::getData);
+  }
+
+  public <T> CompletableFuture<T> getSmallObjectAsync(String path, Class<T> classRef) {
+    return getDataAsync(path).thenApplyAsync(payload -> decode(payload, classRef), decodeExecutor);
+  }
+
+  // Versioned Get: Get the node Stat by a cheap checkExists first, and only Get the node data
+  // if the deserialized object of the node version is not cached, i.e. the object is cached by
+  // (path, version), and only the latest version of a path is kept.
+  // The returned object is a copy of the cached one, so the caller can modify it.
+  public <T> CompletableFuture<VersionedObject<T>> getVersionedSmallObjectAsync(String path, Class<T> classRef) {
+    return checkExistsAsync(path).thenCompose(stat ->
+        getVersionedSmallObjectAsync(path, classRef, stat.getMzxid()));
+  }
+
+  // Conditional Get: Same as getVersionedSmallObjectAsync, except that it is completed with null
+  // if the node version is still the lastVersion, which only costs a checkExists.
+  // lastVersion can be null to always Get the object.
+  public <T> CompletableFuture<VersionedObject<T>> getSmallObjectIfChangedAsync(
+      String path, Class<T> classRef, Long lastVersion) {
+    return checkExistsAsync(path).thenCompose(stat -> {
+      if (lastVersion != null && lastVersion == stat.getMzxid()) {
+        LOGGER.logTrace("getSmallObjectIfChanged on path %s: Unchanged version %s", path, lastVersion);
+        return CompletableFuture.completedFuture(null);
+      }
+      return getVersionedSmallObjectAsync(path, classRef, stat.getMzxid());
+    });
+  }
+
+  public <T> VersionedObject<T> getSmallObjectIfChanged(
+      String path, Class<T> classRef, Long lastVersion) throws Exception {
+    return await(getSmallObjectIfChangedAsync(path, classRef, lastVersion));
+  }
+
+  private CompletableFuture<Stat> checkExistsAsync(String path) {
+    // NoNode is completed as KeeperException.NoNodeException, same as getData
+    return inBackground(path,
+        callback -> curator.checkExists().inBackground(callback).forPath(path),
+        CuratorEvent::getStat);
+  }
+
+  private <T> CompletableFuture<VersionedObject<T>> getVersionedSmallObjectAsync(
+      String path, Class<T> classRef, long version) {
+    CachedObject cachedObject = objectCache.get(path);
+    if (cachedObject != null && cachedObject.version == version && classRef.isInstance(cachedObject.object)) {
+      LOGGER.logTrace("getVersionedSmallObject on path %s: Cached version %s", path, version);
+      return CompletableFuture.supplyAsync(() -> new VersionedObject<>(
+          ModelUtils.deepCopy(classRef.cast(cachedObject.object), classRef), version), decodeExecutor);
     }
 
-    // Get PayloadParts from all child nodes under Path/{PayloadRootPath}/
-    String payloadRootPath = ZookeeperStoreStructure.getNodePath(path, completePayloadVersion);
-    byte[] payload = new byte[0];
-    Boolean isCorrupt = false;
-    try {
-      List<String> partIndexStrs = zkClient.getChildren(payloadRootPath);
+    // The node may be changed after checkExists, so the version of the Get data is used
+    return inBackground(path,
+        callback -> curator.getData().inBackground(callback).forPath(path),
+        event -> event).thenApplyAsync(event -> {
+      long dataVersion = event.getStat().getMzxid();
+      T obj = decode(event.getData(), classRef);
+      objectCache.put(path, new CachedObject(obj, dataVersion));
+      return new VersionedObject<>(ModelUtils.deepCopy(obj, classRef), dataVersion);
+    }, decodeExecutor);
+  }
+
+  public <T> CompletableFuture<T> getLargeObjectAsync(String path, Class<T> classRef) {
+    return getLargeObjectAsync(path, classRef, null, null);
+  }
+
+  public <T, D> CompletableFuture<T> getLargeObjectAsync(
+      String path, Class<T> classRef, Class<D> deltaClassRef, DeltaApplier<T, D> deltaApplier) {
+    return getLargeObjectAsync(path, classRef, deltaClassRef, deltaApplier, 0);
+  }
+
+  // Completed with TransientException if the CompletePayloadVersion still changes after
+  // MAX_GET_LARGE_OBJECT_RETRY_COUNT retries.
+  private <T, D> CompletableFuture<T> getLargeObjectAsync(
+      String path, Class<T> classRef, Class<D> deltaClassRef, DeltaApplier<T, D> deltaApplier, int retryCount) {
+    // Get the Payload of the latest ReadyPayloadVersion which is complete, all PayloadParts and
+    // Deltas are Get in parallel.
+    String readyPayloadVersionsRootPath = getReadyPayloadVersionsRootPath(path);
+    return getLatestVersionAsync(readyPayloadVersionsRootPath).thenCompose(completePayloadVersion -> {
+      if (completePayloadVersion == null) {
+        LOGGER.logWarning(
+            "Failed to find any valid version under VersionPath %s when getLatestVersion.",
+            readyPayloadVersionsRootPath);
+
+        return failedFuture(new KeeperException.NoNodeException("No node found in Zookeeper."));
+      }
+
+      String payloadRootPath = ZookeeperStoreStructure.getNodePath(path, completePayloadVersion);
+      CompletableFuture<List<byte[]>> deltasFuture = (deltaClassRef == null ?
+          CompletableFuture.completedFuture(new ArrayList<>()) :
+          getDeltasAsync(getDeltasRootPath(path), completePayloadVersion));
+      return getPayloadPartsAsync(payloadRootPath).thenCompose(payloadParts -> deltasFuture.thenCompose(deltas ->
+          getLatestVersionAsync(readyPayloadVersionsRootPath).thenCompose(completePayloadVersionAfterGet -> {
+            if (!completePayloadVersion.equals(completePayloadVersionAfterGet)) {
+              if (retryCount >= MAX_GET_LARGE_OBJECT_RETRY_COUNT) {
+                return failedFuture(new TransientException(String.format(
+                    "The CompletePayloadVersion of Path %s still changed from %s to %s after Get PayloadParts " +
+                        "with %s retries, the LargeObject is Set too frequently to Get.",
+                    path, completePayloadVersion, completePayloadVersionAfterGet, retryCount)));
+              }
+
+              LOGGER.logWarning(
+                  "The CompletePayloadVersion %s changed to %s after Get PayloadParts under Path %s, " +
+                      "will retry again.",
+                  completePayloadVersion, completePayloadVersionAfterGet, payloadRootPath);
+              return getLargeObjectAsync(path, classRef, deltaClassRef, deltaApplier, retryCount + 1);
+            }
+
+            if (payloadParts == null || deltas == null) {
+              return failedFuture(new NonTransientException(
+                  String.format("Got corrupt Payload under Path %s, " +
+                          "but it is still the CompletePayloadVersion after Get PayloadParts, it should be corrupt permanently.",
+                      payloadRootPath)));
+            }
+
+            return CompletableFuture.supplyAsync(
+                () -> decode(payloadParts, classRef, deltas, deltaClassRef, deltaApplier), decodeExecutor);
+          })));
+    });
+  }
+
+  private CompletableFuture<String> getLatestVersionAsync(String versionsRootPath) {
+    return getChildrenAsync(versionsRootPath).handle(
+        (versions, e) -> (e != null ? null : getLatestVersion(versions)));
+  }
+
+  // Complete with null if the Payload is corrupt.
+  // The PayloadParts are not concatenated, since they can be decoded as one stream.
+  private CompletableFuture<List<byte[]>> getPayloadPartsAsync(String payloadRootPath) {
+    return getChildrenAsync(payloadRootPath).thenCompose(partIndexStrs -> {
+      List<CompletableFuture<byte[]>> payloadParts = new ArrayList<>();
       for (Integer partIndex = 0; partIndex < partIndexStrs.size(); partIndex++) {
-        // Get each PayloadParts in PayloadPartPath, i.e. Path/{PayloadRootPath}/{PayLoadPartIndex}
         String partIndexStr = partIndex.toString();
         if (!partIndexStrs.contains(partIndexStr)) {
-          isCorrupt = true;
-          break;
+          return CompletableFuture.completedFuture(null);
         }
+        payloadParts.add(getDataAsync(ZookeeperStoreStructure.getNodePath(payloadRootPath, partIndexStr)));
+      }
 
-        String partIndexPath = ZookeeperStoreStructure.getNodePath(payloadRootPath, partIndexStr);
-        byte[] payloadPart = zkClient.getData(partIndexPath);
-        payload = CommonUtils.concatArrays(payload, payloadPart);
+      return CompletableFuture.allOf(payloadParts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+        List<byte[]> parts = new ArrayList<>();
+        for (CompletableFuture<byte[]> payloadPart : payloadParts) {
+          parts.add(payloadPart.join());
+        }
+        return parts;
+      });
+    }).exceptionally(e -> {
+      if (unwrap(e) instanceof KeeperException.NoNodeException) {
+        LOGGER.logWarning(unwrap(e),
+            "Got corrupt Payload under Path %s, will judge whether it is Transient",
+            payloadRootPath);
+        return null;
       }
-    } catch (KeeperException.NoNodeException e) {
-      LOGGER.logWarning(e,
-          "Got corrupt Payload under Path %s, will judge whether it is Transient",
-          payloadRootPath);
-      isCorrupt = true;
+      throw new CompletionException(unwrap(e));
+    });
+  }
+
+  // Complete with null if the Deltas are corrupt
+  private CompletableFuture<List<byte[]>> getDeltasAsync(String deltasRootPath, String payloadVersion) {
+    return getChildrenAsync(deltasRootPath).handle((deltaNames, e) -> {
+      if (e == null) {
+        return deltaNames;
+      }
+      if (unwrap(e) instanceof KeeperException.NoNodeException) {
+        return new ArrayList<String>();
+      }
+      throw new CompletionException(unwrap(e));
+    }).thenCompose(deltaNames -> {
+      List<CompletableFuture<byte[]>> deltas = new ArrayList<>();
+      for (String deltaName : selectDeltaNames(deltaNames, payloadVersion)) {
+        deltas.add(getDataAsync(ZookeeperStoreStructure.getNodePath(deltasRootPath, deltaName)));
+      }
+
+      return CompletableFuture.allOf(deltas.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+        List<byte[]> deltaBytes = new ArrayList<>();
+        for (CompletableFuture<byte[]> delta : deltas) {
+          deltaBytes.add(delta.join());
+        }
+        return deltaBytes;
+      });
+    }).exceptionally(e -> {
+      if (unwrap(e) instanceof KeeperException.NoNodeException) {
+        LOGGER.logWarning(unwrap(e),
+            "Got corrupt Deltas under Path %s, will judge whether it is Transient",
+            deltasRootPath);
+        return null;
+      }
+      throw new CompletionException(unwrap(e));
+    });
+  }
+
+  private static <T> T decode(byte[] payload, Class<T> classRef) {
+    return decode(Collections.singletonList(payload), classRef);
+  }
+
+  // Decompress and deserialize the PayloadParts as one stream, so that neither the whole
+  // compressed Payload nor the whole serialized object is buffered.
+  private static <T> T decode(List<byte[]> payloadParts, Class<T> classRef) {
+    List<InputStream> partStreams = new ArrayList<>();
+    for (byte[] payloadPart : payloadParts) {
+      partStreams.add(new ByteArrayInputStream(payloadPart));
     }
 
-    // Check whether the CompletePayloadVersion is changed during Get PayloadParts.
-    String completePayloadVersionAfterGet = getLatestVersion(zkClient, readyPayloadVersionsRootPath);
-    if (!completePayloadVersion.equals(completePayloadVersionAfterGet)) {
-      // Only throw TransientException and then always retry for the CompletePayloadVersion changes.
-      // And the changes can not always happen, so we can always retry like CAS.
-      throw new TransientException(
-          String.format("The CompletePayloadVersion %s changed to %s after Get PayloadParts. " +
-                  "There may be incomplete PayloadParts under Path %s.",
-              completePayloadVersion,
-              completePayloadVersionAfterGet,
-              payloadRootPath));
+    try (InputStream in = CompressionUtils.decompress(
+        new SequenceInputStream(Collections.enumeration(partStreams)))) {
+      return SerializationCodecs.deserialize(in, classRef);
+    } catch (Exception e) {
+      throw new CompletionException(e);
     }
+  }
 
-    if (isCorrupt) {
-      throw new NonTransientException(
-          String.format("Got corrupt Payload under Path %s, " +
-                  "but it is still the CompletePayloadVersion after Get PayloadParts, it should be corrupt permanently.",
-              payloadRootPath));
+  private static <T, D> T decode(
+      List<byte[]> payloadParts, Class<T> classRef,
+      List<byte[]> deltas, Class<D> deltaClassRef, DeltaApplier<T, D> deltaApplier) {
+    T obj = decode(payloadParts, classRef);
+    for (byte[] delta : deltas) {
+      try {
+        deltaApplier.apply(obj, decode(delta, deltaClassRef));
+      } catch (CompletionException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
     }
+    return obj;
+  }
 
-    byte[] serializedObj = CompressionUtils.decompress(payload);
+  private interface BackgroundOperation {
+    void forPath(BackgroundCallback callback) throws Exception;
+  }
 
-    long end = System.currentTimeMillis();
-    LOGGER.logTrace("getLargeObject with %s bytes on path %s in %sms.",
-        serializedObj.length, path, end - start);
+  private <T> CompletableFuture<T> inBackground(
+      String path, BackgroundOperation operation, Function<CuratorEvent, T> resultSelector) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    submitAsyncRequest(() -> {
+      try {
+        operation.forPath((client, event) -> {
+          completeAsyncRequest();
+          KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+          if (code == KeeperException.Code.OK) {
+            future.complete(resultSelector.apply(event));
+          } else {
+            future.completeExceptionally(KeeperException.create(code, path));
+          }
+        });
+      } catch (Exception e) {
+        completeAsyncRequest();
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  private void submitAsyncRequest(Runnable request) {
+    pendingAsyncRequests.offer(request);
+    issuePendingAsyncRequests();
+  }
+
+  private void completeAsyncRequest() {
+    inFlightAsyncRequestPermits.release();
+    issuePendingAsyncRequests();
+  }
+
+  // Never block here, since it may be called in the Curator EventThread
+  private void issuePendingAsyncRequests() {
+    while (!pendingAsyncRequests.isEmpty() && inFlightAsyncRequestPermits.tryAcquire()) {
+      Runnable request = pendingAsyncRequests.poll();
+      if (request == null) {
+        inFlightAsyncRequestPermits.release();
+      } else {
+        request.run();
+      }
+    }
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(e);
+    return future;
+  }
 
-    return YamlUtils.toObject(serializedObj, classRef);
+  static Throwable unwrap(Throwable e) {
+    while (e instanceof CompletionException && e.getCause() != null) {
+      e = e.getCause();
+    }
+    return e;
+  }
+
+  // Wait for the async Get and rethrow the original exception if it failed
+  public static <T> T await(CompletableFuture<T> future) throws Exception {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = unwrap(e);
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      } else {
+        throw e;
+      }
+    }
   }
 }
@@ -0,0 +1,86 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+import java.util.List;
+
+// Watch the ZK nodes of a single AggregatedFrameworkRequest, so that the caller can
+// re-read it once it is changed, instead of waiting for the next periodical pull.
+// Watched nodes:
+//  FrameworkRequestPath: Data (FrameworkRequest) and Children
+//  OverrideApplicationProgressRequestPath: Data (OverrideApplicationProgressRequest)
+//  MigrateTaskRequestsPath: Children (MigrateTaskRequests)
+//  MigrateTaskRequestPath: Data (MigrateTaskRequest)
+// NOT THREAD SAFE: takeChanges should always be called in the same Thread.
+public class ZookeeperFrameworkRequestWatcher
+    extends AbstractZookeeperWatcher<ZookeeperFrameworkRequestWatcher.RequestChanges> {
+  // See ZookeeperRequestWatcher
+  private static final long EVENT_BATCH_WAIT_MS = 10;
+
+  private final String frameworkName;
+
+  ZookeeperFrameworkRequestWatcher(
+      ZooKeeperClient zkClient, ZookeeperStoreStructure zkStruct, String frameworkName) {
+    super(zkClient, zkStruct, EVENT_BATCH_WAIT_MS);
+    this.frameworkName = frameworkName;
+  }
+
+  @Override
+  protected String getRootPath() {
+    return zkStruct.getFrameworkRequestPath(frameworkName);
+  }
+
+  @Override
+  protected RequestChanges newChanges() {
+    return new RequestChanges();
+  }
+
+  @Override
+  protected void resync(RequestChanges changes) throws Exception {
+    watchFrameworkRequest();
+  }
+
+  // The caller re-reads the whole AggregatedFrameworkRequest for any change, so just set the
+  // triggered watches again, the already set watches are skipped without ZK round trip.
+  @Override
+  protected void processEvent(String path, EventType type, RequestChanges changes) throws Exception {
+    watchFrameworkRequest();
+  }
+
+  private void watchFrameworkRequest() throws Exception {
+    String frameworkRequestPath = zkStruct.getFrameworkRequestPath(frameworkName);
+    watchData(frameworkRequestPath);
+    watchChildren(frameworkRequestPath);
+
+    // Watch the creation of OverrideApplicationProgressRequestPath and MigrateTaskRequestsPath
+    // if they do not exist
+    watchData(zkStruct.getOverrideApplicationProgressRequestPath(frameworkName));
+    List<String> containerIds = watchChildrenOrCreation(zkStruct.getMigrateTaskRequestsPath(frameworkName));
+    if (containerIds != null) {
+      for (String containerId : containerIds) {
+        watchData(zkStruct.getMigrateTaskRequestPath(frameworkName, containerId));
+      }
+    }
+  }
+
+  // The caller should re-read the whole AggregatedFrameworkRequest if any change is returned
+  public static class RequestChanges extends AbstractZookeeperWatcher.Changes {
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Watch the ZK nodes under LauncherRequestPath, so that the caller only needs to re-read
+// the added, updated and deleted FrameworkRequests instead of pulling all FrameworkRequests.
+// Watched nodes:
+//  LauncherRequestPath: Children (Frameworks)
+//  FrameworkRequestPath: Data (FrameworkRequest)
+// NOT THREAD SAFE: takeChanges should always be called in the same Thread.
+public class ZookeeperRequestWatcher extends AbstractZookeeperWatcher<ZookeeperRequestWatcher.RequestChanges> {
+  // Wait a while after the first event, so that a burst of events, such as the
+  // events triggered by a batch of submitted Frameworks, can be taken in one batch.
+  // It is much shorter than ZookeeperStatusWatcher's, since it directly adds to the
+  // latency from a Framework is submitted to its Application is created.
+  private static final long EVENT_BATCH_WAIT_MS = 10;
+
+  private Set<String> frameworkNames = new HashSet<>();
+
+  ZookeeperRequestWatcher(ZooKeeperClient zkClient, ZookeeperStoreStructure zkStruct) {
+    super(zkClient, zkStruct, EVENT_BATCH_WAIT_MS);
+  }
+
+  @Override
+  protected String getRootPath() {
+    return zkStruct.getLauncherRequestPath();
+  }
+
+  @Override
+  protected RequestChanges newChanges() {
+    return new RequestChanges();
+  }
+
+  @Override
+  protected void resync(RequestChanges changes) throws Exception {
+    frameworkNames.clear();
+    watchLauncherRequest(changes);
+  }
+
+  @Override
+  protected void processEvent(String path, EventType type, RequestChanges changes) throws Exception {
+    String launcherRequestPath = zkStruct.getLauncherRequestPath();
+    if (path.equals(launcherRequestPath)) {
+      if (type == EventType.NodeDeleted) {
+        requireResync();
+        return;
+      }
+      watchLauncherRequest(changes);
+      return;
+    }
+
+    if (!path.startsWith(launcherRequestPath + "/")) {
+      return;
+    }
+
+    // Path is FrameworkRequestPath
+    String frameworkName = path.substring(launcherRequestPath.length() + 1);
+    changes.changedFrameworkNames.add(frameworkName);
+
+    // Deleted node will be watched again when it is recreated and then listed by LauncherRequestPath.
+    // However, it may be recreated before LauncherRequestPath is listed again, and then it is
+    // not considered as added by watchLauncherRequest, so check whether it is recreated now.
+    if (type == EventType.NodeDeleted && !zkClient.exists(path)) {
+      frameworkNames.remove(frameworkName);
+    } else {
+      watchData(path);
+    }
+  }
+
+  private void watchLauncherRequest(RequestChanges changes) throws Exception {
+    String launcherRequestPath = zkStruct.getLauncherRequestPath();
+    List<String> newFrameworkNames = watchChildren(launcherRequestPath);
+    if (newFrameworkNames == null) {
+      // LauncherRequest is not initialized, keep resync until it is initialized
+      throw new KeeperException.NoNodeException(launcherRequestPath);
+    }
+
+    // Added and deleted Frameworks
+    Set<String> newFrameworkNameSet = new HashSet<>(newFrameworkNames);
+    for (String frameworkName : frameworkNames) {
+      if (!newFrameworkNameSet.contains(frameworkName)) {
+        changes.changedFrameworkNames.add(frameworkName);
+      }
+    }
+    // The existing Frameworks are already watched, so only watch the added ones
+    for (String frameworkName : newFrameworkNameSet) {
+      if (!frameworkNames.contains(frameworkName)) {
+        changes.changedFrameworkNames.add(frameworkName);
+        watchData(zkStruct.getFrameworkRequestPath(frameworkName));
+      }
+    }
+    frameworkNames = newFrameworkNameSet;
+  }
+
+  public static class RequestChanges extends AbstractZookeeperWatcher.Changes {
+    private final Set<String> changedFrameworkNames = new HashSet<>();
+
+    // Including the added, updated and deleted Frameworks
+    public Set<String> getChangedFrameworkNames() {
+      return changedFrameworkNames;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Watch the ZK nodes under LauncherStatusPath, so that the caller only needs to re-read
+// the changed Frameworks instead of pulling the whole AggregatedLauncherStatus.
+// Watched nodes:
+//  LauncherStatusPath: Data (LauncherStatus) and Children (Frameworks)
+//  FrameworkStatusPath: Data (FrameworkStatus) and Children (TaskRoles)
+//  TaskRoleStatusPath: Data (TaskRoleStatus)
+//  ReadyPayloadVersionsRootPath of TaskStatusesPath: Children (TaskStatuses)
+//  DeltasRootPath of TaskStatusesPath: Children (TaskStatusesDeltas)
+// NOT THREAD SAFE: takeChanges should always be called in the same Thread.
+public class ZookeeperStatusWatcher extends AbstractZookeeperWatcher<ZookeeperStatusWatcher.StatusChanges> {
+  // Wait a while after the first event, so that a burst of events, such as the
+  // events triggered by a single setLargeObject, can be taken in one batch.
+  private static final long EVENT_BATCH_WAIT_MS = 200;
+
+  private Set<String> frameworkNames = new HashSet<>();
+
+  ZookeeperStatusWatcher(ZooKeeperClient zkClient, ZookeeperStoreStructure zkStruct) {
+    super(zkClient, zkStruct, EVENT_BATCH_WAIT_MS);
+  }
+
+  @Override
+  protected String getRootPath() {
+    return zkStruct.getLauncherStatusPath();
+  }
+
+  @Override
+  protected StatusChanges newChanges() {
+    return new StatusChanges();
+  }
+
+  @Override
+  protected void resync(StatusChanges changes) throws Exception {
+    frameworkNames.clear();
+    watchLauncherStatus(changes);
+  }
+
+  @Override
+  protected void processEvent(String path, EventType type, StatusChanges changes) throws Exception {
+    String launcherStatusPath = zkStruct.getLauncherStatusPath();
+    if (path.equals(launcherStatusPath)) {
+      if (type == EventType.NodeDeleted) {
+        requireResync();
+        return;
+      }
+      if (type != EventType.NodeChildrenChanged) {
+        changes.launcherStatusChanged = true;
+      }
+      watchLauncherStatus(changes);
+      return;
+    }
+
+    if (!path.startsWith(launcherStatusPath + "/")) {
+      return;
+    }
+
+    // Path is one of FrameworkStatusPath, TaskRoleStatusPath,
+    // ReadyPayloadVersionsRootPath and DeltasRootPath of TaskStatusesPath
+    String[] nodeNames = path.substring(launcherStatusPath.length() + 1).split("/");
+    String frameworkName = nodeNames[0];
+    changes.changedFrameworkNames.add(frameworkName);
+
+    // The Framework may be recreated before LauncherStatusPath is listed again, and then it is
+    // not considered as added by watchLauncherStatus, so check whether it is recreated now.
+    if (nodeNames.length == 1 && type == EventType.NodeDeleted) {
+      if (zkClient.exists(path)) {
+        watchFramework(frameworkName);
+      } else {
+        frameworkNames.remove(frameworkName);
+      }
+      return;
+    }
+
+    // Deleted node will be watched again when it is recreated and
+    // then listed by its parent node
+    if (type != EventType.NodeDeleted) {
+      if (nodeNames.length == 1) {
+        watchFramework(frameworkName);
+      } else {
+        watchTaskRole(frameworkName, nodeNames[1]);
+      }
+    }
+  }
+
+  private void watchLauncherStatus(StatusChanges changes) throws Exception {
+    String launcherStatusPath = zkStruct.getLauncherStatusPath();
+    watchData(launcherStatusPath);
+    List<String> newFrameworkNames = watchChildren(launcherStatusPath);
+    if (newFrameworkNames == null) {
+      newFrameworkNames = new ArrayList<>();
+    }
+
+    // Added and deleted Frameworks
+    Set<String> newFrameworkNameSet = new HashSet<>(newFrameworkNames);
+    for (String frameworkName : frameworkNames) {
+      if (!newFrameworkNameSet.contains(frameworkName)) {
+        changes.changedFrameworkNames.add(frameworkName);
+      }
+    }
+    // The existing Frameworks are already watched, and their changes are detected by
+    // their own watches, so only the added Frameworks need to be watched.
+    for (String frameworkName : newFrameworkNameSet) {
+      if (!frameworkNames.contains(frameworkName)) {
+        changes.changedFrameworkNames.add(frameworkName);
+        watchFramework(frameworkName);
+      }
+    }
+    frameworkNames = newFrameworkNameSet;
+  }
+
+  private void watchFramework(String frameworkName) throws Exception {
+    String frameworkStatusPath = zkStruct.getFrameworkStatusPath(frameworkName);
+    watchData(frameworkStatusPath);
+    List<String> taskRoleNames = watchChildren(frameworkStatusPath);
+    if (taskRoleNames != null) {
+      for (String taskRoleName : taskRoleNames) {
+        watchTaskRole(frameworkName, taskRoleName);
+      }
+    }
+  }
+
+  private void watchTaskRole(String frameworkName, String taskRoleName) throws Exception {
+    watchData(zkStruct.getTaskRoleStatusPath(frameworkName, taskRoleName));
+
+    // Watch the creation of ReadyPayloadVersionsRootPath and DeltasRootPath if they do not exist
+    String taskStatusesPath = zkStruct.getTaskStatusesPath(frameworkName, taskRoleName);
+    watchChildrenOrCreation(ZooKeeperClient.getReadyPayloadVersionsRootPath(taskStatusesPath));
+    watchChildrenOrCreation(ZooKeeperClient.getDeltasRootPath(taskStatusesPath));
+  }
+
+  public static class StatusChanges extends AbstractZookeeperWatcher.Changes {
+    private boolean launcherStatusChanged = false;
+    private final Set<String> changedFrameworkNames = new HashSet<>();
+
+    public boolean isLauncherStatusChanged() {
+      return launcherStatusChanged;
+    }
+
+    // Including the added and deleted Frameworks
+    public Set<String> getChangedFrameworkNames() {
+      return changedFrameworkNames;
+    }
+  }
+}
@@ -17,14 +17,16 @@
 
 package com.microsoft.frameworklauncher.zookeeperstore;
 
+import com.microsoft.frameworklauncher.common.exceptions.NonTransientException;
 import com.microsoft.frameworklauncher.common.log.DefaultLogger;
 import com.microsoft.frameworklauncher.common.model.*;
+import com.microsoft.frameworklauncher.common.utils.CompressionOptions;
+import com.microsoft.frameworklauncher.zookeeperstore.ZooKeeperClient.VersionedObject;
 import org.apache.zookeeper.KeeperException;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class ZookeeperStore {
   private static final DefaultLogger LOGGER = new DefaultLogger(ZookeeperStore.class);
@@ -49,6 +51,29 @@ protected ZookeeperStore(ZooKeeperClient zkClient, ZookeeperStoreStructure zkStr
     this.zkStruct = zkStruct;
   }
 
+  public void setSerializationCodec(SerializationCodec serializationCodec) {
+    zkClient.setSerializationCodec(serializationCodec);
+  }
+
+  public void setCompressionOptions(CompressionOptions compressionOptions) {
+    zkClient.setCompressionOptions(compressionOptions);
+  }
+
+  // The returned watcher is not started
+  public ZookeeperStatusWatcher newStatusWatcher() {
+    return new ZookeeperStatusWatcher(zkClient, zkStruct);
+  }
+
+  // The returned watcher is not started
+  public ZookeeperRequestWatcher newRequestWatcher() {
+    return new ZookeeperRequestWatcher(zkClient, zkStruct);
+  }
+
+  // The returned watcher is not started
+  public ZookeeperFrameworkRequestWatcher newFrameworkRequestWatcher(String frameworkName) {
+    return new ZookeeperFrameworkRequestWatcher(zkClient, zkStruct, frameworkName);
+  }
+
   // Setup Basic ZookeeperStoreStructure
   private void setupZKStructure() throws Exception {
     if (!zkClient.exists(zkStruct.getLauncherRootPath())) {
@@ -62,6 +87,12 @@ public LauncherRequest getLauncherRequest() throws Exception {
         zkStruct.getLauncherRequestPath(), LauncherRequest.class);
   }
 
+  // Return null if the LauncherRequest is unchanged since lastVersion, see ZooKeeperClient.getSmallObjectIfChanged
+  public VersionedObject<LauncherRequest> getLauncherRequestIfChanged(Long lastVersion) throws Exception {
+    return zkClient.getSmallObjectIfChanged(
+        zkStruct.getLauncherRequestPath(), LauncherRequest.class, lastVersion);
+  }
+
   public void setLauncherRequest(LauncherRequest launcherRequest) throws Exception {
     zkClient.setSmallObject(
         zkStruct.getLauncherRequestPath(), launcherRequest);
@@ -81,10 +112,37 @@ public void setFrameworkRequest(String frameworkName, FrameworkRequest framework
         zkStruct.getMigrateTaskRequestsPath(frameworkName));
   }
 
+  // Batch version of setFrameworkRequest, the FrameworkRequests are Set in grouped transactions.
+  // The existingFrameworkNames is the hint of which FrameworkRequests already exist on ZK.
+  public void setFrameworkRequests(
+      Map<String, FrameworkRequest> frameworkRequests, Set<String> existingFrameworkNames) throws Exception {
+    List<ZooKeeperClient.SmallObjectWrite> writes = new ArrayList<>();
+    for (Map.Entry<String, FrameworkRequest> frameworkRequestKV : frameworkRequests.entrySet()) {
+      String frameworkName = frameworkRequestKV.getKey();
+      boolean exists = existingFrameworkNames.contains(frameworkName);
+      writes.add(new ZooKeeperClient.SmallObjectWrite(
+          zkStruct.getFrameworkRequestPath(frameworkName), frameworkRequestKV.getValue(), exists));
+      if (!exists) {
+        writes.add(new ZooKeeperClient.SmallObjectWrite(
+            zkStruct.getMigrateTaskRequestsPath(frameworkName), null, false));
+      }
+    }
+    zkClient.setSmallObjects(writes);
+  }
+
   public void deleteFrameworkRequest(String frameworkName) throws Exception {
     deleteFrameworkRequest(frameworkName, false);
   }
 
+  // Batch version of deleteFrameworkRequest, the FrameworkRequests are deleted in grouped transactions.
+  public void deleteFrameworkRequests(Collection<String> frameworkNames) throws Exception {
+    List<String> frameworkRequestPaths = new ArrayList<>();
+    for (String frameworkName : frameworkNames) {
+      frameworkRequestPaths.add(zkStruct.getFrameworkRequestPath(frameworkName));
+    }
+    zkClient.deleteRecursively(frameworkRequestPaths);
+  }
+
   public void deleteFrameworkRequest(String frameworkName, Boolean childrenOnly) throws Exception {
     zkClient.deleteRecursively(
         zkStruct.getFrameworkRequestPath(frameworkName), childrenOnly);
@@ -121,6 +179,12 @@ public LauncherStatus getLauncherStatus() throws Exception {
         zkStruct.getLauncherStatusPath(), LauncherStatus.class);
   }
 
+  // Return null if the LauncherStatus is unchanged since lastVersion, see ZooKeeperClient.getSmallObjectIfChanged
+  public VersionedObject<LauncherStatus> getLauncherStatusIfChanged(Long lastVersion) throws Exception {
+    return zkClient.getSmallObjectIfChanged(
+        zkStruct.getLauncherStatusPath(), LauncherStatus.class, lastVersion);
+  }
+
   public void setLauncherStatus(LauncherStatus launcherStatus) throws Exception {
     zkClient.setSmallObject(
         zkStruct.getLauncherStatusPath(), launcherStatus);
@@ -131,6 +195,13 @@ public FrameworkStatus getFrameworkStatus(String frameworkName) throws Exception
         zkStruct.getFrameworkStatusPath(frameworkName), FrameworkStatus.class);
   }
 
+  // Return null if the FrameworkStatus is unchanged since lastVersion, see ZooKeeperClient.getSmallObjectIfChanged
+  public VersionedObject<FrameworkStatus> getFrameworkStatusIfChanged(
+      String frameworkName, Long lastVersion) throws Exception {
+    return zkClient.getSmallObjectIfChanged(
+        zkStruct.getFrameworkStatusPath(frameworkName), FrameworkStatus.class, lastVersion);
+  }
+
   public void setFrameworkStatus(String frameworkName, FrameworkStatus frameworkStatus) throws Exception {
     zkClient.setSmallObject(
         zkStruct.getFrameworkStatusPath(frameworkName), frameworkStatus);
@@ -155,42 +226,114 @@ public void setTaskRoleStatus(String frameworkName, String taskRoleName, TaskRol
         zkStruct.getTaskRoleStatusPath(frameworkName, taskRoleName), taskRoleStatus);
   }
 
+  // Get the TaskStatuses with all its TaskStatusesDeltas applied
   public TaskStatuses getTaskStatuses(String frameworkName, String taskRoleName) throws Exception {
     return zkClient.getLargeObject(
-        zkStruct.getTaskStatusesPath(frameworkName, taskRoleName), TaskStatuses.class);
+        zkStruct.getTaskStatusesPath(frameworkName, taskRoleName), TaskStatuses.class,
+        TaskStatusesDelta.class, ZookeeperStore::applyTaskStatusesDelta);
   }
 
+  // Set the whole TaskStatuses, which also compacts all its TaskStatusesDeltas
   public void setTaskStatuses(String frameworkName, String taskRoleName, TaskStatuses taskStatuses) throws Exception {
     zkClient.setLargeObject(
         zkStruct.getTaskStatusesPath(frameworkName, taskRoleName), taskStatuses);
   }
 
+  // Return false if the TaskStatusesDelta cannot be appended, then setTaskStatuses should be used instead.
+  // See ZooKeeperClient.appendLargeObjectDelta
+  public Boolean appendTaskStatusesDelta(
+      String frameworkName, String taskRoleName, TaskStatusesDelta taskStatusesDelta) throws Exception {
+    return zkClient.appendLargeObjectDelta(
+        zkStruct.getTaskStatusesPath(frameworkName, taskRoleName), taskStatusesDelta);
+  }
 
-  // AggregatedRequests
-  public AggregatedFrameworkRequest getAggregatedFrameworkRequest(String frameworkName) throws Exception {
-    AggregatedFrameworkRequest aggregatedFrameworkRequest = new AggregatedFrameworkRequest();
-
-    aggregatedFrameworkRequest.setFrameworkRequest(getFrameworkRequest(frameworkName));
+  public static void applyTaskStatusesDelta(
+      TaskStatuses taskStatuses, TaskStatusesDelta taskStatusesDelta) throws Exception {
+    List<TaskStatus> taskStatusArray = taskStatuses.getTaskStatusArray();
+    int newTaskNumber = taskStatusesDelta.getTaskStatusArraySize();
 
-    try {
-      aggregatedFrameworkRequest.setOverrideApplicationProgressRequest(getOverrideApplicationProgressRequest(frameworkName));
-    } catch (KeeperException.NoNodeException e) {
-      aggregatedFrameworkRequest.setOverrideApplicationProgressRequest(null);
+    // Remove the Tasks at tail, same as AM decreaseTaskNumber
+    while (taskStatusArray.size() > newTaskNumber) {
+      taskStatusArray.remove(taskStatusArray.size() - 1);
     }
 
-    try {
-      aggregatedFrameworkRequest.setMigrateTaskRequests(new HashMap<>());
-      for (String containerId : zkClient.getChildren(zkStruct.getMigrateTaskRequestsPath(frameworkName))) {
-        try {
-          aggregatedFrameworkRequest.getMigrateTaskRequests().put(containerId, getMigrateTaskRequest(frameworkName, containerId));
-        } catch (KeeperException.NoNodeException ignored) {
-        }
+    // Update the changed Tasks and add the new Tasks at tail, same as AM increaseTaskNumber
+    for (TaskStatus taskStatus : taskStatusesDelta.getChangedTaskStatusArray()) {
+      int taskIndex = taskStatus.getTaskIndex();
+      if (taskIndex < taskStatusArray.size()) {
+        taskStatusArray.set(taskIndex, taskStatus);
+      } else if (taskIndex == taskStatusArray.size()) {
+        taskStatusArray.add(taskStatus);
+      } else {
+        throw new NonTransientException(String.format(
+            "[%s]: TaskStatusesDelta is corrupt: TaskIndex %s is beyond TaskStatusArray size %s",
+            taskStatuses.getTaskRoleName(), taskIndex, taskStatusArray.size()));
       }
-    } catch (KeeperException.NoNodeException e) {
-      aggregatedFrameworkRequest.setMigrateTaskRequests(null);
     }
 
-    return aggregatedFrameworkRequest;
+    if (taskStatusArray.size() != newTaskNumber) {
+      throw new NonTransientException(String.format(
+          "[%s]: TaskStatusesDelta is corrupt: TaskStatusArray size %s mismatches the expected size %s",
+          taskStatuses.getTaskRoleName(), taskStatusArray.size(), newTaskNumber));
+    }
+  }
+
+
+  // AggregatedRequests
+  public AggregatedFrameworkRequest getAggregatedFrameworkRequest(String frameworkName) throws Exception {
+    return ZooKeeperClient.await(getAggregatedFrameworkRequestAsync(frameworkName));
+  }
+
+  // Same as the sync one, except that all ZK requests are issued in parallel.
+  // Requests are rarely changed, so they are versioned Get, i.e. the unchanged ones only cost a Stat.
+  public CompletableFuture<AggregatedFrameworkRequest> getAggregatedFrameworkRequestAsync(String frameworkName) {
+    CompletableFuture<FrameworkRequest> frameworkRequestFuture = getVersionedSmallObjectAsync(
+        zkStruct.getFrameworkRequestPath(frameworkName), FrameworkRequest.class);
+    CompletableFuture<OverrideApplicationProgressRequest> overrideApplicationProgressRequestFuture = getVersionedSmallObjectAsync(
+        zkStruct.getOverrideApplicationProgressRequestPath(frameworkName), OverrideApplicationProgressRequest.class);
+    CompletableFuture<Map<String, CompletableFuture<MigrateTaskRequest>>> migrateTaskRequestFutures =
+        zkClient.getChildrenAsync(zkStruct.getMigrateTaskRequestsPath(frameworkName)).thenApply(containerIds -> {
+          Map<String, CompletableFuture<MigrateTaskRequest>> futures = new HashMap<>();
+          for (String containerId : containerIds) {
+            futures.put(containerId, getVersionedSmallObjectAsync(
+                zkStruct.getMigrateTaskRequestPath(frameworkName, containerId), MigrateTaskRequest.class));
+          }
+          return futures;
+        });
+
+    return frameworkRequestFuture.thenCompose(frameworkRequest ->
+        allCompleted(Arrays.asList(overrideApplicationProgressRequestFuture, migrateTaskRequestFutures))
+            .thenCompose(ignored -> migrateTaskRequestFutures.isCompletedExceptionally() ?
+                CompletableFuture.completedFuture(null) :
+                allCompleted(migrateTaskRequestFutures.join().values()))
+            .thenApply(ignored -> {
+              AggregatedFrameworkRequest aggregatedFrameworkRequest = new AggregatedFrameworkRequest();
+
+              aggregatedFrameworkRequest.setFrameworkRequest(frameworkRequest);
+
+              try {
+                aggregatedFrameworkRequest.setOverrideApplicationProgressRequest(
+                    getCompletedResult(overrideApplicationProgressRequestFuture));
+              } catch (KeeperException.NoNodeException e) {
+                aggregatedFrameworkRequest.setOverrideApplicationProgressRequest(null);
+              }
+
+              try {
+                aggregatedFrameworkRequest.setMigrateTaskRequests(new HashMap<>());
+                for (Map.Entry<String, CompletableFuture<MigrateTaskRequest>> migrateTaskRequestFuture :
+                    getCompletedResult(migrateTaskRequestFutures).entrySet()) {
+                  try {
+                    aggregatedFrameworkRequest.getMigrateTaskRequests().put(
+                        migrateTaskRequestFuture.getKey(), getCompletedResult(migrateTaskRequestFuture.getValue()));
+                  } catch (KeeperException.NoNodeException ignored2) {
+                  }
+                }
+              } catch (KeeperException.NoNodeException e) {
+                aggregatedFrameworkRequest.setMigrateTaskRequests(null);
+              }
+
+              return aggregatedFrameworkRequest;
+            }));
   }
 
   public AggregatedLauncherRequest getAggregatedLauncherRequest() throws Exception {
@@ -198,9 +341,15 @@ public AggregatedLauncherRequest getAggregatedLauncherRequest() throws Exception
 
     aggregatedLauncherRequest.setLauncherRequest(getLauncherRequest());
     aggregatedLauncherRequest.setAggregatedFrameworkRequests(new HashMap<>());
+
+    Map<String, CompletableFuture<AggregatedFrameworkRequest>> futures = new HashMap<>();
     for (String frameworkName : zkClient.getChildren(zkStruct.getLauncherRequestPath())) {
+      futures.put(frameworkName, getAggregatedFrameworkRequestAsync(frameworkName));
+    }
+    for (Map.Entry<String, CompletableFuture<AggregatedFrameworkRequest>> future : futures.entrySet()) {
       try {
-        aggregatedLauncherRequest.getAggregatedFrameworkRequests().put(frameworkName, getAggregatedFrameworkRequest(frameworkName));
+        aggregatedLauncherRequest.getAggregatedFrameworkRequests().put(
+            future.getKey(), ZooKeeperClient.await(future.getValue()));
       } catch (KeeperException.NoNodeException ignored) {
       }
     }
@@ -208,12 +357,23 @@ public AggregatedLauncherRequest getAggregatedLauncherRequest() throws Exception
     return aggregatedLauncherRequest;
   }
 
-  // Specialization for performance
+  // Specialization for performance, and the unchanged FrameworkRequests only cost a Stat
   public Map<String, FrameworkRequest> getAllFrameworkRequests() throws Exception {
+    return getFrameworkRequests(zkClient.getChildren(zkStruct.getLauncherRequestPath()));
+  }
+
+  // The deleted Frameworks are not contained in the returned FrameworkRequests
+  public Map<String, FrameworkRequest> getFrameworkRequests(Collection<String> frameworkNames) throws Exception {
+    Map<String, CompletableFuture<FrameworkRequest>> futures = new HashMap<>();
+    for (String frameworkName : frameworkNames) {
+      futures.put(frameworkName, getVersionedSmallObjectAsync(
+          zkStruct.getFrameworkRequestPath(frameworkName), FrameworkRequest.class));
+    }
+
     Map<String, FrameworkRequest> allFrameworkRequests = new HashMap<>();
-    for (String frameworkName : zkClient.getChildren(zkStruct.getLauncherRequestPath())) {
+    for (Map.Entry<String, CompletableFuture<FrameworkRequest>> future : futures.entrySet()) {
       try {
-        allFrameworkRequests.put(frameworkName, getFrameworkRequest(frameworkName));
+        allFrameworkRequests.put(future.getKey(), ZooKeeperClient.await(future.getValue()));
       } catch (KeeperException.NoNodeException ignored) {
       }
     }
@@ -228,6 +388,21 @@ public AggregatedTaskRoleStatus getAggregatedTaskRoleStatus(String frameworkName
     return aggregatedTaskRoleStatus;
   }
 
+  public CompletableFuture<AggregatedTaskRoleStatus> getAggregatedTaskRoleStatusAsync(String frameworkName, String taskRoleName) {
+    CompletableFuture<TaskRoleStatus> taskRoleStatusFuture = zkClient.getSmallObjectAsync(
+        zkStruct.getTaskRoleStatusPath(frameworkName, taskRoleName), TaskRoleStatus.class);
+    CompletableFuture<TaskStatuses> taskStatusesFuture = zkClient.getLargeObjectAsync(
+        zkStruct.getTaskStatusesPath(frameworkName, taskRoleName), TaskStatuses.class,
+        TaskStatusesDelta.class, ZookeeperStore::applyTaskStatusesDelta);
+
+    return taskRoleStatusFuture.thenCompose(taskRoleStatus -> taskStatusesFuture.thenApply(taskStatuses -> {
+      AggregatedTaskRoleStatus aggregatedTaskRoleStatus = new AggregatedTaskRoleStatus();
+      aggregatedTaskRoleStatus.setTaskRoleStatus(taskRoleStatus);
+      aggregatedTaskRoleStatus.setTaskStatuses(taskStatuses);
+      return aggregatedTaskRoleStatus;
+    }));
+  }
+
   public AggregatedFrameworkStatus getAggregatedFrameworkStatus(String frameworkName) throws Exception {
     AggregatedFrameworkStatus aggregatedFrameworkStatus = new AggregatedFrameworkStatus();
     aggregatedFrameworkStatus.setFrameworkStatus(getFrameworkStatus(frameworkName));
@@ -242,6 +417,38 @@ public AggregatedFrameworkStatus getAggregatedFrameworkStatus(String frameworkNa
     return aggregatedFrameworkStatus;
   }
 
+  // Same as the sync one, except that all ZK requests are issued in parallel
+  public CompletableFuture<AggregatedFrameworkStatus> getAggregatedFrameworkStatusAsync(String frameworkName) {
+    CompletableFuture<FrameworkStatus> frameworkStatusFuture = zkClient.getSmallObjectAsync(
+        zkStruct.getFrameworkStatusPath(frameworkName), FrameworkStatus.class);
+    CompletableFuture<Map<String, CompletableFuture<AggregatedTaskRoleStatus>>> aggregatedTaskRoleStatusFutures =
+        zkClient.getChildrenAsync(zkStruct.getFrameworkStatusPath(frameworkName)).thenApply(taskRoleNames -> {
+          // Keep the order of taskRoleNames, so that the first failed TaskRole is the same as the sync one
+          Map<String, CompletableFuture<AggregatedTaskRoleStatus>> futures = new LinkedHashMap<>();
+          for (String taskRoleName : taskRoleNames) {
+            futures.put(taskRoleName, getAggregatedTaskRoleStatusAsync(frameworkName, taskRoleName));
+          }
+          return futures;
+        });
+
+    return frameworkStatusFuture.thenCompose(frameworkStatus ->
+        aggregatedTaskRoleStatusFutures.thenCompose(futures ->
+            allCompleted(futures.values()).thenApply(ignored -> {
+              AggregatedFrameworkStatus aggregatedFrameworkStatus = new AggregatedFrameworkStatus();
+              aggregatedFrameworkStatus.setFrameworkStatus(frameworkStatus);
+
+              aggregatedFrameworkStatus.setAggregatedTaskRoleStatuses(new HashMap<>());
+              for (Map.Entry<String, CompletableFuture<AggregatedTaskRoleStatus>> future : futures.entrySet()) {
+                try {
+                  aggregatedFrameworkStatus.getAggregatedTaskRoleStatuses().put(
+                      future.getKey(), getCompletedResult(future.getValue()));
+                } catch (KeeperException.NoNodeException ignored2) {
+                }
+              }
+              return aggregatedFrameworkStatus;
+            })));
+  }
+
   public AggregatedLauncherStatus getAggregatedLauncherStatus() throws Exception {
     return getAggregatedLauncherStatus(new HashSet<>());
   }
@@ -249,33 +456,52 @@ public AggregatedLauncherStatus getAggregatedLauncherStatus() throws Exception {
   public AggregatedLauncherStatus getAggregatedLauncherStatus(Set<String> excludedFrameworkNames) throws Exception {
     AggregatedLauncherStatus aggregatedLauncherStatus = new AggregatedLauncherStatus();
     aggregatedLauncherStatus.setLauncherStatus(getLauncherStatus());
-    aggregatedLauncherStatus.setAggregatedFrameworkStatuses(new HashMap<>());
-    for (String frameworkName : zkClient.getChildren(zkStruct.getLauncherStatusPath())) {
-      if (excludedFrameworkNames.contains(frameworkName)) {
-        continue;
-      }
 
+    Set<String> frameworkNames = new HashSet<>(zkClient.getChildren(zkStruct.getLauncherStatusPath()));
+    frameworkNames.removeAll(excludedFrameworkNames);
+    aggregatedLauncherStatus.setAggregatedFrameworkStatuses(getAggregatedFrameworkStatuses(frameworkNames));
+    return aggregatedLauncherStatus;
+  }
+
+  // The Framework will not be contained in the result if it does not exist,
+  // and its AggregatedFrameworkStatus will be null if it is corrupted.
+  public Map<String, AggregatedFrameworkStatus> getAggregatedFrameworkStatuses(Set<String> frameworkNames) throws Exception {
+    Map<String, CompletableFuture<AggregatedFrameworkStatus>> futures = new HashMap<>();
+    for (String frameworkName : frameworkNames) {
+      futures.put(frameworkName, getAggregatedFrameworkStatusAsync(frameworkName));
+    }
+
+    Map<String, AggregatedFrameworkStatus> aggregatedFrameworkStatuses = new HashMap<>();
+    for (Map.Entry<String, CompletableFuture<AggregatedFrameworkStatus>> future : futures.entrySet()) {
+      String frameworkName = future.getKey();
       try {
-        aggregatedLauncherStatus.getAggregatedFrameworkStatuses().put(frameworkName, getAggregatedFrameworkStatus(frameworkName));
+        aggregatedFrameworkStatuses.put(frameworkName, ZooKeeperClient.await(future.getValue()));
       } catch (KeeperException.NoNodeException ignored) {
       } catch (KeeperException e) {
         throw e;
       } catch (Exception e) {
         LOGGER.logWarning(e,
-            "[%s]: getAggregatedLauncherStatus: Got corrupted data",
+            "[%s]: getAggregatedFrameworkStatuses: Got corrupted data",
             frameworkName);
-        aggregatedLauncherStatus.getAggregatedFrameworkStatuses().put(frameworkName, null);
+        aggregatedFrameworkStatuses.put(frameworkName, null);
       }
     }
-    return aggregatedLauncherStatus;
+    return aggregatedFrameworkStatuses;
   }
 
   // Specialization for performance
   public Map<String, FrameworkStatus> getAllFrameworkStatuses() throws Exception {
-    Map<String, FrameworkStatus> allFrameworkStatuses = new HashMap<>();
+    Map<String, CompletableFuture<FrameworkStatus>> futures = new HashMap<>();
     for (String frameworkName : zkClient.getChildren(zkStruct.getLauncherStatusPath())) {
+      futures.put(frameworkName, zkClient.getSmallObjectAsync(
+          zkStruct.getFrameworkStatusPath(frameworkName), FrameworkStatus.class));
+    }
+
+    Map<String, FrameworkStatus> allFrameworkStatuses = new HashMap<>();
+    for (Map.Entry<String, CompletableFuture<FrameworkStatus>> future : futures.entrySet()) {
+      String frameworkName = future.getKey();
       try {
-        allFrameworkStatuses.put(frameworkName, getFrameworkStatus(frameworkName));
+        allFrameworkStatuses.put(frameworkName, ZooKeeperClient.await(future.getValue()));
       } catch (KeeperException.NoNodeException ignored) {
       } catch (KeeperException e) {
         throw e;
@@ -288,4 +514,28 @@ public Map<String, FrameworkStatus> getAllFrameworkStatuses() throws Exception {
     }
     return allFrameworkStatuses;
   }
+
+  private <T> CompletableFuture<T> getVersionedSmallObjectAsync(String path, Class<T> classRef) {
+    return zkClient.getVersionedSmallObjectAsync(path, classRef).thenApply(VersionedObject::getObject);
+  }
+
+  // Complete after all the futures completed, no matter they succeeded or failed
+  private static CompletableFuture<Void> allCompleted(Collection<? extends CompletableFuture<?>> futures) {
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((result, e) -> null);
+  }
+
+  // Get the result of the completed future inside a CompletionStage, so the checked exception
+  // is rethrown by CompletionException except for the NoNodeException which may be ignored.
+  private static <T> T getCompletedResult(CompletableFuture<T> future) throws KeeperException.NoNodeException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = ZooKeeperClient.unwrap(e);
+      if (cause instanceof KeeperException.NoNodeException) {
+        throw (KeeperException.NoNodeException) cause;
+      } else {
+        throw new CompletionException(cause);
+      }
+    }
+  }
 }
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.applicationmaster;
+
+import com.microsoft.frameworklauncher.common.model.*;
+import com.microsoft.frameworklauncher.testutils.TestUtils;
+import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class RequestManagerTest {
+  private static final long WATCH_TIMEOUT_MS = 10000;
+
+  private TestingServer zkServer;
+  private ZookeeperStore zkStore;
+  private MockConfiguration conf;
+  private final List<String> migrateTaskRequestedContainerIds = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    zkServer = new TestingServer();
+    zkStore = new ZookeeperStore(zkServer.getConnectString(), "/Launcher");
+
+    LauncherConfiguration launcherConfig = new LauncherConfiguration();
+    launcherConfig.setAmRequestWatchEnable(true);
+    LauncherStatus launcherStatus = new LauncherStatus();
+    launcherStatus.setLauncherConfiguration(launcherConfig);
+    zkStore.setLauncherStatus(launcherStatus);
+    zkStore.setLauncherRequest(new LauncherRequest());
+
+    conf = new MockConfiguration();
+    conf.initializeNoDependenceConfig();
+    conf.initializeDependOnZKStoreConfig(zkStore);
+    zkStore.setFrameworkRequest(conf.getFrameworkName(),
+        TestUtils.newFrameworkRequest(conf.getFrameworkName(), conf.getFrameworkVersion()));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    zkServer.close();
+  }
+
+  @Test
+  public void testWatchRequest() throws Exception {
+    RequestManager requestManager = new RequestManager(new RecordingApplicationMaster(), conf, zkStore, null);
+    requestManager.recover();
+    Assert.assertNull(requestManager.getAggregatedFrameworkRequest().getOverrideApplicationProgressRequest());
+    Assert.assertEquals(0, requestManager.getLastRequestAppliedLatencyMs());
+
+    // The change is applied once it is watched, instead of after AmRequestPullIntervalSec
+    OverrideApplicationProgressRequest overrideApplicationProgressRequest = new OverrideApplicationProgressRequest();
+    overrideApplicationProgressRequest.setApplicationProgress(BigDecimal.valueOf(0.5));
+    zkStore.setOverrideApplicationProgressRequest(conf.getFrameworkName(), overrideApplicationProgressRequest);
+    long startTimestamp = System.currentTimeMillis();
+    requestManager.watchRequest(WATCH_TIMEOUT_MS);
+    Assert.assertTrue(System.currentTimeMillis() - startTimestamp < WATCH_TIMEOUT_MS);
+    Assert.assertEquals(BigDecimal.valueOf(0.5), requestManager.getAggregatedFrameworkRequest()
+        .getOverrideApplicationProgressRequest().getApplicationProgress());
+
+    // The latency includes at least the event batch wait
+    long lastLatencyMs = requestManager.getLastRequestAppliedLatencyMs();
+    Assert.assertTrue(lastLatencyMs > 0);
+    Assert.assertTrue(lastLatencyMs < WATCH_TIMEOUT_MS);
+    Assert.assertEquals(lastLatencyMs, requestManager.getMaxRequestAppliedLatencyMs());
+
+    // The MigrateTaskRequests node and its children are also watched
+    zkStore.setMigrateTaskRequest(conf.getFrameworkName(), "container1", new MigrateTaskRequest());
+    requestManager.watchRequest(WATCH_TIMEOUT_MS);
+    Assert.assertEquals(Collections.singletonList("container1"), migrateTaskRequestedContainerIds);
+    Assert.assertTrue(requestManager.getMaxRequestAppliedLatencyMs() >= requestManager.getLastRequestAppliedLatencyMs());
+
+    // The counters are not changed if no change is watched
+    lastLatencyMs = requestManager.getLastRequestAppliedLatencyMs();
+    long maxLatencyMs = requestManager.getMaxRequestAppliedLatencyMs();
+    requestManager.watchRequest(200);
+    Assert.assertEquals(lastLatencyMs, requestManager.getLastRequestAppliedLatencyMs());
+    Assert.assertEquals(maxLatencyMs, requestManager.getMaxRequestAppliedLatencyMs());
+  }
+
+  // Record the callbacks instead of driving the Tasks
+  private class RecordingApplicationMaster extends ApplicationMaster {
+    @Override
+    public void onExceptionOccurred(Exception e) {
+      throw new AssertionError(e);
+    }
+
+    @Override
+    public void onServiceVersionsUpdated(Map<String, Integer> serviceVersions) {
+    }
+
+    @Override
+    public void onTaskNumbersUpdated(Map<String, Integer> taskNumbers) {
+    }
+
+    @Override
+    public void onStartRMResyncHandler() {
+    }
+
+    @Override
+    public void onStartTransitionTaskStateQueue() {
+    }
+
+    @Override
+    public void onMigrateTaskRequested(String containerId, MigrateTaskRequest migrateTaskRequest) {
+      migrateTaskRequestedContainerIds.add(containerId);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.applicationmaster;
+
+import com.microsoft.frameworklauncher.common.model.ResourceDescriptor;
+import com.microsoft.frameworklauncher.common.model.ValueRange;
+import com.microsoft.frameworklauncher.common.utils.ValueRangeUtils;
+import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ResourceVectorTest {
+  private final Random random = new Random(0);
+
+  @Test
+  public void testConversion() {
+    List<ValueRange> ports = new ArrayList<>();
+    ports.add(ValueRange.newInstance(2000, 2002));
+    ports.add(ValueRange.newInstance(3000, 3000));
+    ResourceDescriptor rd = ResourceDescriptor.newInstance(1, 2, 3, 7L, 4, ports);
+    ResourceDescriptor rd2 = ResourceVector.fromResourceDescriptor(rd).toResourceDescriptor();
+
+    Assert.assertEquals(rd.getMemoryMB(), rd2.getMemoryMB());
+    Assert.assertEquals(rd.getCpuNumber(), rd2.getCpuNumber());
+    Assert.assertEquals(rd.getGpuNumber(), rd2.getGpuNumber());
+    Assert.assertEquals(rd.getGpuAttribute(), rd2.getGpuAttribute());
+    Assert.assertEquals(rd.getPortNumber(), rd2.getPortNumber());
+    Assert.assertTrue(ValueRangeUtils.isEqualRangeList(rd.getPortRanges(), rd2.getPortRanges()));
+  }
+
+  @Test
+  public void testArithmeticAlignedWithResourceDescriptor() {
+    for (int i = 0; i < 1000; i++) {
+      ResourceDescriptor lhs = randomResource();
+      ResourceDescriptor rhs = randomResource();
+
+      assertEquals(
+          ResourceDescriptor.add(copy(lhs), copy(rhs)),
+          ResourceVector.fromResourceDescriptor(lhs).add(ResourceVector.fromResourceDescriptor(rhs)));
+      assertEquals(
+          ResourceDescriptor.subtract(copy(lhs), copy(rhs)),
+          ResourceVector.fromResourceDescriptor(lhs).subtract(ResourceVector.fromResourceDescriptor(rhs)));
+      Assert.assertEquals(
+          ResourceDescriptor.fitsIn(copy(lhs), copy(rhs)),
+          ResourceVector.fromResourceDescriptor(lhs).fitsIn(ResourceVector.fromResourceDescriptor(rhs)));
+    }
+  }
+
+  @Test
+  public void testInPlaceArithmetic() {
+    ResourceVector total = ResourceVector.fromResourceDescriptor(
+        ResourceDescriptor.newInstance(100, 10, 4, 0xFL, 0, ranges(1000, 1999)));
+    ResourceVector request = ResourceVector.fromResourceDescriptor(
+        ResourceDescriptor.newInstance(10, 1, 2, 0x3L, 0, ranges(1000, 1009)));
+    ResourceVector available = new ResourceVector().set(total);
+
+    Assert.assertTrue(request.fitsIn(available));
+    available.subtract(request);
+    Assert.assertEquals(90, available.getMemoryMB());
+    Assert.assertEquals(9, available.getCpuNumber());
+    Assert.assertEquals(2, available.getGpuNumber());
+    Assert.assertEquals(0xCL, available.getGpuAttribute());
+    Assert.assertEquals(990, available.getPortNumber());
+    Assert.assertFalse(request.fitsIn(available));
+
+    available.add(request);
+    assertEquals(total.toResourceDescriptor(), available);
+  }
+
+  private static List<ValueRange> ranges(int begin, int end) {
+    List<ValueRange> ranges = new ArrayList<>();
+    ranges.add(ValueRange.newInstance(begin, end));
+    return ranges;
+  }
+
+  private ResourceDescriptor randomResource() {
+    long gpuAttribute = random.nextInt(16);
+    List<ValueRange> ports = new ArrayList<>();
+    int begin = 1000;
+    for (int i = random.nextInt(3); i > 0; i--) {
+      begin += random.nextInt(10);
+      int end = begin + random.nextInt(10);
+      ports.add(ValueRange.newInstance(begin, end));
+      begin = end + 2;
+    }
+    return ResourceDescriptor.newInstance(
+        random.nextInt(100), random.nextInt(10), Long.bitCount(gpuAttribute), gpuAttribute,
+        ValueRangeUtils.getValueNumber(ports), ports);
+  }
+
+  // ResourceDescriptor arithmetic may change the ValueRange in its parameters
+  private static ResourceDescriptor copy(ResourceDescriptor resource) {
+    return YamlUtils.deepCopy(resource, ResourceDescriptor.class);
+  }
+
+  private static void assertEquals(ResourceDescriptor expected, ResourceVector actual) {
+    Assert.assertEquals(expected.getMemoryMB().intValue(), actual.getMemoryMB());
+    Assert.assertEquals(expected.getCpuNumber().intValue(), actual.getCpuNumber());
+    Assert.assertEquals(expected.getGpuNumber().intValue(), actual.getGpuNumber());
+    Assert.assertEquals(expected.getGpuAttribute().longValue(), actual.getGpuAttribute());
+    Assert.assertEquals(expected.getPortNumber().intValue(), actual.getPortNumber());
+    Assert.assertTrue(ValueRangeUtils.isEqualRangeList(
+        expected.getPortRanges(), actual.toResourceDescriptor().getPortRanges()));
+  }
+}
@@ -396,6 +396,133 @@ public void testSelectionManagerWithPorts() throws Exception {
 
   }
 
+  @Test
+  public void testSelectionNodeLabel() throws Exception {
+    MockApplicationMaster am = new MockApplicationMaster();
+    FeatureTestUtils.initZK(MockZookeeperStore.newInstanceWithClean(FeatureTestUtils.ZK_BASE_DIR));
+    am.initialize();
+
+    am.setRequestManager(mock(RequestManager.class));
+    when(am.requestManager.getPlatParams()).thenReturn(new PlatformSpecificParametersDescriptor());
+
+    SelectionManager sm = new SelectionManager(am, am.conf, am.statusManager, am.requestManager);
+    sm.addNode(new Node("node1", new HashSet<>(Collections.singletonList("label1")),
+        ResourceDescriptor.newInstance(200, 200, 4, 0xFL), ResourceDescriptor.newInstance(0, 0, 0, 0L)));
+    sm.addNode(new Node("node2", null,
+        ResourceDescriptor.newInstance(200, 200, 4, 0xFL), ResourceDescriptor.newInstance(0, 0, 0, 0L)));
+
+    // Not requested NodeLabel selects nodes in all partitions
+    SelectionResult result = sm.select(ResourceDescriptor.newInstance(1, 1, 1, 0L), null, null, 1, null, null);
+    Assert.assertEquals(new HashSet<>(Arrays.asList("node1", "node2")), new HashSet<>(result.getNodeHosts()));
+
+    result = sm.select(ResourceDescriptor.newInstance(1, 1, 1, 0L), "label1", null, 1, null, null);
+    Assert.assertEquals(Collections.singletonList("node1"), result.getNodeHosts());
+
+    // Empty NodeLabel is the NO_LABEL partition
+    result = sm.select(ResourceDescriptor.newInstance(1, 1, 1, 0L), "", null, 1, null, null);
+    Assert.assertEquals(Collections.singletonList("node2"), result.getNodeHosts());
+
+    result = sm.select(ResourceDescriptor.newInstance(1, 1, 1, 0L), "label2", null, 1, null, null);
+    Assert.assertEquals(0, result.getNodeHosts().size());
+  }
+
+  @Test
+  public void testSelectionTiedNodes() throws Exception {
+    MockApplicationMaster am = new MockApplicationMaster();
+    FeatureTestUtils.initZK(MockZookeeperStore.newInstanceWithClean(FeatureTestUtils.ZK_BASE_DIR));
+    am.initialize();
+
+    am.setRequestManager(mock(RequestManager.class));
+    when(am.requestManager.getPlatParams()).thenReturn(new PlatformSpecificParametersDescriptor());
+
+    SelectionManager sm = new SelectionManager(am, am.conf, am.statusManager, am.requestManager);
+    Set<String> hosts = new HashSet<>();
+    for (int i = 0; i < 8; i++) {
+      sm.addNode(new Node("node" + i, null,
+          ResourceDescriptor.newInstance(200, 200, 4, 0xFL), ResourceDescriptor.newInstance(0, 0, 0, 0L)));
+      hosts.add("node" + i);
+    }
+
+    // The tied nodes are selected in a different order for each selection,
+    // so all of them are eventually selected even though nothing is placed.
+    Set<String> selectedHosts = new HashSet<>();
+    for (int i = 0; i < 1000 && !selectedHosts.equals(hosts); i++) {
+      SelectionResult result = sm.select(ResourceDescriptor.newInstance(1, 1, 1, 0L), null, null, 1, null, null);
+      Assert.assertFalse(result.getNodeHosts().isEmpty());
+      selectedHosts.addAll(result.getNodeHosts());
+    }
+    Assert.assertEquals(hosts, selectedHosts);
+  }
+
+  @Test
+  public void testSelectionScalability() throws Exception {
+    MockApplicationMaster am = new MockApplicationMaster();
+    FeatureTestUtils.initZK(MockZookeeperStore.newInstanceWithClean(FeatureTestUtils.ZK_BASE_DIR));
+    am.initialize();
+
+    am.setRequestManager(mock(RequestManager.class));
+    when(am.requestManager.getPlatParams()).thenReturn(new PlatformSpecificParametersDescriptor());
+
+    // The NodeIndex range scan selects the same nodes as a full scan in packing order,
+    // even though the NodeIndex is updated by each placed request in between.
+    Random random = new Random(0);
+    ResourceDescriptor requestResource = ResourceDescriptor.newInstance(1, 1, 1, 0L);
+    ResourceVector requestResourceVector = ResourceVector.fromResourceDescriptor(requestResource);
+    for (int nodeCount : new int[]{1000, 5000, 20000}) {
+      SelectionManager sm = new SelectionManager(am, am.conf, am.statusManager, am.requestManager);
+      Map<String, Node> nodes = new HashMap<>();
+      for (int i = 0; i < nodeCount; i++) {
+        Node node = new Node("node" + i, null,
+            ResourceDescriptor.newInstance(1000, 100, 8, 0xFFL),
+            ResourceDescriptor.newInstance(random.nextInt(1000), random.nextInt(100), 0, 0L));
+        nodes.put(node.getHost(), node);
+        sm.addNode(node);
+      }
+
+      for (int i = 0; i < 1000; i++) {
+        SelectionResult result = sm.select(requestResource, null, null, 1, null, null);
+        List<Node> expectedNodes = selectNodesByFullScan(nodes.values(), requestResourceVector, 2);
+        // The selected hosts are not ordered, so compare them in packing order
+        List<Node> selectedNodes = new ArrayList<>();
+        for (String nodeHost : result.getNodeHosts()) {
+          selectedNodes.add(nodes.get(nodeHost));
+        }
+        Collections.sort(selectedNodes);
+        Assert.assertEquals(2, selectedNodes.size());
+        for (int j = 0; j < selectedNodes.size(); j++) {
+          Assert.assertTrue(requestResourceVector.fitsIn(selectedNodes.get(j).getAvailableResourceVector()));
+          Assert.assertEquals(0, selectedNodes.get(j).compareTo(expectedNodes.get(j)));
+        }
+
+        String nodeHost = result.getNodeHosts().get(0);
+        sm.addContainerRequest(
+            ResourceDescriptor.newInstance(1, 1, 1, result.getGpuAttribute(nodeHost)),
+            Collections.singletonList(nodeHost));
+      }
+    }
+  }
+
+  // Select the first selectCount nodes in packing order which fit the request by scanning all nodes
+  private static List<Node> selectNodesByFullScan(
+      Collection<Node> nodes, ResourceVector requestResourceVector, int selectCount) {
+    List<Node> selectedNodes = new ArrayList<>();
+    for (int i = 0; i < selectCount; i++) {
+      Node minNode = null;
+      for (Node node : nodes) {
+        if (!selectedNodes.contains(node) &&
+            requestResourceVector.fitsIn(node.getAvailableResourceVector()) &&
+            (minNode == null || node.compareTo(minNode) < 0)) {
+          minNode = node;
+        }
+      }
+      if (minNode == null) {
+        break;
+      }
+      selectedNodes.add(minNode);
+    }
+    return selectedNodes;
+  }
+
   private Map<String, NodeConfiguration> createClusterTestNodes() {
     Map<String, NodeConfiguration> map = new HashMap<>();
     NodeConfiguration nodeConfig = new NodeConfiguration();
@@ -0,0 +1,173 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.client;
+
+import com.microsoft.frameworklauncher.common.exceptions.LauncherClientException;
+import com.microsoft.frameworklauncher.common.model.FrameworkStatus;
+import com.microsoft.frameworklauncher.common.model.LaunchClientType;
+import com.microsoft.frameworklauncher.common.web.WebCommon;
+import com.microsoft.frameworklauncher.common.web.WebStructure;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LauncherClientTest {
+  private static final String FRAMEWORK_NAME = "Framework1";
+
+  private HttpServer server;
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final CountDownLatch responseLatch = new CountDownLatch(1);
+  // The number of requests which are failed with 503 before the successful one
+  private final AtomicInteger failedRequestCount = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+    FrameworkStatus frameworkStatus = new FrameworkStatus();
+    frameworkStatus.setFrameworkName(FRAMEWORK_NAME);
+    byte[] content = WebCommon.toJson(frameworkStatus).getBytes(StandardCharsets.UTF_8);
+
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(WebStructure.getFrameworkStatusPath(FRAMEWORK_NAME), (HttpExchange exchange) -> {
+      requestCount.incrementAndGet();
+      try {
+        responseLatch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (failedRequestCount.getAndDecrement() > 0) {
+        exchange.sendResponseHeaders(HttpStatus.SC_SERVICE_UNAVAILABLE, -1);
+      } else {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(HttpStatus.SC_OK, content.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(content);
+        }
+      }
+      exchange.close();
+    });
+    server.setExecutor(null);
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  private LauncherClient newPooledLauncherClient() {
+    return new LauncherClient(
+        "http://localhost:" + server.getAddress().getPort(),
+        LaunchClientType.UNKNOWN, "user1",
+        new LauncherClientConfiguration()
+            .setMaxRetryCount(3).setMinRetryDelaySec(0).setMaxRetryDelaySec(0)
+            .setAsyncThreadCount(4));
+  }
+
+  @Test
+  public void testGetCoalescing() throws Exception {
+    try (LauncherClient client = newPooledLauncherClient()) {
+      List<CompletableFuture<FrameworkStatus>> futures = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        futures.add(client.getFrameworkStatusAsync(FRAMEWORK_NAME));
+      }
+      CompletableFuture<FrameworkStatus> syncGet = CompletableFuture.supplyAsync(() -> {
+        try {
+          return client.getFrameworkStatus(FRAMEWORK_NAME);
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      });
+      futures.add(syncGet);
+
+      // Wait the sync GET to join the in-flight GET
+      Thread.sleep(500);
+      responseLatch.countDown();
+
+      for (CompletableFuture<FrameworkStatus> future : futures) {
+        Assert.assertEquals(FRAMEWORK_NAME, future.get(30, TimeUnit.SECONDS).getFrameworkName());
+      }
+      Assert.assertEquals(1, requestCount.get());
+
+      // A GET after the completion sends a new request
+      Assert.assertEquals(FRAMEWORK_NAME, client.getFrameworkStatus(FRAMEWORK_NAME).getFrameworkName());
+      Assert.assertEquals(2, requestCount.get());
+    }
+  }
+
+  @Test
+  public void testAsyncRetry() throws Exception {
+    responseLatch.countDown();
+    try (LauncherClient client = newPooledLauncherClient()) {
+      failedRequestCount.set(2);
+      Assert.assertEquals(FRAMEWORK_NAME, client.getFrameworkStatusAsync(FRAMEWORK_NAME)
+          .get(30, TimeUnit.SECONDS).getFrameworkName());
+      Assert.assertEquals(3, requestCount.get());
+
+      failedRequestCount.set(10);
+      try {
+        client.getFrameworkStatusAsync(FRAMEWORK_NAME).get(30, TimeUnit.SECONDS);
+        Assert.fail("Request is succeeded after the maxRetryCount");
+      } catch (Exception e) {
+        Assert.assertTrue(e.getCause() instanceof LauncherClientException);
+      }
+      Assert.assertEquals(3 + 4, requestCount.get());
+    }
+  }
+
+  @Test
+  public void testAsyncNotPooled() throws Exception {
+    responseLatch.countDown();
+    LauncherClient client = new LauncherClient(
+        "http://localhost:" + server.getAddress().getPort(), 3, 0, LaunchClientType.UNKNOWN, "user1");
+
+    // The async API is also supported by a not pooled LauncherClient, and retries the same way
+    failedRequestCount.set(2);
+    Assert.assertEquals(FRAMEWORK_NAME, client.getFrameworkStatusAsync(FRAMEWORK_NAME)
+        .get(30, TimeUnit.SECONDS).getFrameworkName());
+    Assert.assertEquals(3, requestCount.get());
+
+    // The sync API is still supported
+    Assert.assertEquals(FRAMEWORK_NAME, client.getFrameworkStatus(FRAMEWORK_NAME).getFrameworkName());
+    Assert.assertEquals(4, requestCount.get());
+    client.close();
+
+    // The async API of a closed LauncherClient fails instead of sending the request
+    try {
+      client.getFrameworkStatusAsync(FRAMEWORK_NAME).get(30, TimeUnit.SECONDS);
+      Assert.fail("Async API is succeeded after the LauncherClient is closed");
+    } catch (ExecutionException e) {
+      // Expected
+    }
+    Assert.assertEquals(4, requestCount.get());
+  }
+}
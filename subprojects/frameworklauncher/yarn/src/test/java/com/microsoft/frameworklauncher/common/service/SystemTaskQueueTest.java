@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.service;
+
+import com.microsoft.frameworklauncher.common.exts.CommonExts;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SystemTaskQueueTest {
+  // The AssertionErrors in the SystemTasks are not Exceptions, so they are not seen by
+  // the queue exception handler, and need to be collected and asserted in the test thread.
+  private final List<Throwable> taskFailures = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void testKeyedSystemTaskQueue() throws Exception {
+    List<Exception> exceptions = Collections.synchronizedList(new ArrayList<>());
+    SystemTaskQueue queue = new SystemTaskQueue(e -> exceptions.add(e), 4);
+
+    String[] keys = {"A", "B", "C"};
+    Map<String, List<Integer>> keyOrders = new HashMap<>();
+    Map<String, AtomicInteger> keyRunningCounts = new HashMap<>();
+    for (String key : keys) {
+      keyOrders.put(key, Collections.synchronizedList(new ArrayList<>()));
+      keyRunningCounts.put(key, new AtomicInteger());
+    }
+    AtomicInteger runningCount = new AtomicInteger();
+    List<String> globalOrders = Collections.synchronizedList(new ArrayList<>());
+
+    // Different keys are executed concurrently, otherwise the latch cannot be reached
+    CountDownLatch concurrentLatch = new CountDownLatch(keys.length);
+    for (String key : keys) {
+      queue.queueSystemTask(key, checked(() -> {
+        concurrentLatch.countDown();
+        Assert.assertTrue(concurrentLatch.await(30, TimeUnit.SECONDS));
+      }));
+    }
+
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 50; i++) {
+        for (String key : keys) {
+          int order = round * 50 + i;
+          queue.queueSystemTask(key, checked(() -> {
+            runningCount.incrementAndGet();
+            Assert.assertEquals(1, keyRunningCounts.get(key).incrementAndGet());
+            Thread.sleep(1);
+            keyOrders.get(key).add(order);
+            keyRunningCounts.get(key).decrementAndGet();
+            runningCount.decrementAndGet();
+          }));
+        }
+      }
+
+      // Global SystemTask is a barrier
+      int globalRound = round;
+      queue.queueSystemTask(checked(() -> {
+        Assert.assertEquals(0, runningCount.get());
+        for (String key : keys) {
+          Assert.assertEquals((globalRound + 1) * 50, keyOrders.get(key).size());
+        }
+        globalOrders.add("Global" + globalRound);
+      }));
+    }
+
+    CountDownLatch completedLatch = new CountDownLatch(1);
+    queue.queueSystemTaskDelayed(completedLatch::countDown, 10);
+
+    // Nothing is executed before start
+    Thread.sleep(100);
+    Assert.assertEquals(0, queue.getCompletedTaskCount());
+
+    queue.start();
+    Assert.assertTrue(completedLatch.await(60, TimeUnit.SECONDS));
+
+    Assert.assertTrue(taskFailures.toString(), taskFailures.isEmpty());
+    Assert.assertTrue(exceptions.toString(), exceptions.isEmpty());
+    Assert.assertEquals(Arrays.asList("Global0", "Global1", "Global2"), globalOrders);
+    for (String key : keys) {
+      List<Integer> orders = keyOrders.get(key);
+      Assert.assertEquals(150, orders.size());
+      for (int i = 0; i < orders.size(); i++) {
+        Assert.assertEquals(i, orders.get(i).intValue());
+      }
+      Assert.assertNotNull(queue.getTaskRunTimeMs(key));
+    }
+  }
+
+  private CommonExts.VoidCallable checked(CommonExts.VoidCallable task) {
+    return () -> {
+      try {
+        task.call();
+      } catch (AssertionError e) {
+        taskFailures.add(e);
+      }
+    };
+  }
+}
@@ -0,0 +1,242 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.utils;
+
+import com.microsoft.frameworklauncher.common.model.*;
+import com.microsoft.frameworklauncher.testutils.TestUtils;
+import com.microsoft.frameworklauncher.testutils.YamlTestUtils;
+import com.microsoft.frameworklauncher.zookeeperstore.SerializationCodec;
+import com.microsoft.frameworklauncher.zookeeperstore.SerializationCodecs;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionUtilsTest {
+  private static final List<CompressionOptions> OPTIONS_LIST = Arrays.asList(
+      CompressionOptions.DEFAULT,
+      new CompressionOptions(Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY, false),
+      new CompressionOptions(Deflater.BEST_COMPRESSION, Deflater.FILTERED, false),
+      new CompressionOptions(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, true),
+      new CompressionOptions(Deflater.BEST_SPEED, Deflater.HUFFMAN_ONLY, true));
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    List<byte[]> samples = new ArrayList<>();
+    samples.add(new byte[0]);
+    samples.add(new byte[]{1});
+    samples.add(newRandomBytes(200 * 1024));
+    samples.addAll(newPayloadSamples(Arrays.asList(1, 1000)).values());
+
+    for (CompressionOptions options : OPTIONS_LIST) {
+      for (byte[] sample : samples) {
+        byte[] compressedBytes = CompressionUtils.compress(sample, options);
+        Assert.assertTrue(CompressionUtils.isCompressed(compressedBytes));
+        Assert.assertArrayEquals(options.toString(), sample, CompressionUtils.decompress(compressedBytes));
+        Assert.assertArrayEquals(options.toString(), sample, decompressStream(compressedBytes, 3));
+      }
+    }
+
+    // Already decompressed bytes
+    for (byte[] sample : samples) {
+      if (!CompressionUtils.isCompressed(sample)) {
+        Assert.assertSame(sample, CompressionUtils.decompress(sample));
+      }
+    }
+  }
+
+  @Test
+  public void testGzipCompatibility() throws Exception {
+    byte[] sample = newPayloadSamples(Collections.singletonList(100)).get("YAML-100");
+
+    // Legacy GZIP payload
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+      gos.write(sample);
+    }
+    byte[] legacyBytes = bos.toByteArray();
+    Assert.assertArrayEquals(sample, CompressionUtils.decompress(legacyBytes));
+    Assert.assertArrayEquals(sample, decompressStream(legacyBytes, 1000));
+
+    // GZIP payload is still readable by the legacy Launcher
+    for (int level : Arrays.asList(Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION)) {
+      byte[] compressedBytes = CompressionUtils.compress(sample,
+          new CompressionOptions(level, Deflater.DEFAULT_STRATEGY, false));
+      try (InputStream gis = new GZIPInputStream(new ByteArrayInputStream(compressedBytes))) {
+        Assert.assertArrayEquals(sample, IOUtils.toByteArray(gis));
+      }
+    }
+  }
+
+  @Test
+  public void testCorruption() throws Exception {
+    byte[] sample = newPayloadSamples(Collections.singletonList(100)).get("BINARY-100");
+    for (CompressionOptions options : OPTIONS_LIST) {
+      byte[] compressedBytes = CompressionUtils.compress(sample, options);
+
+      byte[] truncatedBytes = CommonUtils.subArray(compressedBytes, 0, compressedBytes.length / 2);
+      assertCorrupted(truncatedBytes);
+
+      byte[] flippedBytes = Arrays.copyOf(compressedBytes, compressedBytes.length);
+      flippedBytes[flippedBytes.length - 5] ^= 0xFF;
+      assertCorrupted(flippedBytes);
+    }
+
+    byte[] unknownDictionaryBytes = CompressionUtils.compress(sample,
+        new CompressionOptions(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, true));
+    unknownDictionaryBytes[2] = 100;
+    assertCorrupted(unknownDictionaryBytes);
+
+    try {
+      new CompressionOptions(10, Deflater.DEFAULT_STRATEGY, false);
+      Assert.fail("Invalid compression level is accepted");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    Assert.assertEquals(Deflater.FILTERED, CompressionOptions.parseStrategy("filtered"));
+  }
+
+  @Test
+  public void testCompressionComparison() throws Exception {
+    Map<String, byte[]> samples = newPayloadSamples(Arrays.asList(10, 1000, 10000));
+    for (Map.Entry<String, byte[]> sample : samples.entrySet()) {
+      byte[] bytes = sample.getValue();
+      for (CompressionOptions options : OPTIONS_LIST) {
+        byte[] compressedBytes = CompressionUtils.compress(bytes, options);
+        String msg = String.format("%s: Options: %s, Bytes: [%s], CompressedBytes: [%s]",
+            sample.getKey(), options, bytes.length, compressedBytes.length);
+        Assert.assertArrayEquals(msg, bytes, CompressionUtils.decompress(compressedBytes));
+
+        // The payloads which are large enough to be compressed in ZK always shrink
+        if (bytes.length >= 10 * 1024) {
+          Assert.assertTrue(msg, compressedBytes.length < bytes.length);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDictionaryCompression() throws Exception {
+    // The dictionary is for the small payloads, which plain GZIP cannot compress well
+    Map<String, byte[]> samples = newPayloadSamples(Arrays.asList(1, 10));
+    CompressionOptions gzipOptions = new CompressionOptions(
+        Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, false);
+    CompressionOptions dictionaryOptions = new CompressionOptions(
+        Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, true);
+    for (Map.Entry<String, byte[]> sample : samples.entrySet()) {
+      int gzipBytes = CompressionUtils.compress(sample.getValue(), gzipOptions).length;
+      int dictionaryBytes = CompressionUtils.compress(sample.getValue(), dictionaryOptions).length;
+      Assert.assertTrue(String.format("%s: GzipBytes: [%s], DictionaryBytes: [%s]",
+          sample.getKey(), gzipBytes, dictionaryBytes), dictionaryBytes < gzipBytes);
+    }
+  }
+
+  // Benchmark the compression ratio and throughput of the current payload samples,
+  // it only prints the numbers, so it is not run in CI.
+  @Ignore
+  @Test
+  public void benchmarkCompression() throws Exception {
+    Map<String, byte[]> samples = newPayloadSamples(Arrays.asList(10, 1000, 10000));
+    int rounds = 10;
+    for (Map.Entry<String, byte[]> sample : samples.entrySet()) {
+      byte[] bytes = sample.getValue();
+      for (CompressionOptions options : OPTIONS_LIST) {
+        byte[] compressedBytes = null;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+          compressedBytes = CompressionUtils.compress(bytes, options);
+        }
+        long compressTime = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+          CompressionUtils.decompress(compressedBytes);
+        }
+        long decompressTime = System.nanoTime() - startTime;
+
+        System.out.println(String.format(
+            "%s: Options: %s, Bytes: [%s], CompressedBytes: [%s], Ratio: [%.2f], " +
+                "CompressMBps: [%.1f], DecompressMBps: [%.1f]",
+            sample.getKey(), options, bytes.length, compressedBytes.length,
+            (double) bytes.length / compressedBytes.length,
+            toMBps(bytes.length * rounds, compressTime), toMBps(bytes.length * rounds, decompressTime)));
+      }
+    }
+  }
+
+  private static void assertCorrupted(byte[] compressedBytes) {
+    try {
+      CompressionUtils.decompress(compressedBytes);
+      Assert.fail("Corrupted bytes are decompressed");
+    } catch (IOException e) {
+      // Expected
+    }
+    try {
+      decompressStream(compressedBytes, 1000);
+      Assert.fail("Corrupted stream is decompressed");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  private static byte[] decompressStream(byte[] compressedBytes, int bufferBytes) throws IOException {
+    try (InputStream in = CompressionUtils.decompress(new ByteArrayInputStream(compressedBytes))) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      byte[] buffer = new byte[bufferBytes];
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        bos.write(buffer, 0, read);
+      }
+      return bos.toByteArray();
+    }
+  }
+
+  private static double toMBps(long bytes, long nanos) {
+    return bytes * 1000.0 / Math.max(nanos, 1);
+  }
+
+  private static byte[] newRandomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(0).nextBytes(bytes);
+    return bytes;
+  }
+
+  // The serialized TaskStatuses and FrameworkStatus, same as the ones Set to ZK
+  private static Map<String, byte[]> newPayloadSamples(List<Integer> taskNumbers) throws Exception {
+    Map<String, byte[]> samples = new LinkedHashMap<>();
+    samples.put("YAML-FrameworkStatus", SerializationCodecs.YAML.serialize(
+        YamlTestUtils.newInstance(FrameworkStatus.class)));
+
+    for (int taskNumber : taskNumbers) {
+      TaskStatuses taskStatuses = TestUtils.newTaskStatuses(taskNumber);
+      for (SerializationCodec codec : Arrays.asList(SerializationCodecs.YAML, SerializationCodecs.BINARY)) {
+        samples.put(codec.getName() + "-" + taskNumber, codec.serialize(taskStatuses));
+      }
+    }
+    return samples;
+  }
+}
@@ -0,0 +1,158 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.utils;
+
+import com.microsoft.frameworklauncher.common.model.*;
+import com.microsoft.frameworklauncher.testutils.YamlTestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.File;
+import java.util.*;
+
+public class ModelUtilsTest {
+
+  @Test
+  public void testModelClassEquivalence() throws Exception {
+    // Get all class in common.model, same as ModelClassTest
+    String pName = FrameworkStatus.class.getPackage().getName();
+    File file = new File(System.getProperty("user.dir") + File.separator +
+        ("src.main.java." + pName).replace(".", File.separator));
+
+    for (String classFileName : file.list()) {
+      String className = classFileName.substring(0, classFileName.indexOf(".java"));
+      Class<?> c = Class.forName(pName + "." + className);
+      if (c.isEnum()) {
+        continue;
+      }
+      testEquivalence(c);
+    }
+  }
+
+  @Test
+  public void testCollections() throws Exception {
+    AclConfiguration acl = YamlTestUtils.newInstance(AclConfiguration.class);
+    Map<String, AccessControlList> namespaceAcls = new HashMap<>();
+    for (int i = 0; i < 10; i++) {
+      AccessControlList accessControlList = new AccessControlList();
+      Set<UserDescriptor> users = new LinkedHashSet<>();
+      for (int j = 0; j < 10; j++) {
+        users.add(UserDescriptor.newInstance("user" + j));
+      }
+      accessControlList.setUsers(users);
+      namespaceAcls.put("namespace" + i, accessControlList);
+    }
+    acl.setNamespaceAcls(namespaceAcls);
+
+    AclConfiguration copy = ModelUtils.deepCopy(acl, AclConfiguration.class);
+    Assert.assertTrue(YamlUtils.deepEquals(acl, copy));
+    Assert.assertNotSame(acl.getNamespaceAcls(), copy.getNamespaceAcls());
+    Assert.assertNotSame(
+        acl.getNamespaceAcls().get("namespace0").getUsers(),
+        copy.getNamespaceAcls().get("namespace0").getUsers());
+
+    // Set is compared regardless of the iteration order
+    List<UserDescriptor> reversedUsers = new ArrayList<>(copy.getNamespaceAcls().get("namespace0").getUsers());
+    Collections.reverse(reversedUsers);
+    copy.getNamespaceAcls().get("namespace0").setUsers(new LinkedHashSet<>(reversedUsers));
+    Assert.assertTrue(ModelUtils.deepEquals(acl, copy));
+
+    copy.getNamespaceAcls().get("namespace0").getUsers().iterator().next().setName("otherUser");
+    Assert.assertFalse(ModelUtils.deepEquals(acl, copy));
+    Assert.assertFalse(YamlUtils.deepEquals(acl, copy));
+
+    copy.getNamespaceAcls().remove("namespace0");
+    Assert.assertFalse(ModelUtils.deepEquals(acl.getNamespaceAcls(), copy.getNamespaceAcls()));
+    Assert.assertFalse(YamlUtils.deepEquals(acl.getNamespaceAcls(), copy.getNamespaceAcls()));
+
+    Assert.assertTrue(ModelUtils.deepEquals(null, null));
+    Assert.assertFalse(ModelUtils.deepEquals(acl, null));
+    Assert.assertNull(ModelUtils.deepCopy(null, AclConfiguration.class));
+  }
+
+  @Test
+  public void testDeepEqualsOnLargeInput() throws Exception {
+    Map<String, FrameworkRequest> frameworkRequests = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      FrameworkRequest frameworkRequest = YamlTestUtils.newInstance(FrameworkRequest.class);
+      frameworkRequest.setFrameworkName("framework" + i);
+      frameworkRequests.put(frameworkRequest.getFrameworkName(), frameworkRequest);
+    }
+    Map<String, FrameworkRequest> otherFrameworkRequests = new HashMap<>();
+    for (FrameworkRequest frameworkRequest : frameworkRequests.values()) {
+      otherFrameworkRequests.put(frameworkRequest.getFrameworkName(),
+          ModelUtils.deepCopy(frameworkRequest, FrameworkRequest.class));
+    }
+
+    Assert.assertTrue(YamlUtils.deepEquals(frameworkRequests, otherFrameworkRequests));
+    Assert.assertTrue(ModelUtils.deepEquals(frameworkRequests, otherFrameworkRequests));
+
+    // A single changed field deep inside the large input is detected, same as the YAML comparison
+    otherFrameworkRequests.get("framework500").getFrameworkDescriptor().setDescription("changed");
+    Assert.assertFalse(YamlUtils.deepEquals(frameworkRequests, otherFrameworkRequests));
+    Assert.assertFalse(ModelUtils.deepEquals(frameworkRequests, otherFrameworkRequests));
+  }
+
+  private static <T> void testEquivalence(Class<T> c) throws Exception {
+    T object = YamlTestUtils.newInstance(c);
+    T yamlCopy = YamlUtils.deepCopy(object, c);
+    T modelCopy = ModelUtils.deepCopy(object, c);
+
+    Assert.assertNotSame(object, modelCopy);
+    Assert.assertArrayEquals(
+        String.format("%s: Model copy and YAML copy do not match!", c.getSimpleName()),
+        YamlUtils.toBytes(yamlCopy), YamlUtils.toBytes(modelCopy));
+    Assert.assertTrue(c.getSimpleName(), ModelUtils.deepEquals(object, modelCopy));
+    Assert.assertTrue(c.getSimpleName(), ModelUtils.deepEquals(yamlCopy, modelCopy));
+
+    // Change each simple property of the copy, and both should detect it
+    for (PropertyDescriptor descriptor : Introspector.getBeanInfo(c).getPropertyDescriptors()) {
+      if (descriptor.getReadMethod() == null || descriptor.getWriteMethod() == null) {
+        continue;
+      }
+      T changedCopy = ModelUtils.deepCopy(object, c);
+      Object value = descriptor.getReadMethod().invoke(changedCopy);
+      Object changedValue = newChangedValue(descriptor.getPropertyType(), value);
+      if (changedValue == null) {
+        continue;
+      }
+      descriptor.getWriteMethod().invoke(changedCopy, changedValue);
+
+      String message = String.format("%s.%s: Change is not detected!", c.getSimpleName(), descriptor.getName());
+      Assert.assertFalse(message, YamlUtils.deepEquals(object, changedCopy));
+      Assert.assertFalse(message, ModelUtils.deepEquals(object, changedCopy));
+    }
+  }
+
+  private static Object newChangedValue(Class<?> type, Object value) {
+    if (type == String.class) {
+      return value + "_changed";
+    } else if (type == Integer.class || type == int.class) {
+      return value == null ? 0 : (Integer) value + 1;
+    } else if (type == Long.class || type == long.class) {
+      return value == null ? 0L : (Long) value + 1;
+    } else if (type == Boolean.class || type == boolean.class) {
+      return value == null ? Boolean.TRUE : !(Boolean) value;
+    } else if (type == Float.class || type == float.class) {
+      return value == null ? 0f : (Float) value + 1;
+    }
+    return null;
+  }
+}
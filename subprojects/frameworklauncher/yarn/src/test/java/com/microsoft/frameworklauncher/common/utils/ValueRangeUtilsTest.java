@@ -23,6 +23,7 @@
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 public class ValueRangeUtilsTest {
@@ -127,6 +128,38 @@ public void testValueRangeUtils() throws Exception {
       }
     }
   }
-}
 
+  @Test
+  public void testValueRangeBitSet() throws Exception {
+    List<ValueRange> testRangeList = new ArrayList<>();
+    testRangeList.add(ValueRange.newInstance(6, 7));
+    testRangeList.add(ValueRange.newInstance(10, 100));
+    testRangeList.add(ValueRange.newInstance(3, 5));
+    testRangeList.add(ValueRange.newInstance(90, 102));
 
+    BitSet testBitSet = ValueRangeUtils.toBitSet(testRangeList);
+    Assert.assertEquals(ValueRangeUtils.getValueNumber(testRangeList), testBitSet.cardinality());
+    Assert.assertTrue(ValueRangeUtils.isEqualRangeList(
+        ValueRangeUtils.coalesceRangeList(ValueRangeUtils.cloneList(testRangeList)),
+        ValueRangeUtils.fromBitSet(testBitSet)));
+
+    for (int j = 0; j < 20; j++) {
+      List<ValueRange> result = ValueRangeUtils.getSubRangeRandomly(testBitSet, 1, 0);
+      Assert.assertEquals(1, ValueRangeUtils.getValueNumber(result));
+      Assert.assertTrue(ValueRangeUtils.fitInRange(result, ValueRangeUtils.cloneList(testRangeList)));
+
+      result = ValueRangeUtils.getSubRangeRandomly(testBitSet, 10, 95);
+      Assert.assertEquals(8, ValueRangeUtils.getValueNumber(ValueRangeUtils.getSubRangeRandomly(testBitSet, 8, 95)));
+      Assert.assertEquals(0, ValueRangeUtils.getValueNumber(result));
+
+      result = ValueRangeUtils.getSubRangeRandomly(testBitSet, 20, 8);
+      Assert.assertEquals(20, ValueRangeUtils.getValueNumber(result));
+      Assert.assertTrue(result.get(0).getBegin() >= 10);
+      Assert.assertTrue(ValueRangeUtils.fitInRange(result, ValueRangeUtils.cloneList(testRangeList)));
+
+      // All the available values are selected
+      result = ValueRangeUtils.getSubRangeRandomly(testBitSet, testBitSet.cardinality(), 0);
+      Assert.assertTrue(ValueRangeUtils.isEqualRangeList(result, ValueRangeUtils.fromBitSet(testBitSet)));
+    }
+  }
+}
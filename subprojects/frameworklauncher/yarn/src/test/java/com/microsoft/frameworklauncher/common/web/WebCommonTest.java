@@ -0,0 +1,48 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.common.web;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WebCommonTest {
+
+  @Test
+  public void testMatchesETag() {
+    String eTag = "\"16a2b3c-r5-s7\"";
+    Assert.assertTrue(WebCommon.matchesETag(eTag, eTag));
+    Assert.assertTrue(WebCommon.matchesETag("W/" + eTag, eTag));
+    Assert.assertTrue(WebCommon.matchesETag("\"other\", " + eTag, eTag));
+    Assert.assertTrue(WebCommon.matchesETag("*", eTag));
+    Assert.assertFalse(WebCommon.matchesETag("\"16a2b3c-r5-s8\"", eTag));
+    Assert.assertFalse(WebCommon.matchesETag(null, eTag));
+    Assert.assertFalse(WebCommon.matchesETag("", eTag));
+  }
+
+  @Test
+  public void testAcceptsGzip() {
+    Assert.assertTrue(WebCommon.acceptsGzip("gzip"));
+    Assert.assertTrue(WebCommon.acceptsGzip("gzip,deflate"));
+    Assert.assertTrue(WebCommon.acceptsGzip("deflate, GZIP;q=0.5"));
+    Assert.assertTrue(WebCommon.acceptsGzip("*"));
+    Assert.assertFalse(WebCommon.acceptsGzip("gzip;q=0"));
+    Assert.assertFalse(WebCommon.acceptsGzip("deflate, br"));
+    Assert.assertFalse(WebCommon.acceptsGzip("identity"));
+    Assert.assertFalse(WebCommon.acceptsGzip(null));
+  }
+}
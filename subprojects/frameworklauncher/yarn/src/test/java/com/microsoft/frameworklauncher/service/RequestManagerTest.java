@@ -0,0 +1,160 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.service;
+
+import com.microsoft.frameworklauncher.common.model.*;
+import com.microsoft.frameworklauncher.testutils.TestUtils;
+import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+public class RequestManagerTest {
+  private static final long WATCH_DURATION_MS = 200;
+  private static final long WATCH_TIMEOUT_MS = 10000;
+
+  private TestingServer zkServer;
+  private ZookeeperStore zkStore;
+  private RecordingService service;
+  private RequestManager requestManager;
+
+  @Before
+  public void setUp() throws Exception {
+    zkServer = new TestingServer();
+    zkStore = new ZookeeperStore(zkServer.getConnectString(), "/Launcher");
+    zkStore.setLauncherRequest(new LauncherRequest());
+
+    LauncherConfiguration conf = new LauncherConfiguration();
+    conf.setServiceRequestWatchEnable(true);
+    conf.setServiceRequestFullPullIntervalSec(3600);
+    service = new RecordingService();
+    requestManager = new RequestManager(service, conf, zkStore);
+    requestManager.initialize();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    zkServer.close();
+  }
+
+  @Test
+  public void testApplyRequestChanges() throws Exception {
+    zkStore.setFrameworkRequest("f1", TestUtils.newFrameworkRequest("f1", 1));
+    zkStore.setFrameworkRequest("f2", TestUtils.newFrameworkRequest("f2", 1));
+
+    // The initial changes are applied by a full pull
+    watchRequestUntil(() -> service.updatedFrameworkRequests != null);
+    Assert.assertEquals(new HashSet<>(Arrays.asList("f1", "f2")), service.updatedFrameworkRequests.keySet());
+    Assert.assertTrue(service.started);
+    Assert.assertTrue(service.changedFrameworkNames.isEmpty());
+
+    // Added Framework
+    zkStore.setFrameworkRequest("f3", TestUtils.newFrameworkRequest("f3", 1));
+    watchRequestUntil(() -> !service.changedFrameworkNames.isEmpty());
+    Assert.assertEquals(Collections.singletonList(Collections.singleton("f3")), service.changedFrameworkNames);
+    Assert.assertEquals(new HashSet<>(Arrays.asList("f1", "f2", "f3")), service.frameworkRequests.keySet());
+
+    Map<String, FrameworkRequest> changedFrameworkRequests = service.frameworkRequests;
+
+    // Rewritten but not changed Framework is not notified
+    service.changedFrameworkNames.clear();
+    zkStore.setFrameworkRequest("f1", TestUtils.newFrameworkRequest("f1", 1));
+    zkStore.setFrameworkRequest("f2", TestUtils.newFrameworkRequest("f2", 2));
+    watchRequestUntil(() -> !service.changedFrameworkNames.isEmpty());
+    Assert.assertEquals(Collections.singletonList(Collections.singleton("f2")), service.changedFrameworkNames);
+    Assert.assertEquals(2, service.frameworkRequests.get("f2").getFrameworkDescriptor().getVersion().intValue());
+
+    // Deleted Framework
+    service.changedFrameworkNames.clear();
+    zkStore.deleteFrameworkRequest("f1");
+    watchRequestUntil(() -> !service.changedFrameworkNames.isEmpty());
+    Assert.assertEquals(Collections.singletonList(Collections.singleton("f1")), service.changedFrameworkNames);
+    Assert.assertEquals(new HashSet<>(Arrays.asList("f2", "f3")), service.frameworkRequests.keySet());
+
+    // The snapshot of the changes is not modified by the later changes
+    Assert.assertEquals(new HashSet<>(Arrays.asList("f1", "f2", "f3")), changedFrameworkRequests.keySet());
+    Assert.assertEquals(1, changedFrameworkRequests.get("f2").getFrameworkDescriptor().getVersion().intValue());
+
+    // The changes are applied in place, and the snapshot of the full pull is not modified
+    Assert.assertEquals(new HashSet<>(Arrays.asList("f1", "f2")), service.updatedFrameworkRequests.keySet());
+    Assert.assertEquals(1, service.updatedFrameworkRequests.get("f2").getFrameworkDescriptor().getVersion().intValue());
+
+    // Only the initial full pull, and the waiting Frameworks are periodically retried
+    Assert.assertEquals(1, service.updatedCount);
+    Assert.assertTrue(service.recheckCount > 0);
+  }
+
+  private void watchRequestUntil(Condition condition) throws Exception {
+    long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MS;
+    while (!condition.isSatisfied()) {
+      Assert.assertTrue("Timeout to watch the Request changes", System.currentTimeMillis() < deadline);
+      requestManager.watchRequest(WATCH_DURATION_MS);
+    }
+  }
+
+  private interface Condition {
+    boolean isSatisfied();
+  }
+
+  // Record the callbacks instead of driving the Frameworks
+  private static class RecordingService extends Service {
+    private Map<String, FrameworkRequest> updatedFrameworkRequests = null;
+    private Map<String, FrameworkRequest> frameworkRequests = null;
+    private final List<Set<String>> changedFrameworkNames = new ArrayList<>();
+    private int updatedCount = 0;
+    private int recheckCount = 0;
+    private boolean started = false;
+
+    @Override
+    public void onExceptionOccurred(Exception e) {
+      throw new AssertionError(e);
+    }
+
+    @Override
+    public void onFrameworkRequestsUpdated(Map<String, FrameworkRequest> frameworkRequests) {
+      updatedFrameworkRequests = frameworkRequests;
+      this.frameworkRequests = frameworkRequests;
+      updatedCount++;
+    }
+
+    @Override
+    public void onFrameworkRequestsChanged(
+        Map<String, FrameworkRequest> frameworkRequests, Set<String> changedFrameworkNames) {
+      this.frameworkRequests = frameworkRequests;
+      this.changedFrameworkNames.add(changedFrameworkNames);
+    }
+
+    @Override
+    public void onFrameworkRequestsRecheckRequired() {
+      recheckCount++;
+    }
+
+    @Override
+    public void onStartRMResyncHandler() {
+      started = true;
+    }
+
+    @Override
+    public void onStartTransitionFrameworkStateQueue() {
+    }
+  }
+}
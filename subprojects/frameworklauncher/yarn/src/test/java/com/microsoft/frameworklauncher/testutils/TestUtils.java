@@ -17,7 +17,12 @@
 
 package com.microsoft.frameworklauncher.testutils;
 
+import com.microsoft.frameworklauncher.common.model.*;
+
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class TestUtils {
 
@@ -37,4 +42,49 @@ private static String getResourceRoot() {
     return s.substring(0, idx - 1);
   }
 
+  // The TaskStatus with all fields populated, like the one Set to ZK, and it is
+  // deterministic for the given TaskIndex, so that the same TaskIndex gives the deepEquals one.
+  public static TaskStatus newTaskStatus(int taskIndex) throws Exception {
+    TaskStatus taskStatus = YamlTestUtils.newInstance(TaskStatus.class);
+    taskStatus.setTaskIndex(taskIndex);
+    taskStatus.setTaskRoleName("worker");
+    taskStatus.setTaskState(TaskState.values()[taskIndex % TaskState.values().length]);
+    taskStatus.setTaskCreatedTimestamp(1500000000000L + taskIndex);
+    taskStatus.setContainerId(String.format("container_e01_1500000000000_0001_01_%06d", taskIndex));
+    taskStatus.setContainerHost("host" + (taskIndex % 100));
+    taskStatus.setContainerIp("10.0.0." + (taskIndex % 100));
+    taskStatus.setContainerExitType(taskIndex % 2 == 0 ? null : ExitType.SUCCEEDED);
+    return taskStatus;
+  }
+
+  public static TaskStatuses newTaskStatuses(int taskNumber) throws Exception {
+    List<TaskStatus> taskStatusArray = new ArrayList<>();
+    for (int taskIndex = 0; taskIndex < taskNumber; taskIndex++) {
+      taskStatusArray.add(newTaskStatus(taskIndex));
+    }
+
+    TaskStatuses taskStatuses = new TaskStatuses();
+    taskStatuses.setTaskRoleName("worker");
+    taskStatuses.setFrameworkVersion(1);
+    taskStatuses.setTaskStatusArray(taskStatusArray);
+    return taskStatuses;
+  }
+
+  // The FrameworkRequest with a single Task, which is enough to be launched
+  public static FrameworkRequest newFrameworkRequest(String frameworkName, int frameworkVersion) {
+    ServiceDescriptor taskService = new ServiceDescriptor();
+    taskService.setResource(ResourceDescriptor.newInstance(1024, 1));
+    TaskRoleDescriptor taskRole = new TaskRoleDescriptor();
+    taskRole.setTaskNumber(1);
+    taskRole.setTaskService(taskService);
+
+    FrameworkDescriptor frameworkDescriptor = new FrameworkDescriptor();
+    frameworkDescriptor.setVersion(frameworkVersion);
+    frameworkDescriptor.setTaskRoles(Collections.singletonMap("worker", taskRole));
+
+    FrameworkRequest frameworkRequest = new FrameworkRequest();
+    frameworkRequest.setFrameworkName(frameworkName);
+    frameworkRequest.setFrameworkDescriptor(frameworkDescriptor);
+    return frameworkRequest;
+  }
 }
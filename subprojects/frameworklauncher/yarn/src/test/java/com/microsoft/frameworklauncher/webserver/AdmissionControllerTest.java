@@ -0,0 +1,179 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import com.microsoft.frameworklauncher.common.exceptions.BadRequestException;
+import com.microsoft.frameworklauncher.common.exceptions.ThrottledRequestException;
+import com.microsoft.frameworklauncher.common.model.AdmissionCounter;
+import com.microsoft.frameworklauncher.common.model.AdmissionLimit;
+import com.microsoft.frameworklauncher.common.model.LaunchClientType;
+import com.microsoft.frameworklauncher.common.model.LauncherConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionControllerTest {
+  @Test
+  public void testTokenBucket() throws Exception {
+    TokenBucket tokenBucket = new TokenBucket(10, 3);
+    long nowNanos = System.nanoTime();
+
+    // The burst is admitted at once, then a token per 100ms
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(0, tokenBucket.tryAcquire(nowNanos));
+    }
+    long waitNanos = tokenBucket.tryAcquire(nowNanos);
+    Assert.assertTrue(waitNanos > 0 && waitNanos <= TimeUnit.MILLISECONDS.toNanos(100));
+    Assert.assertEquals(0, tokenBucket.tryAcquire(nowNanos + waitNanos));
+    Assert.assertTrue(tokenBucket.tryAcquire(nowNanos + waitNanos) > 0);
+
+    // The released token can be acquired again
+    tokenBucket.release();
+    Assert.assertEquals(0, tokenBucket.tryAcquire(nowNanos + waitNanos));
+
+    // The bucket is full again after a while, but never exceeds the burst
+    nowNanos += TimeUnit.SECONDS.toNanos(10);
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(0, tokenBucket.tryAcquire(nowNanos));
+    }
+    Assert.assertTrue(tokenBucket.tryAcquire(nowNanos) > 0);
+  }
+
+  @Test
+  public void testAdmit() throws Exception {
+    LauncherConfiguration conf = new LauncherConfiguration();
+    Map<String, AdmissionLimit> userLimits = new HashMap<>();
+    userLimits.put("alice", newAdmissionLimit(1, 2));
+    userLimits.put(AdmissionController.DEFAULT_ADMISSION_LIMIT_KEY, newAdmissionLimit(1, 1));
+    conf.setWebServerUserAdmissionLimits(userLimits);
+    AdmissionController admissionController = new AdmissionController(conf);
+
+    admissionController.admit("alice", LaunchClientType.UNKNOWN, "q1");
+    admissionController.admit("alice", LaunchClientType.UNKNOWN, null);
+    try {
+      admissionController.admit("alice", LaunchClientType.UNKNOWN, "q1");
+      Assert.fail("Request over the rate limit is admitted");
+    } catch (ThrottledRequestException e) {
+      Assert.assertEquals(Long.valueOf(1), e.getRetryAfterSec());
+    }
+
+    // The users without their own limit have their own token bucket of the default limit,
+    // so they do not throttle each other
+    admissionController.admit("bob", LaunchClientType.UNKNOWN, "q1");
+    try {
+      admissionController.admit("bob", LaunchClientType.UNKNOWN, "q1");
+      Assert.fail("Request over the default rate limit is admitted");
+    } catch (ThrottledRequestException e) {
+      Assert.assertTrue(e.getMessage().contains("User/bob"));
+    }
+    admissionController.admit("carol", LaunchClientType.UNKNOWN, "q1");
+    // LaunchClientType, Queue and null user are not limited
+    admissionController.admit(null, LaunchClientType.UNKNOWN, "q1");
+
+    Map<String, AdmissionCounter> admissionCounters = admissionController.getAdmissionStatus(
+        Collections.singletonMap("User/alice", 5)).getAdmissionCounters();
+    AdmissionCounter aliceCounter = admissionCounters.get("User/alice");
+    Assert.assertEquals(Long.valueOf(2), aliceCounter.getAdmittedRequestCount());
+    Assert.assertEquals(Long.valueOf(1), aliceCounter.getThrottledRequestCount());
+    Assert.assertEquals(Integer.valueOf(5), aliceCounter.getTotalTaskNumber());
+    AdmissionCounter defaultCounter = admissionCounters.get("User/*");
+    Assert.assertEquals(Long.valueOf(2), defaultCounter.getAdmittedRequestCount());
+    Assert.assertEquals(Long.valueOf(1), defaultCounter.getThrottledRequestCount());
+
+    // No counters for the names without their own limit or without any limit
+    Assert.assertEquals(new HashSet<>(Arrays.asList("User/alice", "User/*")), admissionCounters.keySet());
+  }
+
+  @Test
+  public void testAdmitBatch() throws Exception {
+    LauncherConfiguration conf = new LauncherConfiguration();
+    conf.setWebServerQueueAdmissionLimits(Collections.singletonMap("q1", newAdmissionLimit(1, 3)));
+    conf.setWebServerUserAdmissionLimits(Collections.singletonMap("alice", newAdmissionLimit(1, 10)));
+    AdmissionController admissionController = new AdmissionController(conf);
+
+    // A batch over the burst count of a queue can never be admitted
+    try {
+      admissionController.admit(LaunchClientType.UNKNOWN,
+          Arrays.asList("alice", "alice", "alice", "alice"), Arrays.asList("q1", "q1", "q1", "q1"));
+      Assert.fail("Batch over the queue burst count is admitted");
+    } catch (BadRequestException e) {
+      // Expected
+    }
+
+    // A batch is charged for each of its requests, including the ones in other queues
+    admissionController.admit(LaunchClientType.UNKNOWN,
+        Arrays.asList("alice", "alice", "alice"), Arrays.asList("q1", "q1", "q2"));
+
+    // The whole batch is throttled once any queue has not enough tokens,
+    // and the tokens of the other buckets are given back
+    try {
+      admissionController.admit(LaunchClientType.UNKNOWN,
+          Arrays.asList("alice", "alice"), Arrays.asList("q2", "q1", "q1"));
+      Assert.fail("Batch over the queue rate limit is admitted");
+    } catch (ThrottledRequestException e) {
+      Assert.assertEquals(Long.valueOf(1), e.getRetryAfterSec());
+    }
+    for (int i = 0; i < 7; i++) {
+      admissionController.admit("alice", LaunchClientType.UNKNOWN, null);
+    }
+
+    Map<String, AdmissionCounter> admissionCounters = admissionController.getAdmissionStatus(
+        Collections.emptyMap()).getAdmissionCounters();
+    Assert.assertEquals(Long.valueOf(2), admissionCounters.get("Queue/q1").getAdmittedRequestCount());
+    Assert.assertEquals(Long.valueOf(4 + 2), admissionCounters.get("Queue/q1").getThrottledRequestCount());
+    Assert.assertEquals(Long.valueOf(3 + 7), admissionCounters.get("User/alice").getAdmittedRequestCount());
+  }
+
+  @Test
+  public void testAdmitDefaultLimitEviction() throws Exception {
+    LauncherConfiguration conf = new LauncherConfiguration();
+    conf.setWebServerUserAdmissionLimits(Collections.singletonMap(
+        AdmissionController.DEFAULT_ADMISSION_LIMIT_KEY, newAdmissionLimit(1, 1)));
+    conf.setWebServerDefaultAdmissionMaxNameCount(2);
+    AdmissionController admissionController = new AdmissionController(conf);
+
+    // The recently used users are still throttled by their own token buckets
+    admissionController.admit("bob", LaunchClientType.UNKNOWN, null);
+    admissionController.admit("carol", LaunchClientType.UNKNOWN, null);
+    for (String userName : Arrays.asList("bob", "carol")) {
+      try {
+        admissionController.admit(userName, LaunchClientType.UNKNOWN, null);
+        Assert.fail("Request over the default rate limit is admitted");
+      } catch (ThrottledRequestException e) {
+        // Expected
+      }
+    }
+
+    // The least recently used one is evicted beyond the max count, so it starts with full tokens
+    admissionController.admit("dave", LaunchClientType.UNKNOWN, null);
+    admissionController.admit("bob", LaunchClientType.UNKNOWN, null);
+  }
+
+  private static AdmissionLimit newAdmissionLimit(int requestRatePerSec, int requestBurstCount) {
+    AdmissionLimit admissionLimit = new AdmissionLimit();
+    admissionLimit.setRequestRatePerSec(requestRatePerSec);
+    admissionLimit.setRequestBurstCount(requestBurstCount);
+    return admissionLimit;
+  }
+}
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import com.microsoft.frameworklauncher.common.exceptions.BadRequestException;
+import com.microsoft.frameworklauncher.common.model.FrameworkChange;
+import com.microsoft.frameworklauncher.common.model.FrameworkChanges;
+import com.microsoft.frameworklauncher.common.model.FrameworkState;
+import com.microsoft.frameworklauncher.common.model.FrameworkStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FrameworkChangeFeedTest {
+
+  @Test
+  public void testGetChanges() throws Exception {
+    FrameworkChangeFeed feed = new FrameworkChangeFeed(3, 10);
+    String cursor = feed.getChanges(null, Integer.MAX_VALUE, 0).getNextCursor();
+
+    feed.append(Arrays.asList(
+        newChange("a", FrameworkState.APPLICATION_CREATED),
+        newChange("b", FrameworkState.APPLICATION_CREATED)));
+    feed.append(Collections.singletonList(newChange("a", FrameworkState.APPLICATION_RUNNING)));
+
+    // Only the latest change of each Framework is returned
+    FrameworkChanges changes = feed.getChanges(cursor, Integer.MAX_VALUE, 0);
+    Assert.assertFalse(changes.getResyncRequired());
+    Assert.assertEquals(Arrays.asList("b", "a"), names(changes));
+    Assert.assertEquals(FrameworkState.APPLICATION_RUNNING,
+        changes.getFrameworkChanges().get(1).getFrameworkState());
+
+    // Limited changes are continued by the nextCursor
+    FrameworkChanges firstChanges = feed.getChanges(cursor, 1, 0);
+    Assert.assertEquals(Collections.singletonList("a"), names(firstChanges));
+    Assert.assertEquals(Arrays.asList("b", "a"),
+        names(feed.getChanges(firstChanges.getNextCursor(), Integer.MAX_VALUE, 0)));
+
+    // No new changes
+    FrameworkChanges emptyChanges = feed.getChanges(changes.getNextCursor(), Integer.MAX_VALUE, 0);
+    Assert.assertTrue(emptyChanges.getFrameworkChanges().isEmpty());
+    Assert.assertEquals(changes.getNextCursor(), emptyChanges.getNextCursor());
+
+    // The changes after the cursor are discarded
+    feed.append(Arrays.asList(
+        FrameworkChange.newDeletedInstance("b"),
+        newChange("c", FrameworkState.FRAMEWORK_WAITING)));
+    FrameworkChanges resyncChanges = feed.getChanges(cursor, Integer.MAX_VALUE, 0);
+    Assert.assertTrue(resyncChanges.getResyncRequired());
+    Assert.assertTrue(resyncChanges.getFrameworkChanges().isEmpty());
+    Assert.assertTrue(feed.getChanges(firstChanges.getNextCursor(), Integer.MAX_VALUE, 0).getResyncRequired());
+    Assert.assertEquals(Arrays.asList("b", "c"),
+        names(feed.getChanges(changes.getNextCursor(), Integer.MAX_VALUE, 0)));
+
+    // The cursor from another WebServer process
+    Assert.assertTrue(feed.getChanges("0-1", Integer.MAX_VALUE, 0).getResyncRequired());
+    try {
+      feed.getChanges("abc", Integer.MAX_VALUE, 0);
+      Assert.fail("Malformed Cursor is accepted");
+    } catch (BadRequestException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testLongPoll() throws Exception {
+    FrameworkChangeFeed feed = new FrameworkChangeFeed(100, 10);
+    String cursor = feed.getChanges(null, Integer.MAX_VALUE, 0).getNextCursor();
+
+    // Timeout without changes
+    long startTime = System.currentTimeMillis();
+    Assert.assertTrue(feed.getChanges(cursor, Integer.MAX_VALUE, 100).getFrameworkChanges().isEmpty());
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 100);
+
+    // Wake up once changes are appended
+    Thread appender = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException ignored) {
+      }
+      feed.append(Collections.singletonList(newChange("a", FrameworkState.APPLICATION_RUNNING)));
+    });
+    appender.start();
+    startTime = System.currentTimeMillis();
+    Assert.assertEquals(Collections.singletonList("a"),
+        names(feed.getChanges(cursor, Integer.MAX_VALUE, 60000)));
+    Assert.assertTrue(System.currentTimeMillis() - startTime < 60000);
+    appender.join();
+
+    // No waiting if too many waiters
+    FrameworkChangeFeed noWaiterFeed = new FrameworkChangeFeed(100, 0);
+    cursor = noWaiterFeed.getChanges(null, Integer.MAX_VALUE, 0).getNextCursor();
+    startTime = System.currentTimeMillis();
+    Assert.assertTrue(noWaiterFeed.getChanges(cursor, Integer.MAX_VALUE, 60000).getFrameworkChanges().isEmpty());
+    Assert.assertTrue(System.currentTimeMillis() - startTime < 60000);
+  }
+
+  private static FrameworkChange newChange(String frameworkName, FrameworkState frameworkState) {
+    FrameworkStatus frameworkStatus = new FrameworkStatus();
+    frameworkStatus.setFrameworkName(frameworkName);
+    frameworkStatus.setFrameworkVersion(1);
+    frameworkStatus.setFrameworkState(frameworkState);
+    return FrameworkChange.newInstance(frameworkStatus);
+  }
+
+  private static List<String> names(FrameworkChanges changes) {
+    List<String> frameworkNames = new ArrayList<>();
+    for (FrameworkChange change : changes.getFrameworkChanges()) {
+      frameworkNames.add(change.getFrameworkName());
+    }
+    return frameworkNames;
+  }
+}
@@ -0,0 +1,317 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import com.microsoft.frameworklauncher.common.exceptions.ThrottledRequestException;
+import com.microsoft.frameworklauncher.common.model.*;
+import com.microsoft.frameworklauncher.testutils.TestUtils;
+import com.microsoft.frameworklauncher.zookeeperstore.MockZooKeeperClient;
+import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStore;
+import com.microsoft.frameworklauncher.zookeeperstore.ZookeeperStoreStructure;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestManagerTest {
+  @Rule
+  public TemporaryFolder zkBaseDir = new TemporaryFolder();
+
+  @Test
+  public void testFrameworkRequestQuery() throws Exception {
+    RequestManager requestManager = newRequestManager();
+    requestManager.setFrameworkRequest("f1", newFrameworkRequest("f1", LaunchClientType.UNKNOWN, "alice", "q1"));
+    requestManager.setFrameworkRequest("f2", newFrameworkRequest("f2", LaunchClientType.DATA_DEPLOYMENT, "bob", "q1"));
+    requestManager.setFrameworkRequest("f3", newFrameworkRequest("f3", LaunchClientType.UNKNOWN, "bob", "q2"));
+    requestManager.setFrameworkRequest("f4", newFrameworkRequest("f4", LaunchClientType.UNKNOWN, "alice", "q2"));
+
+    Assert.assertEquals(Arrays.asList("f1", "f2", "f3", "f4"),
+        query(requestManager, null, null, null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f1", "f3", "f4"),
+        query(requestManager, LaunchClientType.UNKNOWN, null, null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f3"),
+        query(requestManager, LaunchClientType.UNKNOWN, "bob", null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f2"),
+        query(requestManager, null, "bob", "q1", null, Integer.MAX_VALUE));
+    Assert.assertEquals(Collections.emptyList(),
+        query(requestManager, null, "carol", null, null, Integer.MAX_VALUE));
+
+    // Page through in FrameworkName order
+    Assert.assertEquals(Arrays.asList("f1", "f3"),
+        query(requestManager, LaunchClientType.UNKNOWN, null, null, null, 2));
+    Assert.assertEquals(Arrays.asList("f4"),
+        query(requestManager, LaunchClientType.UNKNOWN, null, null, "f3", 2));
+
+    // Candidate FrameworkNames from outside
+    Assert.assertEquals(Arrays.asList("f4"),
+        names(requestManager.getFrameworkRequests(null, "alice", null,
+            new TreeSet<>(Arrays.asList("f2", "f4", "f5")), null, Integer.MAX_VALUE, null)));
+
+    // Index is updated on change and delete
+    requestManager.setFrameworkRequest("f1", newFrameworkRequest("f1", LaunchClientType.UNKNOWN, "bob", "q2"));
+    requestManager.deleteFrameworkRequest("f3");
+    Assert.assertEquals(Arrays.asList("f1"),
+        query(requestManager, null, "bob", "q2", null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f4"),
+        query(requestManager, null, "alice", null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f1", "f2"),
+        query(requestManager, null, "bob", null, null, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testFrameworkRequestBatch() throws Exception {
+    LauncherConfiguration conf = new LauncherConfiguration();
+    conf.setMaxTotalTaskNumber(3);
+    RequestManager requestManager = newRequestManager(conf);
+
+    // The child is accepted since its ParentFramework is accepted earlier in the same batch
+    FrameworkRequest childFrameworkRequest = newFrameworkRequest("f2", LaunchClientType.UNKNOWN, "alice", "q1");
+    ParentFrameworkDescriptor parentFramework = new ParentFrameworkDescriptor();
+    parentFramework.setParentFrameworkName("f1");
+    parentFramework.setDeleteOnParentDeleted(true);
+    childFrameworkRequest.getFrameworkDescriptor().setParentFramework(parentFramework);
+
+    Map<String, FrameworkRequest> frameworkRequests = new LinkedHashMap<>();
+    frameworkRequests.put("f1", newFrameworkRequest("f1", LaunchClientType.UNKNOWN, "alice", "q1"));
+    frameworkRequests.put("f2", childFrameworkRequest);
+    frameworkRequests.put("f3", newFrameworkRequest("f3", LaunchClientType.UNKNOWN, "bob", "q1"));
+    frameworkRequests.put("f4", newFrameworkRequest("f4", LaunchClientType.UNKNOWN, "bob", "q1"));
+    Map<String, Exception> rejectedFrameworks = requestManager.setFrameworkRequests(frameworkRequests);
+
+    // Only f4 exceeds the Max Total TaskNumber
+    Assert.assertEquals(Collections.singleton("f4"), rejectedFrameworks.keySet());
+    Assert.assertTrue(rejectedFrameworks.get("f4") instanceof ThrottledRequestException);
+    Assert.assertEquals(Arrays.asList("f1", "f2", "f3"),
+        query(requestManager, null, null, null, null, Integer.MAX_VALUE));
+
+    // The accepted FrameworkRequests are persisted
+    Assert.assertEquals(Arrays.asList("f1", "f2", "f3"),
+        query(newRequestManager(conf), null, null, null, null, Integer.MAX_VALUE));
+
+    // The child is also deleted with its ParentFramework
+    requestManager.deleteFrameworkRequests(Arrays.asList("f1", "f5"));
+    Assert.assertEquals(Arrays.asList("f3"),
+        query(requestManager, null, null, null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f3"),
+        query(newRequestManager(conf), null, null, null, null, Integer.MAX_VALUE));
+
+    // The released TaskNumber can be reused
+    Assert.assertTrue(requestManager.setFrameworkRequests(Collections.singletonMap(
+        "f4", newFrameworkRequest("f4", LaunchClientType.UNKNOWN, "bob", "q1"))).isEmpty());
+  }
+
+  @Test
+  public void testFrameworkRequestBatchPartiallySet() throws Exception {
+    // Only the writes of the first FrameworkRequest are committed before the failure,
+    // as if the other transactions are failed
+    RequestManager requestManager = newRequestManager(new LauncherConfiguration(), new MockZooKeeperClient() {
+      @Override
+      public void setSmallObjects(List<SmallObjectWrite> writes) throws Exception {
+        super.setSmallObjects(writes.subList(0, 2));
+        throw new IOException("Injected failure");
+      }
+    });
+    Map<String, FrameworkRequest> frameworkRequests = new LinkedHashMap<>();
+    frameworkRequests.put("f1", newFrameworkRequest("f1", LaunchClientType.UNKNOWN, "alice", "q1"));
+    frameworkRequests.put("f2", newFrameworkRequest("f2", LaunchClientType.UNKNOWN, "alice", "q1"));
+
+    // The memory is resynced with ZK, and only the Framework not Set on ZK is failed
+    Map<String, Exception> rejectedFrameworks = requestManager.setFrameworkRequests(frameworkRequests);
+    Assert.assertEquals(Collections.singleton("f2"), rejectedFrameworks.keySet());
+    Assert.assertTrue(rejectedFrameworks.get("f2") instanceof IOException);
+    Assert.assertEquals(Arrays.asList("f1"),
+        query(requestManager, null, null, null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f1"),
+        query(newRequestManager(), null, null, null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Integer.valueOf(1), requestManager.getAdmissionTaskNumbers().get("Queue/q1"));
+  }
+
+  @Test
+  public void testFrameworkRequestBatchPartiallyDeleted() throws Exception {
+    // Only the first path is deleted before the failure, as if the other transactions are failed
+    RequestManager requestManager = newRequestManager(new LauncherConfiguration(), new MockZooKeeperClient() {
+      @Override
+      public void deleteRecursively(Collection<String> paths) throws Exception {
+        deleteRecursively(paths.iterator().next(), false);
+        throw new IOException("Injected failure");
+      }
+    });
+    Map<String, FrameworkRequest> frameworkRequests = new LinkedHashMap<>();
+    frameworkRequests.put("f1", newFrameworkRequest("f1", LaunchClientType.UNKNOWN, "alice", "q1"));
+    frameworkRequests.put("f2", newFrameworkRequest("f2", LaunchClientType.UNKNOWN, "alice", "q1"));
+    Assert.assertTrue(requestManager.setFrameworkRequests(frameworkRequests).isEmpty());
+
+    // The memory is resynced with ZK, and only the Framework still on ZK is failed
+    Map<String, Exception> failedFrameworks = requestManager.deleteFrameworkRequests(Arrays.asList("f1", "f2"));
+    Assert.assertEquals(Collections.singleton("f2"), failedFrameworks.keySet());
+    Assert.assertEquals(Arrays.asList("f2"),
+        query(requestManager, null, null, null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f2"),
+        query(requestManager, null, "alice", "q1", null, Integer.MAX_VALUE));
+    Assert.assertEquals(Arrays.asList("f2"),
+        query(newRequestManager(), null, null, null, null, Integer.MAX_VALUE));
+    Assert.assertEquals(Integer.valueOf(1), requestManager.getAdmissionTaskNumbers().get("Queue/q1"));
+    Assert.assertEquals(Integer.valueOf(1), requestManager.getAdmissionTaskNumbers().get("User/alice"));
+  }
+
+  @Test
+  public void testConcurrentFrameworkRequests() throws Exception {
+    LauncherConfiguration conf = new LauncherConfiguration();
+    conf.setMaxTotalTaskNumber(50);
+    conf.setWebServerRequestLockStripeCount(4);
+    RequestManager requestManager = newRequestManager(conf);
+
+    // The Total TaskNumber reserved concurrently never exceeds the Max Total TaskNumber
+    int threadNumber = 8;
+    int frameworkNumberPerThread = 10;
+    AtomicInteger throttledCount = new AtomicInteger(0);
+    List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadNumber; i++) {
+      int threadIndex = i;
+      threads.add(new Thread(() -> {
+        for (int j = 0; j < frameworkNumberPerThread; j++) {
+          String frameworkName = String.format("f%s_%s", threadIndex, j);
+          try {
+            requestManager.setFrameworkRequest(frameworkName,
+                newFrameworkRequest(frameworkName, LaunchClientType.UNKNOWN, "alice", "q1"));
+          } catch (ThrottledRequestException e) {
+            throttledCount.incrementAndGet();
+          } catch (Throwable e) {
+            errors.add(e);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(Collections.emptyList(), errors);
+    Assert.assertEquals(threadNumber * frameworkNumberPerThread - 50, throttledCount.get());
+    List<String> frameworkNames = query(requestManager, null, null, null, null, Integer.MAX_VALUE);
+    Assert.assertEquals(50, frameworkNames.size());
+    Assert.assertEquals(frameworkNames, query(newRequestManager(conf), null, null, null, null, Integer.MAX_VALUE));
+
+    // The child is stopped with its ParentFramework, even if it is in another lock stripe
+    requestManager.deleteFrameworkRequests(frameworkNames.subList(0, 2));
+    FrameworkRequest childFrameworkRequest = newFrameworkRequest("child", LaunchClientType.UNKNOWN, "alice", "q1");
+    ParentFrameworkDescriptor parentFramework = new ParentFrameworkDescriptor();
+    parentFramework.setParentFrameworkName(frameworkNames.get(2));
+    parentFramework.setStopOnParentStopped(true);
+    childFrameworkRequest.getFrameworkDescriptor().setParentFramework(parentFramework);
+    requestManager.setFrameworkRequest("child", childFrameworkRequest);
+
+    UpdateExecutionTypeRequest updateExecutionTypeRequest = new UpdateExecutionTypeRequest();
+    updateExecutionTypeRequest.setExecutionType(ExecutionType.STOP);
+    requestManager.updateExecutionType(frameworkNames.get(2), updateExecutionTypeRequest);
+    Assert.assertEquals(ExecutionType.STOP,
+        requestManager.getFrameworkRequest("child").getFrameworkDescriptor().getExecutionType());
+  }
+
+  @Test
+  public void testAdmissionTaskNumberLimit() throws Exception {
+    AdmissionLimit queueLimit = new AdmissionLimit();
+    queueLimit.setMaxTotalTaskNumber(2);
+    LauncherConfiguration conf = new LauncherConfiguration();
+    conf.setWebServerQueueAdmissionLimits(Collections.singletonMap("q1", queueLimit));
+    RequestManager requestManager = newRequestManager(conf);
+
+    requestManager.setFrameworkRequest("f1", newFrameworkRequest("f1", LaunchClientType.UNKNOWN, "alice", "q1"));
+    requestManager.setFrameworkRequest("f2", newFrameworkRequest("f2", LaunchClientType.UNKNOWN, "bob", "q1"));
+    try {
+      requestManager.setFrameworkRequest("f3", newFrameworkRequest("f3", LaunchClientType.UNKNOWN, "alice", "q1"));
+      Assert.fail("FrameworkRequest over the Queue TaskNumber limit is accepted");
+    } catch (ThrottledRequestException e) {
+      // Expected
+    }
+    // Other queues are not limited, and the rejected one is not counted
+    requestManager.setFrameworkRequest("f3", newFrameworkRequest("f3", LaunchClientType.UNKNOWN, "alice", "q2"));
+    Assert.assertEquals(Integer.valueOf(2), requestManager.getAdmissionTaskNumbers().get("Queue/q1"));
+    Assert.assertEquals(Integer.valueOf(2), requestManager.getAdmissionTaskNumbers().get("User/alice"));
+
+    // Moving a Framework to another queue releases its TaskNumber
+    requestManager.setFrameworkRequest("f2", newFrameworkRequest("f2", LaunchClientType.UNKNOWN, "bob", "q2"));
+    requestManager.deleteFrameworkRequest("f1");
+    Assert.assertEquals(Integer.valueOf(0), requestManager.getAdmissionTaskNumbers().get("Queue/q1"));
+    Assert.assertEquals(Integer.valueOf(2), requestManager.getAdmissionTaskNumbers().get("Queue/q2"));
+
+    // The TaskNumbers are recovered from the persisted FrameworkRequests
+    Map<String, Integer> recoveredTaskNumbers = newRequestManager(conf).getAdmissionTaskNumbers();
+    Assert.assertNull(recoveredTaskNumbers.get("Queue/q1"));
+    Assert.assertEquals(Integer.valueOf(2), recoveredTaskNumbers.get("Queue/q2"));
+    Assert.assertEquals(Integer.valueOf(1), recoveredTaskNumbers.get("User/alice"));
+  }
+
+  private RequestManager newRequestManager() throws Exception {
+    return newRequestManager(new LauncherConfiguration());
+  }
+
+  private RequestManager newRequestManager(LauncherConfiguration conf) throws Exception {
+    return newRequestManager(conf, new MockZooKeeperClient());
+  }
+
+  private RequestManager newRequestManager(
+      LauncherConfiguration conf, MockZooKeeperClient zkClient) throws Exception {
+    ZookeeperStore zkStore = new ZookeeperStore(
+        zkClient,
+        new ZookeeperStoreStructure(zkBaseDir.getRoot().getAbsolutePath())) {
+    };
+    RequestManager requestManager = new RequestManager(null, conf, zkStore);
+    requestManager.recover();
+    return requestManager;
+  }
+
+  private static FrameworkRequest newFrameworkRequest(
+      String frameworkName, LaunchClientType clientType, String userName, String queue) {
+    FrameworkRequest frameworkRequest = TestUtils.newFrameworkRequest(frameworkName, 1);
+    frameworkRequest.setLaunchClientType(clientType);
+    frameworkRequest.getFrameworkDescriptor().setUser(UserDescriptor.newInstance(userName));
+    frameworkRequest.getFrameworkDescriptor().getPlatformSpecificParameters().setQueue(queue);
+    return frameworkRequest;
+  }
+
+  private static List<String> query(
+      RequestManager requestManager, LaunchClientType clientType, String userName, String queue,
+      String cursorFrameworkName, int limit) throws Exception {
+    return names(requestManager.getFrameworkRequests(
+        clientType, userName, queue, null, cursorFrameworkName, limit, null));
+  }
+
+  private static List<String> names(List<FrameworkRequest> frameworkRequests) {
+    List<String> frameworkNames = new ArrayList<>();
+    for (FrameworkRequest frameworkRequest : frameworkRequests) {
+      frameworkNames.add(frameworkRequest.getFrameworkName());
+    }
+    return frameworkNames;
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.webserver;
+
+import com.microsoft.frameworklauncher.common.exceptions.NotFoundException;
+import com.microsoft.frameworklauncher.common.utils.CompressionUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResponseCacheTest {
+
+  @Test
+  public void testVersionedCache() throws Exception {
+    ResponseCache cache = new ResponseCache(1024 * 1024);
+    AtomicInteger serializeCount = new AtomicInteger(0);
+
+    byte[] json = newJson(4096);
+    ResponseCache.CachedResponse response = cache.get("/v1/Frameworks/a", "\"1\"", 1024, () -> {
+      serializeCount.incrementAndGet();
+      return json;
+    });
+    Assert.assertArrayEquals(json, response.getJson());
+    Assert.assertArrayEquals(json, CompressionUtils.decompress(response.getCompressedJson()));
+
+    // Same ETag is served from cache
+    Assert.assertSame(response, cache.get("/v1/Frameworks/a", "\"1\"", 1024, () -> {
+      serializeCount.incrementAndGet();
+      return json;
+    }));
+    Assert.assertEquals(1, serializeCount.get());
+
+    // Changed ETag replaces the cached Response
+    ResponseCache.CachedResponse newResponse = cache.get("/v1/Frameworks/a", "\"2\"", 1024, () -> {
+      serializeCount.incrementAndGet();
+      return newJson(10);
+    });
+    Assert.assertEquals(2, serializeCount.get());
+    Assert.assertNull(newResponse.getCompressedJson());
+    Assert.assertEquals(10, cache.getTotalBytes());
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    ResponseCache cache = new ResponseCache(100);
+    cache.get("/a", "\"1\"", Integer.MAX_VALUE, () -> newJson(40));
+    cache.get("/b", "\"1\"", Integer.MAX_VALUE, () -> newJson(40));
+    // Touch /a, so that /b is the least recently used
+    cache.get("/a", "\"1\"", Integer.MAX_VALUE, () -> newJson(40));
+    cache.get("/c", "\"1\"", Integer.MAX_VALUE, () -> newJson(40));
+    Assert.assertEquals(80, cache.getTotalBytes());
+
+    AtomicInteger serializeCount = new AtomicInteger(0);
+    for (String uri : Arrays.asList("/a", "/c", "/b")) {
+      cache.get(uri, "\"1\"", Integer.MAX_VALUE, () -> {
+        serializeCount.incrementAndGet();
+        return newJson(40);
+      });
+    }
+    Assert.assertEquals(1, serializeCount.get());
+
+    // Too large Response is not cached
+    cache.get("/d", "\"1\"", Integer.MAX_VALUE, () -> newJson(200));
+    Assert.assertEquals(80, cache.getTotalBytes());
+  }
+
+  @Test
+  public void testSerializerException() throws Exception {
+    ResponseCache cache = new ResponseCache(1024);
+    try {
+      cache.get("/a", "\"1\"", 1024, () -> {
+        throw new NotFoundException("Not found");
+      });
+      Assert.fail("Serializer Exception is not thrown");
+    } catch (NotFoundException e) {
+      // Expected
+    }
+    Assert.assertEquals(0, cache.getTotalBytes());
+  }
+
+  private static byte[] newJson(int length) {
+    byte[] json = new byte[length];
+    Arrays.fill(json, (byte) 'a');
+    return json;
+  }
+}
@@ -0,0 +1,143 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The shared ZK fixture and the Framework level assertions of the watchers which report
+// the changed FrameworkNames, the derived class decides how a Framework is written.
+public abstract class AbstractZookeeperWatcherTest<T extends AbstractZookeeperWatcher.Changes> {
+  protected static final long TAKE_TIMEOUT_MS = 10000;
+  protected static final int FRAMEWORK_COUNT = 20;
+
+  protected TestingServer zkServer;
+  protected ZooKeeperClient zkClient;
+  protected ZookeeperStoreStructure zkStruct;
+  // The watches set on ZK, so that the derived class can check only the changed nodes are watched
+  protected final AtomicInteger getChildrenCount = new AtomicInteger();
+  protected final AtomicInteger existsCount = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+    zkServer = new TestingServer();
+    zkClient = new ZooKeeperClient(zkServer.getConnectString()) {
+      @Override
+      public List<String> getChildren(String path) throws Exception {
+        getChildrenCount.incrementAndGet();
+        return super.getChildren(path);
+      }
+
+      @Override
+      public List<String> getChildren(String path, CuratorWatcher watcher) throws Exception {
+        getChildrenCount.incrementAndGet();
+        return super.getChildren(path, watcher);
+      }
+
+      @Override
+      public Boolean exists(String path, CuratorWatcher watcher) throws Exception {
+        existsCount.incrementAndGet();
+        return super.exists(path, watcher);
+      }
+    };
+    zkStruct = new ZookeeperStoreStructure("/Launcher");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    zkClient.stop();
+    zkServer.close();
+  }
+
+  protected abstract AbstractZookeeperWatcher<T> newWatcher();
+
+  // Create the root node which the watched Frameworks are under
+  protected abstract void createRoot() throws Exception;
+
+  protected abstract void createFramework(String frameworkName) throws Exception;
+
+  // Change the existing Framework
+  protected abstract void updateFramework(String frameworkName) throws Exception;
+
+  protected abstract String getFrameworkPath(String frameworkName);
+
+  protected abstract Set<String> getChangedFrameworkNames(T changes);
+
+  // Create FRAMEWORK_COUNT Frameworks, then start the watcher, whose initial changes require resync
+  protected AbstractZookeeperWatcher<T> startWatcher() throws Exception {
+    zkClient.createPath(zkStruct.getLauncherRootPath());
+    createRoot();
+    for (int i = 0; i < FRAMEWORK_COUNT; i++) {
+      createFramework("Framework" + i);
+    }
+
+    AbstractZookeeperWatcher<T> watcher = newWatcher();
+    watcher.start();
+    return watcher;
+  }
+
+  // Resync lists all the Frameworks again
+  protected T takeResyncChanges(AbstractZookeeperWatcher<T> watcher) throws Exception {
+    T changes = watcher.takeChanges(TAKE_TIMEOUT_MS);
+    Assert.assertTrue(changes.isResyncRequired());
+    Assert.assertEquals(FRAMEWORK_COUNT, getChangedFrameworkNames(changes).size());
+    return changes;
+  }
+
+  protected void assertDeletedFrameworksWatched(AbstractZookeeperWatcher<T> watcher) throws Exception {
+    // Deleted Framework
+    zkClient.deleteRecursively(getFrameworkPath("Framework5"));
+    Assert.assertTrue(takeChangedFrameworkNames(watcher, "Framework5").contains("Framework5"));
+    drainChanges(watcher);
+
+    // Framework recreated before it is listed again is still watched
+    zkClient.deleteRecursively(getFrameworkPath("Framework7"));
+    createFramework("Framework7");
+    Assert.assertTrue(takeChangedFrameworkNames(watcher, "Framework7").contains("Framework7"));
+    drainChanges(watcher);
+    updateFramework("Framework7");
+    Assert.assertTrue(takeChangedFrameworkNames(watcher, "Framework7").contains("Framework7"));
+  }
+
+  // Take the changes until the expected Framework is changed or timeout
+  protected Set<String> takeChangedFrameworkNames(
+      AbstractZookeeperWatcher<T> watcher, String expectedFrameworkName) throws Exception {
+    Set<String> changedFrameworkNames = new HashSet<>();
+    long deadline = System.currentTimeMillis() + TAKE_TIMEOUT_MS;
+    while (!changedFrameworkNames.contains(expectedFrameworkName) && System.currentTimeMillis() < deadline) {
+      T changes = watcher.takeChanges(deadline - System.currentTimeMillis());
+      if (changes != null) {
+        changedFrameworkNames.addAll(getChangedFrameworkNames(changes));
+      }
+    }
+    return changedFrameworkNames;
+  }
+
+  protected static void drainChanges(AbstractZookeeperWatcher<?> watcher) throws Exception {
+    while (watcher.takeChanges(500) != null) {
+    }
+  }
+}
@@ -27,11 +27,19 @@
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MockZooKeeperClient extends ZooKeeperClient {
   private static final DefaultLogger LOGGER = new DefaultLogger(MockZooKeeperClient.class);
 
+  // Files have no version, so each Get is considered as a new version
+  private final AtomicLong nextVersion = new AtomicLong(0);
+
   @Override
   public <T> void setSmallObject(String path, T obj)
       throws IOException {
@@ -49,9 +57,12 @@ public <T> T getSmallObject(String path, Class<T> classRef) throws Exception {
     }
   }
 
+  // Deltas are stored as files under the DeltasRootPath in append order,
+  // and they are all compacted by the next setLargeObject.
   @Override
   public <T> void setLargeObject(String path, T obj) throws Exception {
     setSmallObject(path, obj);
+    deleteRecursively(getDeltasRootPath(path), false);
   }
 
   @Override
@@ -59,6 +70,102 @@ public <T> T getLargeObject(String path, Class<T> classRef) throws Exception {
     return getSmallObject(path, classRef);
   }
 
+  @Override
+  public <T, D> T getLargeObject(
+      String path, Class<T> classRef, Class<D> deltaClassRef, DeltaApplier<T, D> deltaApplier) throws Exception {
+    T obj = getSmallObject(path, classRef);
+    if (deltaClassRef != null) {
+      for (String deltaPath : getDeltaPaths(path)) {
+        deltaApplier.apply(obj, getSmallObject(deltaPath, deltaClassRef));
+      }
+    }
+    return obj;
+  }
+
+  // Same as ZooKeeperClient, the Delta cannot be appended if no LargeObject has been Set before
+  @Override
+  public <D> Boolean appendLargeObjectDelta(String path, D delta) throws Exception {
+    if (!exists(path)) {
+      return false;
+    }
+
+    String deltaName = String.format("%010d", getDeltaPaths(path).size());
+    setSmallObject(ZookeeperStoreStructure.getNodePath(getDeltasRootPath(path), deltaName), delta);
+    return true;
+  }
+
+  // The DeltaPaths in append order
+  public List<String> getDeltaPaths(String path) throws Exception {
+    String deltasRootPath = getDeltasRootPath(path);
+    List<String> deltaPaths = new ArrayList<>();
+    for (String deltaFileName : getChildren(deltasRootPath)) {
+      deltaPaths.add(ZookeeperStoreStructure.getNodePath(
+          deltasRootPath, deltaFileName.substring(0, deltaFileName.length() - ".yml".length())));
+    }
+    Collections.sort(deltaPaths);
+    return deltaPaths;
+  }
+
+  @Override
+  public <T> CompletableFuture<T> getSmallObjectAsync(String path, Class<T> classRef) {
+    return getAsync(() -> getSmallObject(path, classRef));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> getLargeObjectAsync(String path, Class<T> classRef) {
+    return getAsync(() -> getLargeObject(path, classRef));
+  }
+
+  @Override
+  public <T, D> CompletableFuture<T> getLargeObjectAsync(
+      String path, Class<T> classRef, Class<D> deltaClassRef, DeltaApplier<T, D> deltaApplier) {
+    return getAsync(() -> getLargeObject(path, classRef, deltaClassRef, deltaApplier));
+  }
+
+  @Override
+  public <T> CompletableFuture<VersionedObject<T>> getVersionedSmallObjectAsync(String path, Class<T> classRef) {
+    return getAsync(() -> new VersionedObject<>(getSmallObject(path, classRef), nextVersion.incrementAndGet()));
+  }
+
+  @Override
+  public <T> CompletableFuture<VersionedObject<T>> getSmallObjectIfChangedAsync(
+      String path, Class<T> classRef, Long lastVersion) {
+    return getVersionedSmallObjectAsync(path, classRef);
+  }
+
+  @Override
+  public CompletableFuture<List<String>> getChildrenAsync(String path) {
+    return getAsync(() -> getChildren(path));
+  }
+
+  private static <T> CompletableFuture<T> getAsync(Callable<T> getter) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      future.complete(getter.call());
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  @Override
+  public void setSmallObjects(List<SmallObjectWrite> writes) throws Exception {
+    for (SmallObjectWrite write : writes) {
+      if (write.getObject() == null) {
+        createPath(write.getPath());
+      } else {
+        setSmallObject(write.getPath(), write.getObject());
+      }
+    }
+  }
+
+  @Override
+  public void deleteRecursively(Collection<String> paths) throws Exception {
+    for (String path : paths) {
+      deleteRecursively(path, false);
+    }
+  }
+
   @Override
   public void deleteRecursively(String path, Boolean childrenOnly) throws Exception {
     File file = new File(path);
@@ -71,6 +178,7 @@ public void deleteRecursively(String path, Boolean childrenOnly) throws Exceptio
 
     if (!childrenOnly) {
       file.delete();
+      new File(path + ".yml").delete();
     }
   }
 
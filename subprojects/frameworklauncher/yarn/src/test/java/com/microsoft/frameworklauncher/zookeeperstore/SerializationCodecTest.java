@@ -0,0 +1,162 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import com.microsoft.frameworklauncher.common.model.*;
+import com.microsoft.frameworklauncher.common.utils.CommonUtils;
+import com.microsoft.frameworklauncher.common.utils.CompressionUtils;
+import com.microsoft.frameworklauncher.common.utils.YamlUtils;
+import com.microsoft.frameworklauncher.common.web.WebCommon;
+import com.microsoft.frameworklauncher.testutils.TestUtils;
+import com.microsoft.frameworklauncher.testutils.YamlTestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.microsoft.frameworklauncher.testutils.YamlTestUtils.INPUTS_DIR;
+
+public class SerializationCodecTest {
+
+  @Test
+  public void testBinaryRoundTrip() throws Exception {
+    testRoundTrip(YamlTestUtils.newInstance(TaskStatuses.class), TaskStatuses.class);
+    testRoundTrip(TestUtils.newTaskStatuses(100), TaskStatuses.class);
+    testRoundTrip(YamlTestUtils.newInstance(FrameworkStatus.class), FrameworkStatus.class);
+    testRoundTrip(YamlTestUtils.newInstance(TaskRoleStatus.class), TaskRoleStatus.class);
+    testRoundTrip(YamlTestUtils.newInstance(FrameworkRequest.class), FrameworkRequest.class);
+    testRoundTrip(YamlTestUtils.newInstance(TaskStatusesDelta.class), TaskStatusesDelta.class);
+    testRoundTrip(new TaskStatuses(), TaskStatuses.class);
+    testRoundTrip(new TaskStatusesDelta(), TaskStatusesDelta.class);
+    testRoundTrip(new FrameworkRequest(), FrameworkRequest.class);
+
+    for (String configFileName : Arrays.asList("FrameworkDescriptionMini", "FrameworkDescriptionFull")) {
+      String descriptionContent = CommonUtils.readFile(INPUTS_DIR + configFileName + ".json");
+      FrameworkRequest frameworkRequest = YamlTestUtils.newInstance(FrameworkRequest.class);
+      frameworkRequest.setFrameworkDescriptor(
+          WebCommon.toObject(descriptionContent, FrameworkDescriptor.class));
+      testRoundTrip(frameworkRequest, FrameworkRequest.class);
+    }
+  }
+
+  @Test
+  public void testCodecDetection() throws Exception {
+    TaskStatuses taskStatuses = TestUtils.newTaskStatuses(10);
+
+    // Legacy YAML payload
+    byte[] yamlBytes = YamlUtils.toBytes(taskStatuses);
+    Assert.assertFalse(SerializationCodecs.BINARY.canDeserialize(yamlBytes));
+    Assert.assertTrue(YamlUtils.deepEquals(taskStatuses,
+        SerializationCodecs.deserialize(yamlBytes, TaskStatuses.class)));
+
+    // Binary payload, also after compression
+    byte[] binaryBytes = SerializationCodecs.serialize(SerializationCodecs.BINARY, taskStatuses);
+    Assert.assertTrue(SerializationCodecs.BINARY.canDeserialize(binaryBytes));
+    Assert.assertFalse(CompressionUtils.isCompressed(binaryBytes));
+    Assert.assertTrue(YamlUtils.deepEquals(taskStatuses, SerializationCodecs.deserialize(
+        CompressionUtils.decompress(CompressionUtils.compress(binaryBytes)), TaskStatuses.class)));
+
+    // Unsupported class falls back to YAML
+    LauncherStatus launcherStatus = YamlTestUtils.newInstance(LauncherStatus.class);
+    byte[] fallbackBytes = SerializationCodecs.serialize(SerializationCodecs.BINARY, launcherStatus);
+    Assert.assertFalse(SerializationCodecs.BINARY.canDeserialize(fallbackBytes));
+    Assert.assertTrue(YamlUtils.deepEquals(launcherStatus,
+        SerializationCodecs.deserialize(fallbackBytes, LauncherStatus.class)));
+
+    Assert.assertSame(SerializationCodecs.BINARY, SerializationCodecs.getCodec("binary"));
+    Assert.assertSame(SerializationCodecs.YAML, SerializationCodecs.getCodec("YAML"));
+    try {
+      SerializationCodecs.getCodec("JSON");
+      Assert.fail("Unknown SerializationCodec is accepted");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testStreamDeserialization() throws Exception {
+    TaskStatuses taskStatuses = TestUtils.newTaskStatuses(1000);
+    for (SerializationCodec codec : Arrays.asList(SerializationCodecs.YAML, SerializationCodecs.BINARY)) {
+      byte[] bytes = codec.serialize(taskStatuses);
+      for (byte[] payload : Arrays.asList(bytes, CompressionUtils.compress(bytes))) {
+        // Split into parts like the PayloadParts of a LargeObject, including the
+        // parts which split the codec header and the compression header.
+        for (int partBytes : Arrays.asList(1, 3, 1000, payload.length)) {
+          List<InputStream> partStreams = new ArrayList<>();
+          for (int offset = 0; offset < payload.length; offset += partBytes) {
+            partStreams.add(new ByteArrayInputStream(
+                CommonUtils.subArray(payload, offset, Math.min(partBytes, payload.length - offset))));
+          }
+
+          InputStream in = CompressionUtils.decompress(
+              new SequenceInputStream(Collections.enumeration(partStreams)));
+          Assert.assertTrue(
+              String.format("%s: Stream result with %s bytes per part and expect do not match!",
+                  codec.getName(), partBytes),
+              YamlUtils.deepEquals(taskStatuses, SerializationCodecs.deserialize(in, TaskStatuses.class)));
+        }
+      }
+    }
+
+    // Truncated binary payload
+    byte[] binaryBytes = SerializationCodecs.BINARY.serialize(taskStatuses);
+    try {
+      SerializationCodecs.deserialize(new ByteArrayInputStream(
+          CommonUtils.subArray(binaryBytes, 0, binaryBytes.length / 2)), TaskStatuses.class);
+      Assert.fail("Truncated binary payload is accepted");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testCodecComparison() throws Exception {
+    for (int taskNumber : Arrays.asList(1000, 10000, 100000)) {
+      TaskStatuses taskStatuses = TestUtils.newTaskStatuses(taskNumber);
+      byte[] binaryBytes = SerializationCodecs.BINARY.serialize(taskStatuses);
+      TaskStatuses binaryResult = SerializationCodecs.BINARY.deserialize(binaryBytes, TaskStatuses.class);
+      Assert.assertEquals(taskNumber, binaryResult.getTaskStatusArray().size());
+      Assert.assertArrayEquals(binaryBytes, SerializationCodecs.BINARY.serialize(binaryResult));
+      Assert.assertTrue(CompressionUtils.compress(binaryBytes).length < binaryBytes.length);
+
+      // YAML takes minutes for 100K tasks, so it is only compared at the smaller scales
+      if (taskNumber > 10000) {
+        continue;
+      }
+      byte[] yamlBytes = SerializationCodecs.YAML.serialize(taskStatuses);
+      TaskStatuses yamlResult = SerializationCodecs.YAML.deserialize(yamlBytes, TaskStatuses.class);
+      Assert.assertArrayEquals(binaryBytes, SerializationCodecs.BINARY.serialize(yamlResult));
+      Assert.assertTrue(String.format("TaskNumber: [%s]: BINARY bytes [%s] are not less than YAML bytes [%s]",
+          taskNumber, binaryBytes.length, yamlBytes.length), binaryBytes.length < yamlBytes.length);
+    }
+  }
+
+  private static <T> void testRoundTrip(T object, Class<T> classRef) throws Exception {
+    T result = SerializationCodecs.BINARY.deserialize(
+        SerializationCodecs.BINARY.serialize(object), classRef);
+    Assert.assertTrue(
+        String.format("%s: Binary result and expect do not match!", classRef.getSimpleName()),
+        YamlUtils.deepEquals(object, result));
+  }
+}
@@ -0,0 +1,368 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import com.microsoft.frameworklauncher.common.exceptions.TransientException;
+import com.microsoft.frameworklauncher.common.model.TaskStatuses;
+import com.microsoft.frameworklauncher.common.utils.CompressionOptions;
+import com.microsoft.frameworklauncher.common.utils.CompressionUtils;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
+import com.microsoft.frameworklauncher.testutils.TestUtils;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+public class ZooKeeperClientTest {
+  private static final String LARGE_OBJECT_PATH = "/LargeObject";
+  // Large enough to be split into multiple PayloadParts without compression
+  private static final int LARGE_OBJECT_TASK_COUNT = 10000;
+  private static final CompressionOptions NO_COMPRESSION = new CompressionOptions(
+      Deflater.NO_COMPRESSION, Deflater.DEFAULT_STRATEGY, false);
+
+  @Test
+  public void testGetLargeObjectInParallel() throws Exception {
+    try (TestingServer zkServer = new TestingServer()) {
+      ZooKeeperClient zkClient = new ZooKeeperClient(zkServer.getConnectString());
+      zkClient.setCompressionOptions(NO_COMPRESSION);
+
+      TaskStatuses expectedTaskStatuses = TestUtils.newTaskStatuses(LARGE_OBJECT_TASK_COUNT);
+      zkClient.setLargeObject(LARGE_OBJECT_PATH, expectedTaskStatuses);
+
+      TaskStatuses sequentialTaskStatuses = getLargeObjectSequentially(zkServer.getConnectString(), LARGE_OBJECT_PATH);
+      TaskStatuses parallelTaskStatuses = zkClient.getLargeObject(LARGE_OBJECT_PATH, TaskStatuses.class);
+      Assert.assertTrue(ModelUtils.deepEquals(expectedTaskStatuses, sequentialTaskStatuses));
+      Assert.assertTrue(ModelUtils.deepEquals(sequentialTaskStatuses, parallelTaskStatuses));
+      zkClient.stop();
+    }
+  }
+
+  @Test
+  public void testGetLargeObjectWithConcurrentSet() throws Exception {
+    try (TestingServer zkServer = new TestingServer()) {
+      TaskStatuses changedTaskStatuses = newChangedTaskStatuses(LARGE_OBJECT_TASK_COUNT);
+      ConcurrentSetZooKeeperClient zkClient = new ConcurrentSetZooKeeperClient(
+          zkServer.getConnectString(), changedTaskStatuses, 1);
+      zkClient.setCompressionOptions(NO_COMPRESSION);
+      zkClient.setLargeObject(LARGE_OBJECT_PATH, TestUtils.newTaskStatuses(LARGE_OBJECT_TASK_COUNT));
+
+      // The LargeObject is Set once during the Get, so the Get retries and gets the new version
+      TaskStatuses parallelTaskStatuses = zkClient.getLargeObject(LARGE_OBJECT_PATH, TaskStatuses.class);
+      Assert.assertEquals(1, zkClient.setCount.get());
+      Assert.assertTrue(ModelUtils.deepEquals(changedTaskStatuses, parallelTaskStatuses));
+      Assert.assertTrue(ModelUtils.deepEquals(
+          getLargeObjectSequentially(zkServer.getConnectString(), LARGE_OBJECT_PATH), parallelTaskStatuses));
+      zkClient.stop();
+    }
+  }
+
+  @Test
+  public void testGetLargeObjectWithTooFrequentSet() throws Exception {
+    try (TestingServer zkServer = new TestingServer()) {
+      ConcurrentSetZooKeeperClient zkClient = new ConcurrentSetZooKeeperClient(
+          zkServer.getConnectString(), newChangedTaskStatuses(1), Integer.MAX_VALUE);
+      zkClient.setLargeObject(LARGE_OBJECT_PATH, TestUtils.newTaskStatuses(1));
+
+      // The LargeObject is Set during every Get, so the Get gives up instead of retrying forever
+      try {
+        zkClient.getLargeObject(LARGE_OBJECT_PATH, TaskStatuses.class);
+        Assert.fail("getLargeObject retries forever while the LargeObject is Set during every Get");
+      } catch (TransientException e) {
+        // Expected
+      }
+      Assert.assertTrue(zkClient.setCount.get() > 1);
+      zkClient.stop();
+    }
+  }
+
+  @Test
+  public void testPackPayloadParts() throws Exception {
+    byte[] payload = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+    // PayloadParts are packed into a transaction until it exceeds the max transaction bytes
+    List<List<ZooKeeperClient.PayloadPart>> transactions =
+        ZooKeeperClient.packPayloadParts("/Payload", payload, 3, 7);
+    Assert.assertEquals(Arrays.asList(Arrays.asList("/Payload/0", "/Payload/1"), Arrays.asList("/Payload/2", "/Payload/3")),
+        getPayloadPartPaths(transactions));
+    Assert.assertArrayEquals(payload, concatPayloadParts(transactions));
+
+    // A PayloadPart larger than the max transaction bytes is still Set in its own transaction
+    transactions = ZooKeeperClient.packPayloadParts("/Payload", payload, 5, 3);
+    Assert.assertEquals(Arrays.asList(Collections.singletonList("/Payload/0"), Collections.singletonList("/Payload/1")),
+        getPayloadPartPaths(transactions));
+    Assert.assertArrayEquals(payload, concatPayloadParts(transactions));
+
+    // The whole Payload fits in one transaction
+    transactions = ZooKeeperClient.packPayloadParts("/Payload", payload, 4, 100);
+    Assert.assertEquals(1, transactions.size());
+    Assert.assertEquals(3, transactions.get(0).size());
+    Assert.assertArrayEquals(payload, concatPayloadParts(transactions));
+
+    // Empty Payload still has one transaction to add the ReadyPayloadVersion
+    transactions = ZooKeeperClient.packPayloadParts("/Payload", new byte[0], 3, 7);
+    Assert.assertEquals(Collections.singletonList(Collections.emptyList()), getPayloadPartPaths(transactions));
+  }
+
+  @Test
+  public void testSetPayloadPartsWithExistingNodes() throws Exception {
+    try (TestingServer zkServer = new TestingServer()) {
+      ZooKeeperClient zkClient = new ZooKeeperClient(zkServer.getConnectString());
+      String readyPayloadVersionsRootPath = ZooKeeperClient.getReadyPayloadVersionsRootPath(LARGE_OBJECT_PATH);
+      zkClient.createPath(LARGE_OBJECT_PATH);
+      zkClient.createPath(readyPayloadVersionsRootPath);
+      String payloadVersion = zkClient.createSequentialPath(LARGE_OBJECT_PATH);
+      String payloadRootPath = ZookeeperStoreStructure.getNodePath(LARGE_OBJECT_PATH, payloadVersion);
+
+      TaskStatuses expectedTaskStatuses = TestUtils.newTaskStatuses(100);
+      byte[] payload = CompressionUtils.compress(SerializationCodecs.serialize(SerializationCodecs.YAML, expectedTaskStatuses));
+      List<List<ZooKeeperClient.PayloadPart>> transactions =
+          ZooKeeperClient.packPayloadParts(payloadRootPath, payload, payload.length / 2 + 1, payload.length);
+      Assert.assertEquals(1, transactions.size());
+      Assert.assertEquals(2, transactions.get(0).size());
+
+      // The PayloadPart is already created as if the transaction was committed before a connection
+      // loss, so the retried transaction fails with NodeExists and falls back to Set one by one.
+      zkClient.createPath(transactions.get(0).get(0).path);
+      zkClient.setPayloadParts(payloadRootPath, transactions.get(0),
+          ZookeeperStoreStructure.getNodePath(readyPayloadVersionsRootPath, payloadVersion), readyPayloadVersionsRootPath);
+
+      Assert.assertEquals(Collections.singletonList(payloadVersion), zkClient.getChildren(readyPayloadVersionsRootPath));
+      Assert.assertTrue(ModelUtils.deepEquals(expectedTaskStatuses,
+          zkClient.getLargeObject(LARGE_OBJECT_PATH, TaskStatuses.class)));
+      zkClient.stop();
+    }
+  }
+
+  @Test
+  public void testSetLargeObjectCleanUpUnreadyVersion() throws Exception {
+    try (TestingServer zkServer = new TestingServer()) {
+      ZooKeeperClient zkClient = new ZooKeeperClient(zkServer.getConnectString());
+      TaskStatuses expectedTaskStatuses = TestUtils.newTaskStatuses(1);
+      zkClient.setLargeObject(LARGE_OBJECT_PATH, expectedTaskStatuses);
+      List<String> expectedChildren = zkClient.getChildren(LARGE_OBJECT_PATH);
+      zkClient.stop();
+
+      FailingSetPayloadPartsZooKeeperClient failingZkClient =
+          new FailingSetPayloadPartsZooKeeperClient(zkServer.getConnectString());
+      try {
+        failingZkClient.setLargeObject(LARGE_OBJECT_PATH, TestUtils.newTaskStatuses(2));
+        Assert.fail("setLargeObject should fail");
+      } catch (TransientException e) {
+        // Expected
+      }
+
+      // The PayloadVersion whose PayloadParts failed to be Set is not left orphaned
+      Assert.assertEquals(expectedChildren, failingZkClient.getChildren(LARGE_OBJECT_PATH));
+      Assert.assertTrue(ModelUtils.deepEquals(expectedTaskStatuses,
+          failingZkClient.getLargeObject(LARGE_OBJECT_PATH, TaskStatuses.class)));
+      failingZkClient.stop();
+    }
+  }
+
+  @Test
+  public void testGcOldVersionsCoalesced() throws Exception {
+    try (TestingServer zkServer = new TestingServer()) {
+      BlockingGcZooKeeperClient zkClient = new BlockingGcZooKeeperClient(zkServer.getConnectString());
+      TaskStatuses expectedTaskStatuses = null;
+      for (int i = 0; i < 3; i++) {
+        expectedTaskStatuses = TestUtils.newTaskStatuses(i + 1);
+        zkClient.setLargeObject(LARGE_OBJECT_PATH, expectedTaskStatuses);
+      }
+
+      // The GC for the later versions are coalesced into the pending one, which GC for the latest version
+      zkClient.gcUnblocked.countDown();
+      waitForGc(zkClient, 1);
+      Assert.assertEquals(1, zkClient.gcCount.get());
+      Assert.assertTrue(ModelUtils.deepEquals(expectedTaskStatuses,
+          zkClient.getLargeObject(LARGE_OBJECT_PATH, TaskStatuses.class)));
+
+      zkClient.setLargeObject(LARGE_OBJECT_PATH, TestUtils.newTaskStatuses(4));
+      waitForGc(zkClient, 1);
+      Assert.assertEquals(2, zkClient.gcCount.get());
+      zkClient.stop();
+    }
+  }
+
+  @Test
+  public void testWriteMetrics() throws Exception {
+    try (TestingServer zkServer = new TestingServer()) {
+      ZooKeeperClient zkClient = new ZooKeeperClient(zkServer.getConnectString());
+      Assert.assertNull(zkClient.getWriteMetrics("/SmallObject"));
+
+      TaskStatuses taskStatuses = TestUtils.newTaskStatuses(1);
+      zkClient.setSmallObject("/SmallObject", taskStatuses);
+      ZooKeeperClient.WriteMetrics metrics = zkClient.getWriteMetrics("/SmallObject");
+      Assert.assertEquals(1, metrics.getWriteCount());
+      Assert.assertEquals(SerializationCodecs.serialize(SerializationCodecs.YAML, taskStatuses).length,
+          metrics.getWrittenBytes());
+      Assert.assertTrue(metrics.getMaxWriteLatencyMs() >= metrics.getLastWriteLatencyMs());
+
+      // The returned WriteMetrics is a snapshot
+      zkClient.setSmallObject("/SmallObject", taskStatuses);
+      Assert.assertEquals(1, metrics.getWriteCount());
+      ZooKeeperClient.WriteMetrics newMetrics = zkClient.getWriteMetrics("/SmallObject");
+      Assert.assertEquals(2, newMetrics.getWriteCount());
+      Assert.assertEquals(2 * metrics.getWrittenBytes(), newMetrics.getWrittenBytes());
+      Assert.assertTrue(newMetrics.getMaxWriteLatencyMs() >= metrics.getMaxWriteLatencyMs());
+
+      // Written bytes of the LargeObject are the bytes after compression
+      zkClient.setLargeObject(LARGE_OBJECT_PATH, TestUtils.newTaskStatuses(LARGE_OBJECT_TASK_COUNT));
+      metrics = zkClient.getWriteMetrics(LARGE_OBJECT_PATH);
+      Assert.assertEquals(1, metrics.getWriteCount());
+      Assert.assertTrue(metrics.getWrittenBytes() > 0);
+      Assert.assertTrue(metrics.getWrittenBytes() < SerializationCodecs.serialize(SerializationCodecs.YAML,
+          TestUtils.newTaskStatuses(LARGE_OBJECT_TASK_COUNT)).length);
+      zkClient.stop();
+    }
+  }
+
+  // Block the GC until gcUnblocked, so that the following GC are pending
+  private static class BlockingGcZooKeeperClient extends ZooKeeperClient {
+    private final CountDownLatch gcUnblocked = new CountDownLatch(1);
+    private final AtomicInteger gcCount = new AtomicInteger(0);
+
+    private BlockingGcZooKeeperClient(String connectString) {
+      super(connectString);
+    }
+
+    @Override
+    void gcOldVersions(String path) {
+      try {
+        gcUnblocked.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      gcCount.incrementAndGet();
+      super.gcOldVersions(path);
+    }
+  }
+
+  // Fail to Set any PayloadParts, as if the transaction failed
+  private static class FailingSetPayloadPartsZooKeeperClient extends ZooKeeperClient {
+    private FailingSetPayloadPartsZooKeeperClient(String connectString) {
+      super(connectString);
+    }
+
+    @Override
+    void setPayloadParts(
+        String payloadRootPath, List<PayloadPart> payloadParts,
+        String readyPayloadVersionPath, String readyPayloadVersionsRootPath) throws Exception {
+      throw new TransientException("Failed to Set PayloadParts under " + payloadRootPath);
+    }
+  }
+
+  // Wait until only the given number of PayloadVersions are left
+  private static void waitForGc(ZooKeeperClient zkClient, int payloadVersionCount) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (zkClient.getChildren(ZooKeeperClient.getReadyPayloadVersionsRootPath(LARGE_OBJECT_PATH)).size() != payloadVersionCount ||
+        zkClient.getChildren(LARGE_OBJECT_PATH).size() != payloadVersionCount + 1) {
+      Assert.assertTrue("Old versions are not GC", System.currentTimeMillis() < deadline);
+      Thread.sleep(50);
+    }
+  }
+
+  private static List<List<String>> getPayloadPartPaths(List<List<ZooKeeperClient.PayloadPart>> transactions) {
+    List<List<String>> paths = new ArrayList<>();
+    for (List<ZooKeeperClient.PayloadPart> transaction : transactions) {
+      List<String> transactionPaths = new ArrayList<>();
+      for (ZooKeeperClient.PayloadPart payloadPart : transaction) {
+        transactionPaths.add(payloadPart.path);
+      }
+      paths.add(transactionPaths);
+    }
+    return paths;
+  }
+
+  private static byte[] concatPayloadParts(List<List<ZooKeeperClient.PayloadPart>> transactions) throws Exception {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    for (List<ZooKeeperClient.PayloadPart> transaction : transactions) {
+      for (ZooKeeperClient.PayloadPart payloadPart : transaction) {
+        payload.write(payloadPart.bytes);
+      }
+    }
+    return payload.toByteArray();
+  }
+
+  // Set the LargeObject to the changedObject before Get the PayloadParts, for the given times
+  private static class ConcurrentSetZooKeeperClient extends ZooKeeperClient {
+    private final Object changedObject;
+    private final int maxSetCount;
+    private final AtomicInteger setCount = new AtomicInteger(0);
+
+    private ConcurrentSetZooKeeperClient(String connectString, Object changedObject, int maxSetCount) {
+      super(connectString);
+      this.changedObject = changedObject;
+      this.maxSetCount = maxSetCount;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getChildrenAsync(String path) {
+      String payloadVersion = path.substring(path.lastIndexOf('/') + 1);
+      if (path.equals(LARGE_OBJECT_PATH + "/" + payloadVersion) &&
+          payloadVersion.matches("[0-9]+") && setCount.get() < maxSetCount) {
+        try {
+          setLargeObject(LARGE_OBJECT_PATH, changedObject);
+          setCount.incrementAndGet();
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+      return super.getChildrenAsync(path);
+    }
+  }
+
+  // Get the Payload of the latest ReadyPayloadVersion PayloadPart by PayloadPart by a separate client
+  private static TaskStatuses getLargeObjectSequentially(String connectString, String path) throws Exception {
+    try (CuratorFramework curator = CuratorFrameworkFactory.newClient(connectString, new RetryOneTime(1000))) {
+      curator.start();
+      List<String> readyPayloadVersions = curator.getChildren().forPath(
+          ZooKeeperClient.getReadyPayloadVersionsRootPath(path));
+      String payloadVersion = Collections.max(readyPayloadVersions);
+      String payloadRootPath = ZookeeperStoreStructure.getNodePath(path, payloadVersion);
+
+      ByteArrayOutputStream payload = new ByteArrayOutputStream();
+      int partCount = curator.getChildren().forPath(payloadRootPath).size();
+      Assert.assertTrue("The LargeObject is not split into multiple PayloadParts", partCount > 1);
+      for (Integer partIndex = 0; partIndex < partCount; partIndex++) {
+        payload.write(curator.getData().forPath(
+            ZookeeperStoreStructure.getNodePath(payloadRootPath, partIndex.toString())));
+      }
+      return SerializationCodecs.deserialize(CompressionUtils.decompress(payload.toByteArray()), TaskStatuses.class);
+    }
+  }
+
+  // The TaskStatuses which is not deepEquals to the TestUtils.newTaskStatuses of the same TaskNumber
+  private static TaskStatuses newChangedTaskStatuses(int taskNumber) throws Exception {
+    TaskStatuses taskStatuses = TestUtils.newTaskStatuses(taskNumber);
+    taskStatuses.setFrameworkVersion(taskStatuses.getFrameworkVersion() + 1);
+    return taskStatuses;
+  }
+}
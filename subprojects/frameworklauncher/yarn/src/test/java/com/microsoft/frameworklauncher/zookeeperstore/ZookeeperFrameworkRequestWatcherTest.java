@@ -0,0 +1,109 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ZookeeperFrameworkRequestWatcherTest {
+  private static final long TAKE_TIMEOUT_MS = 10000;
+  private static final String FRAMEWORK_NAME = "Framework";
+
+  private TestingServer zkServer;
+  private ZooKeeperClient zkClient;
+  private ZookeeperStoreStructure zkStruct;
+  private final AtomicInteger getChildrenCount = new AtomicInteger();
+
+  @Before
+  public void setUp() throws Exception {
+    zkServer = new TestingServer();
+    zkClient = new ZooKeeperClient(zkServer.getConnectString()) {
+      @Override
+      public List<String> getChildren(String path) throws Exception {
+        getChildrenCount.incrementAndGet();
+        return super.getChildren(path);
+      }
+
+      @Override
+      public List<String> getChildren(String path, CuratorWatcher watcher) throws Exception {
+        getChildrenCount.incrementAndGet();
+        return super.getChildren(path, watcher);
+      }
+    };
+    zkStruct = new ZookeeperStoreStructure("/Launcher");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    zkClient.stop();
+    zkServer.close();
+  }
+
+  @Test
+  public void testWatchChanges() throws Exception {
+    zkClient.createPath(zkStruct.getLauncherRootPath());
+    zkClient.setSmallObject(zkStruct.getLauncherRequestPath(), "LauncherRequest");
+    zkClient.setSmallObject(zkStruct.getFrameworkRequestPath(FRAMEWORK_NAME), "FrameworkRequest");
+
+    ZookeeperFrameworkRequestWatcher watcher = new ZookeeperFrameworkRequestWatcher(zkClient, zkStruct, FRAMEWORK_NAME);
+    watcher.start();
+    Assert.assertTrue(watcher.takeChanges(0).isResyncRequired());
+    Assert.assertNull(watcher.takeChanges(200));
+
+    // Data change only sets the triggered watch again, without listing the children again
+    getChildrenCount.set(0);
+    zkClient.setSmallObject(zkStruct.getFrameworkRequestPath(FRAMEWORK_NAME), "FrameworkRequestNew");
+    assertChanged(watcher);
+    Assert.assertEquals(0, getChildrenCount.get());
+
+    // The creation of the not existing nodes is watched
+    zkClient.setSmallObject(zkStruct.getOverrideApplicationProgressRequestPath(FRAMEWORK_NAME), "Progress");
+    assertChanged(watcher);
+    zkClient.createPath(zkStruct.getMigrateTaskRequestsPath(FRAMEWORK_NAME));
+    assertChanged(watcher);
+
+    // The added MigrateTaskRequest and its data change are watched
+    zkClient.setSmallObject(zkStruct.getMigrateTaskRequestPath(FRAMEWORK_NAME, "container1"), "MigrateTaskRequest");
+    assertChanged(watcher);
+    zkClient.setSmallObject(zkStruct.getMigrateTaskRequestPath(FRAMEWORK_NAME, "container1"), "MigrateTaskRequestNew");
+    assertChanged(watcher);
+
+    // Deleted Framework, and its recreation is still watched
+    zkClient.deleteRecursively(zkStruct.getFrameworkRequestPath(FRAMEWORK_NAME));
+    assertChanged(watcher);
+    zkClient.setSmallObject(zkStruct.getFrameworkRequestPath(FRAMEWORK_NAME), "FrameworkRequest");
+    assertChanged(watcher);
+  }
+
+  // Take the changes triggered by one write, a write may trigger more than one batch
+  private static void assertChanged(ZookeeperFrameworkRequestWatcher watcher) throws Exception {
+    ZookeeperFrameworkRequestWatcher.RequestChanges changes = watcher.takeChanges(TAKE_TIMEOUT_MS);
+    Assert.assertNotNull(changes);
+    Assert.assertFalse(changes.isResyncRequired());
+    Assert.assertTrue(changes.getEventCount() > 0);
+    while (watcher.takeChanges(200) != null) {
+    }
+  }
+}
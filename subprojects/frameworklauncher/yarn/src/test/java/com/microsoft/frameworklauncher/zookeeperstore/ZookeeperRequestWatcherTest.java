@@ -0,0 +1,89 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+public class ZookeeperRequestWatcherTest extends AbstractZookeeperWatcherTest<ZookeeperRequestWatcher.RequestChanges> {
+  @Test
+  public void testWatchChanges() throws Exception {
+    AbstractZookeeperWatcher<ZookeeperRequestWatcher.RequestChanges> watcher = startWatcher();
+    ZookeeperRequestWatcher.RequestChanges changes = takeResyncChanges(watcher);
+    Assert.assertEquals(Long.MAX_VALUE, changes.getFirstEventTimestamp());
+
+    // Adding a Framework only watches the added one, instead of all the Frameworks again
+    existsCount.set(0);
+    createFramework("FrameworkNew");
+    Assert.assertEquals(Collections.singleton("FrameworkNew"), takeChangedFrameworkNames(watcher, "FrameworkNew"));
+    Assert.assertEquals(1, existsCount.get());
+
+    // Updated Framework, and its watch is set again
+    for (int i = 0; i < 2; i++) {
+      long beforeUpdateTimestamp = System.currentTimeMillis();
+      setFrameworkRequest("Framework3", "FrameworkRequest" + i);
+      changes = watcher.takeChanges(TAKE_TIMEOUT_MS);
+      Assert.assertFalse(changes.isResyncRequired());
+      Assert.assertEquals(Collections.singleton("Framework3"), changes.getChangedFrameworkNames());
+      Assert.assertTrue(changes.getEventCount() > 0);
+      Assert.assertTrue(changes.getFirstEventTimestamp() >= beforeUpdateTimestamp);
+    }
+
+    assertDeletedFrameworksWatched(watcher);
+
+    watcher.requireResync();
+    takeResyncChanges(watcher);
+  }
+
+  @Override
+  protected AbstractZookeeperWatcher<ZookeeperRequestWatcher.RequestChanges> newWatcher() {
+    return new ZookeeperRequestWatcher(zkClient, zkStruct);
+  }
+
+  @Override
+  protected void createRoot() throws Exception {
+    zkClient.setSmallObject(zkStruct.getLauncherRequestPath(), "LauncherRequest");
+  }
+
+  @Override
+  protected void createFramework(String frameworkName) throws Exception {
+    setFrameworkRequest(frameworkName, "FrameworkRequest");
+  }
+
+  @Override
+  protected void updateFramework(String frameworkName) throws Exception {
+    setFrameworkRequest(frameworkName, "FrameworkRequestNew");
+  }
+
+  @Override
+  protected String getFrameworkPath(String frameworkName) {
+    return zkStruct.getFrameworkRequestPath(frameworkName);
+  }
+
+  @Override
+  protected Set<String> getChangedFrameworkNames(ZookeeperRequestWatcher.RequestChanges changes) {
+    return changes.getChangedFrameworkNames();
+  }
+
+  private void setFrameworkRequest(String frameworkName, String frameworkRequest) throws Exception {
+    zkClient.setSmallObject(zkStruct.getFrameworkRequestPath(frameworkName), frameworkRequest);
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+
+public class ZookeeperStatusWatcherTest extends AbstractZookeeperWatcherTest<ZookeeperStatusWatcher.StatusChanges> {
+  @Test
+  public void testWatchChanges() throws Exception {
+    AbstractZookeeperWatcher<ZookeeperStatusWatcher.StatusChanges> watcher = startWatcher();
+    takeResyncChanges(watcher);
+
+    // Adding a Framework only lists the added one, instead of all the Frameworks again
+    getChildrenCount.set(0);
+    createFramework("FrameworkNew");
+    Assert.assertTrue(takeChangedFrameworkNames(watcher, "FrameworkNew").contains("FrameworkNew"));
+    Assert.assertTrue("Too many getChildren: " + getChildrenCount.get(), getChildrenCount.get() < FRAMEWORK_COUNT);
+
+    // Data changes of the existing Frameworks are still detected
+    updateFramework("Framework3");
+    Assert.assertTrue(takeChangedFrameworkNames(watcher, "Framework3").contains("Framework3"));
+
+    assertDeletedFrameworksWatched(watcher);
+  }
+
+  @Override
+  protected AbstractZookeeperWatcher<ZookeeperStatusWatcher.StatusChanges> newWatcher() {
+    return new ZookeeperStatusWatcher(zkClient, zkStruct);
+  }
+
+  @Override
+  protected void createRoot() throws Exception {
+    zkClient.setSmallObject(zkStruct.getLauncherStatusPath(), "LauncherStatus");
+  }
+
+  @Override
+  protected void createFramework(String frameworkName) throws Exception {
+    zkClient.setSmallObject(zkStruct.getFrameworkStatusPath(frameworkName), "FrameworkStatus");
+    for (String taskRoleName : new String[]{"master", "worker"}) {
+      zkClient.setSmallObject(zkStruct.getTaskRoleStatusPath(frameworkName, taskRoleName), "TaskRoleStatus");
+    }
+  }
+
+  @Override
+  protected void updateFramework(String frameworkName) throws Exception {
+    zkClient.setSmallObject(zkStruct.getTaskRoleStatusPath(frameworkName, "worker"), "TaskRoleStatusNew");
+  }
+
+  @Override
+  protected String getFrameworkPath(String frameworkName) {
+    return zkStruct.getFrameworkStatusPath(frameworkName);
+  }
+
+  @Override
+  protected Set<String> getChangedFrameworkNames(ZookeeperStatusWatcher.StatusChanges changes) {
+    return changes.getChangedFrameworkNames();
+  }
+}
@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft Corporation
+// All rights reserved. 
+//
+// MIT License
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated 
+// documentation files (the "Software"), to deal in the Software without restriction, including without limitation 
+// the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and 
+// to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+// BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE. 
+
+package com.microsoft.frameworklauncher.zookeeperstore;
+
+import com.microsoft.frameworklauncher.common.exceptions.NonTransientException;
+import com.microsoft.frameworklauncher.common.model.TaskState;
+import com.microsoft.frameworklauncher.common.model.TaskStatus;
+import com.microsoft.frameworklauncher.common.model.TaskStatuses;
+import com.microsoft.frameworklauncher.common.model.TaskStatusesDelta;
+import com.microsoft.frameworklauncher.common.utils.ModelUtils;
+import com.microsoft.frameworklauncher.testutils.TestUtils;
+import org.apache.curator.test.TestingServer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ZookeeperStoreTest {
+  private static final String FRAMEWORK_NAME = "Framework";
+  private static final String TASK_ROLE_NAME = "worker";
+
+  @Rule
+  public TemporaryFolder zkBaseDir = new TemporaryFolder();
+
+  @Test
+  public void testTaskStatusesDelta() throws Exception {
+    MockZooKeeperClient zkClient = new MockZooKeeperClient();
+    ZookeeperStoreStructure zkStruct = new ZookeeperStoreStructure(zkBaseDir.getRoot().getAbsolutePath());
+    ZookeeperStore zkStore = new ZookeeperStore(zkClient, zkStruct);
+    String taskStatusesPath = zkStruct.getTaskStatusesPath(FRAMEWORK_NAME, TASK_ROLE_NAME);
+
+    // No TaskStatuses to append to
+    Assert.assertFalse(zkStore.appendTaskStatusesDelta(FRAMEWORK_NAME, TASK_ROLE_NAME,
+        newTaskStatusesDelta(1, newTaskStatus(0, TaskState.TASK_WAITING))));
+
+    TaskStatuses expectedTaskStatuses = TestUtils.newTaskStatuses(3);
+    zkStore.setTaskStatuses(FRAMEWORK_NAME, TASK_ROLE_NAME, expectedTaskStatuses);
+
+    // Read merged after each appended Delta, which updates, adds and removes Tasks
+    List<TaskStatusesDelta> deltas = Arrays.asList(
+        newTaskStatusesDelta(4, newTaskStatus(1, TaskState.CONTAINER_RUNNING), newTaskStatus(3, TaskState.TASK_WAITING)),
+        newTaskStatusesDelta(4, newTaskStatus(0, TaskState.TASK_COMPLETED)),
+        newTaskStatusesDelta(2));
+    for (TaskStatusesDelta delta : deltas) {
+      Assert.assertTrue(zkStore.appendTaskStatusesDelta(FRAMEWORK_NAME, TASK_ROLE_NAME, delta));
+      ZookeeperStore.applyTaskStatusesDelta(expectedTaskStatuses, delta);
+      Assert.assertTrue(ModelUtils.deepEquals(expectedTaskStatuses, zkStore.getTaskStatuses(FRAMEWORK_NAME, TASK_ROLE_NAME)));
+    }
+    Assert.assertEquals(2, expectedTaskStatuses.getTaskStatusArray().size());
+    Assert.assertEquals(TaskState.TASK_COMPLETED, expectedTaskStatuses.getTaskStatusArray().get(0).getTaskState());
+    Assert.assertEquals(TaskState.CONTAINER_RUNNING, expectedTaskStatuses.getTaskStatusArray().get(1).getTaskState());
+    Assert.assertEquals(deltas.size(), zkClient.getDeltaPaths(taskStatusesPath).size());
+
+    // Compaction by setting the whole TaskStatuses, then the old Deltas are GC
+    zkStore.setTaskStatuses(FRAMEWORK_NAME, TASK_ROLE_NAME, expectedTaskStatuses);
+    Assert.assertEquals(Collections.emptyList(), zkClient.getDeltaPaths(taskStatusesPath));
+    Assert.assertTrue(ModelUtils.deepEquals(expectedTaskStatuses, zkStore.getTaskStatuses(FRAMEWORK_NAME, TASK_ROLE_NAME)));
+  }
+
+  @Test
+  public void testTaskStatusesDeltaOnZK() throws Exception {
+    try (TestingServer zkServer = new TestingServer()) {
+      ZookeeperStore zkStore = new ZookeeperStore(zkServer.getConnectString(), "/Launcher");
+      String deltasRootPath = ZooKeeperClient.getDeltasRootPath(
+          zkStore.zkStruct.getTaskStatusesPath(FRAMEWORK_NAME, TASK_ROLE_NAME));
+      for (String path : new String[]{
+          zkStore.zkStruct.getLauncherStatusPath(),
+          zkStore.zkStruct.getFrameworkStatusPath(FRAMEWORK_NAME),
+          zkStore.zkStruct.getTaskRoleStatusPath(FRAMEWORK_NAME, TASK_ROLE_NAME)}) {
+        zkStore.zkClient.createPath(path);
+      }
+
+      TaskStatuses expectedTaskStatuses = TestUtils.newTaskStatuses(1);
+      zkStore.setTaskStatuses(FRAMEWORK_NAME, TASK_ROLE_NAME, expectedTaskStatuses);
+      for (int i = 1; i <= 3; i++) {
+        TaskStatusesDelta delta = newTaskStatusesDelta(i + 1, newTaskStatus(i, TaskState.TASK_WAITING));
+        Assert.assertTrue(zkStore.appendTaskStatusesDelta(FRAMEWORK_NAME, TASK_ROLE_NAME, delta));
+        ZookeeperStore.applyTaskStatusesDelta(expectedTaskStatuses, delta);
+      }
+      Assert.assertTrue(ModelUtils.deepEquals(expectedTaskStatuses, zkStore.getTaskStatuses(FRAMEWORK_NAME, TASK_ROLE_NAME)));
+      Assert.assertEquals(3, zkStore.zkClient.getChildren(deltasRootPath).size());
+
+      // The Deltas based on the old Payload are ignored once compacted, and then GC asynchronously
+      expectedTaskStatuses.getTaskStatusArray().get(0).setTaskState(TaskState.TASK_COMPLETED);
+      zkStore.setTaskStatuses(FRAMEWORK_NAME, TASK_ROLE_NAME, expectedTaskStatuses);
+      Assert.assertTrue(ModelUtils.deepEquals(expectedTaskStatuses, zkStore.getTaskStatuses(FRAMEWORK_NAME, TASK_ROLE_NAME)));
+      long deadline = System.currentTimeMillis() + 10000;
+      while (!zkStore.zkClient.getChildren(deltasRootPath).isEmpty()) {
+        Assert.assertTrue("Old Deltas are not GC", System.currentTimeMillis() < deadline);
+        Thread.sleep(50);
+      }
+      zkStore.zkClient.stop();
+    }
+  }
+
+  @Test
+  public void testCorruptTaskStatusesDelta() throws Exception {
+    TaskStatuses taskStatuses = TestUtils.newTaskStatuses(1);
+    try {
+      ZookeeperStore.applyTaskStatusesDelta(taskStatuses, newTaskStatusesDelta(3, newTaskStatus(2, TaskState.TASK_WAITING)));
+      Assert.fail("TaskStatusesDelta with a TaskIndex beyond the TaskStatusArray is applied");
+    } catch (NonTransientException e) {
+      // Expected
+    }
+    try {
+      ZookeeperStore.applyTaskStatusesDelta(taskStatuses, newTaskStatusesDelta(2));
+      Assert.fail("TaskStatusesDelta with a mismatched TaskStatusArray size is applied");
+    } catch (NonTransientException e) {
+      // Expected
+    }
+  }
+
+  private static TaskStatus newTaskStatus(int taskIndex, TaskState taskState) throws Exception {
+    TaskStatus taskStatus = TestUtils.newTaskStatus(taskIndex);
+    taskStatus.setTaskState(taskState);
+    return taskStatus;
+  }
+
+  private static TaskStatusesDelta newTaskStatusesDelta(int taskStatusArraySize, TaskStatus... changedTaskStatusArray) {
+    TaskStatusesDelta taskStatusesDelta = new TaskStatusesDelta();
+    taskStatusesDelta.setTaskStatusArraySize(taskStatusArraySize);
+    taskStatusesDelta.setChangedTaskStatusArray(new ArrayList<>(Arrays.asList(changedTaskStatusArray)));
+    return taskStatusesDelta;
+  }
+}